@@ -1,6 +1,6 @@
 <%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8"%>
 <%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
-<%@ page import="org.owasp.encoder.Encode" %>
+<%@ taglib uri="/WEB-INF/climate.tld" prefix="cr" %>
 <html lang="en">
 <head>
     <meta charset="UTF-8">
@@ -78,6 +78,10 @@
         .btn:hover {
             opacity: 0.9;
         }
+        .total {
+            color: #666;
+            margin: 10px 0 0;
+        }
     </style>
 </head>
 <body>
@@ -87,8 +91,15 @@
             <a href="new">Add New Record</a>
             <a href="list">List All Records</a>
             <a href="search">Search Records</a> <!-- Added this line -->
+            <a href="summary">Monthly Summary</a>
+            <a href="nearby">Nearby Stations</a>
         </div>
-        <table>
+        <c:if test="${not empty recordCount}">
+            <p class="total" id="record-total" data-count="${recordCount.value}" data-exact="${recordCount.exact}">
+                Showing <c:out value="${recordCount}"/> records
+            </p>
+        </c:if>
+        <table id="records">
             <caption><h2>List of Climate Records</h2></caption>
             <tr>
                 <th>ID</th>
@@ -98,25 +109,73 @@
                 <th>Wind</th>
                 <th>Actions</th>
             </tr>
-            <c:forEach var="record" items="${listRecord}">
-                <tr>
-                    <td>${Encode.forHtml(record.id)}</td>
-                    <td>${Encode.forHtml(record.date)}</td>
-                    <td>${Encode.forHtml(record.location)}</td>
-                    <td>${Encode.forHtml(record.temperature)}</td>
-                    <td>${Encode.forHtml(record.wind)}</td>
-                    <td>
-                        <button class="btn btn-edit">
-                            <a href="edit?id=${Encode.forHtml(record.id)}" style="color:white;">Edit</a>
-                        </button>
-                        <button class="btn btn-delete">
-                            <a href="delete?id=${Encode.forHtml(record.id)}" style="color:white;">Delete</a>
-                        </button>
-                    </td>
-                </tr>
-            </c:forEach>
+            <cr:recordRows rows="${recordRows}" emptyMessage="No climate records found."/>
         </table>
         <button class="btn btn-trends" onclick="location.href='temperatureTrends';">View Temperature Trends</button>
     </div>
+
+    <script>
+        // Live updates: patch the table in place as records are inserted, updated and deleted
+        (function () {
+            if (!window.EventSource) {
+                return;
+            }
+            const table = document.getElementById("records");
+            const total = document.getElementById("record-total");
+
+            // Keeps an exact total in step with the rows; an estimate is left as it is
+            function adjustTotal(delta) {
+                if (total && total.dataset.exact === "true") {
+                    total.dataset.count = Number(total.dataset.count) + delta;
+                    total.textContent = "Showing " + Number(total.dataset.count).toLocaleString("en") + " records";
+                }
+            }
+
+            function actionButton(cssClass, href, label) {
+                const button = document.createElement("button");
+                button.className = "btn " + cssClass;
+                const link = document.createElement("a");
+                link.href = href;
+                link.style.color = "white";
+                link.textContent = label;
+                button.appendChild(link);
+                return button;
+            }
+
+            function fillRow(row, record) {
+                row.id = "record-" + record.id;
+                row.replaceChildren();
+                [record.id, record.date, record.location, record.temperature, record.wind].forEach(value => {
+                    row.insertCell().textContent = value;
+                });
+                const actions = row.insertCell();
+                actions.appendChild(actionButton("btn-edit", "edit?id=" + record.id, "Edit"));
+                actions.appendChild(actionButton("btn-delete", "delete?id=" + record.id, "Delete"));
+            }
+
+            const events = new EventSource("events");
+            events.addEventListener("record-inserted", e => {
+                const record = JSON.parse(e.data);
+                if (!document.getElementById("record-" + record.id)) {
+                    fillRow(table.insertRow(), record);
+                    adjustTotal(1);
+                }
+            });
+            events.addEventListener("record-updated", e => {
+                const record = JSON.parse(e.data);
+                const row = document.getElementById("record-" + record.id);
+                if (row) {
+                    fillRow(row, record);
+                }
+            });
+            events.addEventListener("record-deleted", e => {
+                const row = document.getElementById("record-" + JSON.parse(e.data).id);
+                if (row) {
+                    row.remove();
+                    adjustTotal(-1);
+                }
+            });
+        })();
+    </script>
 </body>
 </html>
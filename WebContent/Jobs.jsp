@@ -0,0 +1,124 @@
+<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8"%>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ page import="org.owasp.encoder.Encode" %>
+<html lang="en">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Background Jobs</title>
+    <style>
+        body {
+            font-family: 'Arial', sans-serif;
+            background-color: #f9f9f9;
+            color: #333;
+            margin: 0;
+            padding: 0;
+        }
+        h1 {
+            color: #0066cc;
+        }
+        .container {
+            width: 80%;
+            margin: auto;
+            text-align: center;
+            padding: 20px;
+        }
+        .links a {
+            text-decoration: none;
+            color: #0066cc;
+            font-weight: bold;
+            padding: 10px 15px;
+            border: 1px solid #0066cc;
+            border-radius: 4px;
+            margin: 0 10px;
+            transition: all 0.3s;
+        }
+        .links a:hover {
+            background-color: #0066cc;
+            color: #fff;
+        }
+        table {
+            width: 100%;
+            border-collapse: collapse;
+            margin: 20px 0;
+            background-color: #fff;
+            box-shadow: 0px 2px 5px rgba(0, 0, 0, 0.1);
+        }
+        table th, table td {
+            padding: 10px;
+            text-align: center;
+            border: 1px solid #ddd;
+        }
+        table th {
+            background-color: #f4f4f4;
+        }
+        table tr:hover {
+            background-color: #f1f1f1;
+        }
+        table td.error {
+            text-align: left;
+            color: #cc0000;
+        }
+    </style>
+</head>
+<body>
+    <div class="container">
+        <h1>Background Jobs</h1>
+        <div class="links">
+            <a href="../list">List All Records</a>
+            <a href="slow-queries">Slow Queries</a>
+            <a href="../metrics">Metrics</a>
+        </div>
+        <c:if test="${not empty jobs}">
+            <table>
+                <tr>
+                    <th>Job</th>
+                    <th>Schedule</th>
+                    <th>Limit</th>
+                    <th>Next Run</th>
+                    <th>Running</th>
+                    <th>Succeeded</th>
+                    <th>Failed</th>
+                    <th>Skipped (overlap)</th>
+                    <th>Skipped (locked)</th>
+                    <th>Last Run</th>
+                    <th>Last Duration (ms)</th>
+                    <th>Max Duration (ms)</th>
+                </tr>
+                <c:forEach var="job" items="${jobs}">
+                    <tr>
+                        <td>${Encode.forHtml(job.name)}</td>
+                        <td>${Encode.forHtml(job.trigger)}</td>
+                        <td>
+                            ${job.maxConcurrent}
+                            <c:if test="${job.exclusive}">(one node)</c:if>
+                        </td>
+                        <td>${Encode.forHtml(job.nextRun)}</td>
+                        <td>${job.running}</td>
+                        <td>${job.succeeded}</td>
+                        <td>${job.failed}</td>
+                        <td>${job.skippedOverlap}</td>
+                        <td>${job.skippedLocked}</td>
+                        <td>
+                            <c:choose>
+                                <c:when test="${job.lastStart != null}">${Encode.forHtml(job.lastStart)} (${Encode.forHtml(job.lastOutcome)})</c:when>
+                                <c:otherwise>never</c:otherwise>
+                            </c:choose>
+                        </td>
+                        <td>${job.lastDurationMillis}</td>
+                        <td>${job.maxDurationMillis}</td>
+                    </tr>
+                    <c:if test="${not empty job.lastError}">
+                        <tr>
+                            <td class="error" colspan="12"><strong>Last error:</strong> ${Encode.forHtml(job.lastError)}</td>
+                        </tr>
+                    </c:if>
+                </c:forEach>
+            </table>
+        </c:if>
+        <c:if test="${empty jobs}">
+            <p>No background jobs are scheduled.</p>
+        </c:if>
+    </div>
+</body>
+</html>
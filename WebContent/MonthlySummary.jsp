@@ -0,0 +1,105 @@
+<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8"%>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/fmt" prefix="fmt" %>
+<html lang="en">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Monthly Climate Summary</title>
+    <style>
+        body {
+            font-family: 'Arial', sans-serif;
+            background-color: #f9f9f9;
+            color: #333;
+            margin: 0;
+            padding: 0;
+        }
+        h1 {
+            color: #0066cc;
+        }
+        .container {
+            width: 80%;
+            margin: auto;
+            text-align: center;
+            padding: 20px;
+        }
+        .links a {
+            text-decoration: none;
+            color: #0066cc;
+            font-weight: bold;
+            padding: 10px 15px;
+            border: 1px solid #0066cc;
+            border-radius: 4px;
+            margin: 0 10px;
+            transition: all 0.3s;
+        }
+        .links a:hover {
+            background-color: #0066cc;
+            color: #fff;
+        }
+        table {
+            width: 100%;
+            border-collapse: collapse;
+            margin: 20px 0;
+            background-color: #fff;
+            box-shadow: 0px 2px 5px rgba(0, 0, 0, 0.1);
+        }
+        table th, table td {
+            padding: 10px;
+            text-align: center;
+            border: 1px solid #ddd;
+        }
+        table th {
+            background-color: #f4f4f4;
+        }
+        table tr:hover {
+            background-color: #f1f1f1;
+        }
+    </style>
+</head>
+<body>
+    <div class="container">
+        <h1>Monthly Climate Summary</h1>
+        <div class="links">
+            <a href="list">List All Records</a>
+            <a href="temperatureTrends">View Temperature Trends</a>
+        </div>
+        <c:if test="${not empty summary}">
+            <table>
+                <caption><h2>Readings by Location and Month</h2></caption>
+                <tr>
+                    <th rowspan="2">Location</th>
+                    <th rowspan="2">Month</th>
+                    <th rowspan="2">Records</th>
+                    <th colspan="3">Temperature</th>
+                    <th colspan="3">Wind</th>
+                </tr>
+                <tr>
+                    <th>Min</th>
+                    <th>Mean</th>
+                    <th>Max</th>
+                    <th>Min</th>
+                    <th>Mean</th>
+                    <th>Max</th>
+                </tr>
+                <c:forEach var="group" items="${summary}">
+                    <tr>
+                        <td><c:out value="${group.key.location}"/></td>
+                        <td><c:out value="${group.key.month}"/></td>
+                        <td>${group.value.count}</td>
+                        <td><fmt:formatNumber value="${group.value.minTemperature}" maxFractionDigits="1"/></td>
+                        <td><fmt:formatNumber value="${group.value.meanTemperature}" maxFractionDigits="1"/></td>
+                        <td><fmt:formatNumber value="${group.value.maxTemperature}" maxFractionDigits="1"/></td>
+                        <td><fmt:formatNumber value="${group.value.minWind}" maxFractionDigits="1"/></td>
+                        <td><fmt:formatNumber value="${group.value.meanWind}" maxFractionDigits="1"/></td>
+                        <td><fmt:formatNumber value="${group.value.maxWind}" maxFractionDigits="1"/></td>
+                    </tr>
+                </c:forEach>
+            </table>
+        </c:if>
+        <c:if test="${empty summary}">
+            <p>No climate records found.</p>
+        </c:if>
+    </div>
+</body>
+</html>
@@ -0,0 +1,142 @@
+<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8"%>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/fmt" prefix="fmt" %>
+<%@ taglib uri="/WEB-INF/climate.tld" prefix="cr" %>
+<html lang="en">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Stations Near a Point</title>
+    <style>
+        body {
+            font-family: 'Arial', sans-serif;
+            background-color: #f9f9f9;
+            color: #333;
+            margin: 0;
+            padding: 0;
+        }
+        h1 {
+            color: #0066cc;
+        }
+        .container {
+            width: 80%;
+            margin: auto;
+            text-align: center;
+            padding: 20px;
+        }
+        .links a {
+            text-decoration: none;
+            color: #0066cc;
+            font-weight: bold;
+            padding: 10px 15px;
+            border: 1px solid #0066cc;
+            border-radius: 4px;
+            margin: 0 10px;
+            transition: all 0.3s;
+        }
+        .links a:hover {
+            background-color: #0066cc;
+            color: #fff;
+        }
+        table {
+            width: 100%;
+            border-collapse: collapse;
+            margin: 20px 0;
+            background-color: #fff;
+            box-shadow: 0px 2px 5px rgba(0, 0, 0, 0.1);
+        }
+        table th, table td {
+            padding: 10px;
+            text-align: center;
+            border: 1px solid #ddd;
+        }
+        table th {
+            background-color: #f4f4f4;
+        }
+        table tr:hover {
+            background-color: #f1f1f1;
+        }
+        form {
+            margin-top: 20px;
+        }
+        form label {
+            margin: 0 8px;
+        }
+    </style>
+</head>
+<body>
+    <div class="container">
+        <h1>Stations Near a Point</h1>
+        <div class="links">
+            <a href="list">List All Records</a>
+            <a href="search">Search by City</a>
+        </div>
+
+        <!-- Every station within a radius, with its records -->
+        <form action="nearby" method="get">
+            <label>Latitude <input type="number" name="lat" step="any" min="-90" max="90" value="<c:out value="${param.lat}"/>" required /></label>
+            <label>Longitude <input type="number" name="lon" step="any" min="-180" max="180" value="<c:out value="${param.lon}"/>" required /></label>
+            <label>Within <input type="number" name="radiusKm" step="any" min="0" value="<c:out value="${empty param.radiusKm ? 50 : param.radiusKm}"/>" /> km</label>
+            <label>From <input type="date" name="from" value="<c:out value="${param.from}"/>" /></label>
+            <label>To <input type="date" name="to" value="<c:out value="${param.to}"/>" /></label>
+            <button type="submit">Find Records</button>
+        </form>
+
+        <!-- The nearest stations, optionally only those with a reading on a date -->
+        <form action="nearest" method="get">
+            <label>Latitude <input type="number" name="lat" step="any" min="-90" max="90" value="<c:out value="${param.lat}"/>" required /></label>
+            <label>Longitude <input type="number" name="lon" step="any" min="-180" max="180" value="<c:out value="${param.lon}"/>" required /></label>
+            <label>Stations <input type="number" name="k" min="1" value="<c:out value="${empty param.k ? 1 : param.k}"/>" /></label>
+            <label>With data on <input type="date" name="date" value="<c:out value="${param.date}"/>" /></label>
+            <button type="submit">Find Nearest</button>
+        </form>
+
+        <c:if test="${stations != null}">
+            <table>
+                <caption>
+                    <h2>
+                        <c:choose>
+                            <c:when test="${mode == 'nearby'}">Stations within <c:out value="${empty param.radiusKm ? 50 : param.radiusKm}"/> km</c:when>
+                            <c:when test="${not empty param.date}">Nearest stations with data on <c:out value="${param.date}"/></c:when>
+                            <c:otherwise>Nearest stations</c:otherwise>
+                        </c:choose>
+                    </h2>
+                </caption>
+                <tr>
+                    <th>Station</th>
+                    <th>Latitude</th>
+                    <th>Longitude</th>
+                    <th>Distance (km)</th>
+                </tr>
+                <c:forEach var="neighbor" items="${stations}">
+                    <tr>
+                        <td><c:out value="${neighbor.station.location}"/></td>
+                        <td><fmt:formatNumber value="${neighbor.station.latitude}" maxFractionDigits="4"/></td>
+                        <td><fmt:formatNumber value="${neighbor.station.longitude}" maxFractionDigits="4"/></td>
+                        <td><fmt:formatNumber value="${neighbor.distanceKm}" maxFractionDigits="1"/></td>
+                    </tr>
+                </c:forEach>
+            </table>
+            <c:if test="${empty stations}">
+                <p>No station found.</p>
+            </c:if>
+        </c:if>
+
+        <!-- Records of the stations found; rows are streamed as they are read -->
+        <c:if test="${recordRows != null}">
+            <table>
+                <caption><h2>Records</h2></caption>
+                <tr>
+                    <th>ID</th>
+                    <th>Date</th>
+                    <th>Location</th>
+                    <th>Temperature</th>
+                    <th>Wind</th>
+                    <th>Actions</th>
+                </tr>
+                <cr:recordRows rows="${recordRows}" emptyMessage="No records available for these stations."/>
+            </table>
+        </c:if>
+    </div>
+</body>
+</html>
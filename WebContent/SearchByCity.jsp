@@ -1,6 +1,6 @@
 <%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8"%>
 <%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
-<%@ page import="org.owasp.encoder.Encode" %>
+<%@ taglib uri="/WEB-INF/climate.tld" prefix="cr" %>
 <html lang="en">
 <head>
     <meta charset="UTF-8">
@@ -71,10 +71,20 @@
             <button class="btn btn-search" type="submit">Display Records</button>
         </form>
 
-        <!-- Display Records Table if records exist -->
-        <c:if test="${not empty cityRecords}">
+        <!-- Display the records table once a city is selected; rows are streamed as they are read -->
+        <c:if test="${not empty city}">
             <table>
-                <caption><h2>List of Records for ${param.city}</h2></caption>
+                <caption>
+                    <h2>List of Records for <c:out value="${city}"/></h2>
+                    <c:choose>
+                        <c:when test="${not empty recordCount}">
+                            <p>Showing <c:out value="${recordCount}"/> records</p>
+                        </c:when>
+                        <c:otherwise>
+                            <p>The number of records is unavailable; showing all of them</p>
+                        </c:otherwise>
+                    </c:choose>
+                </caption>
                 <tr>
                     <th>ID</th>
                     <th>Date</th>
@@ -83,28 +93,12 @@
                     <th>Wind</th>
                     <th>Actions</th>
                 </tr>
-                <c:forEach var="record" items="${cityRecords}">
-                    <tr>
-                        <td>${Encode.forHtml(record.id)}</td>
-                        <td>${Encode.forHtml(record.date)}</td>
-                        <td>${Encode.forHtml(record.location)}</td>
-                        <td>${Encode.forHtml(record.temperature)}</td>
-                        <td>${Encode.forHtml(record.wind)}</td>
-                        <td>
-                            <button class="btn btn-edit">
-                                <a href="edit?id=${Encode.forHtml(record.id)}" style="color:white;">Edit</a>
-                            </button>
-                            <button class="btn btn-delete">
-                                <a href="delete?id=${Encode.forHtml(record.id)}" style="color:white;">Delete</a>
-                            </button>
-                        </td>
-                    </tr>
-                </c:forEach>
+                <cr:recordRows rows="${recordRows}" emptyMessage="No records available for the selected city."/>
             </table>
         </c:if>
         
-        <!-- If no city is selected or no records are found, display message -->
-        <c:if test="${empty cityRecords}">
+        <!-- If no city is selected, display message -->
+        <c:if test="${empty city}">
             <p>No records available for the selected city. Please select a city and try again.</p>
         </c:if>
 
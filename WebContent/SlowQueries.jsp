@@ -0,0 +1,142 @@
+<%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8"%>
+<%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ page import="org.owasp.encoder.Encode" %>
+<html lang="en">
+<head>
+    <meta charset="UTF-8">
+    <meta name="viewport" content="width=device-width, initial-scale=1.0">
+    <title>Slow Queries</title>
+    <style>
+        body {
+            font-family: 'Arial', sans-serif;
+            background-color: #f9f9f9;
+            color: #333;
+            margin: 0;
+            padding: 0;
+        }
+        h1 {
+            color: #0066cc;
+        }
+        .container {
+            width: 80%;
+            margin: auto;
+            text-align: center;
+            padding: 20px;
+        }
+        .links a {
+            text-decoration: none;
+            color: #0066cc;
+            font-weight: bold;
+            padding: 10px 15px;
+            border: 1px solid #0066cc;
+            border-radius: 4px;
+            margin: 0 10px;
+            transition: all 0.3s;
+        }
+        .links a:hover {
+            background-color: #0066cc;
+            color: #fff;
+        }
+        table {
+            width: 100%;
+            border-collapse: collapse;
+            margin: 20px 0;
+            background-color: #fff;
+            box-shadow: 0px 2px 5px rgba(0, 0, 0, 0.1);
+        }
+        table th, table td {
+            padding: 10px;
+            text-align: center;
+            border: 1px solid #ddd;
+        }
+        table th {
+            background-color: #f4f4f4;
+        }
+        table tr:hover {
+            background-color: #f1f1f1;
+        }
+        table td.sql {
+            text-align: left;
+            font-family: monospace;
+        }
+        pre {
+            text-align: left;
+            white-space: pre-wrap;
+        }
+    </style>
+</head>
+<body>
+    <div class="container">
+        <h1>Slow Queries</h1>
+        <div class="links">
+            <a href="../list">List All Records</a>
+            <a href="../metrics">Metrics</a>
+        </div>
+        <p>
+            Statements taking at least ${queryMonitor.slowThresholdMillis} ms are logged;
+            ${queryMonitor.slowQueryCount} so far.
+            Default query timeout:
+            <c:choose>
+                <c:when test="${queryMonitor.defaultTimeoutSeconds > 0}">${queryMonitor.defaultTimeoutSeconds} s</c:when>
+                <c:otherwise>none</c:otherwise>
+            </c:choose>;
+            request deadline: ${requestTimeoutSeconds} s.
+        </p>
+        <c:if test="${not empty queryMonitor.methodTimeouts}">
+            <table>
+                <caption><h2>Query Timeouts</h2></caption>
+                <tr>
+                    <th>Method</th>
+                    <th>Timeout (s)</th>
+                </tr>
+                <c:forEach var="timeout" items="${queryMonitor.methodTimeouts}">
+                    <tr>
+                        <td>${Encode.forHtml(timeout.key)}</td>
+                        <td>${timeout.value}</td>
+                    </tr>
+                </c:forEach>
+            </table>
+        </c:if>
+        <c:if test="${not empty slowQueries}">
+            <table>
+                <caption><h2>Recent Slow Queries</h2></caption>
+                <tr>
+                    <th>Time</th>
+                    <th>Method</th>
+                    <th>Shard</th>
+                    <th>Duration (ms)</th>
+                    <th>Rows</th>
+                    <th>Statement</th>
+                </tr>
+                <c:forEach var="query" items="${slowQueries}">
+                    <tr>
+                        <td>${Encode.forHtml(query.time)}</td>
+                        <td>${Encode.forHtml(query.method)}</td>
+                        <td>${query.shard}</td>
+                        <td>${query.durationMillis}</td>
+                        <td>
+                            <c:choose>
+                                <c:when test="${query.failed}">failed</c:when>
+                                <c:otherwise>${query.rows}</c:otherwise>
+                            </c:choose>
+                        </td>
+                        <td class="sql">
+                            ${Encode.forHtml(query.sql)}<br>
+                            <strong>Parameters:</strong> ${Encode.forHtml(query.parameters)}
+                            <c:if test="${not empty query.plan}">
+                                <details>
+                                    <summary>Plan</summary>
+                                    <pre>${Encode.forHtml(query.plan)}</pre>
+                                </details>
+                            </c:if>
+                        </td>
+                    </tr>
+                </c:forEach>
+            </table>
+        </c:if>
+        <c:if test="${empty slowQueries}">
+            <p>No slow queries have been logged.</p>
+        </c:if>
+    </div>
+</body>
+</html>
@@ -1,5 +1,6 @@
 <%@ page language="java" contentType="text/html; charset=UTF-8" pageEncoding="UTF-8"%>
 <%@ taglib uri="http://java.sun.com/jsp/jstl/core" prefix="c" %>
+<%@ page import="org.owasp.encoder.Encode" %>
 <html lang="en">
 <head>
     <meta charset="UTF-8">
@@ -34,6 +35,12 @@
             background-color: #0066cc;
             color: #fff;
         }
+        .compare {
+            margin-top: 20px;
+        }
+        .compare label {
+            margin: 0 8px;
+        }
     </style>
 </head>
 <body>
@@ -42,50 +49,240 @@
         <div class="links">
             <a href="list">Back to Records</a>
         </div>
+        <form id="compareForm" class="compare">
+            <c:forEach var="loc" items="${locations}">
+                <label><input type="checkbox" name="city" value="${Encode.forHtml(loc)}" /> ${Encode.forHtml(loc)}</label>
+            </c:forEach>
+            <label>From <input type="date" name="from" required /></label>
+            <label>To <input type="date" name="to" required /></label>
+            <button type="submit">Compare</button>
+            <button type="button" id="showAll">Show All</button>
+            <label>Metric
+                <select id="metric">
+                    <option value="temperature">Temperature</option>
+                    <option value="windChill">Wind chill</option>
+                    <option value="apparent">Apparent temperature</option>
+                </select>
+            </label>
+            <label>Window
+                <select id="window">
+                    <option value="">Daily values</option>
+                    <option value="7">7 days</option>
+                    <option value="30">30 days</option>
+                    <option value="365">365 days</option>
+                </select>
+            </label>
+            <label>Statistic
+                <select id="stat">
+                    <option value="mean">Moving average</option>
+                    <option value="min">Rolling minimum</option>
+                    <option value="max">Rolling maximum</option>
+                </select>
+            </label>
+        </form>
         <div id="temperatureChart" style="text-align: center; margin-top:20px; padding:20px; height: 400px; width: 100%;"></div>
     </div>
 
     <script>
-        // Fetch temperature data passed from the servlet
-        const records = [
-            <c:forEach var="record" items="${recordsList}">
-                { date: new Date('${record.date}'), temperature: ${record.temperature} 
-                }<c:if test="${!record.id.equals(recordsList[recordsList.size() - 1].id)}">,</c:if>
-            </c:forEach>
-        ];
-
-        // Sort records by date in ascending order
-        records.sort((a, b) => a.date - b.date);
-
-        // Prepare data points for the chart
-        const dataPoints = records.map(record => ({
-            x: record.date,
-            y: record.temperature
-        }));
-
-        // Initialize CanvasJS Chart
-        const chart = new CanvasJS.Chart("temperatureChart", {
-            animationEnabled: true,
-            theme: "light2",
-            title: {
-                text: "Temperature Trends"
-            },
-            axisX: {
-                title: "Date",
-                valueFormatString: "YYYY-MM-DD"
-            },
-            axisY: {
-                title: "Temperature (°C)",
-                minimum: Math.min(0, Math.min(...dataPoints.map(dp => dp.y)))
-            },
-            data: [{
+        // The series arrive as little-endian typed arrays (see TrendSeriesWriter): a header with the
+        // offset and length of each location's run, then the ID, epoch-day and value columns. The value
+        // is the selected metric, NaN on days it is not defined for
+        const DAY_MILLIS = 86400000;
+        const series = new Map();
+        let chart;
+
+        function readSeries(buffer) {
+            const view = new DataView(buffer);
+            if (view.getInt32(0, true) !== 0x31535443) {
+                throw new Error("Unexpected trend data format");
+            }
+            const locationCount = view.getInt32(4, true);
+            const pointCount = view.getInt32(8, true);
+            const decoder = new TextDecoder();
+            const runs = [];
+            let position = 12;
+            for (let i = 0; i < locationCount; i++) {
+                const offset = view.getInt32(position, true);
+                const count = view.getInt32(position + 4, true);
+                const nameLength = view.getUint16(position + 8, true);
+                const name = decoder.decode(new Uint8Array(buffer, position + 10, nameLength));
+                runs.push({ name: name, offset: offset, count: count });
+                position += 10 + nameLength;
+            }
+            position = (position + 3) & ~3;
+            const ids = new Int32Array(buffer, position, pointCount);
+            const days = new Int32Array(buffer, position + 4 * pointCount, pointCount);
+            const temperatures = new Float32Array(buffer, position + 8 * pointCount, pointCount);
+
+            for (const run of runs) {
+                const points = new Map();
+                for (let i = run.offset; i < run.offset + run.count; i++) {
+                    if (Number.isNaN(temperatures[i])) {
+                        continue;
+                    }
+                    points.set(ids[i], { x: days[i] * DAY_MILLIS, y: temperatures[i] });
+                }
+                series.set(run.name, points);
+            }
+            return temperatures;
+        }
+
+        function chartData() {
+            return Array.from(series, ([name, points]) => ({
                 type: "line",
+                name: name,
+                showInLegend: true,
                 xValueType: "dateTime",
-                dataPoints: dataPoints
-            }]
+                dataPoints: Array.from(points.values()).sort((a, b) => a.x - b.x)
+            }));
+        }
+
+        // Cities and date range of the comparison shown, or null when every location is shown in full
+        let comparison = null;
+        // Query of the series shown, without the metric and window
+        let currentQuery = "";
+
+        function selectedMetric() {
+            return document.getElementById("metric").value;
+        }
+
+        function selectedWindow() {
+            return document.getElementById("window").value;
+        }
+
+        // The rolling statistics are computed by the server (see RollingWindow)
+        function valueParameters() {
+            const parameters = new URLSearchParams({ metric: selectedMetric() });
+            if (selectedWindow()) {
+                parameters.set("window", selectedWindow());
+                parameters.set("stat", document.getElementById("stat").value);
+            }
+            return parameters.toString();
+        }
+
+        function load(query) {
+            currentQuery = query;
+            fetch("api/trends.bin" + (query ? query + "&" : "?") + valueParameters())
+                .then(response => {
+                    if (!response.ok) {
+                        throw new Error("Failed to load trend data: " + response.status);
+                    }
+                    return response.arrayBuffer();
+                })
+                .then(buffer => {
+                    series.clear();
+                    const temperatures = readSeries(buffer);
+                    let minimum = 0;
+                    for (let i = 0; i < temperatures.length; i++) {
+                        // Math.min of NaN is NaN; skipped like the undefined points
+                        if (Number.isNaN(temperatures[i])) {
+                            continue;
+                        }
+                        minimum = Math.min(minimum, temperatures[i]);
+                    }
+                    render(minimum);
+                })
+                .catch(error => {
+                    document.getElementById("temperatureChart").textContent = error.message;
+                });
+        }
+
+        function render(minimum) {
+            if (chart) {
+                chart.options.axisY.minimum = minimum;
+                chart.options.data = chartData();
+                chart.render();
+                return;
+            }
+            chart = new CanvasJS.Chart("temperatureChart", {
+                animationEnabled: true,
+                theme: "light2",
+                title: {
+                    text: "Temperature Trends"
+                },
+                axisX: {
+                    title: "Date",
+                    valueFormatString: "YYYY-MM-DD"
+                },
+                axisY: {
+                    title: "Temperature (°C)",
+                    minimum: minimum
+                },
+                data: chartData()
+            });
+            chart.render();
+            subscribe();
+        }
+
+        // One request fetches every selected city; the response holds one series per city
+        document.getElementById("compareForm").addEventListener("submit", e => {
+            e.preventDefault();
+            const form = new FormData(e.target);
+            const cities = form.getAll("city");
+            if (cities.length === 0) {
+                return;
+            }
+            comparison = { cities: new Set(cities), from: Date.parse(form.get("from")), to: Date.parse(form.get("to")) };
+            load("?" + new URLSearchParams(form).toString());
+        });
+
+        document.getElementById("showAll").addEventListener("click", () => {
+            comparison = null;
+            load("");
         });
 
-        chart.render();
+        for (const id of ["metric", "window", "stat"]) {
+            document.getElementById(id).addEventListener("change", () => {
+                load(currentQuery);
+            });
+        }
+
+        load("");
+
+        // Live updates: apply the changed points pushed by the server instead of reloading the data
+        function subscribe() {
+            if (!window.EventSource) {
+                return;
+            }
+            let renderPending = false;
+
+            function scheduleRender() {
+                if (renderPending) {
+                    return;
+                }
+                renderPending = true;
+                requestAnimationFrame(() => {
+                    renderPending = false;
+                    chart.options.data = chartData();
+                    chart.render();
+                });
+            }
+
+            function isShown(change) {
+                if (!comparison) {
+                    return true;
+                }
+                const day = Date.parse(change.date);
+                return comparison.cities.has(change.location) && day >= comparison.from && day <= comparison.to;
+            }
+
+            new EventSource("events").addEventListener("trend", e => {
+                const change = JSON.parse(e.data);
+                // An update may move a record to another location, so the point is removed everywhere first
+                for (const points of series.values()) {
+                    points.delete(change.id);
+                }
+                // Pushed changes carry the daily temperature only; other metrics and rolling
+                // statistics pick them up on the next load
+                if (change.op === "put" && isShown(change) && selectedMetric() === "temperature" && !selectedWindow()) {
+                    if (!series.has(change.location)) {
+                        series.set(change.location, new Map());
+                    }
+                    series.get(change.location).set(change.id, { x: Date.parse(change.date), y: change.temperature });
+                }
+                scheduleRender();
+            });
+        }
     </script>
 </body>
 </html>
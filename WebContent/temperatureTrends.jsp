@@ -50,14 +50,14 @@
     <script>
         // Fetch temperature data passed from the servlet
         const labels = [
-            <c:forEach var="record" items="${recordsList}">
-                '${record.date}'<c:if test="${!record.id.equals(recordsList[recordsList.size() - 1].id)}">,</c:if>
+            <c:forEach var="record" items="${recordsList}" varStatus="status">
+                '${record.date}'<c:if test="${!status.last}">,</c:if>
             </c:forEach>
         ];
 
         const data = [
-            <c:forEach var="record" items="${recordsList}">
-                ${record.temperature}<c:if test="${!record.id.equals(recordsList[recordsList.size() - 1].id)}">,</c:if>
+            <c:forEach var="record" items="${recordsList}" varStatus="status">
+                ${record.temperature}<c:if test="${!status.last}">,</c:if>
             </c:forEach>
         ];
 
@@ -0,0 +1,47 @@
+-- Publishes the writes of other database clients, such as imports and manual fixes, on the
+-- climate_data_changes channel, so that every dashboard node evicts the cache entries they touch.
+-- The dashboard publishes its own writes and connects with application_name 'climateinfoapp',
+-- whose writes the trigger skips. For a sharded deployment run it on every shard:
+--
+--   psql -f sql-scripts/create-change-notifications.sql
+--
+-- Payload: origin|kind|id|date|location, with origin 'db' and kind I, U or D. Rows of the daily tier
+-- are published with negated IDs, as the dashboard reads them. Notifications are delivered when the
+-- writing transaction commits.
+
+BEGIN;
+
+CREATE OR REPLACE FUNCTION climate_data_notify() RETURNS trigger AS $$
+DECLARE
+    changed RECORD;
+BEGIN
+    IF current_setting('application_name', true) = 'climateinfoapp' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = 'DELETE' THEN
+        changed := OLD;
+    ELSE
+        changed := NEW;
+    END IF;
+    PERFORM pg_notify('climate_data_changes', concat_ws('|', 'db', left(TG_OP, 1),
+        CASE WHEN TG_TABLE_NAME = 'climate_data_daily' THEN -changed.id ELSE changed.id END,
+        to_char(changed.date, 'YYYY-MM-DD'), changed.location));
+    -- A row moved to another location also leaves the results of its old location
+    IF TG_OP = 'UPDATE' AND OLD.location IS DISTINCT FROM NEW.location THEN
+        PERFORM pg_notify('climate_data_changes', concat_ws('|', 'db', 'D',
+            CASE WHEN TG_TABLE_NAME = 'climate_data_daily' THEN -OLD.id ELSE OLD.id END,
+            to_char(OLD.date, 'YYYY-MM-DD'), OLD.location));
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS climate_data_notify ON climate_data;
+CREATE TRIGGER climate_data_notify AFTER INSERT OR UPDATE OR DELETE ON climate_data
+    FOR EACH ROW EXECUTE FUNCTION climate_data_notify();
+
+DROP TRIGGER IF EXISTS climate_data_daily_notify ON climate_data_daily;
+CREATE TRIGGER climate_data_daily_notify AFTER INSERT OR UPDATE OR DELETE ON climate_data_daily
+    FOR EACH ROW EXECUTE FUNCTION climate_data_notify();
+
+COMMIT;
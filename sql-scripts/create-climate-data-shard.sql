@@ -0,0 +1,81 @@
+-- Schema for one shard of a sharded deployment (jdbcShardURLs in web.xml).
+--
+-- Run once per shard with its index and the total number of shards, e.g. for three local
+-- PostgreSQL instances on ports 5433-5435:
+--
+--   psql -p 5433 -v shard_index=0 -v shard_count=3 -f sql-scripts/create-climate-data-shard.sql
+--   psql -p 5434 -v shard_index=1 -v shard_count=3 -f sql-scripts/create-climate-data-shard.sql
+--   psql -p 5435 -v shard_index=2 -v shard_count=3 -f sql-scripts/create-climate-data-shard.sql
+--
+-- Each shard draws record IDs from its own sequence, starting at shard_index + 1 and incrementing
+-- by shard_count, so IDs never collide and (id - 1) % shard_count identifies the shard.
+
+SELECT :shard_index + 1 AS shard_first_id \gset
+CREATE SEQUENCE climate_data_id_seq START WITH :shard_first_id INCREMENT BY :shard_count;
+
+CREATE TABLE climate_data (
+    id INTEGER PRIMARY KEY DEFAULT nextval('climate_data_id_seq'),
+    date DATE NOT NULL,
+    location VARCHAR(50) NOT NULL,
+    temp REAL NOT NULL CHECK(temp >= -100 and temp <= 100),
+    wind REAL NOT NULL CHECK(wind >= 0 and wind < 200),
+    -- One reading per location and day; re-sent readings are upserted on this key
+    CONSTRAINT climate_data_location_date_key UNIQUE (location, date)
+);
+
+ALTER SEQUENCE climate_data_id_seq OWNED BY climate_data.id;
+
+CREATE INDEX climate_data_date_id_idx ON climate_data (date, id);
+CREATE INDEX climate_data_location_idx ON climate_data (location);
+
+-- Retention tiers (see create-climate-data.sql). Daily rows are read with negated IDs, which are kept
+-- unique across shards the same way as record IDs.
+CREATE SEQUENCE climate_data_daily_id_seq START WITH :shard_first_id INCREMENT BY :shard_count;
+
+CREATE TABLE climate_data_daily (
+    id INTEGER PRIMARY KEY DEFAULT nextval('climate_data_daily_id_seq'),
+    date DATE NOT NULL,
+    location VARCHAR(50) NOT NULL,
+    sample_count INTEGER NOT NULL,
+    temperature_sum DOUBLE PRECISION NOT NULL,
+    temperature_min REAL NOT NULL,
+    temperature_max REAL NOT NULL,
+    wind_sum DOUBLE PRECISION NOT NULL,
+    wind_min REAL NOT NULL,
+    wind_max REAL NOT NULL,
+    UNIQUE (location, date)
+);
+
+ALTER SEQUENCE climate_data_daily_id_seq OWNED BY climate_data_daily.id;
+
+CREATE INDEX climate_data_daily_date_id_idx ON climate_data_daily (date, id);
+
+CREATE TABLE climate_data_archive (
+    id INTEGER PRIMARY KEY,
+    date DATE NOT NULL,
+    location VARCHAR(50) NOT NULL,
+    temp REAL NOT NULL,
+    wind REAL NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+-- Tables that are not sharded live on the first shard only; creating them on every shard is harmless.
+CREATE TABLE climate_anomalies (
+    id SERIAL PRIMARY KEY,
+    date DATE NOT NULL,
+    location VARCHAR(50) NOT NULL,
+    metric VARCHAR(20) NOT NULL,
+    value REAL NOT NULL,
+    baseline DOUBLE PRECISION NOT NULL,
+    z_score DOUBLE PRECISION NOT NULL,
+    detected_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX climate_anomalies_detected_at_idx ON climate_anomalies (detected_at DESC);
+
+-- Locations pinned to a shard, overriding consistent hashing. Read from the first shard at startup.
+-- Existing records of a location must be moved before its override is added or changed.
+CREATE TABLE climate_shard_overrides (
+    location VARCHAR(50) PRIMARY KEY,
+    shard INTEGER NOT NULL CHECK(shard >= 0)
+);
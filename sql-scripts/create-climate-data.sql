@@ -3,7 +3,9 @@ CREATE TABLE climate_data (
     date DATE NOT NULL,
     location VARCHAR(50) NOT NULL,
     temp REAL NOT NULL CHECK(temp >= -100 and temp <= 100),
-    wind REAL NOT NULL CHECK(wind >= 0 and wind < 200)
+    wind REAL NOT NULL CHECK(wind >= 0 and wind < 200),
+    -- One reading per location and day; re-sent readings are upserted on this key
+    CONSTRAINT climate_data_location_date_key UNIQUE (location, date)
 );
 
 INSERT INTO climate_data (date, location, temp, wind) 
@@ -12,4 +14,47 @@ VALUES
     ('2024-11-02', 'Duncan', 20.3, 8.7),
     ('2024-11-03', 'Nanaimo', 10.2, 15.0),
     ('2024-11-04', 'Duncan', 25.6, 10.4),
-    ('2024-11-05', 'Tofino', 30.1, 5.2);
\ No newline at end of file
+    ('2024-11-05', 'Tofino', 30.1, 5.2);
+
+CREATE TABLE climate_anomalies (
+    id SERIAL PRIMARY KEY,
+    date DATE NOT NULL,
+    location VARCHAR(50) NOT NULL,
+    metric VARCHAR(20) NOT NULL,
+    value REAL NOT NULL,
+    baseline DOUBLE PRECISION NOT NULL,
+    z_score DOUBLE PRECISION NOT NULL,
+    detected_at TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX climate_anomalies_detected_at_idx ON climate_anomalies (detected_at DESC);
+
+-- Scans are merged across shards by date and ID
+CREATE INDEX climate_data_date_id_idx ON climate_data (date, id);
+
+-- Retention tiers: readings older than retentionRawDays are moved to climate_data_archive and rolled up
+-- into one row per location and day, which the dashboard reads together with climate_data
+CREATE TABLE climate_data_daily (
+    id SERIAL PRIMARY KEY,
+    date DATE NOT NULL,
+    location VARCHAR(50) NOT NULL,
+    sample_count INTEGER NOT NULL,
+    temperature_sum DOUBLE PRECISION NOT NULL,
+    temperature_min REAL NOT NULL,
+    temperature_max REAL NOT NULL,
+    wind_sum DOUBLE PRECISION NOT NULL,
+    wind_min REAL NOT NULL,
+    wind_max REAL NOT NULL,
+    UNIQUE (location, date)
+);
+
+CREATE INDEX climate_data_daily_date_id_idx ON climate_data_daily (date, id);
+
+CREATE TABLE climate_data_archive (
+    id INTEGER PRIMARY KEY,
+    date DATE NOT NULL,
+    location VARCHAR(50) NOT NULL,
+    temp REAL NOT NULL,
+    wind REAL NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+);
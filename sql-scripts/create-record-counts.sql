@@ -0,0 +1,61 @@
+-- Maintains the number of records per location and month, so that the dashboard can show exact
+-- totals without COUNT(*), which reads every row. Raw readings and the daily means of archived
+-- readings are both counted, as the listings show both. For a sharded deployment run it on every
+-- shard, then restart the dashboard:
+--
+--   psql -f sql-scripts/create-record-counts.sql
+--
+-- The triggers run once per statement and apply the changes of the statement grouped by location
+-- and month, so a batch insert or a retention batch updates each counter row once.
+
+BEGIN;
+
+CREATE TABLE climate_data_counts (
+    location VARCHAR(50) NOT NULL,
+    month DATE NOT NULL,
+    row_count BIGINT NOT NULL,
+    PRIMARY KEY (location, month)
+);
+
+CREATE OR REPLACE FUNCTION climate_data_count() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        INSERT INTO climate_data_counts AS counts (location, month, row_count)
+        SELECT location, date_trunc('month', date)::date, -count(*) FROM old_rows GROUP BY 1, 2
+        ON CONFLICT (location, month) DO UPDATE SET row_count = counts.row_count + EXCLUDED.row_count;
+    END IF;
+    IF TG_OP IN ('UPDATE', 'INSERT') THEN
+        INSERT INTO climate_data_counts AS counts (location, month, row_count)
+        SELECT location, date_trunc('month', date)::date, count(*) FROM new_rows GROUP BY 1, 2
+        ON CONFLICT (location, month) DO UPDATE SET row_count = counts.row_count + EXCLUDED.row_count;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- No write may slip between the initial count and the triggers
+LOCK TABLE climate_data, climate_data_daily IN SHARE ROW EXCLUSIVE MODE;
+
+INSERT INTO climate_data_counts (location, month, row_count)
+SELECT location, month, sum(row_count) FROM (
+    SELECT location, date_trunc('month', date)::date AS month, count(*) AS row_count FROM climate_data GROUP BY 1, 2
+    UNION ALL
+    SELECT location, date_trunc('month', date)::date, count(*) FROM climate_data_daily GROUP BY 1, 2
+) tiers GROUP BY location, month;
+
+-- Transition tables require one trigger per event
+CREATE TRIGGER climate_data_count_insert AFTER INSERT ON climate_data
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION climate_data_count();
+CREATE TRIGGER climate_data_count_update AFTER UPDATE ON climate_data
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION climate_data_count();
+CREATE TRIGGER climate_data_count_delete AFTER DELETE ON climate_data
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION climate_data_count();
+
+CREATE TRIGGER climate_data_daily_count_insert AFTER INSERT ON climate_data_daily
+    REFERENCING NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION climate_data_count();
+CREATE TRIGGER climate_data_daily_count_update AFTER UPDATE ON climate_data_daily
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows FOR EACH STATEMENT EXECUTE FUNCTION climate_data_count();
+CREATE TRIGGER climate_data_daily_count_delete AFTER DELETE ON climate_data_daily
+    REFERENCING OLD TABLE AS old_rows FOR EACH STATEMENT EXECUTE FUNCTION climate_data_count();
+
+COMMIT;
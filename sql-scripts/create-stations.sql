@@ -0,0 +1,20 @@
+-- Coordinates of the weather stations, which the dashboard indexes in memory at startup to answer
+-- radius and nearest-station queries (/nearby, /nearest). The location is the name the station's
+-- readings are recorded under in climate_data. The table is small reference data: create it on
+-- the first shard, or on every shard of a sharded deployment, then restart the dashboard:
+--
+--   psql -f sql-scripts/create-stations.sql
+
+CREATE TABLE stations (
+    location VARCHAR(50) PRIMARY KEY,
+    latitude DOUBLE PRECISION NOT NULL CHECK (latitude BETWEEN -90 AND 90),
+    longitude DOUBLE PRECISION NOT NULL CHECK (longitude BETWEEN -180 AND 180)
+);
+
+INSERT INTO stations (location, latitude, longitude)
+VALUES
+    ('Victoria', 48.4284, -123.3656),
+    ('Nanaimo', 49.1659, -123.9401),
+    ('Port Alberni', 49.2339, -124.8055),
+    ('Duncan', 48.7787, -123.7079),
+    ('Tofino', 49.1530, -125.9066);
@@ -0,0 +1,36 @@
+-- Adds the retention tiers to a database created before they existed. The dashboard reads
+-- climate_data_daily together with climate_data, so this must run before the upgraded application
+-- starts. For a sharded deployment run it on every shard with the same variables as
+-- create-climate-data-shard.sql; for a single database use shard_index=0 and shard_count=1:
+--
+--   psql -v shard_index=0 -v shard_count=1 -f sql-scripts/migrate-retention-tiers.sql
+
+SELECT :shard_index + 1 AS shard_first_id \gset
+CREATE SEQUENCE IF NOT EXISTS climate_data_daily_id_seq START WITH :shard_first_id INCREMENT BY :shard_count;
+
+CREATE TABLE IF NOT EXISTS climate_data_daily (
+    id INTEGER PRIMARY KEY DEFAULT nextval('climate_data_daily_id_seq'),
+    date DATE NOT NULL,
+    location VARCHAR(50) NOT NULL,
+    sample_count INTEGER NOT NULL,
+    temperature_sum DOUBLE PRECISION NOT NULL,
+    temperature_min REAL NOT NULL,
+    temperature_max REAL NOT NULL,
+    wind_sum DOUBLE PRECISION NOT NULL,
+    wind_min REAL NOT NULL,
+    wind_max REAL NOT NULL,
+    UNIQUE (location, date)
+);
+
+ALTER SEQUENCE climate_data_daily_id_seq OWNED BY climate_data_daily.id;
+
+CREATE INDEX IF NOT EXISTS climate_data_daily_date_id_idx ON climate_data_daily (date, id);
+
+CREATE TABLE IF NOT EXISTS climate_data_archive (
+    id INTEGER PRIMARY KEY,
+    date DATE NOT NULL,
+    location VARCHAR(50) NOT NULL,
+    temp REAL NOT NULL,
+    wind REAL NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT now()
+);
@@ -0,0 +1,18 @@
+-- Adds the (location, date) natural key to a database created before it existed. Upserting ingest
+-- relies on the key, so this must run before the upgraded application starts. Duplicate readings
+-- are removed first, keeping the most recent one (the highest ID) of each location and day. For a
+-- sharded deployment run it on every shard; a location's readings are all on one shard:
+--
+--   psql -f sql-scripts/migrate-unique-readings.sql
+
+BEGIN;
+
+DELETE FROM climate_data duplicate
+USING climate_data newer
+WHERE duplicate.location = newer.location
+  AND duplicate.date = newer.date
+  AND duplicate.id < newer.id;
+
+ALTER TABLE climate_data ADD CONSTRAINT climate_data_location_date_key UNIQUE (location, date);
+
+COMMIT;
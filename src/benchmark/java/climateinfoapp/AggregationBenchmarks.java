@@ -0,0 +1,136 @@
+package climateinfoapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs {@link ClimateAggregatorBenchmark} and reports, for every pool size, the speedup of the
+ * parallel aggregation at each input size and the smallest measured size from which it beats the
+ * sequential aggregation at every larger size. The crossover is the value to use for {@code aggregationSequentialThreshold}
+ * on a machine with that many cores.
+ * <p>
+ * All settings are system properties:
+ * </p>
+ * <ul>
+ *   <li>{@code benchmark.sizes} - comma-separated input sizes (default 1000,10000,100000,1000000)</li>
+ *   <li>{@code benchmark.threads} - comma-separated pool sizes (default 2, 4 and the number of cores)</li>
+ *   <li>{@code benchmark.forks}, {@code benchmark.warmupIterations}, {@code benchmark.iterations},
+ *       {@code benchmark.iterationSeconds} - JMH run length (default 1, 3, 5 and 1)</li>
+ * </ul>
+ * <p>
+ * The raw JMH results are written to {@code target/benchmarks/aggregation.json} and the report to
+ * {@code target/benchmarks/aggregation-crossover.txt}.
+ * </p>
+ */
+public class AggregationBenchmarks {
+
+    /**
+     * Runs the benchmarks and writes the report.
+     *
+     * @param args not used
+     * @throws RunnerException if a benchmark fails
+     * @throws IOException if the report cannot be written
+     */
+    public static void main(String[] args) throws RunnerException, IOException {
+        File outputDir = new File("target/benchmarks");
+        outputDir.mkdirs();
+        int cores = Runtime.getRuntime().availableProcessors();
+        TreeSet<Integer> defaultThreads = new TreeSet<>();
+        defaultThreads.add(2);
+        defaultThreads.add(4);
+        defaultThreads.add(Math.max(2, cores));
+
+        Options options = new OptionsBuilder()
+                .include(ClimateAggregatorBenchmark.class.getSimpleName())
+                .param("size", setting("benchmark.sizes", "1000,10000,100000,1000000").split(","))
+                .param("threads", setting("benchmark.threads", join(defaultThreads)).split(","))
+                .forks(Integer.parseInt(setting("benchmark.forks", "1")))
+                .warmupIterations(Integer.parseInt(setting("benchmark.warmupIterations", "3")))
+                .measurementIterations(Integer.parseInt(setting("benchmark.iterations", "5")))
+                .warmupTime(TimeValue.seconds(Integer.parseInt(setting("benchmark.iterationSeconds", "1"))))
+                .measurementTime(TimeValue.seconds(Integer.parseInt(setting("benchmark.iterationSeconds", "1"))))
+                .timeUnit(TimeUnit.MICROSECONDS)
+                .resultFormat(ResultFormatType.JSON)
+                .result(new File(outputDir, "aggregation.json").getPath())
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        String report = report(results, cores);
+        System.out.print(report);
+        Files.write(new File(outputDir, "aggregation-crossover.txt").toPath(), report.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds the speedup table and the crossover of every pool size.
+     *
+     * @param results the benchmark results
+     * @param cores the number of available processors
+     * @return the report
+     */
+    static String report(Collection<RunResult> results, int cores) {
+        // threads -> size -> [sequential, parallel] average time
+        Map<Integer, Map<Integer, double[]>> scores = new TreeMap<>();
+        for (RunResult result : results) {
+            int threads = Integer.parseInt(result.getParams().getParam("threads"));
+            int size = Integer.parseInt(result.getParams().getParam("size"));
+            boolean parallel = result.getParams().getBenchmark().endsWith(".parallel");
+            scores.computeIfAbsent(threads, key -> new TreeMap<>())
+                    .computeIfAbsent(size, key -> new double[2])[parallel ? 1 : 0] = result.getPrimaryResult().getScore();
+        }
+
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "Aggregation crossover on %d available processors%n", cores));
+        report.append(String.format(Locale.ROOT, "%8s %10s %16s %16s %8s%n", "threads", "size", "sequential (us)", "parallel (us)", "speedup"));
+        for (Map.Entry<Integer, Map<Integer, double[]>> byThreads : scores.entrySet()) {
+            Integer crossover = null;
+            for (Map.Entry<Integer, double[]> bySize : byThreads.getValue().entrySet()) {
+                double[] score = bySize.getValue();
+                double speedup = score[0] / score[1];
+                report.append(String.format(Locale.ROOT, "%8d %10d %16.1f %16.1f %7.2fx%n",
+                        byThreads.getKey(), bySize.getKey(), score[0], score[1], speedup));
+                // The crossover is the size from which the parallel aggregation wins at every larger size
+                if (speedup <= 1.0) {
+                    crossover = null;
+                } else if (crossover == null) {
+                    crossover = bySize.getKey();
+                }
+            }
+            report.append(String.format(Locale.ROOT, "  %d threads: %s%n", byThreads.getKey(), crossover == null
+                    ? "parallel aggregation did not beat sequential at any measured size"
+                    : "parallel aggregation wins from " + crossover + " records"));
+        }
+        return report.toString();
+    }
+
+    private static String setting(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    private static String join(Collection<Integer> values) {
+        StringBuilder joined = new StringBuilder();
+        for (Integer value : values) {
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+}
@@ -0,0 +1,99 @@
+package climateinfoapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Measures the location/month aggregation of {@link ClimateAggregator} on one thread and on
+ * fork/join pools of several sizes, over inputs of several sizes.
+ * <p>
+ * The parallel benchmark uses a small chunk size so that every input is forked; comparing it with
+ * the sequential benchmark at each size shows from which input size forking pays off for a given
+ * number of threads. {@link AggregationBenchmarks} runs both and reports that crossover.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ClimateAggregatorBenchmark {
+
+    /**
+     * Chunk size used by the parallel benchmark.
+     */
+    static final int PARALLEL_CHUNK_SIZE = 1024;
+
+    private static final String[] LOCATIONS = { "Victoria", "Nanaimo", "Port Alberni", "Duncan", "Tofino" };
+
+    @Param({ "1000", "10000", "100000", "1000000" })
+    public int size;
+
+    @Param({ "2", "4" })
+    public int threads;
+
+    private List<ClimateRecord> records;
+    private ForkJoinPool pool;
+    private ClimateAggregator sequential;
+    private ClimateAggregator parallel;
+
+    /**
+     * Generates five stations of readings spread over five years and creates the pool.
+     *
+     * @throws InvalidArgumentsException never; the generated readings are valid
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws InvalidArgumentsException {
+        Random random = new Random(42);
+        records = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String date = String.format("20%02d-%02d-%02d", 20 + random.nextInt(5), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            records.add(new ClimateRecord(i + 1, date, LOCATIONS[random.nextInt(LOCATIONS.length)],
+                    -20f + random.nextFloat() * 60f, random.nextFloat() * 100f));
+        }
+        pool = new ForkJoinPool(threads);
+        sequential = new ClimateAggregator(pool, Integer.MAX_VALUE);
+        parallel = new ClimateAggregator(pool, PARALLEL_CHUNK_SIZE);
+    }
+
+    /**
+     * Shuts the pool down.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Aggregates on the calling thread.
+     *
+     * @return the result, consumed by JMH
+     */
+    @Benchmark
+    public Map<ClimateGroupKey, ClimateStats> sequential() {
+        return sequential.byLocationAndMonth(records);
+    }
+
+    /**
+     * Aggregates on the fork/join pool.
+     *
+     * @return the result, consumed by JMH
+     */
+    @Benchmark
+    public Map<ClimateGroupKey, ClimateStats> parallel() {
+        return parallel.byLocationAndMonth(records);
+    }
+}
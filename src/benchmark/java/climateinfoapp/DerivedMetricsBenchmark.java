@@ -0,0 +1,103 @@
+package climateinfoapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the wind chill of a batch of readings computed three ways: record by record, as the
+ * code did before the derived metrics were computed over columns, with the scalar column kernels,
+ * and with the Vector API kernels.
+ * <p>
+ * The vector benchmark is skipped when the {@code jdk.incubator.vector} module is not added to the
+ * benchmark JVM, which the {@code benchmarks} profile does.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DerivedMetricsBenchmark {
+
+    private static final String[] LOCATIONS = { "Victoria", "Nanaimo", "Port Alberni", "Duncan", "Tofino" };
+
+    @Param({ "1024", "65536" })
+    public int size;
+
+    private List<ClimateRecord> records;
+    private float[] temperatures;
+    private float[] winds;
+    private float[] result;
+    private DerivedMetrics.Kernels vector;
+
+    /**
+     * Generates readings between -30 and 30 degrees with winds up to 60 km/h, so that wind chill
+     * is defined for about half of them, both as records and as columns.
+     *
+     * @throws InvalidArgumentsException never; the generated readings are valid
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws InvalidArgumentsException {
+        Random random = new Random(42);
+        records = new ArrayList<>(size);
+        temperatures = new float[size];
+        winds = new float[size];
+        result = new float[size];
+        for (int i = 0; i < size; i++) {
+            temperatures[i] = -30f + random.nextFloat() * 60f;
+            winds[i] = random.nextFloat() * 60f;
+            records.add(new ClimateRecord(i + 1, "2024-01-01", LOCATIONS[i % LOCATIONS.length], temperatures[i], winds[i]));
+        }
+        vector = DerivedMetrics.loadVectorKernels();
+    }
+
+    /**
+     * Computes the wind chill of each record in turn.
+     *
+     * @return the result, consumed by JMH
+     */
+    @Benchmark
+    public float[] perRecord() {
+        for (int i = 0; i < records.size(); i++) {
+            ClimateRecord record = records.get(i);
+            result[i] = DerivedMetrics.windChill(record.getTemperature(), record.getWind());
+        }
+        return result;
+    }
+
+    /**
+     * Computes the wind chill column with the scalar kernels.
+     *
+     * @return the result, consumed by JMH
+     */
+    @Benchmark
+    public float[] scalarColumns() {
+        DerivedMetrics.SCALAR.windChill(temperatures, winds, result, size);
+        return result;
+    }
+
+    /**
+     * Computes the wind chill column with the Vector API kernels.
+     *
+     * @return the result, consumed by JMH
+     * @throws IllegalStateException if the Vector API is not available
+     */
+    @Benchmark
+    public float[] vectorColumns() {
+        if (vector == null) {
+            throw new IllegalStateException("Run with --add-modules jdk.incubator.vector");
+        }
+        vector.windChill(temperatures, winds, result, size);
+        return result;
+    }
+}
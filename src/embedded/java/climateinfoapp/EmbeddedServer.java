@@ -0,0 +1,153 @@
+package climateinfoapp;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.jasper.servlet.JasperInitializer;
+import org.tinylog.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * EmbeddedServer runs the {@link ClimateInfoDashboard} servlet and the JSPs from the web content
+ * directory inside an embedded Tomcat, the same way they are deployed from the WAR.
+ * <p>
+ * The context parameters normally read from web.xml are passed in explicitly so that callers can
+ * point the application at a different database. When the classpath contains JSPs precompiled at
+ * build time (see {@link #PRECOMPILED_JSP_MAPPINGS}), they are registered as plain servlets and no
+ * JSP is translated or compiled at runtime.
+ * </p>
+ */
+public class EmbeddedServer {
+
+    /**
+     * Classpath resource holding the servlet declarations and mappings that JspC generates for the
+     * precompiled JSPs.
+     */
+    public static final String PRECOMPILED_JSP_MAPPINGS = "climateinfoapp/jsp-servlets.xml";
+
+    private final Tomcat tomcat = new Tomcat();
+    private final int port;
+
+    /**
+     * Creates and configures an embedded server; it is not started until {@link #start()} is called.
+     *
+     * @param port the HTTP port to listen on, or 0 to pick a free port
+     * @param webContentDirectory the directory holding the JSPs (the WAR source directory)
+     * @param contextParameters the context parameters to expose to the application
+     */
+    public EmbeddedServer(int port, File webContentDirectory, Map<String, String> contextParameters) {
+        File baseDirectory = new File(System.getProperty("java.io.tmpdir"), "climateinfo-tomcat-" + port);
+        tomcat.setBaseDir(baseDirectory.getAbsolutePath());
+        tomcat.setPort(port);
+        tomcat.getConnector();
+
+        Context context = tomcat.addContext("", webContentDirectory.getAbsolutePath());
+        context.setParentClassLoader(EmbeddedServer.class.getClassLoader());
+        contextParameters.forEach(context::addParameter);
+        context.addServletContainerInitializer(new JasperInitializer(), null);
+        Tomcat.initWebappDefaults(context);
+        registerPrecompiledJsps(context);
+
+        // Mapped to "/" and async-capable exactly like the @WebServlet annotation, replacing the default servlet
+        Wrapper dashboard = Tomcat.addServlet(context, "ClimateInfoDashboard", new ClimateInfoDashboard());
+        dashboard.setLoadOnStartup(1);
+        dashboard.setAsyncSupported(true);
+        context.addServletMappingDecoded("/", "ClimateInfoDashboard");
+
+        this.port = port;
+    }
+
+    /**
+     * Starts the server.
+     *
+     * @throws LifecycleException if Tomcat fails to start
+     */
+    public void start() throws LifecycleException {
+        tomcat.start();
+        Logger.info("Embedded server listening on port {}", getPort());
+    }
+
+    /**
+     * Blocks the calling thread until the server is stopped.
+     */
+    public void await() {
+        tomcat.getServer().await();
+    }
+
+    /**
+     * Stops and destroys the server.
+     */
+    public void stop() {
+        try {
+            tomcat.stop();
+            tomcat.destroy();
+        } catch (LifecycleException e) {
+            Logger.warn(e, "Error while stopping embedded server.");
+        }
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the local port, which differs from the configured one when 0 was requested
+     */
+    public int getPort() {
+        int localPort = tomcat.getConnector().getLocalPort();
+        return localPort > 0 ? localPort : port;
+    }
+
+    /**
+     * Registers the JSP servlets listed in {@link #PRECOMPILED_JSP_MAPPINGS}, if present. Their exact
+     * URL mappings (e.g., {@code /ClimateRecordList.jsp}) take precedence over the {@code *.jsp}
+     * mapping of the JSP servlet, so forwards reach the precompiled classes.
+     *
+     * @param context the context to register the servlets in
+     */
+    private void registerPrecompiledJsps(Context context) {
+        ClassLoader classLoader = EmbeddedServer.class.getClassLoader();
+        InputStream fragment = classLoader.getResourceAsStream(PRECOMPILED_JSP_MAPPINGS);
+        if (fragment == null) {
+            return;
+        }
+
+        // JspC writes a web.xml fragment without a root element
+        try (InputStream document = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                new ByteArrayInputStream("<jsps>".getBytes(StandardCharsets.UTF_8)),
+                fragment,
+                new ByteArrayInputStream("</jsps>".getBytes(StandardCharsets.UTF_8)))))) {
+            Document xml = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(document);
+
+            NodeList servlets = xml.getElementsByTagName("servlet");
+            for (int i = 0; i < servlets.getLength(); i++) {
+                Element servlet = (Element) servlets.item(i);
+                Tomcat.addServlet(context, text(servlet, "servlet-name"), text(servlet, "servlet-class"));
+            }
+            NodeList mappings = xml.getElementsByTagName("servlet-mapping");
+            for (int i = 0; i < mappings.getLength(); i++) {
+                Element mapping = (Element) mappings.item(i);
+                context.addServletMappingDecoded(text(mapping, "url-pattern"), text(mapping, "servlet-name"));
+            }
+            Logger.info("Registered {} precompiled JSPs.", servlets.getLength());
+        } catch (Exception e) {
+            throw new IllegalStateException("Invalid precompiled JSP mappings: " + PRECOMPILED_JSP_MAPPINGS, e);
+        }
+    }
+
+    private static String text(Element parent, String tagName) {
+        return parent.getElementsByTagName(tagName).item(0).getTextContent().trim();
+    }
+}
@@ -0,0 +1,240 @@
+package climateinfoapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.tinylog.Logger;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Executable entry point that serves the dashboard from an {@link EmbeddedServer} with the JSPs
+ * precompiled at build time, as an alternative to deploying the WAR into an external Tomcat.
+ * <p>
+ * The context parameters are read from the packaged web.xml; any of them can be overridden with a
+ * system property of the same name (e.g., {@code -DjdbcURL=...}). The HTTP port is taken from the
+ * {@code port} system property or the {@code PORT} environment variable and defaults to 8080.
+ * </p>
+ * <p>
+ * Two build-time modes are supported:
+ * </p>
+ * <ul>
+ *   <li>{@code --training-run} seeds an in-memory H2 database in PostgreSQL mode with the load test's
+ *       {@link SyntheticDataset}, starts the server on it, exercises the main routes once and exits.
+ *       It is run with {@code -XX:ArchiveClassesAtExit} to produce the Application Class-Data Sharing
+ *       archive, so the archive holds the DAO, JDBC and rendering classes real requests load rather
+ *       than only those of the error paths.</li>
+ *   <li>{@code --measure-startup} starts the server, waits for the first successful response and exits.</li>
+ * </ul>
+ * <p>
+ * Both modes report the time from JVM start to the first response and append it to the file named
+ * by the {@code launcher.report} system property, if set.
+ * </p>
+ */
+public class Launcher {
+    private static final String PACKAGED_WEB_XML = "climateinfoapp/web.xml";
+    private static final String FIRST_RESPONSE_PATH = "/new";
+    private static final long FIRST_RESPONSE_TIMEOUT_MILLIS = 60_000;
+    private static final String TRAINING_JDBC_URL = "jdbc:h2:mem:training;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+            + "NON_KEYWORDS=DATE,VALUE;DB_CLOSE_DELAY=-1";
+    private static final SyntheticDataset TRAINING_DATASET = new SyntheticDataset(20, 365, LocalDate.of(2020, 1, 1), 42L);
+    private static final List<String> TRAINING_PATHS = Arrays.asList(
+            "/new", "/list", "/search?city=Station%20001", "/edit?id=1", "/temperatureTrends", "/api/trends.bin",
+            "/api/trends.bin?city=Station%20001&city=Station%20002&from=2020-10-01&to=2020-12-30", "/anomalies",
+            "/summary", "/export");
+    private static final String TRAINING_INSERT = "date=2021-01-01&location=Station%20001&temperature=5.5&wind=12.0";
+
+    /**
+     * Starts the launcher.
+     *
+     * @param args {@code --training-run}, {@code --measure-startup}, or nothing to serve until stopped
+     * @throws Exception if the server cannot be started
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> options = Arrays.asList(args);
+        boolean trainingRun = options.contains("--training-run");
+        boolean measureStartup = options.contains("--measure-startup");
+
+        int port = trainingRun || measureStartup ? 0 : Integer.getInteger("port", defaultPort());
+        File docBase = Files.createTempDirectory("climateinfo-docbase").toFile();
+        docBase.deleteOnExit();
+
+        Map<String, String> parameters = readContextParameters();
+        Connection standIn = trainingRun ? seedStandIn(parameters) : null;
+        EmbeddedServer server = new EmbeddedServer(port, docBase, parameters);
+        server.start();
+        if (!trainingRun && !measureStartup) {
+            server.await();
+            return;
+        }
+
+        int exitCode = 0;
+        try {
+            String baseUrl = "http://localhost:" + server.getPort();
+            long startupMillis = awaitFirstResponse(baseUrl + FIRST_RESPONSE_PATH);
+            String mode = trainingRun ? "training" : System.getProperty("launcher.mode", "measure");
+            Logger.info("Startup to first response ({}): {} ms", mode, startupMillis);
+            report(mode + " " + startupMillis + " ms");
+
+            if (trainingRun) {
+                for (String path : TRAINING_PATHS) {
+                    logTrainingRequest(path, get(baseUrl + path));
+                }
+                logTrainingRequest("/insert", post(baseUrl + "/insert", TRAINING_INSERT));
+            }
+        } catch (Exception e) {
+            Logger.error(e, "Launcher run failed.");
+            exitCode = 1;
+        } finally {
+            server.stop();
+            if (standIn != null) {
+                standIn.close();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    /**
+     * Polls the given URL until it answers with a successful status.
+     *
+     * @param url the URL to request
+     * @return the milliseconds elapsed between JVM start and the first successful response
+     * @throws InterruptedException if interrupted while waiting
+     * @throws IllegalStateException if no successful response arrives within the timeout
+     */
+    private static long awaitFirstResponse(String url) throws InterruptedException {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+        long deadline = System.currentTimeMillis() + FIRST_RESPONSE_TIMEOUT_MILLIS;
+        int lastStatus = -1;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                lastStatus = get(url);
+                if (lastStatus < 400) {
+                    return System.currentTimeMillis() - jvmStart;
+                }
+            } catch (IOException e) {
+                // Not accepting connections yet
+            }
+            Thread.sleep(5);
+        }
+        throw new IllegalStateException("No successful response from " + url + ", last status " + lastStatus);
+    }
+
+    /**
+     * Seeds the in-memory H2 stand-in the training run serves from, and points the context
+     * parameters at it.
+     *
+     * @param parameters the context parameters, updated in place
+     * @return the connection that keeps the in-memory database open until the run ends
+     * @throws SQLException if the database cannot be seeded
+     */
+    private static Connection seedStandIn(Map<String, String> parameters) throws SQLException {
+        Connection connection = DriverManager.getConnection(TRAINING_JDBC_URL, "sa", "");
+        TRAINING_DATASET.seed(connection);
+        parameters.put("jdbcURL", TRAINING_JDBC_URL);
+        parameters.put("jdbcShardURLs", "");
+        parameters.put("jdbcUsername", "sa");
+        parameters.put("jdbcPassword", "");
+        return connection;
+    }
+
+    private static void logTrainingRequest(String path, int status) {
+        if (status < 400) {
+            Logger.info("Training request {} -> {}", path, status);
+        } else {
+            Logger.warn("Training request {} -> {}; its classes may be missing from the archive.", path, status);
+        }
+    }
+
+    private static int get(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setInstanceFollowRedirects(false);
+            return readResponse(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static int post(String url, String form) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setInstanceFollowRedirects(false);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+            try (OutputStream body = connection.getOutputStream()) {
+                body.write(form.getBytes(StandardCharsets.UTF_8));
+            }
+            return readResponse(connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static int readResponse(HttpURLConnection connection) throws IOException {
+        int status = connection.getResponseCode();
+        try (InputStream body = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (body != null) {
+                body.readAllBytes();
+            }
+        }
+        return status;
+    }
+
+    private static void report(String line) throws IOException {
+        String reportFile = System.getProperty("launcher.report");
+        if (reportFile != null) {
+            Files.write(new File(reportFile).toPath(), (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+    }
+
+    private static int defaultPort() {
+        String port = System.getenv("PORT");
+        return port == null ? 8080 : Integer.parseInt(port);
+    }
+
+    /**
+     * Reads the context parameters from the packaged web.xml and applies system property overrides.
+     *
+     * @return the context parameters
+     * @throws Exception if the packaged web.xml cannot be read
+     */
+    private static Map<String, String> readContextParameters() throws Exception {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        try (InputStream webXml = Launcher.class.getClassLoader().getResourceAsStream(PACKAGED_WEB_XML)) {
+            if (webXml == null) {
+                throw new IllegalStateException("Packaged web.xml not found: " + PACKAGED_WEB_XML);
+            }
+            Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(webXml);
+            NodeList contextParams = document.getElementsByTagName("context-param");
+            for (int i = 0; i < contextParams.getLength(); i++) {
+                Element param = (Element) contextParams.item(i);
+                String name = param.getElementsByTagName("param-name").item(0).getTextContent().trim();
+                String value = param.getElementsByTagName("param-value").item(0).getTextContent().trim();
+                parameters.put(name, System.getProperty(name, value));
+            }
+        }
+        return parameters;
+    }
+}
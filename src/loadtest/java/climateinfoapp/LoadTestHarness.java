@@ -0,0 +1,327 @@
+package climateinfoapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.tinylog.Logger;
+
+/**
+ * Local load-test harness for the climate information dashboard.
+ * <p>
+ * The harness seeds a synthetic dataset, boots the dashboard in an {@link EmbeddedServer} and
+ * drives an open-model workload: requests arrive as a Poisson process at a fixed rate regardless of
+ * how quickly earlier requests complete, and latency is measured from each request's scheduled
+ * arrival time so that queueing delay is not hidden (no coordinated omission). After a warmup
+ * period the throughput and latency percentiles of every route are printed and written as JSON to
+ * {@code target/loadtest} for comparison across commits.
+ * </p>
+ * <p>
+ * All settings are system properties:
+ * </p>
+ * <ul>
+ *   <li>{@code loadtest.jdbcURL}, {@code loadtest.jdbcUsername}, {@code loadtest.jdbcPassword} -
+ *       the database; defaults to an in-memory H2 database in PostgreSQL mode</li>
+ *   <li>{@code loadtest.jdbcShardURLs} - whitespace-separated shard URLs, used instead of {@code loadtest.jdbcURL};
+ *       or {@code loadtest.shards} - the number of in-memory H2 shards to create (default 1)</li>
+ *   <li>{@code loadtest.stations}, {@code loadtest.days} - the synthetic dataset size (default 20 x 365)</li>
+ *   <li>{@code loadtest.rate} - arrivals per second (default 50)</li>
+ *   <li>{@code loadtest.warmupSeconds}, {@code loadtest.durationSeconds} - run length (default 10 and 30)</li>
+ *   <li>{@code loadtest.mix} - route weights (default {@value #DEFAULT_MIX})</li>
+ *   <li>{@code loadtest.label} - a name for the run, such as the commit id (default "run")</li>
+ * </ul>
+ */
+public class LoadTestHarness {
+    static final String DEFAULT_MIX = "list=10,search=40,trends=10,compare=10,insert=15,edit=15";
+    private static final String DEFAULT_JDBC_URL = "jdbc:h2:mem:climate;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+            + "NON_KEYWORDS=DATE,VALUE;DB_CLOSE_DELAY=-1";
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final Map<String, Integer> mix;
+    private final SyntheticDataset dataset;
+    private final String baseUrl;
+    private final int[] ids;
+    private final AtomicInteger insertedReadings = new AtomicInteger();
+
+    private LoadTestHarness(Map<String, Integer> mix, SyntheticDataset dataset, String baseUrl, int[] ids) {
+        this.mix = mix;
+        this.dataset = dataset;
+        this.baseUrl = baseUrl;
+        this.ids = ids;
+    }
+
+    /**
+     * Runs the load test.
+     *
+     * @param args ignored; configuration is read from system properties
+     * @throws Exception if the server cannot be started or the results cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        String jdbcURL = System.getProperty("loadtest.jdbcURL", DEFAULT_JDBC_URL);
+        String jdbcUsername = System.getProperty("loadtest.jdbcUsername", jdbcURL.startsWith("jdbc:h2:") ? "sa" : "postgres");
+        String jdbcPassword = System.getProperty("loadtest.jdbcPassword", "");
+        int stations = Integer.getInteger("loadtest.stations", 20);
+        int days = Integer.getInteger("loadtest.days", 365);
+        double rate = Double.parseDouble(System.getProperty("loadtest.rate", "50"));
+        int warmupSeconds = Integer.getInteger("loadtest.warmupSeconds", 10);
+        int durationSeconds = Integer.getInteger("loadtest.durationSeconds", 30);
+        Map<String, Integer> mix = parseMix(System.getProperty("loadtest.mix", DEFAULT_MIX));
+        String label = System.getProperty("loadtest.label", "run");
+
+        List<String> shardURLs = shardURLs(jdbcURL);
+
+        // Keep the databases open for the whole run when using the in-memory stand-in
+        List<Connection> seedConnections = new ArrayList<>();
+        for (String shardURL : shardURLs) {
+            seedConnections.add(DriverManager.getConnection(shardURL, jdbcUsername, jdbcPassword));
+        }
+        SyntheticDataset dataset = new SyntheticDataset(stations, days, LocalDate.of(2020, 1, 1), 42L);
+        dataset.seed(seedConnections, new ShardRouter(shardURLs.size()));
+        List<Integer> seededIds = new ArrayList<>();
+        for (Connection seedConnection : seedConnections) {
+            try (Statement statement = seedConnection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT id FROM climate_data")) {
+                while (resultSet.next()) {
+                    seededIds.add(resultSet.getInt(1));
+                }
+            }
+        }
+        int[] ids = seededIds.stream().mapToInt(Integer::intValue).toArray();
+
+        Map<String, String> contextParameters = new LinkedHashMap<>();
+        contextParameters.put("jdbcURL", shardURLs.get(0));
+        if (shardURLs.size() > 1) {
+            contextParameters.put("jdbcShardURLs", String.join(" ", shardURLs));
+        }
+        contextParameters.put("jdbcUsername", jdbcUsername);
+        contextParameters.put("jdbcPassword", jdbcPassword);
+        EmbeddedServer server = new EmbeddedServer(0, new File("WebContent"), contextParameters);
+        server.start();
+
+        try {
+            LoadTestHarness harness = new LoadTestHarness(mix, dataset,
+                    "http://localhost:" + server.getPort() + "/", ids);
+            Logger.info("Warming up for {}s at {} req/s.", warmupSeconds, rate);
+            harness.run(rate, warmupSeconds, false);
+            Logger.info("Measuring for {}s at {} req/s.", durationSeconds, rate);
+            Map<String, RouteStats> results = harness.run(rate, durationSeconds, true);
+            writeResults(label, shardURLs, stations, days, rate, durationSeconds, results);
+        } finally {
+            server.stop();
+            for (Connection seedConnection : seedConnections) {
+                seedConnection.close();
+            }
+        }
+    }
+
+    /**
+     * Sends requests as a Poisson process for the given time and waits for them to complete.
+     *
+     * @param rate the mean number of arrivals per second
+     * @param seconds how long to keep generating arrivals
+     * @param measure whether to record the results
+     * @return the statistics per route
+     * @throws InterruptedException if interrupted while waiting for outstanding requests
+     */
+    private Map<String, RouteStats> run(double rate, int seconds, boolean measure) throws InterruptedException {
+        Map<String, RouteStats> stats = new LinkedHashMap<>();
+        for (String route : mix.keySet()) {
+            stats.put(route, new RouteStats(route));
+        }
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        Random random = new Random(7L);
+
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long nextArrival = start;
+        while (nextArrival < end) {
+            long wait = nextArrival - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String route = pickRoute(random.nextInt(totalWeight));
+            long scheduled = nextArrival;
+            executor.execute(() -> send(route, scheduled, measure ? stats.get(route) : null));
+            nextArrival += (long) (-Math.log(1.0 - random.nextDouble()) / rate * 1_000_000_000L);
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(2, TimeUnit.MINUTES)) {
+            Logger.warn("Outstanding requests did not complete within two minutes.");
+            executor.shutdownNow();
+        }
+        return stats;
+    }
+
+    private String pickRoute(int ticket) {
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Route weights exhausted");
+    }
+
+    private void send(String route, long scheduled, RouteStats stats) {
+        boolean success;
+        try {
+            HttpResponse<Void> response = client.send(buildRequest(route), HttpResponse.BodyHandlers.discarding());
+            success = response.statusCode() < 400;
+        } catch (IOException | InterruptedException e) {
+            success = false;
+        }
+        if (stats != null) {
+            stats.record(System.nanoTime() - scheduled, success);
+        }
+    }
+
+    private HttpRequest buildRequest(String route) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String station = SyntheticDataset.stationName(random.nextInt(dataset.getStationNames().size()));
+        HttpRequest.Builder builder;
+        switch (route) {
+            case "search":
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "search?city=" + encode(station)));
+                break;
+            case "edit":
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "edit?id=" + ids[random.nextInt(ids.length)]));
+                break;
+            case "trends":
+                // The series the trends page fetches before any city is selected
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "api/trends.bin"));
+                break;
+            case "compare":
+                // Three stations over the last quarter of the dataset, as the comparison form sends them
+                int stations = dataset.getStationNames().size();
+                int first = random.nextInt(stations);
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "api/trends.bin?city=" + encode(SyntheticDataset.stationName(first))
+                        + "&city=" + encode(SyntheticDataset.stationName((first + 1) % stations))
+                        + "&city=" + encode(SyntheticDataset.stationName((first + 2) % stations))
+                        + "&from=" + dataset.getFirstDay().plusDays(dataset.getDays() * 3 / 4)
+                        + "&to=" + dataset.getFirstDay().plusDays(dataset.getDays() - 1)));
+                break;
+            case "insert":
+                // Every insert is a new station and day after the seeded ones, as readings are unique per day
+                int reading = insertedReadings.getAndIncrement();
+                int stationCount = dataset.getStationNames().size();
+                String form = "date=" + dataset.getFirstDay().plusDays(dataset.getDays() + reading / stationCount)
+                        + "&location=" + encode(SyntheticDataset.stationName(reading % stationCount))
+                        + String.format(Locale.ROOT, "&temperature=%.1f&wind=%.1f",
+                                random.nextDouble(-10, 30), random.nextDouble(0, 40));
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + "insert"))
+                        .header("Content-Type", "application/x-www-form-urlencoded")
+                        .POST(HttpRequest.BodyPublishers.ofString(form));
+                break;
+            default:
+                builder = HttpRequest.newBuilder(URI.create(baseUrl + route));
+                break;
+        }
+        return builder.timeout(Duration.ofSeconds(60)).build();
+    }
+
+    /**
+     * Returns the shard URLs from {@code loadtest.jdbcShardURLs}, or {@code loadtest.shards}
+     * in-memory H2 databases when the default database is used.
+     *
+     * @param jdbcURL the single database URL
+     * @return the shard URLs, in shard order
+     */
+    private static List<String> shardURLs(String jdbcURL) {
+        String shardURLList = System.getProperty("loadtest.jdbcShardURLs");
+        if (shardURLList != null) {
+            return DBUtils.parseShardURLs(shardURLList, jdbcURL);
+        }
+        int shards = Integer.getInteger("loadtest.shards", 1);
+        List<String> urls = new ArrayList<>();
+        if (shards == 1 || !jdbcURL.equals(DEFAULT_JDBC_URL)) {
+            urls.add(jdbcURL);
+        } else {
+            for (int shard = 0; shard < shards; shard++) {
+                urls.add(DEFAULT_JDBC_URL.replace("mem:climate;", "mem:climate" + shard + ";"));
+            }
+        }
+        return urls;
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses a mix such as {@code list=10,search=40} into route weights.
+     *
+     * @param mix the mix description
+     * @return the weights in declaration order
+     */
+    static Map<String, Integer> parseMix(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(parts[0].trim(), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Load mix has no routes: " + mix);
+        }
+        return weights;
+    }
+
+    private static void writeResults(String label, List<String> shardURLs, int stations, int days, double rate,
+            int durationSeconds, Map<String, RouteStats> results) throws IOException {
+        List<String> routes = new ArrayList<>();
+        System.out.println(String.format(Locale.ROOT, "%-20s %8s %7s %9s %9s %9s %9s %9s",
+                "route", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (RouteStats stats : results.values()) {
+            routes.add(stats.toJson(durationSeconds));
+            System.out.println(String.format(Locale.ROOT, "%-20s %8d %7d %9.2f %9.2f %9.2f %9.2f %9.2f",
+                    stats.getRoute(), stats.getCount(), stats.getErrors(), stats.getCount() / (double) durationSeconds,
+                    stats.percentileMillis(50), stats.percentileMillis(90), stats.percentileMillis(99),
+                    stats.percentileMillis(100)));
+        }
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        String json = String.format(Locale.ROOT,
+                "{\"label\":\"%s\",\"timestamp\":\"%s\",\"database\":\"%s\",\"stations\":%d,\"days\":%d,"
+                        + "\"shards\":%d,\"rate\":%.2f,\"durationSeconds\":%d,\"routes\":[%s]}%n",
+                label, timestamp, shardURLs.get(0).startsWith("jdbc:h2:") ? "h2" : "postgresql", stations, days,
+                shardURLs.size(), rate,
+                durationSeconds, String.join(",", routes));
+        File directory = new File("target/loadtest");
+        directory.mkdirs();
+        File output = new File(directory, label + "-" + timestamp + ".json");
+        Files.write(output.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        Logger.info("Results written to {}", output.getPath());
+    }
+}
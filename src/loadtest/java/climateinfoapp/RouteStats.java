@@ -0,0 +1,92 @@
+package climateinfoapp;
+
+import java.util.Arrays;
+
+/**
+ * Collects the latencies and outcomes of the requests sent to one route.
+ * <p>
+ * Latencies are kept in full (one long per request) so percentiles are exact. Instances are
+ * thread-safe.
+ * </p>
+ */
+public class RouteStats {
+    private final String route;
+    private long[] latenciesNanos = new long[1024];
+    private int count;
+    private int errors;
+
+    /**
+     * @param route the name of the route
+     */
+    public RouteStats(String route) {
+        this.route = route;
+    }
+
+    /**
+     * Records one completed request.
+     *
+     * @param latencyNanos the latency, measured from the request's scheduled send time
+     * @param success whether the response had a 2xx or 3xx status
+     */
+    public synchronized void record(long latencyNanos, boolean success) {
+        if (count == latenciesNanos.length) {
+            latenciesNanos = Arrays.copyOf(latenciesNanos, count * 2);
+        }
+        latenciesNanos[count++] = latencyNanos;
+        if (!success) {
+            errors++;
+        }
+    }
+
+    /**
+     * @return the name of the route
+     */
+    public String getRoute() {
+        return route;
+    }
+
+    /**
+     * @return the number of completed requests
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the number of failed requests
+     */
+    public synchronized int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns a latency percentile.
+     *
+     * @param percentile the percentile in the range [0, 100]
+     * @return the latency in milliseconds, or 0 if no request completed
+     */
+    public synchronized double percentileMillis(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(latenciesNanos, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1_000_000.0;
+    }
+
+    /**
+     * Renders the statistics as a JSON object.
+     *
+     * @param elapsedSeconds the duration of the run used to compute throughput
+     * @return the JSON text
+     */
+    public synchronized String toJson(double elapsedSeconds) {
+        return String.format(java.util.Locale.ROOT,
+                "{\"route\":\"%s\",\"requests\":%d,\"errors\":%d,\"throughput\":%.2f,"
+                        + "\"p50Ms\":%.3f,\"p90Ms\":%.3f,\"p99Ms\":%.3f,\"p999Ms\":%.3f,\"maxMs\":%.3f}",
+                route, count, errors, count / elapsedSeconds,
+                percentileMillis(50), percentileMillis(90), percentileMillis(99), percentileMillis(99.9),
+                percentileMillis(100));
+    }
+}
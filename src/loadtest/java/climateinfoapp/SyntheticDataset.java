@@ -0,0 +1,200 @@
+package climateinfoapp;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.tinylog.Logger;
+
+/**
+ * Creates the schema and seeds a deterministic synthetic dataset of N stations by M days.
+ * <p>
+ * Temperatures follow a yearly sinusoid with a per-station offset and Gaussian noise, so the
+ * data exercises the same code paths as real station feeds. The same seed always produces the
+ * same rows, which keeps runs comparable across commits.
+ * </p>
+ */
+public class SyntheticDataset {
+    private static final int BATCH_SIZE = 1000;
+
+    private final int stations;
+    private final int days;
+    private final LocalDate firstDay;
+    private final long seed;
+
+    /**
+     * Describes a dataset.
+     *
+     * @param stations the number of stations
+     * @param days the number of consecutive days per station
+     * @param firstDay the date of the first reading
+     * @param seed the random seed
+     */
+    public SyntheticDataset(int stations, int days, LocalDate firstDay, long seed) {
+        this.stations = stations;
+        this.days = days;
+        this.firstDay = firstDay;
+        this.seed = seed;
+    }
+
+    /**
+     * Returns the name of the given station.
+     *
+     * @param station the zero-based station index
+     * @return the location name used in the climate data
+     */
+    public static String stationName(int station) {
+        return String.format("Station %03d", station + 1);
+    }
+
+    /**
+     * @return the names of all stations in the dataset
+     */
+    public List<String> getStationNames() {
+        List<String> names = new ArrayList<>(stations);
+        for (int i = 0; i < stations; i++) {
+            names.add(stationName(i));
+        }
+        return names;
+    }
+
+    /**
+     * @return the total number of seeded rows
+     */
+    public long getRowCount() {
+        return (long) stations * days;
+    }
+
+    /**
+     * @return the date of the first reading
+     */
+    public LocalDate getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * @return the number of days per station
+     */
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * Creates the application tables if they do not exist, empties them and inserts the dataset.
+     *
+     * @param connection the connection to seed through
+     * @throws SQLException if a statement fails
+     */
+    public void seed(Connection connection) throws SQLException {
+        seed(Collections.singletonList(connection), new ShardRouter(1));
+    }
+
+    /**
+     * Seeds a sharded database: every station's rows go to the shard the router assigns to it.
+     * Missing tables are created with the per-shard ID sequences of
+     * {@code sql-scripts/create-climate-data-shard.sql}.
+     *
+     * @param shards one connection per shard, in shard order
+     * @param router the router used by the application
+     * @throws SQLException if a statement fails
+     */
+    public void seed(List<Connection> shards, ShardRouter router) throws SQLException {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            createTables(shards.get(shard), shard, shards.size());
+        }
+
+        Random random = new Random(seed);
+        String sql = "INSERT INTO climate_data (date, location, temp, wind) VALUES (?, ?, ?, ?)";
+        List<PreparedStatement> statements = new ArrayList<>();
+        int[] pending = new int[shards.size()];
+        try {
+            for (Connection connection : shards) {
+                connection.setAutoCommit(false);
+                statements.add(connection.prepareStatement(sql));
+            }
+            for (int station = 0; station < stations; station++) {
+                String name = stationName(station);
+                int shard = router.shardForLocation(name);
+                PreparedStatement statement = statements.get(shard);
+                double offset = random.nextGaussian() * 3.0;
+                for (int day = 0; day < days; day++) {
+                    LocalDate date = firstDay.plusDays(day);
+                    double seasonal = 10.0 - 8.0 * Math.cos(2 * Math.PI * date.getDayOfYear() / 365.25);
+                    float temp = (float) clamp(seasonal + offset + random.nextGaussian() * 2.5, -100, 100);
+                    float wind = (float) clamp(12.0 + random.nextGaussian() * 6.0, 0, 199);
+
+                    statement.setDate(1, Date.valueOf(date));
+                    statement.setString(2, name);
+                    statement.setFloat(3, temp);
+                    statement.setFloat(4, wind);
+                    statement.addBatch();
+                    if (++pending[shard] == BATCH_SIZE) {
+                        statement.executeBatch();
+                        pending[shard] = 0;
+                    }
+                }
+            }
+            for (int shard = 0; shard < shards.size(); shard++) {
+                if (pending[shard] > 0) {
+                    statements.get(shard).executeBatch();
+                }
+                shards.get(shard).commit();
+            }
+        } finally {
+            for (PreparedStatement statement : statements) {
+                statement.close();
+            }
+            for (Connection connection : shards) {
+                connection.setAutoCommit(true);
+            }
+        }
+        Logger.info("Seeded {} stations x {} days = {} rows on {} shards.", stations, days, getRowCount(), shards.size());
+    }
+
+    /**
+     * Creates the tables of one shard if they do not exist and empties them.
+     *
+     * @param connection the connection to the shard
+     * @param shard the shard index
+     * @param shardCount the number of shards
+     * @throws SQLException if a statement fails
+     */
+    private void createTables(Connection connection, int shard, int shardCount) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            if (shardCount == 1) {
+                statement.execute("CREATE TABLE IF NOT EXISTS climate_data ("
+                        + "id SERIAL PRIMARY KEY, date DATE NOT NULL, location VARCHAR(50) NOT NULL, "
+                        + "temp REAL NOT NULL, wind REAL NOT NULL, UNIQUE (location, date))");
+            } else {
+                statement.execute("CREATE SEQUENCE IF NOT EXISTS climate_data_id_seq START WITH " + (shard + 1)
+                        + " INCREMENT BY " + shardCount);
+                statement.execute("CREATE TABLE IF NOT EXISTS climate_data ("
+                        + "id INTEGER DEFAULT nextval('climate_data_id_seq') PRIMARY KEY, date DATE NOT NULL, "
+                        + "location VARCHAR(50) NOT NULL, temp REAL NOT NULL, wind REAL NOT NULL, UNIQUE (location, date))");
+            }
+            statement.execute("CREATE TABLE IF NOT EXISTS climate_anomalies ("
+                    + "id SERIAL PRIMARY KEY, date DATE NOT NULL, location VARCHAR(50) NOT NULL, "
+                    + "metric VARCHAR(20) NOT NULL, value REAL NOT NULL, baseline DOUBLE PRECISION NOT NULL, "
+                    + "z_score DOUBLE PRECISION NOT NULL, detected_at TIMESTAMP NOT NULL DEFAULT now())");
+            statement.execute("CREATE TABLE IF NOT EXISTS climate_data_daily ("
+                    + "id SERIAL PRIMARY KEY, date DATE NOT NULL, location VARCHAR(50) NOT NULL, "
+                    + "sample_count INTEGER NOT NULL, temperature_sum DOUBLE PRECISION NOT NULL, "
+                    + "temperature_min REAL NOT NULL, temperature_max REAL NOT NULL, wind_sum DOUBLE PRECISION NOT NULL, "
+                    + "wind_min REAL NOT NULL, wind_max REAL NOT NULL, UNIQUE (location, date))");
+            statement.execute("DELETE FROM climate_data_daily");
+            statement.execute("DELETE FROM climate_anomalies");
+            statement.execute("DELETE FROM climate_data");
+        }
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,362 @@
+package climateinfoapp;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import org.tinylog.Logger;
+
+/**
+ * Admission control in front of the database: limits the number of concurrent database-bound
+ * requests and adapts that limit to the observed latency.
+ * <p>
+ * The limit follows AIMD. A request that completes within the latency target while the limiter is
+ * at least half busy raises the limit by {@code 1/limit}, about one per round of requests. A request
+ * that exceeds the target, or that fails with a database error, multiplies the limit by
+ * {@value #BACKOFF}; decreases are at most one per latency target, so a burst of slow
+ * completions counts as one signal. Requests over the limit wait in a bounded queue ordered by
+ * {@link Priority}, so writes go before interactive reads and those before bulk reads. When the
+ * queue is full a request displaces a waiting request of lower priority, or is rejected at once;
+ * a request that cannot be admitted within the maximum wait is rejected as well. Rejections are
+ * {@link OverloadedException}s, so under overload the tail latency is bounded by the maximum wait
+ * instead of growing with the backlog.
+ * </p>
+ */
+public class AdaptiveLimiter {
+
+    /**
+     * Factor applied to the limit when latency exceeds the target.
+     */
+    static final double BACKOFF = 0.9;
+
+    /**
+     * Admission priority of a request; earlier constants go first.
+     */
+    public enum Priority {
+        /** Inserts, updates and deletes. */
+        WRITE,
+        /** Reads of a single record or city. */
+        READ,
+        /** Reads of the whole table. */
+        BULK
+    }
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int REJECTED = 2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final int retryAfterSeconds;
+    private final LongSupplier clock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(Comparator
+            .comparingInt((Waiter waiter) -> waiter.priority.ordinal())
+            .thenComparingLong(waiter -> waiter.sequence));
+    private double limit;
+    private int inFlight;
+    private long sequence;
+    private long lastDecrease;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejectedQueueFull = new LongAdder();
+    private final LongAdder rejectedTimeout = new LongAdder();
+    private final LongAdder displaced = new LongAdder();
+
+    /**
+     * Creates a limiter.
+     *
+     * @param initialLimit the concurrency limit to start with
+     * @param minLimit the lowest limit
+     * @param maxLimit the highest limit
+     * @param latencyTargetMillis the latency above which the limit is decreased
+     * @param maxQueue the number of requests that may wait for admission
+     * @param maxWaitMillis how long a request may wait for admission
+     * @param retryAfterSeconds the retry delay suggested to rejected clients
+     * @throws IllegalArgumentException if the limits are not positive and ordered
+     */
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, long latencyTargetMillis,
+            int maxQueue, long maxWaitMillis, int retryAfterSeconds) {
+        this(initialLimit, minLimit, maxLimit, latencyTargetMillis, maxQueue, maxWaitMillis, retryAfterSeconds, System::nanoTime);
+    }
+
+    /**
+     * Creates a limiter with the given clock.
+     *
+     * @param initialLimit the concurrency limit to start with
+     * @param minLimit the lowest limit
+     * @param maxLimit the highest limit
+     * @param latencyTargetMillis the latency above which the limit is decreased
+     * @param maxQueue the number of requests that may wait for admission
+     * @param maxWaitMillis how long a request may wait for admission
+     * @param retryAfterSeconds the retry delay suggested to rejected clients
+     * @param clock returns the current time in nanoseconds
+     * @throws IllegalArgumentException if the limits are not positive and ordered
+     */
+    AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, long latencyTargetMillis,
+            int maxQueue, long maxWaitMillis, int retryAfterSeconds, LongSupplier clock) {
+        if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Expected 1 <= minLimit <= initialLimit <= maxLimit but got "
+                    + minLimit + ", " + initialLimit + ", " + maxLimit);
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.clock = clock;
+        this.lastDecrease = clock.getAsLong() - latencyTargetNanos;
+    }
+
+    /**
+     * Admits a request, waiting in the queue if the limit is reached.
+     *
+     * @param priority the priority of the request
+     * @return the permit, which must be released when the request no longer uses the database
+     * @throws OverloadedException if the queue is full of requests of the same or higher priority,
+     *         if the request is displaced or times out while waiting, or if the thread is interrupted
+     */
+    public Permit acquire(Priority priority) throws OverloadedException {
+        lock.lock();
+        try {
+            if (queue.isEmpty() && inFlight < currentLimit()) {
+                return admit();
+            }
+            if (queue.size() >= maxQueue && !displaceLowerThan(priority)) {
+                rejectedQueueFull.increment();
+                throw overloaded("Admission queue is full");
+            }
+
+            Waiter waiter = new Waiter(priority, sequence++, lock.newCondition());
+            queue.add(waiter);
+            long remaining = maxWaitNanos;
+            try {
+                while (waiter.state == WAITING && remaining > 0) {
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (waiter.state == GRANTED) {
+                return new Permit(clock.getAsLong());
+            }
+            if (waiter.state == WAITING) {
+                queue.remove(waiter);
+                rejectedTimeout.increment();
+                throw overloaded("Timed out waiting for admission");
+            }
+            throw overloaded("Displaced by a higher-priority request");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the current concurrency limit.
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of admitted requests that have not released their permit.
+     *
+     * @return the in-flight count
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of requests waiting for admission.
+     *
+     * @return the queue length
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of admitted requests.
+     *
+     * @return the admitted count
+     */
+    public long getAdmitted() {
+        return admitted.sum();
+    }
+
+    /**
+     * Returns the number of requests rejected because the queue was full.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedQueueFull() {
+        return rejectedQueueFull.sum();
+    }
+
+    /**
+     * Returns the number of requests rejected after waiting for the maximum time.
+     *
+     * @return the rejected count
+     */
+    public long getRejectedTimeout() {
+        return rejectedTimeout.sum();
+    }
+
+    /**
+     * Returns the number of waiting requests displaced by requests of higher priority.
+     *
+     * @return the displaced count
+     */
+    public long getDisplaced() {
+        return displaced.sum();
+    }
+
+    private int currentLimit() {
+        return (int) limit;
+    }
+
+    private Permit admit() {
+        inFlight++;
+        admitted.increment();
+        return new Permit(clock.getAsLong());
+    }
+
+    /**
+     * Rejects the newest waiting request of the lowest priority if it is lower than the given one.
+     *
+     * @param priority the priority of the arriving request
+     * @return true if a place in the queue was freed
+     */
+    private boolean displaceLowerThan(Priority priority) {
+        Waiter lowest = null;
+        for (Waiter waiter : queue) {
+            if (lowest == null || queue.comparator().compare(waiter, lowest) > 0) {
+                lowest = waiter;
+            }
+        }
+        if (lowest == null || lowest.priority.ordinal() <= priority.ordinal()) {
+            return false;
+        }
+        queue.remove(lowest);
+        lowest.state = REJECTED;
+        lowest.condition.signal();
+        displaced.increment();
+        return true;
+    }
+
+    /**
+     * Records the outcome of a request, adjusts the limit and admits waiting requests.
+     *
+     * @param latencyNanos how long the request held its permit
+     * @param dropped true if the request failed with a database error
+     */
+    private void complete(long latencyNanos, boolean dropped) {
+        lock.lock();
+        try {
+            inFlight--;
+            long now = clock.getAsLong();
+            if (dropped || latencyNanos > latencyTargetNanos) {
+                if (now - lastDecrease >= latencyTargetNanos) {
+                    lastDecrease = now;
+                    int previous = currentLimit();
+                    limit = Math.max(minLimit, limit * BACKOFF);
+                    if (currentLimit() != previous) {
+                        Logger.debug("Admission limit decreased to {} after a {} ms request.", currentLimit(),
+                                TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+                    }
+                }
+            } else if (inFlight + 1 >= limit / 2) {
+                // Only grows while the limit is actually being used
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            while (!queue.isEmpty() && inFlight < currentLimit()) {
+                Waiter next = queue.poll();
+                next.state = GRANTED;
+                inFlight++;
+                admitted.increment();
+                next.condition.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private OverloadedException overloaded(String reason) {
+        return new OverloadedException(reason + "; the database is at capacity.", retryAfterSeconds);
+    }
+
+    /**
+     * An admitted request. Releasing it feeds its latency back into the limit.
+     */
+    public final class Permit {
+        private final long start;
+        private boolean released;
+
+        private Permit(long start) {
+            this.start = start;
+        }
+
+        /**
+         * Releases the permit after the request succeeded. Further calls have no effect.
+         */
+        public void release() {
+            release(false);
+        }
+
+        /**
+         * Releases the permit after the request failed with a database error, which counts as a
+         * sign of overload. Further calls have no effect.
+         */
+        public void drop() {
+            release(true);
+        }
+
+        private void release(boolean dropped) {
+            if (!released) {
+                released = true;
+                complete(clock.getAsLong() - start, dropped);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final Priority priority;
+        private final long sequence;
+        private final Condition condition;
+        private int state = WAITING;
+
+        private Waiter(Priority priority, long sequence, Condition condition) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+    }
+}
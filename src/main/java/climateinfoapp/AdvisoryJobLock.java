@@ -0,0 +1,89 @@
+package climateinfoapp;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.tinylog.Logger;
+
+/**
+ * {@link JobScheduler.JobLock} backed by PostgreSQL session-level advisory locks on the first shard.
+ * <p>
+ * Each job name is hashed to a 64-bit lock key. A run takes the lock with
+ * {@code pg_try_advisory_lock}, which never waits, and keeps the connection open until it ends.
+ * If the node dies, its session ends and the server releases the lock, so a job cannot stay locked
+ * by a node that is gone.
+ * </p>
+ */
+public class AdvisoryJobLock implements JobScheduler.JobLock {
+
+    // Separates the job keys from any other advisory locks taken on the database
+    private static final String KEY_PREFIX = "climateinfoapp.job:";
+
+    private final QueryMonitor.ConnectionProvider connections;
+
+    /**
+     * Creates a lock.
+     *
+     * @param connections supplies the connections the locks are held on; shard 0 is used
+     */
+    public AdvisoryJobLock(QueryMonitor.ConnectionProvider connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * Tries to take the advisory lock of a job.
+     *
+     * @param job the job name
+     * @return the held lock, or null if another session holds it
+     * @throws SQLException if the lock cannot be checked
+     */
+    @Override
+    public JobScheduler.Lease tryLock(String job) throws SQLException {
+        long key = lockKey(job);
+        Connection connection = connections.getConnection(0);
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next() && resultSet.getBoolean(1)) {
+                    return () -> unlock(connection, job, key);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            DBUtils.closeConnection(connection);
+            throw e;
+        }
+        DBUtils.closeConnection(connection);
+        return null;
+    }
+
+    /**
+     * Returns the advisory lock key of a job: the 64-bit FNV-1a hash of its prefixed name, which is
+     * the same on every node.
+     *
+     * @param job the job name
+     * @return the key
+     */
+    static long lockKey(String job) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : (KEY_PREFIX + job).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static void unlock(Connection connection, String job, long key) {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            statement.setLong(1, key);
+            statement.executeQuery().close();
+        } catch (SQLException e) {
+            // Closing the session below releases the lock anyway
+            Logger.warn(e, "Failed to release the lock of job {}.", job);
+        } finally {
+            DBUtils.closeConnection(connection);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package climateinfoapp;
+
+/**
+ * Represents a reading that deviated from its location's baseline by more than the configured
+ * z-score threshold.
+ */
+public class Anomaly {
+    private int id;
+    private String date;
+    private String location;
+    private String metric;
+    private float value;
+    private double baseline;
+    private double score;
+
+    /**
+     * Constructs an anomaly with all fields.
+     *
+     * @param id       the unique identifier of the anomaly (0 if not yet stored)
+     * @param date     the date of the flagged reading in yyyy-MM-dd format
+     * @param location the location of the flagged reading
+     * @param metric   the name of the flagged measurement (e.g., "temperature" or "wind")
+     * @param value    the flagged value
+     * @param baseline the baseline the value was compared against
+     * @param score    the z-score of the value relative to the baseline
+     */
+    public Anomaly(int id, String date, String location, String metric, float value, double baseline, double score) {
+        this.id = id;
+        this.date = date;
+        this.location = location;
+        this.metric = metric;
+        this.value = value;
+        this.baseline = baseline;
+        this.score = score;
+    }
+
+    /**
+     * Gets the unique identifier of the anomaly.
+     *
+     * @return the ID of the anomaly
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the date of the flagged reading.
+     *
+     * @return the date in yyyy-MM-dd format
+     */
+    public String getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the location of the flagged reading.
+     *
+     * @return the location
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Gets the name of the flagged measurement.
+     *
+     * @return the metric name
+     */
+    public String getMetric() {
+        return metric;
+    }
+
+    /**
+     * Gets the flagged value.
+     *
+     * @return the value
+     */
+    public float getValue() {
+        return value;
+    }
+
+    /**
+     * Gets the baseline the value was compared against.
+     *
+     * @return the baseline
+     */
+    public double getBaseline() {
+        return baseline;
+    }
+
+    /**
+     * Gets the z-score of the value relative to the baseline.
+     *
+     * @return the z-score
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Returns a string representation of the anomaly.
+     *
+     * @return a string containing the anomaly details
+     */
+    @Override
+    public String toString() {
+        return "Anomaly{" +
+                "date='" + date + '\'' +
+                ", location='" + location + '\'' +
+                ", metric='" + metric + '\'' +
+                ", value=" + value +
+                ", baseline=" + baseline +
+                ", score=" + score +
+                '}';
+    }
+}
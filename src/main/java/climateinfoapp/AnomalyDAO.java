@@ -0,0 +1,107 @@
+package climateinfoapp;
+
+import org.tinylog.Logger;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object (DAO) class for the anomalies flagged by the {@link AnomalyDetector}.
+ */
+public class AnomalyDAO {
+    private static final int MAX_LISTED_ANOMALIES = 500;
+
+    private Connection jdbcConnection;
+
+    /**
+     * Default constructor for creating a DAO instance without an existing database connection.
+     */
+    public AnomalyDAO() {}
+
+    /**
+     * Constructs a DAO with a specific database connection.
+     *
+     * @param connection the connection to be used for database operations
+     */
+    public AnomalyDAO(Connection connection) {
+        this.jdbcConnection = connection;
+    }
+
+    /**
+     * Inserts a flagged anomaly into the database.
+     *
+     * @param anomaly the anomaly to be stored
+     * @return true if the anomaly was inserted successfully, false otherwise
+     * @throws DatabaseException if an error occurs during the insertion process
+     */
+    public boolean insertAnomaly(Anomaly anomaly) throws DatabaseException {
+        String sql = "INSERT INTO climate_anomalies (date, location, metric, value, baseline, z_score) VALUES (?, ?, ?, ?, ?, ?)";
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setDate(1, Date.valueOf(anomaly.getDate()));
+            statement.setString(2, anomaly.getLocation());
+            statement.setString(3, anomaly.getMetric());
+            statement.setFloat(4, anomaly.getValue());
+            statement.setDouble(5, anomaly.getBaseline());
+            statement.setDouble(6, anomaly.getScore());
+            return statement.executeUpdate() > 0;
+
+        } catch (SQLException e) {
+            Logger.error(e, "Error inserting anomaly: {}", anomaly);
+            throw new DatabaseException("Failed to insert anomaly", e);
+        }
+    }
+
+    /**
+     * Retrieves the most recently flagged anomalies.
+     *
+     * @return a list of anomalies, newest first
+     * @throws DatabaseException if an error occurs while retrieving the anomalies
+     */
+    public List<Anomaly> listRecentAnomalies() throws DatabaseException {
+        List<Anomaly> anomalies = new ArrayList<>();
+        String sql = "SELECT * FROM climate_anomalies ORDER BY detected_at DESC, id DESC LIMIT " + MAX_LISTED_ANOMALIES;
+
+        try (Connection connection = getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+
+            while (resultSet.next()) {
+                anomalies.add(new Anomaly(
+                        resultSet.getInt("id"),
+                        resultSet.getString("date"),
+                        resultSet.getString("location"),
+                        resultSet.getString("metric"),
+                        resultSet.getFloat("value"),
+                        resultSet.getDouble("baseline"),
+                        resultSet.getDouble("z_score")));
+            }
+            return anomalies;
+
+        } catch (SQLException e) {
+            Logger.error(e, "Error listing anomalies.");
+            throw new DatabaseException("Failed to retrieve anomalies", e);
+        }
+    }
+
+    /**
+     * Returns a connection to the database. If no open connection was supplied to the constructor,
+     * a new connection is created for the caller.
+     * <p>
+     * Newly created connections are not cached: the DAO is shared by all request threads and every
+     * caller closes its connection when done, so a shared connection would be closed underneath
+     * concurrent requests.
+     * </p>
+     *
+     * @return the database connection
+     * @throws SQLException if an error occurs while establishing the connection
+     */
+    private Connection getConnection() throws SQLException {
+        if (jdbcConnection != null && !jdbcConnection.isClosed()) {
+            return jdbcConnection;
+        }
+        return DBUtils.getConnection();
+    }
+}
@@ -0,0 +1,112 @@
+package climateinfoapp;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.tinylog.Logger;
+
+/**
+ * Streaming anomaly detector fed by every successful climate record insert.
+ * <p>
+ * For each location it keeps {@link RunningStats} for temperature and wind. Each new reading is
+ * scored against the location's exponentially weighted baseline, scaled by the running standard
+ * deviation, before being folded into the statistics. Readings whose absolute z-score exceeds the
+ * configured threshold are stored through the {@link AnomalyDAO}. The work per reading is O(1) and
+ * needs no query against the climate data.
+ * </p>
+ * <p>
+ * The statistics live in memory only and start empty after a restart; no reading is flagged until
+ * its location has accumulated the configured minimum number of samples, unless the baselines are
+ * rebuilt from stored readings with {@link #prime(ClimateRecord)}.
+ * </p>
+ */
+public class AnomalyDetector implements ClimateRecordListener {
+    public static final String METRIC_TEMPERATURE = "temperature";
+    public static final String METRIC_WIND = "wind";
+
+    private final AnomalyDAO anomalyDAO;
+    private final double zScoreThreshold;
+    private final long minSamples;
+    private final double ewmaAlpha;
+    private final Map<String, RunningStats> stats = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a detector.
+     *
+     * @param anomalyDAO the DAO used to store flagged readings
+     * @param zScoreThreshold the absolute z-score above which a reading is flagged
+     * @param minSamples the number of readings a location needs before its readings are scored
+     * @param ewmaAlpha the smoothing factor of the exponentially weighted baseline
+     */
+    public AnomalyDetector(AnomalyDAO anomalyDAO, double zScoreThreshold, long minSamples, double ewmaAlpha) {
+        this.anomalyDAO = anomalyDAO;
+        this.zScoreThreshold = zScoreThreshold;
+        this.minSamples = minSamples;
+        this.ewmaAlpha = ewmaAlpha;
+    }
+
+    /**
+     * Scores and stores a newly inserted record.
+     *
+     * @param record the inserted record
+     */
+    @Override
+    public void recordInserted(ClimateRecord record) {
+        observe(record, METRIC_TEMPERATURE, record.getTemperature());
+        observe(record, METRIC_WIND, record.getWind());
+    }
+
+    /**
+     * Folds a stored reading into the statistics without scoring it, to rebuild the baselines from
+     * recent readings after a restart.
+     *
+     * @param record the stored record; records must be primed in date order
+     */
+    public void prime(ClimateRecord record) {
+        stats.computeIfAbsent(key(record.getLocation(), METRIC_TEMPERATURE), k -> new RunningStats(ewmaAlpha))
+                .add(record.getTemperature());
+        stats.computeIfAbsent(key(record.getLocation(), METRIC_WIND), k -> new RunningStats(ewmaAlpha))
+                .add(record.getWind());
+    }
+
+    /**
+     * Returns the running statistics for a location and metric.
+     *
+     * @param location the location
+     * @param metric the metric name
+     * @return the statistics, or null if no reading has been observed yet
+     */
+    public RunningStats getStats(String location, String metric) {
+        return stats.get(key(location, metric));
+    }
+
+    /**
+     * Scores a single value, folds it into the statistics and stores an anomaly if it is flagged.
+     *
+     * @param record the record the value belongs to
+     * @param metric the metric name
+     * @param value the observed value
+     * @return the flagged anomaly, or null if the value is within the threshold
+     */
+    protected Anomaly observe(ClimateRecord record, String metric, float value) {
+        RunningStats series = stats.computeIfAbsent(key(record.getLocation(), metric), k -> new RunningStats(ewmaAlpha));
+        double baseline = series.getBaseline();
+        double z = series.scoreAndAdd(value, minSamples);
+        if (Double.isNaN(z) || Math.abs(z) <= zScoreThreshold) {
+            return null;
+        }
+
+        Anomaly anomaly = new Anomaly(0, record.getDate(), record.getLocation(), metric, value, baseline, z);
+        try {
+            anomalyDAO.insertAnomaly(anomaly);
+            Logger.info("Flagged anomaly: {}", anomaly);
+        } catch (DatabaseException e) {
+            Logger.error(e, "Failed to store anomaly: {}", anomaly);
+        }
+        return anomaly;
+    }
+
+    private static String key(String location, String metric) {
+        return location + '\u0000' + metric;
+    }
+}
@@ -0,0 +1,90 @@
+package climateinfoapp;
+
+import javax.servlet.ServletContext;
+
+import org.tinylog.Logger;
+
+/**
+ * AppConfig provides typed access to the application's context parameters (e.g., web.xml).
+ * <p>
+ * Missing or malformed values fall back to the supplied default, so optional tuning
+ * parameters never prevent the application from starting.
+ * </p>
+ */
+public class AppConfig {
+
+    private final ServletContext context;
+
+    /**
+     * Constructs a configuration view over the given servlet context.
+     *
+     * @param context the servlet context holding the init parameters
+     */
+    public AppConfig(ServletContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Returns a string parameter, or the default if it is not configured.
+     *
+     * @param name the parameter name
+     * @param defaultValue the value to use when the parameter is missing or blank
+     * @return the configured value or the default
+     */
+    public String getString(String name, String defaultValue) {
+        String value = context.getInitParameter(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    /**
+     * Returns an integer parameter, or the default if it is missing or invalid.
+     *
+     * @param name the parameter name
+     * @param defaultValue the value to use when the parameter is missing or invalid
+     * @return the configured value or the default
+     */
+    public int getInt(String name, int defaultValue) {
+        String value = getString(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            Logger.warn("Invalid integer for {}: {}. Using default {}.", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns a floating point parameter, or the default if it is missing or invalid.
+     *
+     * @param name the parameter name
+     * @param defaultValue the value to use when the parameter is missing or invalid
+     * @return the configured value or the default
+     */
+    public double getDouble(String name, double defaultValue) {
+        String value = getString(name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            Logger.warn("Invalid number for {}: {}. Using default {}.", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Returns a boolean parameter, or the default if it is not configured.
+     *
+     * @param name the parameter name
+     * @param defaultValue the value to use when the parameter is missing
+     * @return the configured value or the default
+     */
+    public boolean getBoolean(String name, boolean defaultValue) {
+        String value = getString(name, null);
+        return value == null ? defaultValue : Boolean.parseBoolean(value);
+    }
+}
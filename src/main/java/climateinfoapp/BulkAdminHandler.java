@@ -0,0 +1,151 @@
+package climateinfoapp;
+
+import static climateinfoapp.RequestParameters.parseFloat;
+import static climateinfoapp.RequestParameters.parseInteger;
+import static climateinfoapp.RequestParameters.requireParameter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Handles the bulk administration routes of the {@link ClimateInfoDashboard}: {@code /deleteRecords},
+ * {@code /deleteRange} and {@code /correctTemperature}. Each responds with the number of readings
+ * changed, as plain text.
+ * <p>
+ * The range routes change the readings in every tier: the records and archive tables through the
+ * {@link BulkRecordDAO}, then the segment archive, so deleted or corrected readings do not come back
+ * through the export and trend endpoints that merge the segments in. A retention run that moves
+ * readings of the range into a segment while the route runs can still write them as they were.
+ * </p>
+ */
+class BulkAdminHandler {
+
+    private final BulkRecordDAO bulkRecordDAO;
+    private final int chunkSize;
+    private final SegmentArchive segmentArchive;
+
+    /**
+     * Creates a handler.
+     *
+     * @param bulkRecordDAO the DAO that runs the bulk statements
+     * @param chunkSize the largest number of rows a bulk operation changes in one transaction
+     * @param segmentArchive the archive whose segments are rewritten as well, or null if there is none
+     */
+    BulkAdminHandler(BulkRecordDAO bulkRecordDAO, int chunkSize, SegmentArchive segmentArchive) {
+        this.bulkRecordDAO = bulkRecordDAO;
+        this.chunkSize = chunkSize;
+        this.segmentArchive = segmentArchive;
+    }
+
+    /**
+     * Deletes the climate records whose IDs are listed, comma-separated, in the {@code ids}
+     * parameter, and reports the number deleted as {@code deleted=N}.
+     *
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while deleting the records from the database
+     */
+    void deleteRecords(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, DatabaseException {
+        String ids = request.getParameter("ids");
+        List<Integer> idList = new ArrayList<>();
+        if (ids != null) {
+            for (String id : ids.split(",")) {
+                if (!id.trim().isEmpty()) {
+                    idList.add(parseInteger(id.trim(), "ID"));
+                }
+            }
+        }
+        int deleted = idList.isEmpty() ? 0 : bulkRecordDAO.deleteClimateRecords(idList, chunkSize);
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().println("deleted=" + deleted);
+    }
+
+    /**
+     * Deletes the readings of the {@code location} parameter from the {@code from} to the
+     * {@code to} date, and reports the number deleted as {@code deleted=N}.
+     *
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while deleting the records from the database
+     * @throws InvalidArgumentsException if the location or a date is missing
+     */
+    void deleteRange(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, DatabaseException, InvalidArgumentsException {
+        String location = requireParameter(request, "location");
+        String fromDate = requireParameter(request, "from");
+        String toDate = requireParameter(request, "to");
+        int deleted = bulkRecordDAO.deleteClimateRecords(location, fromDate, toDate, chunkSize);
+        if (segmentArchive != null) {
+            deleted += segmentArchive.rewrite(location, fromDate, toDate, reading -> null);
+        }
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().println("deleted=" + deleted);
+    }
+
+    /**
+     * Adds the {@code offset} parameter to the temperatures of the {@code location} parameter from
+     * the {@code from} to the {@code to} date, and reports the number corrected as {@code updated=N}.
+     *
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while updating the records in the database
+     * @throws InvalidArgumentsException if a parameter is missing or a corrected temperature would be out of range
+     */
+    void correctTemperatures(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, DatabaseException, InvalidArgumentsException {
+        String location = requireParameter(request, "location");
+        float offset = parseFloat(request.getParameter("offset"), "Offset");
+        String fromDate = requireParameter(request, "from");
+        String toDate = requireParameter(request, "to");
+        if (segmentArchive != null) {
+            checkArchivedCorrection(location, fromDate, toDate, offset);
+        }
+        int updated = bulkRecordDAO.correctTemperatures(location, fromDate, toDate, offset, chunkSize);
+        if (segmentArchive != null) {
+            updated += segmentArchive.rewrite(location, fromDate, toDate, reading -> corrected(reading, offset));
+        }
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().println("updated=" + updated);
+    }
+
+    /**
+     * Checks that a correction keeps every archived temperature of a range valid, before the
+     * database is changed.
+     *
+     * @param location the location of the readings
+     * @param fromDate the first date of the range in yyyy-MM-dd format
+     * @param toDate the last date of the range in yyyy-MM-dd format
+     * @param offset the value added to every temperature
+     * @throws DatabaseException if a segment cannot be read
+     * @throws InvalidArgumentsException if a corrected temperature would be out of range
+     */
+    private void checkArchivedCorrection(String location, String fromDate, String toDate, float offset)
+            throws DatabaseException, InvalidArgumentsException {
+        try (ClimateRecordCursor archived = segmentArchive.openRange(location, fromDate, toDate)) {
+            while (archived.hasNext()) {
+                ClimateRecord reading = archived.next();
+                try {
+                    corrected(reading, offset);
+                } catch (InvalidArgumentsException e) {
+                    throw new InvalidArgumentsException("A correction of " + offset + " would take the archived temperature of "
+                            + reading.getDate() + " out of range.", e);
+                }
+            }
+        } catch (IllegalStateException e) {
+            throw ClimateRecordCursor.readFailure(e);
+        }
+    }
+
+    private static ClimateRecord corrected(ClimateRecord reading, float offset) throws InvalidArgumentsException {
+        return new ClimateRecord(reading.getId(), reading.getDate(), reading.getLocation(),
+                reading.getTemperature() + offset, reading.getWind());
+    }
+}
@@ -0,0 +1,363 @@
+package climateinfoapp;
+
+import org.tinylog.Logger;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object (DAO) class for the bulk administration of climate records: deletes and
+ * temperature corrections of many readings at once, run as set-based statements in chunks so that
+ * locks are held briefly however many rows are changed.
+ * <p>
+ * The statements go to the shards, query monitor and listeners of a {@link ClimateRecordDAO}, so
+ * caches and event streams see bulk changes like any other write.
+ * </p>
+ */
+public class BulkRecordDAO {
+
+    private final ClimateRecordDAO climateRecordDAO;
+    private final ShardRouter shardRouter;
+
+    /**
+     * Creates a DAO that writes through a climate record DAO.
+     *
+     * @param climateRecordDAO the DAO whose connections, query monitor and listeners are used
+     */
+    public BulkRecordDAO(ClimateRecordDAO climateRecordDAO) {
+        this.climateRecordDAO = climateRecordDAO;
+        this.shardRouter = climateRecordDAO.getShardRouter();
+    }
+
+    /**
+     * Deletes climate records by ID. The IDs are grouped by shard and deleted with one set-based
+     * statement per chunk of at most {@code chunkSize} IDs; each chunk is its own short transaction.
+     *
+     * @param ids the IDs of the records to delete
+     * @param chunkSize the largest number of records deleted in one transaction
+     * @return the number of records deleted; IDs that do not exist are not counted
+     * @throws DatabaseException if an error occurs; the chunks committed before the error stay deleted
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public int deleteClimateRecords(List<Integer> ids, int chunkSize) throws DatabaseException {
+        checkChunkSize(chunkSize);
+        String sql = "DELETE FROM climate_data WHERE id = ANY(?) RETURNING id";
+        Map<Integer, List<Integer>> idsByShard = new LinkedHashMap<>();
+        for (int id : ids) {
+            idsByShard.computeIfAbsent(shardRouter.shardForId(id), shard -> new ArrayList<>()).add(id);
+        }
+
+        int deleted = 0;
+        for (Map.Entry<Integer, List<Integer>> shardIds : idsByShard.entrySet()) {
+            List<Integer> remaining = shardIds.getValue();
+            for (int start = 0; start < remaining.size(); start += chunkSize) {
+                List<Integer> chunk = remaining.subList(start, Math.min(remaining.size(), start + chunkSize));
+                try (Connection connection = getConnection(shardIds.getKey());
+                     PreparedStatement statement = connection.prepareStatement(sql);
+                     QueryMonitor.Execution execution = queryMonitor().start(statement, "deleteClimateRecords",
+                             shardIds.getKey(), sql, chunk)) {
+
+                    statement.setArray(1, connection.createArrayOf("integer", chunk.toArray()));
+                    deleted += fireDeletedRows(statement, execution, true);
+
+                } catch (SQLException e) {
+                    Logger.error(e, "Error deleting {} records after {} were deleted.", ids.size(), deleted);
+                    throw new DatabaseException("Failed to delete climate records", e);
+                }
+            }
+        }
+        Logger.info("Bulk delete removed {} of {} records.", deleted, ids.size());
+        return deleted;
+    }
+
+    /**
+     * Deletes the raw readings of a location in a date range, in the records table and in the
+     * archive table, together with the daily means of the range. The readings are deleted in chunks
+     * of at most {@code chunkSize} rows, each with one set-based statement in its own transaction,
+     * so locks are held briefly even on huge ranges. Listeners are notified of every deleted reading
+     * and daily mean, the daily means with the negated IDs they are read with; archived readings are
+     * not read through this DAO and are deleted without notifications.
+     * <p>
+     * Archived readings that have been moved to a {@link SegmentArchive} are not in the database;
+     * they are deleted with {@link SegmentArchive#rewrite}.
+     * </p>
+     *
+     * @param location the location of the readings
+     * @param fromDate the first date of the range in yyyy-MM-dd format
+     * @param toDate the last date of the range in yyyy-MM-dd format
+     * @param chunkSize the largest number of readings deleted in one transaction
+     * @return the number of raw readings deleted, archived ones included
+     * @throws DatabaseException if an error occurs; the chunks committed before the error stay deleted
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public int deleteClimateRecords(String location, String fromDate, String toDate, int chunkSize) throws DatabaseException {
+        checkChunkSize(chunkSize);
+        int deleted = 0;
+        int shard = shardRouter.shardForLocation(location);
+        try (Connection connection = getConnection(shard)) {
+            deleted += deleteRange(connection, shard, "climate_data", location, fromDate, toDate, chunkSize, true);
+            int archived = deleteRange(connection, shard, "climate_data_archive", location, fromDate, toDate, chunkSize, false);
+            deleted += archived;
+
+            // Daily means are read with negated IDs, so listeners are told of them that way
+            String daily = "DELETE FROM climate_data_daily WHERE location = ? AND date BETWEEN ? AND ? RETURNING -id";
+            int dailyDeleted;
+            try (PreparedStatement statement = connection.prepareStatement(daily);
+                 QueryMonitor.Execution execution = queryMonitor().start(statement, "deleteClimateRecordRange", shard, daily,
+                         location, Date.valueOf(fromDate), Date.valueOf(toDate))) {
+                setRangeParams(statement, 1, location, fromDate, toDate);
+                dailyDeleted = fireDeletedRows(statement, execution, true);
+            }
+            Logger.info("Deleted {} readings ({} archived) and {} daily means of {} from {} to {}.", deleted, archived,
+                    dailyDeleted, location, fromDate, toDate);
+            return deleted;
+
+        } catch (SQLException e) {
+            Logger.error(e, "Error deleting readings of {} from {} to {} after {} were deleted.", location, fromDate, toDate, deleted);
+            throw new DatabaseException("Failed to delete climate records", e);
+        }
+    }
+
+    /**
+     * Adds a correction offset to the temperature of a location's readings in a date range, in the
+     * records table and in the archive table, and to the daily means of the range. The readings are
+     * updated in chunks of at most {@code chunkSize} rows in ID order, each with one set-based
+     * statement in its own transaction. The range is checked first, so an offset that would take
+     * any reading or daily extreme out of the valid temperature range changes nothing; the updates
+     * repeat the check, so a reading written after it is left unchanged rather than taken out of
+     * range. Listeners are notified of every corrected reading and daily mean, the daily means with
+     * the negated IDs they are read with; archived readings are corrected without notifications.
+     * <p>
+     * Archived readings that have been moved to a {@link SegmentArchive} are not in the database;
+     * they are corrected with {@link SegmentArchive#rewrite}.
+     * </p>
+     *
+     * @param location the location of the readings
+     * @param fromDate the first date of the range in yyyy-MM-dd format
+     * @param toDate the last date of the range in yyyy-MM-dd format
+     * @param offset the value added to every temperature
+     * @param chunkSize the largest number of readings updated in one transaction
+     * @return the number of raw readings updated, archived ones included
+     * @throws DatabaseException if an error occurs; the chunks committed before the error stay corrected
+     * @throws InvalidArgumentsException if a corrected temperature would be out of range
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public int correctTemperatures(String location, String fromDate, String toDate, float offset, int chunkSize)
+            throws DatabaseException, InvalidArgumentsException {
+        checkChunkSize(chunkSize);
+        // The daily means lie between the daily extremes, so checking the extremes covers them
+        String check = "SELECT count(*) FROM (SELECT temp FROM climate_data WHERE location = ? AND date BETWEEN ? AND ?"
+                + " UNION ALL SELECT temp FROM climate_data_archive WHERE location = ? AND date BETWEEN ? AND ?"
+                + " UNION ALL SELECT temperature_min FROM climate_data_daily WHERE location = ? AND date BETWEEN ? AND ?"
+                + " UNION ALL SELECT temperature_max FROM climate_data_daily WHERE location = ? AND date BETWEEN ? AND ?)"
+                + " temperatures WHERE temp + ? NOT BETWEEN -100 AND 100";
+        int updated = 0;
+        int shard = shardRouter.shardForLocation(location);
+        try (Connection connection = getConnection(shard)) {
+            try (PreparedStatement statement = connection.prepareStatement(check);
+                 QueryMonitor.Execution execution = queryMonitor().start(statement, "correctTemperatures", shard, check,
+                         location, Date.valueOf(fromDate), Date.valueOf(toDate), offset)) {
+                for (int index = 1; index <= 10; index += 3) {
+                    setRangeParams(statement, index, location, fromDate, toDate);
+                }
+                statement.setFloat(13, offset);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    execution.setRows(1);
+                    if (resultSet.next() && resultSet.getInt(1) > 0) {
+                        throw new InvalidArgumentsException("A correction of " + offset + " would take "
+                                + resultSet.getInt(1) + " temperatures out of range.");
+                    }
+                }
+            }
+
+            updated += correctRange(connection, shard, "climate_data", location, fromDate, toDate, offset, chunkSize, true);
+            updated += correctRange(connection, shard, "climate_data_archive", location, fromDate, toDate, offset, chunkSize,
+                    false);
+
+            String daily = "UPDATE climate_data_daily SET"
+                    + " temperature_sum = temperature_sum + ? * sample_count,"
+                    + " temperature_min = temperature_min + ?, temperature_max = temperature_max + ?"
+                    + " WHERE location = ? AND date BETWEEN ? AND ?"
+                    + " AND temperature_min + ? >= -100 AND temperature_max + ? <= 100"
+                    + " RETURNING -id AS id, date, location, CAST(temperature_sum / sample_count AS REAL) AS temp,"
+                    + " CAST(wind_sum / sample_count AS REAL) AS wind";
+            try (PreparedStatement statement = connection.prepareStatement(daily);
+                 QueryMonitor.Execution execution = queryMonitor().start(statement, "correctTemperatures", shard, daily,
+                         offset, offset, offset, location, Date.valueOf(fromDate), Date.valueOf(toDate), offset, offset)) {
+                statement.setFloat(1, offset);
+                statement.setFloat(2, offset);
+                statement.setFloat(3, offset);
+                setRangeParams(statement, 4, location, fromDate, toDate);
+                statement.setFloat(7, offset);
+                statement.setFloat(8, offset);
+                int dailyUpdated = 0;
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        climateRecordDAO.fireRecordUpdated(ClimateRecordDAO.mapResultSetToClimateRecord(resultSet));
+                        dailyUpdated++;
+                    }
+                }
+                execution.setRows(dailyUpdated);
+            }
+            Logger.info("Corrected {} temperatures of {} from {} to {} by {}.", updated, location, fromDate, toDate, offset);
+            return updated;
+
+        } catch (SQLException e) {
+            Logger.error(e, "Error correcting temperatures of {} from {} to {} after {} were updated.", location, fromDate, toDate, updated);
+            throw new DatabaseException("Failed to correct climate records", e);
+        }
+    }
+
+    /**
+     * Deletes the readings of a location in a date range from a table of raw readings, in chunks
+     * until none is left.
+     *
+     * @param connection the connection to the location's shard
+     * @param shard the shard index
+     * @param table the table of raw readings
+     * @param location the location of the readings
+     * @param fromDate the first date of the range in yyyy-MM-dd format
+     * @param toDate the last date of the range in yyyy-MM-dd format
+     * @param chunkSize the largest number of readings deleted in one transaction
+     * @param notify whether listeners are notified of the deleted readings
+     * @return the number of readings deleted
+     * @throws SQLException if a statement fails
+     */
+    private int deleteRange(Connection connection, int shard, String table, String location, String fromDate,
+            String toDate, int chunkSize, boolean notify) throws SQLException {
+        String sql = "DELETE FROM " + table + " WHERE id IN ("
+                + "SELECT id FROM " + table + " WHERE location = ? AND date BETWEEN ? AND ? ORDER BY id LIMIT ?"
+                + ") RETURNING id";
+        int deleted = 0;
+        int chunk;
+        do {
+            try (PreparedStatement statement = connection.prepareStatement(sql);
+                 QueryMonitor.Execution execution = queryMonitor().start(statement, "deleteClimateRecordRange", shard, sql,
+                         location, Date.valueOf(fromDate), Date.valueOf(toDate), chunkSize)) {
+                setRangeParams(statement, 1, location, fromDate, toDate);
+                statement.setInt(4, chunkSize);
+                chunk = fireDeletedRows(statement, execution, notify);
+            }
+            deleted += chunk;
+        } while (chunk == chunkSize);
+        return deleted;
+    }
+
+    /**
+     * Adds a correction offset to the temperatures of a location's readings in a date range in a
+     * table of raw readings, in chunks in ID order. A reading the offset would take out of range is
+     * skipped.
+     *
+     * @param connection the connection to the location's shard
+     * @param shard the shard index
+     * @param table the table of raw readings
+     * @param location the location of the readings
+     * @param fromDate the first date of the range in yyyy-MM-dd format
+     * @param toDate the last date of the range in yyyy-MM-dd format
+     * @param offset the value added to every temperature
+     * @param chunkSize the largest number of readings updated in one transaction
+     * @param notify whether listeners are notified of the corrected readings
+     * @return the number of readings updated
+     * @throws SQLException if a statement fails
+     * @throws InvalidArgumentsException if a corrected reading holds invalid data
+     */
+    private int correctRange(Connection connection, int shard, String table, String location, String fromDate,
+            String toDate, float offset, int chunkSize, boolean notify) throws SQLException, InvalidArgumentsException {
+        String sql = "UPDATE " + table + " SET temp = temp + ? WHERE id IN ("
+                + "SELECT id FROM " + table + " WHERE location = ? AND date BETWEEN ? AND ? AND id > ?"
+                + " AND temp + ? BETWEEN -100 AND 100 ORDER BY id LIMIT ?"
+                + ") RETURNING id, date, location, temp, wind";
+        int updated = 0;
+        int lastId = Integer.MIN_VALUE;
+        int chunk;
+        do {
+            chunk = 0;
+            try (PreparedStatement statement = connection.prepareStatement(sql);
+                 QueryMonitor.Execution execution = queryMonitor().start(statement, "correctTemperatures", shard, sql,
+                         offset, location, Date.valueOf(fromDate), Date.valueOf(toDate), lastId, offset, chunkSize)) {
+                statement.setFloat(1, offset);
+                setRangeParams(statement, 2, location, fromDate, toDate);
+                statement.setInt(5, lastId);
+                statement.setFloat(6, offset);
+                statement.setInt(7, chunkSize);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        ClimateRecord record = ClimateRecordDAO.mapResultSetToClimateRecord(resultSet);
+                        lastId = Math.max(lastId, record.getId());
+                        if (notify) {
+                            climateRecordDAO.fireRecordUpdated(record);
+                        }
+                        chunk++;
+                    }
+                }
+                execution.setRows(chunk);
+            }
+            updated += chunk;
+        } while (chunk == chunkSize);
+        return updated;
+    }
+
+    /**
+     * Rejects a chunk size that would never make progress.
+     *
+     * @param chunkSize the largest number of rows changed in one transaction
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    private static void checkChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+    }
+
+    /**
+     * Sets a location and an inclusive date range as three consecutive statement parameters.
+     *
+     * @param statement the statement to set parameters for
+     * @param index the index of the location parameter
+     * @param location the location
+     * @param fromDate the first date in yyyy-MM-dd format
+     * @param toDate the last date in yyyy-MM-dd format
+     * @throws SQLException if a parameter cannot be set
+     */
+    private void setRangeParams(PreparedStatement statement, int index, String location, String fromDate, String toDate)
+            throws SQLException {
+        statement.setString(index, location);
+        statement.setDate(index + 1, Date.valueOf(fromDate));
+        statement.setDate(index + 2, Date.valueOf(toDate));
+    }
+
+    /**
+     * Executes a delete that returns the IDs of the deleted rows and notifies the listeners of each.
+     *
+     * @param statement the delete statement with a {@code RETURNING id} clause
+     * @param execution the monitored execution of the statement, which receives the row count
+     * @param notify whether listeners are notified of the deleted rows
+     * @return the number of rows deleted
+     * @throws SQLException if the statement fails
+     */
+    private int fireDeletedRows(PreparedStatement statement, QueryMonitor.Execution execution, boolean notify)
+            throws SQLException {
+        int deleted = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                if (notify) {
+                    climateRecordDAO.fireRecordDeleted(resultSet.getInt(1));
+                }
+                deleted++;
+            }
+        }
+        execution.setRows(deleted);
+        return deleted;
+    }
+
+    private QueryMonitor queryMonitor() {
+        return climateRecordDAO.getQueryMonitor();
+    }
+
+    private Connection getConnection(int shard) throws SQLException {
+        return climateRecordDAO.getConnection(shard);
+    }
+}
@@ -0,0 +1,201 @@
+package climateinfoapp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * Groups in-memory climate records and summarizes each group with a {@link ClimateStats}.
+ * <p>
+ * Inputs of at least the sequential threshold are split in halves on a {@link ForkJoinPool} until
+ * the chunks are small enough to summarize on one thread. Every chunk is summarized into a map
+ * owned by its task, and two halves are combined by merging the smaller map into the larger one
+ * after both have finished, so no lock or concurrent map is involved. Smaller inputs are
+ * summarized on the calling thread, where forking would cost more than it saves; the benchmarks in
+ * {@code src/benchmark/java} ({@code mvn -Pbenchmarks verify}) show where that crossover lies.
+ * </p>
+ */
+public class ClimateAggregator {
+
+    /**
+     * Default number of records below which the input is summarized sequentially.
+     */
+    public static final int DEFAULT_SEQUENTIAL_THRESHOLD = 16_384;
+
+    // Number of chunks per worker thread, so that workers that finish early can steal the rest
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final int sequentialThreshold;
+
+    /**
+     * Creates an aggregator on the common pool with the default threshold.
+     */
+    public ClimateAggregator() {
+        this(ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_THRESHOLD);
+    }
+
+    /**
+     * Creates an aggregator.
+     *
+     * @param pool the pool that runs parallel aggregations
+     * @param sequentialThreshold the number of records below which the input is summarized on the
+     *        calling thread; it is also the smallest chunk a parallel aggregation splits into
+     * @throws IllegalArgumentException if the threshold is not positive
+     */
+    public ClimateAggregator(ForkJoinPool pool, int sequentialThreshold) {
+        if (sequentialThreshold <= 0) {
+            throw new IllegalArgumentException("Sequential threshold must be positive: " + sequentialThreshold);
+        }
+        this.pool = pool;
+        this.sequentialThreshold = sequentialThreshold;
+    }
+
+    /**
+     * Returns the number of records below which the input is summarized sequentially.
+     *
+     * @return the sequential threshold
+     */
+    public int getSequentialThreshold() {
+        return sequentialThreshold;
+    }
+
+    /**
+     * Summarizes the records of each location and month.
+     *
+     * @param records the records to summarize
+     * @return the summary of each location/month group, in no particular order
+     */
+    public Map<ClimateGroupKey, ClimateStats> byLocationAndMonth(List<ClimateRecord> records) {
+        return aggregate(records, ClimateGroupKey::of);
+    }
+
+    /**
+     * Summarizes the records of each location.
+     *
+     * @param records the records to summarize
+     * @return the summary of each location, in no particular order
+     */
+    public Map<String, ClimateStats> byLocation(List<ClimateRecord> records) {
+        return aggregate(records, ClimateRecord::getLocation);
+    }
+
+    /**
+     * Summarizes the records of each group.
+     *
+     * @param <K> the type of the group keys
+     * @param records the records to summarize
+     * @param grouping returns the group of a record; it must be safe to call from several threads
+     * @return the summary of each group, in no particular order
+     */
+    public <K> Map<K, ClimateStats> aggregate(List<ClimateRecord> records, Function<ClimateRecord, K> grouping) {
+        // Splitting relies on cheap positional access
+        List<ClimateRecord> input = records instanceof RandomAccess ? records : new ArrayList<>(records);
+        if (input.size() < sequentialThreshold || pool.getParallelism() == 1) {
+            return summarize(input, 0, input.size(), grouping);
+        }
+        int chunkSize = Math.max(sequentialThreshold,
+                input.size() / (pool.getParallelism() * CHUNKS_PER_THREAD) + 1);
+        return pool.invoke(new AggregateTask<>(input, 0, input.size(), chunkSize, grouping));
+    }
+
+    /**
+     * Summarizes records as they are read, on the calling thread. Used for results too large to hold
+     * in memory; only the groups are kept.
+     *
+     * @param <K> the type of the group keys
+     * @param records the records to summarize, such as an open cursor
+     * @param grouping returns the group of a record
+     * @return the summary of each group, in no particular order
+     */
+    public <K> Map<K, ClimateStats> aggregate(Iterator<ClimateRecord> records, Function<ClimateRecord, K> grouping) {
+        Map<K, ClimateStats> groups = new HashMap<>();
+        while (records.hasNext()) {
+            ClimateRecord record = records.next();
+            groups.computeIfAbsent(grouping.apply(record), key -> new ClimateStats()).add(record);
+        }
+        return groups;
+    }
+
+    /**
+     * Summarizes a range of records on the calling thread.
+     *
+     * @param <K> the type of the group keys
+     * @param records the records
+     * @param from the index of the first record, inclusive
+     * @param to the index of the last record, exclusive
+     * @param grouping returns the group of a record
+     * @return the summary of each group in the range
+     */
+    static <K> Map<K, ClimateStats> summarize(List<ClimateRecord> records, int from, int to,
+            Function<ClimateRecord, K> grouping) {
+        Map<K, ClimateStats> groups = new HashMap<>();
+        for (int i = from; i < to; i++) {
+            ClimateRecord record = records.get(i);
+            groups.computeIfAbsent(grouping.apply(record), key -> new ClimateStats()).add(record);
+        }
+        return groups;
+    }
+
+    /**
+     * Merges two partial results, reusing the larger map.
+     *
+     * @param <K> the type of the group keys
+     * @param left a partial result
+     * @param right another partial result
+     * @return the combined result
+     */
+    static <K> Map<K, ClimateStats> combine(Map<K, ClimateStats> left, Map<K, ClimateStats> right) {
+        Map<K, ClimateStats> target = left.size() >= right.size() ? left : right;
+        Map<K, ClimateStats> source = target == left ? right : left;
+        for (Map.Entry<K, ClimateStats> entry : source.entrySet()) {
+            target.merge(entry.getKey(), entry.getValue(), ClimateStats::merge);
+        }
+        return target;
+    }
+
+    /**
+     * Summarizes a range of records, splitting it in halves while it is larger than a chunk.
+     */
+    private static final class AggregateTask<K> extends RecursiveTask<Map<K, ClimateStats>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<ClimateRecord> records;
+        private final int from;
+        private final int to;
+        private final int chunkSize;
+        private final Function<ClimateRecord, K> grouping;
+
+        private AggregateTask(List<ClimateRecord> records, int from, int to, int chunkSize,
+                Function<ClimateRecord, K> grouping) {
+            this.records = records;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+            this.grouping = grouping;
+        }
+
+        /**
+         * Summarizes the range, forking the left half and computing the right half in this thread.
+         *
+         * @return the summary of each group in the range
+         */
+        @Override
+        protected Map<K, ClimateStats> compute() {
+            if (to - from <= chunkSize) {
+                return summarize(records, from, to, grouping);
+            }
+            int middle = (from + to) >>> 1;
+            AggregateTask<K> left = new AggregateTask<>(records, from, middle, chunkSize, grouping);
+            left.fork();
+            Map<K, ClimateStats> right = new AggregateTask<>(records, middle, to, chunkSize, grouping).compute();
+            return combine(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,476 @@
+package climateinfoapp;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.tinylog.Logger;
+
+/**
+ * Keeps the in-memory caches of several application nodes coherent through PostgreSQL
+ * {@code LISTEN}/{@code NOTIFY} on the {@value #CHANNEL} channel.
+ * <p>
+ * As a {@link ClimateRecordListener} the feed publishes every committed write of this node as a
+ * compact notification holding the change, the record ID, date and location. Writes made outside
+ * the application are published by the trigger in {@code sql-scripts/create-change-notifications.sql}.
+ * Publishing never blocks a request: notifications are queued and sent by a background thread, in
+ * one statement per batch, on the first shard.
+ * </p>
+ * <p>
+ * Every node keeps one listening connection per shard and hands the changes made by other nodes
+ * to its {@link Handler}. Whenever a notification may have been missed, because a listening
+ * connection was lost or a batch could not be published, the handlers are asked to drop all they
+ * hold, so a cache is never stale beyond the delivery delay of a notification.
+ * </p>
+ */
+public class ClimateChangeFeed implements ClimateRecordListener, AutoCloseable {
+
+    /** The notification channel. */
+    public static final String CHANNEL = "climate_data_changes";
+
+    // Origin of the notifications sent by the database trigger
+    static final String DATABASE_ORIGIN = "db";
+
+    private static final String PUBLISH = "SELECT pg_notify(?, payload) FROM unnest(?) AS payload";
+    private static final int MAX_BATCH = 1000;
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    /**
+     * Receives the changes made by other nodes or outside the application.
+     */
+    public interface Handler {
+
+        /**
+         * Called for each change made elsewhere.
+         *
+         * @param change the change
+         */
+        void changed(Change change);
+
+        /**
+         * Called when changes may have been missed; everything derived from the data must be dropped.
+         */
+        void resynchronize();
+    }
+
+    /**
+     * One change notification.
+     */
+    public static final class Change {
+
+        /**
+         * The kind of a change and its code in the notification payload.
+         */
+        public enum Kind {
+            /** A record was inserted. */
+            INSERTED('I'),
+            /** A record was updated. */
+            UPDATED('U'),
+            /** A record was deleted; its date and location may be unknown. */
+            DELETED('D'),
+            /** The raw readings before a date were rolled up into daily means. */
+            ARCHIVED('A'),
+            /** Changes were lost; everything may have changed. */
+            RESET('R');
+
+            private final char code;
+
+            Kind(char code) {
+                this.code = code;
+            }
+
+            static Kind forCode(String code) {
+                for (Kind kind : values()) {
+                    if (code.length() == 1 && code.charAt(0) == kind.code) {
+                        return kind;
+                    }
+                }
+                throw new IllegalArgumentException("Unknown change kind: " + code);
+            }
+        }
+
+        private final String origin;
+        private final Kind kind;
+        private final Integer id;
+        private final String date;
+        private final String location;
+
+        /**
+         * Creates a change.
+         *
+         * @param origin the node that made the change, or {@code db} for the database trigger
+         * @param kind the kind of change
+         * @param id the record ID, or null if not known
+         * @param date the record date, or the cutoff date of an archive, in yyyy-MM-dd format; may be null
+         * @param location the record location, or null if not known
+         */
+        Change(String origin, Kind kind, Integer id, String date, String location) {
+            this.origin = origin;
+            this.kind = kind;
+            this.id = id;
+            this.date = date;
+            this.location = location;
+        }
+
+        /**
+         * Parses a notification payload of the form {@code origin|kind|id|date|location}. The
+         * location comes last, so it may itself contain the separator.
+         *
+         * @param payload the payload
+         * @return the change
+         * @throws IllegalArgumentException if the payload is malformed
+         */
+        static Change parse(String payload) {
+            String[] fields = payload.split("\\|", 5);
+            if (fields.length != 5) {
+                throw new IllegalArgumentException("Malformed change notification: " + payload);
+            }
+            try {
+                return new Change(fields[0], Kind.forCode(fields[1]),
+                        fields[2].isEmpty() ? null : Integer.valueOf(fields[2]),
+                        fields[3].isEmpty() ? null : fields[3],
+                        fields[4].isEmpty() ? null : fields[4]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed change notification: " + payload, e);
+            }
+        }
+
+        /**
+         * Returns the notification payload of the change.
+         *
+         * @return the payload
+         */
+        String toPayload() {
+            return origin + '|' + kind.code + '|' + (id != null ? id : "") + '|' + (date != null ? date : "")
+                    + '|' + (location != null ? location : "");
+        }
+
+        /**
+         * Returns the node that made the change.
+         *
+         * @return the node ID, or {@code db} for changes made outside the application
+         */
+        public String getOrigin() {
+            return origin;
+        }
+
+        /**
+         * Returns the kind of change.
+         *
+         * @return the kind
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the ID of the changed record. The daily means of archived readings carry negative IDs.
+         *
+         * @return the ID, or null for archives and resets
+         */
+        public Integer getId() {
+            return id;
+        }
+
+        /**
+         * Returns the date of the changed record, or the cutoff date of an archive.
+         *
+         * @return the date in yyyy-MM-dd format, or null if not known
+         */
+        public String getDate() {
+            return date;
+        }
+
+        /**
+         * Returns the location of the changed record.
+         *
+         * @return the location, or null if not known
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        /**
+         * Returns the notification payload of the change.
+         *
+         * @return the payload
+         */
+        @Override
+        public String toString() {
+            return toPayload();
+        }
+    }
+
+    private final QueryMonitor.ConnectionProvider connections;
+    private final int shardCount;
+    private final Handler handler;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+    private final BlockingQueue<String> outbox;
+    private final ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicBoolean lostChanges = new AtomicBoolean();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Creates a feed. No connection is opened before {@link #start()}.
+     *
+     * @param connections supplies the listening and publishing connections
+     * @param shardCount the number of shards to listen on
+     * @param handler receives the changes made elsewhere
+     * @param maxPending the largest number of notifications waiting to be published; beyond it the
+     *                   other nodes are told to drop their caches instead
+     */
+    public ClimateChangeFeed(QueryMonitor.ConnectionProvider connections, int shardCount, Handler handler, int maxPending) {
+        this.connections = connections;
+        this.shardCount = shardCount;
+        this.handler = handler;
+        this.outbox = new LinkedBlockingQueue<>(maxPending);
+    }
+
+    /**
+     * Starts listening on every shard and publishing the queued changes.
+     */
+    public void start() {
+        for (int shard = 0; shard < shardCount; shard++) {
+            int listenShard = shard;
+            threads.execute(() -> listen(listenShard));
+        }
+        threads.execute(this::publish);
+        Logger.info("Change feed of node {} started on {} shards.", nodeId, shardCount);
+    }
+
+    /**
+     * Stops listening and publishing. Changes still queued are not sent.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        threads.shutdownNow();
+    }
+
+    /**
+     * Publishes an inserted record.
+     *
+     * @param record the inserted record
+     */
+    @Override
+    public void recordInserted(ClimateRecord record) {
+        enqueue(new Change(nodeId, Change.Kind.INSERTED, record.getId(), record.getDate(), record.getLocation()));
+    }
+
+    /**
+     * Publishes an updated record.
+     *
+     * @param record the updated record
+     */
+    @Override
+    public void recordUpdated(ClimateRecord record) {
+        enqueue(new Change(nodeId, Change.Kind.UPDATED, record.getId(), record.getDate(), record.getLocation()));
+    }
+
+    /**
+     * Publishes a deleted record.
+     *
+     * @param id the ID of the deleted record
+     */
+    @Override
+    public void recordDeleted(int id) {
+        enqueue(new Change(nodeId, Change.Kind.DELETED, id, null, null));
+    }
+
+    /**
+     * Publishes a roll-up of aged readings.
+     *
+     * @param cutoffDate the first date kept as raw readings
+     */
+    @Override
+    public void recordsArchived(String cutoffDate) {
+        enqueue(new Change(nodeId, Change.Kind.ARCHIVED, null, cutoffDate, null));
+    }
+
+    /**
+     * Returns the ID this node publishes its changes under.
+     *
+     * @return the node ID
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Returns the number of notifications published by this node.
+     *
+     * @return the count
+     */
+    public long getPublished() {
+        return published.get();
+    }
+
+    /**
+     * Returns the number of changes received from other nodes and the database trigger.
+     *
+     * @return the count
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * Returns the number of times a listening connection was lost and opened again.
+     *
+     * @return the count
+     */
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    /**
+     * Hands a received notification to the handler, unless this node sent it.
+     *
+     * @param payload the notification payload
+     */
+    void dispatch(String payload) {
+        Change change;
+        try {
+            change = Change.parse(payload);
+        } catch (IllegalArgumentException e) {
+            // A change that cannot be read may have touched anything
+            Logger.warn(e, "Dropping caches after an unreadable change notification.");
+            handler.resynchronize();
+            return;
+        }
+        if (change.getOrigin().equals(nodeId)) {
+            return;
+        }
+        received.incrementAndGet();
+        if (change.getKind() == Change.Kind.RESET) {
+            handler.resynchronize();
+        } else {
+            handler.changed(change);
+        }
+    }
+
+    /**
+     * Queues a change for publishing. When the queue is full the change is dropped and a reset is
+     * published once there is room again.
+     *
+     * @param change the change
+     */
+    private void enqueue(Change change) {
+        if (!closed && !outbox.offer(change.toPayload())) {
+            lostChanges.set(true);
+        }
+    }
+
+    /**
+     * Sends the queued changes until the feed is closed, one batch per statement, on a connection
+     * that is kept open between batches.
+     */
+    private void publish() {
+        Connection connection = null;
+        List<String> batch = new ArrayList<>();
+        try {
+            while (!closed) {
+                if (batch.isEmpty()) {
+                    batch.add(outbox.take());
+                    outbox.drainTo(batch, MAX_BATCH - 1);
+                }
+                if (lostChanges.getAndSet(false)) {
+                    batch.add(0, new Change(nodeId, Change.Kind.RESET, null, null, null).toPayload());
+                }
+                try {
+                    if (connection == null) {
+                        connection = connections.getConnection(0);
+                    }
+                    send(connection, batch);
+                    published.addAndGet(batch.size());
+                } catch (SQLException e) {
+                    Logger.warn(e, "Failed to publish {} change notifications; other nodes will drop their caches.", batch.size());
+                    DBUtils.closeConnection(connection);
+                    connection = null;
+                    lostChanges.set(true);
+                    TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            DBUtils.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Sends a batch of notifications in one statement.
+     *
+     * @param connection the publishing connection
+     * @param batch the payloads
+     * @throws SQLException if the notifications cannot be sent
+     */
+    static void send(Connection connection, List<String> batch) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(PUBLISH)) {
+            statement.setString(1, CHANNEL);
+            statement.setArray(2, connection.createArrayOf("text", batch.toArray()));
+            statement.executeQuery().close();
+        }
+    }
+
+    /**
+     * Listens on one shard until the feed is closed, opening the connection again whenever it is
+     * lost. The handler is resynchronized each time listening starts, since changes made while no
+     * connection was listening are never delivered.
+     *
+     * @param shard the shard
+     */
+    private void listen(int shard) {
+        boolean first = true;
+        while (!closed) {
+            try (Connection connection = connections.getConnection(shard)) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (!first) {
+                    reconnects.incrementAndGet();
+                    Logger.info("Listening for changes on shard {} again.", shard);
+                }
+                first = false;
+                handler.resynchronize();
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                while (!closed) {
+                    PGNotification[] pending = notifications.getNotifications((int) RECONNECT_DELAY_MILLIS);
+                    if (pending != null) {
+                        for (PGNotification notification : pending) {
+                            dispatch(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                Logger.warn(e, "Lost the change listener of shard {}.", shard);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package climateinfoapp;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+
+import org.tinylog.Logger;
+
+/**
+ * Fan-out hub that pushes committed climate record changes to browsers over Server-Sent Events.
+ * <p>
+ * The hub is registered as a {@link ClimateRecordListener}. Every write is encoded once into an
+ * SSE frame and handed to each connected {@link EventStream}, which writes it with non-blocking
+ * servlet I/O, so idle connections cost only their socket and a small queue. Two kinds of events
+ * are sent for every change:
+ * </p>
+ * <ul>
+ *   <li>{@code record-inserted}, {@code record-updated} and {@code record-deleted} carry the record
+ *       (or its ID) for pages that show the record table;</li>
+ *   <li>{@code trend} carries only the point of the temperature chart that changed and the
+ *       location whose series it belongs to ({@code op} is {@code put} or {@code remove}).</li>
+ * </ul>
+ * <p>
+ * Recent events are kept in a small replay buffer, so a browser that reconnects with a
+ * {@code Last-Event-ID} header receives the changes it missed. A comment line is sent periodically
+ * to keep idle connections open through proxies and to detect clients that have gone away.
+ * </p>
+ */
+public class ClimateEventHub implements ClimateRecordListener {
+    private static final byte[] HEARTBEAT = ": keepalive\n\n".getBytes(StandardCharsets.UTF_8);
+
+    private final Set<EventStream> streams = ConcurrentHashMap.newKeySet();
+    private final Deque<ReplayEntry> replay = new ArrayDeque<>();
+    private final int replaySize;
+    private final int maxPendingEvents;
+    private final ScheduledExecutorService heartbeat;
+    private long lastEventId;
+
+    /**
+     * Creates a hub.
+     *
+     * @param replaySize the number of recent events kept for reconnecting clients
+     * @param maxPendingEvents the number of queued events after which a slow client is disconnected
+     * @param heartbeatSeconds the interval between keepalive comments, or 0 to disable them
+     */
+    public ClimateEventHub(int replaySize, int maxPendingEvents, int heartbeatSeconds) {
+        this.replaySize = replaySize;
+        this.maxPendingEvents = maxPendingEvents;
+        if (heartbeatSeconds > 0) {
+            heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "climate-event-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            heartbeat.scheduleAtFixedRate(this::sendHeartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+        } else {
+            heartbeat = null;
+        }
+    }
+
+    /**
+     * Registers an asynchronous request as an event stream and sends it the events it missed.
+     *
+     * @param asyncContext the started asynchronous context; the response headers must already be set
+     * @param lastEventId the ID of the last event the client received, or -1 for a new client
+     * @throws IOException if the response output stream cannot be obtained
+     */
+    public void subscribe(AsyncContext asyncContext, long lastEventId) throws IOException {
+        ServletOutputStream out = asyncContext.getResponse().getOutputStream();
+        EventStream stream = new EventStream(this, asyncContext, out, maxPendingEvents);
+        asyncContext.addListener(stream);
+        // Switches the response to non-blocking mode; the stream may only write after this call
+        out.setWriteListener(stream);
+
+        // Registering and collecting the replay under the same lock ensures no event is lost or sent twice
+        synchronized (this) {
+            streams.add(stream);
+            stream.send("retry: 5000\n\n".getBytes(StandardCharsets.UTF_8));
+            if (lastEventId >= 0) {
+                for (ReplayEntry entry : replay) {
+                    if (entry.id > lastEventId) {
+                        stream.send(entry.frame);
+                    }
+                }
+            }
+        }
+        Logger.debug("Event stream connected; {} subscribers.", streams.size());
+    }
+
+    /**
+     * Removes a stream from the hub.
+     *
+     * @param stream the stream to remove
+     */
+    void unsubscribe(EventStream stream) {
+        streams.remove(stream);
+    }
+
+    /**
+     * Returns the number of connected clients.
+     *
+     * @return the subscriber count
+     */
+    public int getSubscriberCount() {
+        return streams.size();
+    }
+
+    /**
+     * Publishes an inserted record.
+     *
+     * @param record the inserted record
+     */
+    @Override
+    public void recordInserted(ClimateRecord record) {
+        publish("record-inserted", recordJson(record));
+        publish("trend", trendPointJson(record));
+    }
+
+    /**
+     * Publishes an updated record.
+     *
+     * @param record the updated record
+     */
+    @Override
+    public void recordUpdated(ClimateRecord record) {
+        publish("record-updated", recordJson(record));
+        publish("trend", trendPointJson(record));
+    }
+
+    /**
+     * Publishes the ID of a deleted record.
+     *
+     * @param id the ID of the deleted record
+     */
+    @Override
+    public void recordDeleted(int id) {
+        publish("record-deleted", "{\"id\":" + id + "}");
+        publish("trend", "{\"op\":\"remove\",\"id\":" + id + "}");
+    }
+
+    /**
+     * Encodes an event once and sends it to every connected client.
+     *
+     * @param event the event name
+     * @param json the event data, on a single line
+     */
+    public void publish(String event, String json) {
+        // Sending never blocks, so it is done under the lock to keep every client's events in ID order
+        synchronized (this) {
+            long id = ++lastEventId;
+            byte[] frame = ("id: " + id + "\nevent: " + event + "\ndata: " + json + "\n\n").getBytes(StandardCharsets.UTF_8);
+            replay.addLast(new ReplayEntry(id, frame));
+            if (replay.size() > replaySize) {
+                replay.removeFirst();
+            }
+            for (EventStream stream : streams) {
+                stream.send(frame);
+            }
+        }
+    }
+
+    /**
+     * Closes every stream and stops the heartbeat.
+     */
+    public void close() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        for (EventStream stream : new ArrayList<>(streams)) {
+            stream.close();
+        }
+    }
+
+    private void sendHeartbeat() {
+        for (EventStream stream : streams) {
+            stream.send(HEARTBEAT);
+        }
+    }
+
+    private static String recordJson(ClimateRecord record) {
+        return String.format(Locale.ROOT, "{\"id\":%d,\"date\":%s,\"location\":%s,\"temperature\":%s,\"wind\":%s}",
+                record.getId(), jsonString(record.getDate()), jsonString(record.getLocation()),
+                Float.toString(record.getTemperature()), Float.toString(record.getWind()));
+    }
+
+    private static String trendPointJson(ClimateRecord record) {
+        return String.format(Locale.ROOT, "{\"op\":\"put\",\"id\":%d,\"date\":%s,\"location\":%s,\"temperature\":%s}",
+                record.getId(), jsonString(record.getDate()), jsonString(record.getLocation()),
+                Float.toString(record.getTemperature()));
+    }
+
+    /**
+     * Quotes a string as a JSON string literal.
+     *
+     * @param value the value to quote
+     * @return the JSON literal, or {@code null} if the value is null
+     */
+    static String jsonString(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20 || c == '<' || c == '>' || c == '&') {
+                json.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    private static final class ReplayEntry {
+        private final long id;
+        private final byte[] frame;
+
+        private ReplayEntry(long id, byte[] frame) {
+            this.id = id;
+            this.frame = frame;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package climateinfoapp;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Key of a location/month group produced by {@link ClimateAggregator#byLocationAndMonth(java.util.List)}.
+ * Keys sort by location, then by month.
+ */
+public final class ClimateGroupKey implements Comparable<ClimateGroupKey> {
+    private static final Comparator<ClimateGroupKey> ORDER = Comparator
+            .comparing(ClimateGroupKey::getLocation)
+            .thenComparing(ClimateGroupKey::getMonth);
+
+    private final String location;
+    private final String month;
+
+    /**
+     * Creates a key.
+     *
+     * @param location the location
+     * @param month the month in yyyy-MM format
+     */
+    public ClimateGroupKey(String location, String month) {
+        this.location = location;
+        this.month = month;
+    }
+
+    /**
+     * Returns the key of the location/month group of a record.
+     *
+     * @param record the record, whose date is in yyyy-MM-dd format
+     * @return the group key
+     */
+    public static ClimateGroupKey of(ClimateRecord record) {
+        return new ClimateGroupKey(record.getLocation(), record.getDate().substring(0, 7));
+    }
+
+    /**
+     * Returns the location.
+     *
+     * @return the location
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns the month.
+     *
+     * @return the month in yyyy-MM format
+     */
+    public String getMonth() {
+        return month;
+    }
+
+    /**
+     * Compares two keys by location, then by month.
+     *
+     * @param other the key to compare with
+     * @return a negative number, zero or a positive number as this key sorts before, with or after the other
+     */
+    @Override
+    public int compareTo(ClimateGroupKey other) {
+        return ORDER.compare(this, other);
+    }
+
+    /**
+     * Returns whether another object is a key for the same location and month.
+     *
+     * @param obj the object to compare with
+     * @return true if the keys are equal
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ClimateGroupKey)) {
+            return false;
+        }
+        ClimateGroupKey other = (ClimateGroupKey) obj;
+        return location.equals(other.location) && month.equals(other.month);
+    }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(location, month);
+    }
+
+    /**
+     * Returns a string representation of the key.
+     *
+     * @return the location and month
+     */
+    @Override
+    public String toString() {
+        return location + " " + month;
+    }
+}
@@ -1,10 +1,35 @@
 package climateinfoapp;
 
+import static climateinfoapp.RequestParameters.isBlank;
+import static climateinfoapp.RequestParameters.parseFloat;
+import static climateinfoapp.RequestParameters.parseInteger;
+import static climateinfoapp.RequestParameters.requireParameter;
+
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -19,16 +44,91 @@ import org.tinylog.Logger;
  * It provides functionalities such as listing, adding, editing, updating, and deleting climate records,
  * as well as viewing temperature trends.
  */
-@WebServlet("/")
+@WebServlet(urlPatterns = "/", asyncSupported = true, loadOnStartup = 1)
 public class ClimateInfoDashboard extends HttpServlet {
     private static final long serialVersionUID = 1L;
     
     // Predefined list of locations for the climate records
     protected static final List<String> LOCATIONS = Arrays.asList("Victoria", "Nanaimo", "Port Alberni", "Duncan", "Tofino");
+
+    // Rows of a derived-metrics export computed per kernel call
+    private static final int EXPORT_BATCH_SIZE = 1024;
+
+    // Nearest stations first checked for readings on the requested date by /nearest
+    private static final int NEAREST_CANDIDATE_STATIONS = 32;
+
+    // Radius of /nearby when none is given
+    private static final double DEFAULT_NEARBY_RADIUS_KM = 50;
+
+    // Status of a request refused because its result exceeds the budget; not defined by the Servlet API
+    private static final int SC_UNPROCESSABLE_ENTITY = 422;
+
+    // Pages rendered once by the first readiness probe, so that none is compiled or loaded on a user request
+    private static final List<String> WARMUP_PAGES = Arrays.asList("/ClimateRecordList.jsp", "/ClimateRecordForm.jsp",
+            "/SearchByCity.jsp", "/TempTrendsGraph.jsp", "/MonthlySummary.jsp", "/AnomalyList.jsp", "/SlowQueries.jsp",
+            "/Jobs.jsp", "/NearbyStations.jsp", "/Error.jsp");
     
     // DAO for interacting with the climate records database
     protected ClimateRecordDAO climateRecordDAO;
 
+    // DAO for the anomalies flagged on ingest
+    protected AnomalyDAO anomalyDAO;
+
+    // Pushes committed changes to the pages connected to /events
+    protected ClimateEventHub eventHub;
+
+    // Summarizes the records in memory for the monthly summary page
+    protected ClimateAggregator aggregator;
+
+    // Runs identical concurrent read queries once
+    protected CoalescingRecordReader recordReader;
+
+    // Keeps the results of the read queries until a write on any node touches them
+    protected ClimateRecordCache recordCache;
+
+    // Reads the totals shown above the listings from maintained counters instead of COUNT(*)
+    protected RecordCounter recordCounter;
+
+    // Publishes this node's writes to the other nodes and evicts their writes from the cache; null if disabled
+    protected ClimateChangeFeed changeFeed;
+
+    // Sheds database-bound requests once the database is at capacity
+    protected AdaptiveLimiter admissionLimiter;
+
+    // Rolls aged raw readings up into daily means; null if retention is disabled
+    protected RetentionJob retentionJob;
+
+    // Compressed segment files holding archived raw readings; null if not configured
+    protected SegmentArchive segmentArchive;
+
+    // Bounds the results read into memory; oversized ones are streamed or refused
+    protected ResultBudget resultBudget = new ResultBudget(0, 0);
+
+    // Handles the bulk delete and correction routes
+    protected BulkAdminHandler bulkAdmin;
+
+    // Applies query timeouts and keeps the log of slow statements shown on /admin/slow-queries
+    protected QueryMonitor queryMonitor;
+
+    // Time after which clients and proxies give up on a request; its statements are cancelled then
+    protected int requestTimeoutSeconds = 30;
+
+    // Runs the background jobs, such as retention, and records their outcomes for /admin/jobs
+    protected JobScheduler jobScheduler;
+
+    // Warms connections, baselines and hot paths after startup; null if warmup is disabled
+    protected Warmup warmup;
+
+    // Traces a sample of the requests into local OTLP/JSON files; null if tracing is disabled
+    protected Tracer tracer;
+
+    // Coordinates of the stations, searched in memory by /nearby and /nearest
+    protected StationIndex stationIndex = StationIndex.empty();
+
+    // Set by the readiness probe that renders the warmup pages, and once they have been rendered
+    private final AtomicBoolean pageWarmupClaimed = new AtomicBoolean();
+    private volatile boolean pagesWarm;
+
     /**
      * Initializes the servlet, sets up the database connection, and initializes the DAO.
      * 
@@ -38,7 +138,93 @@ public class ClimateInfoDashboard extends HttpServlet {
     public void init() throws ServletException {
         try {
             DBUtils.init(getServletContext());
-            climateRecordDAO = new ClimateRecordDAO();
+            AppConfig config = new AppConfig(getServletContext());
+            ShardRouter shardRouter = new ShardRouter(DBUtils.getShardCount());
+            if (shardRouter.getShardCount() > 1) {
+                loadShardOverrides(shardRouter);
+            }
+            climateRecordDAO = new ClimateRecordDAO(shardRouter);
+            anomalyDAO = new AnomalyDAO();
+            AnomalyDetector anomalyDetector = new AnomalyDetector(anomalyDAO,
+                    config.getDouble("anomalyZScoreThreshold", 3.0),
+                    config.getInt("anomalyMinSamples", 30),
+                    config.getDouble("anomalyEwmaAlpha", 0.1));
+            climateRecordDAO.addListener(anomalyDetector);
+            eventHub = new ClimateEventHub(config.getInt("eventReplaySize", 256),
+                    config.getInt("eventMaxPending", 1000),
+                    config.getInt("eventHeartbeatSeconds", 20));
+            climateRecordDAO.addListener(eventHub);
+            recordReader = new CoalescingRecordReader(climateRecordDAO);
+            climateRecordDAO.addListener(recordReader);
+            recordCache = new ClimateRecordCache(recordReader, climateRecordDAO, config.getInt("recordCacheMaxEntries", 1000));
+            climateRecordDAO.addListener(recordCache);
+            recordCounter = new RecordCounter(climateRecordDAO);
+            if (config.getBoolean("changeFeedEnabled", true)) {
+                changeFeed = new ClimateChangeFeed(DBUtils::getConnection, shardRouter.getShardCount(), recordCache,
+                        config.getInt("changeFeedMaxPending", 10_000));
+                climateRecordDAO.addListener(changeFeed);
+                changeFeed.start();
+            }
+            admissionLimiter = new AdaptiveLimiter(config.getInt("admissionInitialLimit", 20),
+                    config.getInt("admissionMinLimit", 2),
+                    config.getInt("admissionMaxLimit", 100),
+                    config.getInt("admissionLatencyTargetMillis", 500),
+                    config.getInt("admissionMaxQueue", 100),
+                    config.getInt("admissionMaxWaitMillis", 2000),
+                    config.getInt("admissionRetryAfterSeconds", 2));
+            String segmentDirectory = config.getString("segmentArchiveDirectory", "");
+            if (!segmentDirectory.isEmpty()) {
+                segmentArchive = new SegmentArchive(Paths.get(segmentDirectory),
+                        config.getInt("segmentBlockSize", SegmentArchive.DEFAULT_BLOCK_SIZE));
+            }
+            jobScheduler = new JobScheduler(config.getBoolean("jobClusterLock", true)
+                    ? new AdvisoryJobLock(DBUtils::getConnection) : null, Clock.systemDefaultZone());
+            int rawRetentionDays = config.getInt("retentionRawDays", 0);
+            if (rawRetentionDays > 0) {
+                retentionJob = new RetentionJob(climateRecordDAO, rawRetentionDays,
+                        config.getInt("retentionBatchSize", 1000),
+                        config.getInt("retentionBatchPauseMillis", 200),
+                        Clock.systemDefaultZone(), segmentArchive,
+                        config.getInt("segmentMaxRecords", 100_000));
+                String retentionSchedule = config.getString("retentionSchedule", "");
+                jobScheduler.schedule("retention", retentionSchedule.isEmpty()
+                        ? JobScheduler.Trigger.fixedRate(Duration.ofMinutes(config.getInt("retentionIntervalMinutes", 60)))
+                        : JobScheduler.Trigger.cron(retentionSchedule, ZoneId.systemDefault()),
+                        1, true, retentionJob::runOnce);
+            }
+            bulkAdmin = new BulkAdminHandler(new BulkRecordDAO(climateRecordDAO), config.getInt("bulkChunkSize", 5000),
+                    segmentArchive);
+            queryMonitor = new QueryMonitor(config.getInt("queryTimeoutSeconds", 0),
+                    QueryMonitor.parseTimeouts(config.getString("queryTimeouts", "")),
+                    config.getInt("slowQueryMillis", (int) QueryMonitor.DEFAULT_SLOW_THRESHOLD_MILLIS),
+                    config.getInt("slowQueryLogSize", QueryMonitor.DEFAULT_CAPACITY));
+            if (config.getBoolean("slowQueryPlanCapture", false)) {
+                queryMonitor.enablePlanCapture(DBUtils::getConnection,
+                        config.getInt("slowQueryPlanIntervalSeconds", 600) * 1000L);
+            }
+            climateRecordDAO.setQueryMonitor(queryMonitor);
+            resultBudget = new ResultBudget(config.getInt("resultMaxRows", 200_000),
+                    config.getInt("resultMaxMegabytes", 64) * 1024L * 1024L);
+            climateRecordDAO.setResultBudget(resultBudget);
+            requestTimeoutSeconds = config.getInt("requestTimeoutSeconds", 30);
+            String traceDirectory = config.getString("traceDirectory", "");
+            if (!traceDirectory.isEmpty()) {
+                TraceFileExporter traceExporter = new TraceFileExporter(Paths.get(traceDirectory),
+                        config.getInt("traceMaxFileMegabytes", 64) * 1024L * 1024L,
+                        config.getInt("traceMaxFiles", 5), 1000);
+                tracer = new Tracer(config.getDouble("traceSampleRatio", 0.01), traceExporter);
+                traceExporter.start();
+            }
+            loadStations();
+            aggregator = new ClimateAggregator(ForkJoinPool.commonPool(),
+                    config.getInt("aggregationSequentialThreshold", ClimateAggregator.DEFAULT_SEQUENTIAL_THRESHOLD));
+            if (config.getBoolean("warmupEnabled", true)) {
+                warmup = new Warmup(climateRecordDAO, anomalyDetector, aggregator,
+                        config.getInt("warmupPreloadDays", 90),
+                        config.getInt("warmupIterations", 200),
+                        Clock.systemDefaultZone());
+                warmup.start();
+            }
             Logger.info("ClimateRecordDAO initialized successfully.");
         } catch (Exception e) {
             Logger.error(e, "Failed to initialize ClimateRecordDAO");
@@ -46,6 +232,66 @@ public class ClimateInfoDashboard extends HttpServlet {
         }
     }
 
+    /**
+     * Loads the location overrides of the shard router from the first shard. Without the override
+     * table every location is placed by consistent hashing alone.
+     * 
+     * @param shardRouter the router to configure
+     */
+    private void loadShardOverrides(ShardRouter shardRouter) {
+        Connection connection = null;
+        try {
+            connection = DBUtils.getConnection(0);
+            shardRouter.loadOverrides(connection);
+        } catch (SQLException e) {
+            Logger.warn(e, "Shard overrides could not be loaded; placing all locations by hash.");
+        } finally {
+            DBUtils.closeConnection(connection);
+        }
+    }
+
+    /**
+     * Builds the station index from the station table. Without it the station queries find no
+     * stations, and the rest of the dashboard works as before.
+     */
+    private void loadStations() {
+        try {
+            stationIndex = new StationIndex(climateRecordDAO.listStations());
+            Logger.info("Indexed the coordinates of {} stations.", stationIndex.size());
+        } catch (DatabaseException | InvalidArgumentsException e) {
+            Logger.warn(e, "Stations could not be loaded; station queries will find none.");
+        }
+    }
+
+    /**
+     * Stops the warmup, disconnects the event stream clients, stops the change feed, the background jobs and the
+     * plan capture, and closes the segment archive and the trace files when the servlet is taken out of service.
+     */
+    @Override
+    public void destroy() {
+        if (warmup != null) {
+            warmup.stop();
+        }
+        if (tracer != null) {
+            tracer.close();
+        }
+        if (queryMonitor != null) {
+            queryMonitor.close();
+        }
+        if (eventHub != null) {
+            eventHub.close();
+        }
+        if (changeFeed != null) {
+            changeFeed.close();
+        }
+        if (jobScheduler != null) {
+            jobScheduler.close();
+        }
+        if (segmentArchive != null) {
+            segmentArchive.close();
+        }
+    }
+
     /**
      * Handles POST requests. It delegates to the doGet method to handle the request.
      * 
@@ -61,7 +307,9 @@ public class ClimateInfoDashboard extends HttpServlet {
     }
 
     /**
-     * Handles GET requests, routing the request to the appropriate action.
+     * Handles GET requests, routing the request to the appropriate action. A sampled request is
+     * traced: its root span is current while it is handled and its trace ID is returned in the
+     * {@code X-Trace-Id} header.
      * 
      * @param request the HTTP request
      * @param response the HTTP response
@@ -72,8 +320,24 @@ public class ClimateInfoDashboard extends HttpServlet {
     public void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         String action = request.getServletPath();
+        AdaptiveLimiter.Priority priority = admissionPriority(action);
+        AdaptiveLimiter.Permit permit = null;
+        // The deadline starts before admission, so time spent queued counts against it
+        QueryMonitor.Scope queryScope = priority != null ? QueryMonitor.openScope(requestTimeoutSeconds * 1000L) : null;
+        Span trace = tracer != null ? tracer.startTrace(request.getMethod() + " " + action, request.getHeader("traceparent"))
+                : Span.NOOP;
+        if (trace.isRecording()) {
+            trace.setAttribute("http.method", request.getMethod()).setAttribute("http.route", action);
+            response.setHeader("X-Trace-Id", trace.getTraceId());
+        }
 
         try {
+            if (priority != null) {
+                try (Span admission = Tracer.startSpan("admission.wait", Span.Kind.INTERNAL)) {
+                    admission.setAttribute("admission.priority", priority.name());
+                    permit = admissionLimiter.acquire(priority);
+                }
+            }
             switch (action) {
                 case "/new":
                     showNewForm(request, response);
@@ -81,9 +345,21 @@ public class ClimateInfoDashboard extends HttpServlet {
                 case "/insert":
                     insertClimateRecord(request, response);
                     break;
+                case "/ingest":
+                    ingestClimateRecords(request, response);
+                    break;
                 case "/delete":
                     deleteClimateRecord(request, response);
                     break;
+                case "/deleteRecords":
+                    bulkAdmin.deleteRecords(request, response);
+                    break;
+                case "/deleteRange":
+                    bulkAdmin.deleteRange(request, response);
+                    break;
+                case "/correctTemperature":
+                    bulkAdmin.correctTemperatures(request, response);
+                    break;
                 case "/edit":
                     showEditForm(request, response);
                     break;
@@ -93,21 +369,41 @@ public class ClimateInfoDashboard extends HttpServlet {
                 case "/temperatureTrends":
                     showTemperatureTrends(request, response);
                     break;
+                case "/api/trends.bin":
+                    writeTrendSeries(request, response);
+                    break;
+                case "/anomalies":
+                    listAnomalies(request, response);
+                    break;
+                case "/summary":
+                    showMonthlySummary(request, response);
+                    break;
+                case "/metrics":
+                    showMetrics(request, response);
+                    break;
+                case "/admin/slow-queries":
+                    showSlowQueries(request, response);
+                    break;
+                case "/admin/jobs":
+                    showJobs(request, response);
+                    break;
+                case "/ready":
+                    showReadiness(request, response);
+                    break;
+                case "/events":
+                    streamEvents(request, response);
+                    break;
+                case "/export":
+                    exportClimateRecords(request, response);
+                    break;
                 case "/search":
-                	String city = request.getParameter("city");
-                	
-                    // Fetch records by city if a city is selected, else pass an empty list
-                    List<ClimateRecord> cityRecords = null;
-                    if (city != null && !city.isEmpty()) {
-                        cityRecords = climateRecordDAO.getRecordsByCity(city);
-                    } else {
-                        cityRecords = new ArrayList<>(); // Empty list if no city is selected
-                    }
-
-                    // Pass the records and city to the JSP
-                    request.setAttribute("cityRecords", cityRecords);
-                    request.setAttribute("city", city); // Optional: Display city name on the page
-                    request.getRequestDispatcher("SearchByCity.jsp").forward(request, response);
+                    searchByCity(request, response);
+                    break;
+                case "/nearby":
+                    showNearbyRecords(request, response);
+                    break;
+                case "/nearest":
+                    showNearestStations(request, response);
                     break;
    
                 default:
@@ -115,7 +411,57 @@ public class ClimateInfoDashboard extends HttpServlet {
                     break;
             }
         } catch (Exception e) {
+            if (permit != null && e instanceof DatabaseException && !(e instanceof ResultTooLargeException)) {
+                permit.drop();
+            }
+            trace.setError(e.getClass().getSimpleName() + ": " + e.getMessage());
             handleException(request, response, e);
+        } finally {
+            if (permit != null) {
+                permit.release();
+            }
+            if (queryScope != null) {
+                queryScope.close();
+            }
+            if (trace.isRecording()) {
+                trace.setAttribute("http.status_code", response.getStatus());
+                trace.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the admission priority of a route, or null for routes that do not use the database.
+     * Writes go first, then reads of one record or city, then reads of the whole table.
+     * 
+     * @param action the servlet path of the request
+     * @return the priority, or null if the request is not subject to admission control
+     */
+    private static AdaptiveLimiter.Priority admissionPriority(String action) {
+        switch (action) {
+            case "/new":
+            case "/temperatureTrends":
+            case "/events":
+            case "/metrics":
+            case "/admin/slow-queries":
+            case "/admin/jobs":
+            case "/ready":
+                return null;
+            case "/insert":
+            case "/ingest":
+            case "/update":
+            case "/delete":
+            case "/deleteRecords":
+            case "/deleteRange":
+            case "/correctTemperature":
+                return AdaptiveLimiter.Priority.WRITE;
+            case "/edit":
+            case "/search":
+            case "/anomalies":
+            case "/nearest":
+                return AdaptiveLimiter.Priority.READ;
+            default:
+                return AdaptiveLimiter.Priority.BULK;
         }
     }
 
@@ -127,14 +473,225 @@ public class ClimateInfoDashboard extends HttpServlet {
      * @throws ServletException if an error occurs during the request handling
      * @throws IOException if an I/O error occurs
      * @throws DatabaseException if an error occurs while fetching data from the database
-     * @throws InvalidArgumentsException 
      */
     private void listClimateRecords(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException, DatabaseException {
+        // The total comes from the record counters; the page streams the rows from the open cursor,
+        // which is closed once the page is rendered
+        request.setAttribute("recordCount", recordCounter.countAll());
+        try (ClimateRecordCursor records = climateRecordDAO.openAllClimateRecords()) {
+            request.setAttribute("recordRows", records);
+            forwardToPage(request, response, "ClimateRecordList.jsp");
+            Logger.info("Listed {} climate records.", records.getRowCount());
+        }
+    }
+
+    /**
+     * Displays the search form and, if a city is selected, the records of that city. Concurrent
+     * searches for the same city share one query, so the records are read into a list rather than
+     * streamed; a single city's records are a small fraction of the table. A search whose records
+     * exceed the result budget, such as a broad pattern, streams them from a cursor instead, with
+     * an approximate count from the record counters.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws ServletException if an error occurs during the request handling
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while fetching data from the database
+     * @throws InvalidArgumentsException if a stored record is invalid
+     */
+    private void searchByCity(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException, DatabaseException, InvalidArgumentsException {
+        String city = request.getParameter("city");
+        request.setAttribute("city", city);
+
+        if (city == null || city.isEmpty()) {
+            forwardToPage(request, response, "SearchByCity.jsp");
+            return;
+        }
+        List<ClimateRecord> cityRecords;
+        try {
+            cityRecords = recordCache.getRecordsByCity(city);
+        } catch (ResultTooLargeException e) {
+            resultBudget.countStreamed();
+            Logger.info("Streaming the records of {}: {}", city, e.getMessage());
+            request.setAttribute("recordCount", recordCounter.countCity(city));
+            try (ClimateRecordCursor records = climateRecordDAO.openRecordsByCity(city)) {
+                request.setAttribute("recordRows", records);
+                forwardToPage(request, response, "SearchByCity.jsp");
+            }
+            return;
+        }
+        request.setAttribute("recordCount", RecordCount.exact(cityRecords.size()));
+        request.setAttribute("recordRows", cityRecords.iterator());
+        forwardToPage(request, response, "SearchByCity.jsp");
+    }
+
+    /**
+     * Displays the stations within a radius of a point and streams their records, optionally in a
+     * date range. The stations are found in the in-memory station index; their records are then
+     * read with one query per shard on the location and date index.
+     * 
+     * @param request the HTTP request, with {@code lat}, {@code lon}, and optionally {@code radiusKm}
+     *        and {@code from} and {@code to}
+     * @param response the HTTP response
+     * @throws ServletException if an error occurs during the request handling
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while fetching data from the database
+     * @throws InvalidArgumentsException if only one end of the date range is given
+     */
+    private void showNearbyRecords(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException, DatabaseException, InvalidArgumentsException {
-        List<ClimateRecord> records = climateRecordDAO.listAllClimateRecords();
-        request.setAttribute("listRecord", records);
-        forwardToPage(request, response, "ClimateRecordList.jsp");
-        Logger.info("Listed all climate records.");
+        request.setAttribute("mode", "nearby");
+        if (isBlank(request.getParameter("lat")) && isBlank(request.getParameter("lon"))) {
+            forwardToPage(request, response, "NearbyStations.jsp");
+            return;
+        }
+        double latitude = parseCoordinate(request.getParameter("lat"), "Latitude", 90);
+        double longitude = parseCoordinate(request.getParameter("lon"), "Longitude", 180);
+        String radius = request.getParameter("radiusKm");
+        double radiusKm = isBlank(radius) ? DEFAULT_NEARBY_RADIUS_KM : parseFloat(radius.trim(), "Radius");
+        if (!(radiusKm >= 0)) {
+            throw new IllegalArgumentException("Radius must not be negative: " + radius);
+        }
+        String fromDate = request.getParameter("from");
+        String toDate = request.getParameter("to");
+        boolean allDates = isBlank(fromDate) && isBlank(toDate);
+        if (!allDates) {
+            fromDate = requireParameter(request, "from");
+            toDate = requireParameter(request, "to");
+        }
+
+        List<StationIndex.Neighbor> stations = stationIndex.within(latitude, longitude, radiusKm);
+        request.setAttribute("stations", stations);
+        if (stations.isEmpty()) {
+            forwardToPage(request, response, "NearbyStations.jsp");
+            return;
+        }
+        List<String> locations = new ArrayList<>(stations.size());
+        for (StationIndex.Neighbor station : stations) {
+            locations.add(station.getStation().getLocation());
+        }
+        try (ClimateRecordCursor records = climateRecordDAO.openRecordsByCities(locations,
+                allDates ? null : fromDate, allDates ? null : toDate)) {
+            request.setAttribute("recordRows", records);
+            forwardToPage(request, response, "NearbyStations.jsp");
+            Logger.info("Listed {} records of {} stations within {} km.", records.getRowCount(), stations.size(), radiusKm);
+        }
+    }
+
+    /**
+     * Displays the stations nearest to a point. With a {@code date}, only stations with a reading
+     * on that date count, and their readings are shown: the nearest stations are taken from the
+     * station index and their readings on the date read with one query per shard. If too few of
+     * them have a reading, twice as many candidates are taken and the farther ones read, until
+     * enough stations are found or none is left.
+     * 
+     * @param request the HTTP request, with {@code lat}, {@code lon}, and optionally {@code k}, the
+     *        number of stations, and {@code date}
+     * @param response the HTTP response
+     * @throws ServletException if an error occurs during the request handling
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while fetching data from the database
+     * @throws InvalidArgumentsException if a stored record is invalid
+     */
+    private void showNearestStations(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException, DatabaseException, InvalidArgumentsException {
+        request.setAttribute("mode", "nearest");
+        if (isBlank(request.getParameter("lat")) && isBlank(request.getParameter("lon"))) {
+            forwardToPage(request, response, "NearbyStations.jsp");
+            return;
+        }
+        double latitude = parseCoordinate(request.getParameter("lat"), "Latitude", 90);
+        double longitude = parseCoordinate(request.getParameter("lon"), "Longitude", 180);
+        String k = request.getParameter("k");
+        int count = isBlank(k) ? 1 : parseInteger(k.trim(), "Station count");
+        if (count < 1) {
+            throw new IllegalArgumentException("Station count must be positive: " + k);
+        }
+        String date = request.getParameter("date");
+        if (isBlank(date)) {
+            request.setAttribute("stations", stationIndex.nearest(latitude, longitude, count));
+            forwardToPage(request, response, "NearbyStations.jsp");
+            return;
+        }
+
+        // Stations without a reading on the date are skipped, so the candidates are widened until
+        // enough stations have one or every station has been checked
+        List<StationIndex.Neighbor> stations = new ArrayList<>();
+        List<ClimateRecord> readings = new ArrayList<>();
+        int candidateCount = Math.max(count, NEAREST_CANDIDATE_STATIONS);
+        int checked = 0;
+        while (stations.size() < count && checked < stationIndex.size()) {
+            List<StationIndex.Neighbor> candidates = stationIndex.nearest(latitude, longitude, candidateCount);
+            List<StationIndex.Neighbor> unchecked = candidates.subList(checked, candidates.size());
+            Map<String, List<ClimateRecord>> readingsByLocation = readStationsOnDate(unchecked, date.trim());
+            for (StationIndex.Neighbor candidate : unchecked) {
+                List<ClimateRecord> stationReadings = readingsByLocation.get(candidate.getStation().getLocation());
+                if (stationReadings != null && stations.size() < count) {
+                    stations.add(candidate);
+                    readings.addAll(stationReadings);
+                }
+            }
+            checked = candidates.size();
+            candidateCount = (int) Math.min(2L * candidateCount, Integer.MAX_VALUE);
+        }
+        request.setAttribute("stations", stations);
+        request.setAttribute("recordRows", readings.iterator());
+        forwardToPage(request, response, "NearbyStations.jsp");
+    }
+
+    /**
+     * Reads the readings of some stations on one date, with one query per shard.
+     * 
+     * @param stations the stations to read
+     * @param date the date in yyyy-MM-dd format
+     * @return the readings by location; stations without a reading are absent
+     * @throws DatabaseException if an error occurs while fetching the readings
+     * @throws InvalidArgumentsException if a stored record is invalid
+     */
+    private Map<String, List<ClimateRecord>> readStationsOnDate(List<StationIndex.Neighbor> stations, String date)
+            throws DatabaseException, InvalidArgumentsException {
+        Map<String, List<ClimateRecord>> readingsByLocation = new TreeMap<>();
+        if (stations.isEmpty()) {
+            return readingsByLocation;
+        }
+        List<String> locations = new ArrayList<>(stations.size());
+        for (StationIndex.Neighbor station : stations) {
+            locations.add(station.getStation().getLocation());
+        }
+        try (ClimateRecordCursor records = climateRecordDAO.openRecordsByCities(locations, date, date)) {
+            while (records.hasNext()) {
+                ClimateRecord record = records.next();
+                readingsByLocation.computeIfAbsent(record.getLocation(), key -> new ArrayList<>()).add(record);
+            }
+        } catch (IllegalStateException e) {
+            throw ClimateRecordCursor.readFailure(e);
+        }
+        return readingsByLocation;
+    }
+
+    /**
+     * Parses a latitude or longitude in decimal degrees.
+     * 
+     * @param value the string value to be parsed
+     * @param fieldName the name of the field for error reporting
+     * @param limit the largest absolute value allowed
+     * @return the coordinate
+     * @throws IllegalArgumentException if the value is not a number or is out of range
+     */
+    private static double parseCoordinate(String value, String fieldName, double limit) {
+        double coordinate;
+        try {
+            coordinate = Double.parseDouble(value.trim());
+        } catch (NullPointerException | NumberFormatException e) {
+            throw new IllegalArgumentException(fieldName + " must be a valid number: " + value, e);
+        }
+        if (!(Math.abs(coordinate) <= limit)) {
+            throw new IllegalArgumentException(fieldName + " must be between -" + (int) limit + " and " + (int) limit
+                    + ": " + value);
+        }
+        return coordinate;
     }
 
     /**
@@ -164,7 +721,7 @@ public class ClimateInfoDashboard extends HttpServlet {
     private void showEditForm(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException, DatabaseException, InvalidArgumentsException {
         int id = parseInteger(request.getParameter("id"), "ID");
-        ClimateRecord record = climateRecordDAO.getClimateRecord(id);
+        ClimateRecord record = recordCache.getClimateRecord(id);
 
         if (record == null) {
             Logger.warn("No record found for ID: {}", id);
@@ -178,24 +735,134 @@ public class ClimateInfoDashboard extends HttpServlet {
     }
 
     /**
-     * Displays temperature trend data in a graphical form.
+     * Displays the temperature trends page with the form to compare locations. The page holds no
+     * data; it fetches the series from {@code /api/trends.bin} once it has loaded.
      * 
      * @param request the HTTP request
      * @param response the HTTP response
      * @throws ServletException if an error occurs during the request handling
      * @throws IOException if an I/O error occurs
-     * @throws DatabaseException if an error occurs while fetching the data from the database
-     * @throws InvalidArgumentsException 
      */
     private void showTemperatureTrends(HttpServletRequest request, HttpServletResponse response)
-            throws ServletException, IOException, DatabaseException, InvalidArgumentsException {
-        List<ClimateRecord> records = climateRecordDAO.listAllClimateRecords();
-        request.setAttribute("recordsList", records);
+            throws ServletException, IOException {
+        request.setAttribute("locations", LOCATIONS);
         forwardToPage(request, response, "TempTrendsGraph.jsp");
     }
 
     /**
-     * Inserts a new climate record into the database.
+     * Writes temperature series in the binary format of {@link TrendSeriesWriter}. Without
+     * parameters every location is written in full, including the archived raw readings; if the
+     * records exceed the result budget the request is refused and the client has to select cities. With one
+     * or more {@code city} parameters only those locations are written, from the {@code from} to the
+     * {@code to} date, read with a single query per shard for the comparison chart. The
+     * {@code metric} parameter selects a {@link DerivedMetrics.Metric} for the value column in place
+     * of the temperature. With a {@code window} of days, each value is replaced by a statistic of
+     * its location's {@link RollingWindow} ending on its day, selected by {@code stat} (the mean,
+     * the default, {@code min} or {@code max}); a comparison then also reads the days before
+     * {@code from} that its first windows cover, and without cities the records of every location
+     * are streamed one location after the other instead of being sorted in memory.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while fetching the data from the database
+     * @throws InvalidArgumentsException if a stored record is invalid, cities are given without a date range,
+     *         or the metric, window or statistic is invalid
+     */
+    private void writeTrendSeries(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, DatabaseException, InvalidArgumentsException {
+        DerivedMetrics.Metric metric = DerivedMetrics.Metric.fromParameter(request.getParameter("metric"));
+        String windowParameter = request.getParameter("window");
+        RollingWindow window = isBlank(windowParameter) ? null : new RollingWindow(RollingWindow.parseDays(windowParameter));
+        RollingWindow.Statistic statistic = RollingWindow.Statistic.fromParameter(request.getParameter("stat"));
+        List<String> cities = new ArrayList<>();
+        String[] cityParameters = request.getParameterValues("city");
+        if (cityParameters != null) {
+            for (String city : cityParameters) {
+                if (!city.trim().isEmpty()) {
+                    cities.add(city.trim());
+                }
+            }
+        }
+
+        TrendSeriesWriter series;
+        if (cities.isEmpty() && window == null) {
+            series = new TrendSeriesWriter(listAllReadings());
+        } else {
+            LocalDate firstShownDay = null;
+            ClimateRecordCursor cursor;
+            if (cities.isEmpty()) {
+                // Every location's whole history, one location after the other
+                cursor = openRecordsByLocation();
+            } else {
+                String fromDate = requireParameter(request, "from");
+                String toDate = requireParameter(request, "to");
+                String queryFromDate = fromDate;
+                if (window != null) {
+                    try {
+                        firstShownDay = LocalDate.parse(fromDate);
+                    } catch (DateTimeParseException e) {
+                        throw new InvalidArgumentsException("Invalid date: " + fromDate);
+                    }
+                    queryFromDate = firstShownDay.minusDays(window.getDays() - 1).toString();
+                }
+                cursor = climateRecordDAO.openRecordsByCities(cities, queryFromDate, toDate);
+            }
+            try (ClimateRecordCursor records = cursor) {
+                series = window != null ? TrendSeriesWriter.rolling(records, metric, window, statistic, firstShownDay)
+                        : TrendSeriesWriter.demultiplex(records);
+            } catch (IllegalStateException e) {
+                throw ClimateRecordCursor.readFailure(e);
+            }
+        }
+
+        response.setContentType("application/octet-stream");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setContentLengthLong(series.getSize());
+        WritableByteChannel channel = Channels.newChannel(response.getOutputStream());
+        series.writeTo(channel, metric);
+        response.flushBuffer();
+        Logger.info("Wrote {} {} points of {} locations in {} bytes{}.", series.getPointCount(), metric.getParameter(),
+                series.getLocations().size(), series.getSize(),
+                window != null ? " as the " + window.getDays() + "-day " + statistic.getParameter() : "");
+    }
+
+    /**
+     * Displays the count, minimum, maximum and mean temperature and wind of every location and month.
+     * If the records exceed the result budget, they are summarized from a cursor as they are read.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws ServletException if an error occurs during the request handling
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while fetching the data from the database
+     * @throws InvalidArgumentsException if a stored record is invalid
+     */
+    private void showMonthlySummary(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException, DatabaseException, InvalidArgumentsException {
+        Map<ClimateGroupKey, ClimateStats> summary;
+        long recordCount;
+        try {
+            List<ClimateRecord> records = recordCache.listAllClimateRecords();
+            summary = new TreeMap<>(aggregator.byLocationAndMonth(records));
+            recordCount = records.size();
+        } catch (ResultTooLargeException e) {
+            resultBudget.countStreamed();
+            try (ClimateRecordCursor records = climateRecordDAO.openAllClimateRecords()) {
+                summary = new TreeMap<>(aggregator.aggregate(records, ClimateGroupKey::of));
+                recordCount = records.getRowCount();
+            } catch (IllegalStateException e1) {
+                throw ClimateRecordCursor.readFailure(e1);
+            }
+        }
+        request.setAttribute("summary", summary);
+        forwardToPage(request, response, "MonthlySummary.jsp");
+        Logger.info("Summarized {} climate records into {} location/month groups.", recordCount, summary.size());
+    }
+
+    /**
+     * Stores a new climate record in the database. The record replaces the stored reading of the
+     * same location and day, so posting the same reading twice stores it once.
      * 
      * @param request the HTTP request
      * @param response the HTTP response
@@ -207,15 +874,475 @@ public class ClimateInfoDashboard extends HttpServlet {
     private void insertClimateRecord(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException, DatabaseException, InvalidArgumentsException {
         ClimateRecord record = parseClimateRecord(request, 0);
-        boolean success = climateRecordDAO.insertClimateRecord(record);
-        if (success) {
+        UpsertResult result = climateRecordDAO.upsertClimateRecord(record);
+        if (result.getInserted() > 0) {
             Logger.info("Inserted new record: {}", record);
+        } else if (result.getUpdated() > 0) {
+            Logger.info("Replaced the stored reading with record: {}", record);
         } else {
-            Logger.error("Failed to insert record: {}", record);
+            Logger.info("Record already stored: {}", record);
         }
         response.sendRedirect("list");
     }
 
+    /**
+     * Upserts the climate records posted as CSV lines ({@code date,location,temperature,wind})
+     * in a single batch and responds with the numbers of inserted, updated and unchanged records.
+     * A re-sent feed therefore creates no duplicates and only writes the readings that changed.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while inserting the records into the database
+     * @throws InvalidArgumentsException if a line does not describe a valid climate record
+     */
+    private void ingestClimateRecords(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, DatabaseException, InvalidArgumentsException {
+        List<ClimateRecord> records = new ArrayList<>();
+        BufferedReader reader = request.getReader();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("date")) {
+                continue; // Skip blank lines and the optional header
+            }
+            String[] fields = line.split(",");
+            if (fields.length != 4) {
+                throw new InvalidArgumentsException("Expected date,location,temperature,wind but got: " + line);
+            }
+            records.add(new ClimateRecord(fields[0].trim(), fields[1].trim(),
+                    parseFloat(fields[2].trim(), "Temperature"), parseFloat(fields[3].trim(), "Wind")));
+        }
+
+        UpsertResult result = records.isEmpty() ? new UpsertResult(0, 0, 0) : climateRecordDAO.upsertClimateRecords(records);
+        Logger.info("Ingested {} records.", records.size());
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getWriter().println(result);
+    }
+
+    /**
+     * Streams all climate records as CSV in the format accepted by {@code /ingest}
+     * ({@code date,location,temperature,wind}), ordered by date. With {@code derived=true} every
+     * row also carries its wind chill and apparent temperature; with {@code report=degree-days}
+     * the heating and cooling degree-days of every location and month are exported instead.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while fetching data from the database
+     * @throws InvalidArgumentsException if the report is unknown
+     */
+    private void exportClimateRecords(HttpServletRequest request, HttpServletResponse response)
+            throws IOException, DatabaseException, InvalidArgumentsException {
+        String report = request.getParameter("report");
+        if (report != null && !report.isEmpty() && !"degree-days".equals(report)) {
+            throw new InvalidArgumentsException("Unknown report: " + report);
+        }
+        try (ClimateRecordCursor records = openExportRecords()) {
+            response.setContentType("text/csv;charset=UTF-8");
+            if (report != null && !report.isEmpty()) {
+                response.setHeader("Content-Disposition", "attachment; filename=\"climate-degree-days.csv\"");
+                writeDegreeDays(records, response.getWriter());
+                return;
+            }
+            response.setHeader("Content-Disposition", "attachment; filename=\"climate-data.csv\"");
+            PrintWriter out = response.getWriter();
+            if (Boolean.parseBoolean(request.getParameter("derived"))) {
+                writeDerivedRows(records, out);
+                return;
+            }
+            out.write("date,location,temperature,wind\n");
+            while (records.hasNext()) {
+                ClimateRecord record = records.next();
+                out.write(record.getDate());
+                out.write(',');
+                out.write(record.getLocation());
+                out.write(',');
+                out.write(Float.toString(record.getTemperature()));
+                out.write(',');
+                out.write(Float.toString(record.getWind()));
+                out.write('\n');
+                if (records.getRowCount() % RecordTableWriter.DEFAULT_FLUSH_EVERY == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+            Logger.info("Exported {} climate records.", records.getRowCount());
+        }
+    }
+
+    /**
+     * Writes the export rows with their wind chill and apparent temperature. The rows are read in
+     * batches, whose temperature and wind columns go through the {@link DerivedMetrics} kernels; a
+     * wind chill that is not defined is left empty.
+     * 
+     * @param records the records to write
+     * @param out the response writer
+     */
+    private void writeDerivedRows(ClimateRecordCursor records, PrintWriter out) {
+        out.write("date,location,temperature,wind,wind_chill,apparent_temperature\n");
+        ClimateRecord[] batch = new ClimateRecord[EXPORT_BATCH_SIZE];
+        float[] temperatures = new float[EXPORT_BATCH_SIZE];
+        float[] winds = new float[EXPORT_BATCH_SIZE];
+        float[] windChills = new float[EXPORT_BATCH_SIZE];
+        float[] apparent = new float[EXPORT_BATCH_SIZE];
+        while (records.hasNext()) {
+            int length = 0;
+            while (length < EXPORT_BATCH_SIZE && records.hasNext()) {
+                ClimateRecord record = records.next();
+                batch[length] = record;
+                temperatures[length] = record.getTemperature();
+                winds[length] = record.getWind();
+                length++;
+            }
+            DerivedMetrics.windChill(temperatures, winds, windChills, length);
+            DerivedMetrics.apparentTemperature(temperatures, winds, apparent, length);
+            for (int i = 0; i < length; i++) {
+                out.write(batch[i].getDate());
+                out.write(',');
+                out.write(batch[i].getLocation());
+                out.write(',');
+                out.write(Float.toString(temperatures[i]));
+                out.write(',');
+                out.write(Float.toString(winds[i]));
+                out.write(',');
+                if (!Float.isNaN(windChills[i])) {
+                    out.write(String.format(Locale.ROOT, "%.1f", windChills[i]));
+                }
+                out.write(',');
+                out.write(String.format(Locale.ROOT, "%.1f", apparent[i]));
+                out.write('\n');
+            }
+            out.flush();
+        }
+        Logger.info("Exported {} climate records with derived metrics ({} kernels).", records.getRowCount(),
+                DerivedMetrics.getImplementation());
+    }
+
+    /**
+     * Writes the heating and cooling degree-days of every location and month, computed from the
+     * daily mean temperatures.
+     * 
+     * @param records the records to summarize
+     * @param out the response writer
+     */
+    private void writeDegreeDays(ClimateRecordCursor records, PrintWriter out) {
+        Map<ClimateGroupKey, DerivedMetrics.DegreeDays> degreeDays = DerivedMetrics.degreeDays(records);
+        out.write("location,month,days,heating_degree_days,cooling_degree_days\n");
+        for (Map.Entry<ClimateGroupKey, DerivedMetrics.DegreeDays> entry : degreeDays.entrySet()) {
+            out.write(String.format(Locale.ROOT, "%s,%s,%d,%.1f,%.1f%n", entry.getKey().getLocation(),
+                    entry.getKey().getMonth(), entry.getValue().getDays(), entry.getValue().getHeating(),
+                    entry.getValue().getCooling()));
+        }
+        out.flush();
+        Logger.info("Exported the degree-days of {} location/month groups from {} climate records.",
+                degreeDays.size(), records.getRowCount());
+    }
+
+    /**
+     * Opens the records to export. With a segment archive the archived raw readings are read from
+     * the segments and the archive table and merged with the live table, in place of their daily
+     * means; the daily means of days without raw readings are kept.
+     * 
+     * @return an open cursor ordered by date and ID; the caller must close it
+     * @throws DatabaseException if an error occurs while executing the query
+     */
+    private ClimateRecordCursor openExportRecords() throws DatabaseException {
+        if (segmentArchive == null) {
+            return climateRecordDAO.openAllClimateRecords();
+        }
+        return new RawReadingsCursor(new MergedRecordCursor(Arrays.asList(segmentArchive.openRange(null, null),
+                climateRecordDAO.openRecordsWithArchivedReadings()), MergedRecordCursor.BY_DATE_AND_ID));
+    }
+
+    /**
+     * Opens all records ordered by location, date and ID, for the moving statistics of every
+     * location. With a segment archive the archived raw readings replace their daily means as in
+     * {@link #openExportRecords()}.
+     * 
+     * @return an open cursor; the caller must close it
+     * @throws DatabaseException if an error occurs while executing the query
+     */
+    private ClimateRecordCursor openRecordsByLocation() throws DatabaseException {
+        if (segmentArchive == null) {
+            return climateRecordDAO.openRecordsByLocation(false);
+        }
+        return new RawReadingsCursor(new MergedRecordCursor(Arrays.asList(segmentArchive.openByLocation(),
+                climateRecordDAO.openRecordsByLocation(true)), MergedRecordCursor.BY_LOCATION_DATE_AND_ID));
+    }
+
+    /**
+     * Lists all records for the trends. Without a segment archive these are the cached records;
+     * with one, the archived raw readings replace their daily means as in {@link #openExportRecords()},
+     * within the same result budget as the database reads.
+     * 
+     * @return the records, ordered by date and ID
+     * @throws ResultTooLargeException if the records exceed the result budget
+     * @throws DatabaseException if an error occurs while fetching the records
+     * @throws InvalidArgumentsException if a stored record is invalid
+     */
+    private List<ClimateRecord> listAllReadings() throws DatabaseException, InvalidArgumentsException {
+        if (segmentArchive == null) {
+            return recordCache.listAllClimateRecords();
+        }
+        List<ClimateRecord> records = new ArrayList<>();
+        try (ClimateRecordCursor cursor = openExportRecords()) {
+            long bytes = 0;
+            while (cursor.hasNext()) {
+                ClimateRecord record = cursor.next();
+                records.add(record);
+                bytes += ResultBudget.estimateBytes(record);
+                resultBudget.check("all_readings", records.size(), bytes);
+            }
+        } catch (IllegalStateException e) {
+            throw ClimateRecordCursor.readFailure(e);
+        }
+        return records;
+    }
+
+    /**
+     * Lists the most recently flagged anomalies.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws ServletException if an error occurs during the request handling
+     * @throws IOException if an I/O error occurs
+     * @throws DatabaseException if an error occurs while fetching the anomalies from the database
+     */
+    private void listAnomalies(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException, DatabaseException {
+        request.setAttribute("anomalies", anomalyDAO.listRecentAnomalies());
+        forwardToPage(request, response, "AnomalyList.jsp");
+    }
+
+    /**
+     * Answers the load balancer's readiness probe: 200 once the warmup has completed and every page
+     * has been rendered once, 503 before. The first probe after the warmup renders the pages into a
+     * discarded response; concurrent probes report not ready until it has finished.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if an I/O error occurs
+     */
+    private void showReadiness(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if ((warmup == null || warmup.isComplete()) && pageWarmupClaimed.compareAndSet(false, true)) {
+            warmPages(request, response);
+            pagesWarm = true;
+        }
+        boolean ready = pagesWarm;
+        response.setContentType("text/plain; charset=UTF-8");
+        response.setStatus(ready ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.getWriter().println(ready ? "ready" : "warming up");
+    }
+
+    /**
+     * Renders every page once with empty data into a discarded response, so that the JSPs are
+     * compiled, loaded and initialized before the first user request. A page that fails to render
+     * is logged and does not hold up readiness.
+     * 
+     * @param request the readiness probe, whose attributes are set for the pages
+     * @param response the response of the probe, which is not written to
+     */
+    private void warmPages(HttpServletRequest request, HttpServletResponse response) {
+        request.setAttribute("recordRows", Collections.emptyIterator());
+        request.setAttribute("recordCount", RecordCount.exact(0));
+        request.setAttribute("summary", Collections.emptyMap());
+        request.setAttribute("anomalies", Collections.emptyList());
+        request.setAttribute("locations", LOCATIONS);
+        request.setAttribute("queryMonitor", queryMonitor);
+        request.setAttribute("slowQueries", Collections.emptyList());
+        request.setAttribute("jobs", Collections.emptyList());
+        long start = System.nanoTime();
+        for (String page : WARMUP_PAGES) {
+            try {
+                request.getRequestDispatcher(page).include(request, new DiscardingResponse(response));
+            } catch (ServletException | IOException | RuntimeException e) {
+                Logger.warn(e, "Warmup of page {} failed.", page);
+            }
+        }
+        Logger.info("Rendered {} pages for warmup in {} ms.", WARMUP_PAGES.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Shows the log of slow statements with their parameters, durations and captured plans, and the
+     * query timeouts in effect.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws ServletException if an error occurs during the request handling
+     * @throws IOException if an I/O error occurs
+     */
+    private void showSlowQueries(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        request.setAttribute("queryMonitor", queryMonitor);
+        request.setAttribute("slowQueries", queryMonitor.getSlowQueries());
+        request.setAttribute("requestTimeoutSeconds", requestTimeoutSeconds);
+        // Absolute, since the page is requested from below /admin
+        forwardToPage(request, response, "/SlowQueries.jsp");
+    }
+
+    /**
+     * Shows the background jobs with their schedules, run counts by outcome and last run.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws ServletException if an error occurs during the request handling
+     * @throws IOException if an I/O error occurs
+     */
+    private void showJobs(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        request.setAttribute("jobs", jobScheduler.getJobs());
+        forwardToPage(request, response, "/Jobs.jsp");
+    }
+
+    /**
+     * Writes the query coalescing, cache, admission control, segment archive, slow-query and job metrics in
+     * the Prometheus text format.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if an I/O error occurs
+     */
+    private void showMetrics(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        PrintWriter out = response.getWriter();
+        out.println("# HELP climate_query_executions_total Read queries run against the database.");
+        out.println("# TYPE climate_query_executions_total counter");
+        out.println("climate_query_executions_total{query=\"all_records\"} " + recordReader.getAllRecordsFlights().getExecutions());
+        out.println("climate_query_executions_total{query=\"records_by_city\"} " + recordReader.getRecordsByCityFlights().getExecutions());
+        out.println("# HELP climate_query_coalesced_total Read requests that shared the result of an identical in-flight query.");
+        out.println("# TYPE climate_query_coalesced_total counter");
+        out.println("climate_query_coalesced_total{query=\"all_records\"} " + recordReader.getAllRecordsFlights().getCoalesced());
+        out.println("climate_query_coalesced_total{query=\"records_by_city\"} " + recordReader.getRecordsByCityFlights().getCoalesced());
+        out.println("# HELP climate_query_in_flight Read queries currently running.");
+        out.println("# TYPE climate_query_in_flight gauge");
+        out.println("climate_query_in_flight{query=\"all_records\"} " + recordReader.getAllRecordsFlights().getInFlight());
+        out.println("climate_query_in_flight{query=\"records_by_city\"} " + recordReader.getRecordsByCityFlights().getInFlight());
+        out.println("# HELP climate_cache_requests_total Cached reads by result.");
+        out.println("# TYPE climate_cache_requests_total counter");
+        out.println("climate_cache_requests_total{result=\"hit\"} " + recordCache.getHits());
+        out.println("climate_cache_requests_total{result=\"miss\"} " + recordCache.getMisses());
+        out.println("# HELP climate_cache_evictions_total Cache entries evicted by writes.");
+        out.println("# TYPE climate_cache_evictions_total counter");
+        out.println("climate_cache_evictions_total " + recordCache.getEvictions());
+        out.println("# HELP climate_cache_entries Cached records and query results.");
+        out.println("# TYPE climate_cache_entries gauge");
+        out.println("climate_cache_entries " + recordCache.size());
+        if (changeFeed != null) {
+            out.println("# HELP climate_change_notifications_total Change notifications exchanged with the other nodes.");
+            out.println("# TYPE climate_change_notifications_total counter");
+            out.println("climate_change_notifications_total{direction=\"published\"} " + changeFeed.getPublished());
+            out.println("climate_change_notifications_total{direction=\"received\"} " + changeFeed.getReceived());
+            out.println("# HELP climate_change_listener_reconnects_total Times a lost change listener connection was reopened.");
+            out.println("# TYPE climate_change_listener_reconnects_total counter");
+            out.println("climate_change_listener_reconnects_total " + changeFeed.getReconnects());
+        }
+        out.println("# HELP climate_admission_limit Current concurrency limit for database-bound requests.");
+        out.println("# TYPE climate_admission_limit gauge");
+        out.println("climate_admission_limit " + admissionLimiter.getLimit());
+        out.println("# HELP climate_admission_in_flight Admitted database-bound requests.");
+        out.println("# TYPE climate_admission_in_flight gauge");
+        out.println("climate_admission_in_flight " + admissionLimiter.getInFlight());
+        out.println("# HELP climate_admission_queued Requests waiting for admission.");
+        out.println("# TYPE climate_admission_queued gauge");
+        out.println("climate_admission_queued " + admissionLimiter.getQueued());
+        out.println("# HELP climate_admission_admitted_total Requests admitted to the database.");
+        out.println("# TYPE climate_admission_admitted_total counter");
+        out.println("climate_admission_admitted_total " + admissionLimiter.getAdmitted());
+        out.println("# HELP climate_admission_rejected_total Requests answered with 503.");
+        out.println("# TYPE climate_admission_rejected_total counter");
+        out.println("climate_admission_rejected_total{reason=\"queue_full\"} " + admissionLimiter.getRejectedQueueFull());
+        out.println("climate_admission_rejected_total{reason=\"timeout\"} " + admissionLimiter.getRejectedTimeout());
+        out.println("climate_admission_rejected_total{reason=\"displaced\"} " + admissionLimiter.getDisplaced());
+        if (segmentArchive != null) {
+            out.println("# HELP climate_archive_segments Segment files holding archived readings.");
+            out.println("# TYPE climate_archive_segments gauge");
+            out.println("climate_archive_segments " + segmentArchive.getSegments().size());
+            out.println("# HELP climate_archive_records Archived readings stored in segment files.");
+            out.println("# TYPE climate_archive_records gauge");
+            out.println("climate_archive_records " + segmentArchive.getRecordCount());
+            out.println("# HELP climate_archive_bytes Disk space used by the segment files.");
+            out.println("# TYPE climate_archive_bytes gauge");
+            out.println("climate_archive_bytes " + segmentArchive.getSizeBytes());
+        }
+        if (queryMonitor != null) {
+            out.println("# HELP climate_slow_queries_total Statements that took longer than the slow-query threshold.");
+            out.println("# TYPE climate_slow_queries_total counter");
+            out.println("climate_slow_queries_total " + queryMonitor.getSlowQueryCount());
+        }
+        out.println("# HELP climate_result_budget_exceeded_total Results abandoned for exceeding the result budget.");
+        out.println("# TYPE climate_result_budget_exceeded_total counter");
+        for (Map.Entry<String, Long> exceeded : resultBudget.getExceeded().entrySet()) {
+            out.println("climate_result_budget_exceeded_total{query=\"" + exceeded.getKey() + "\"} " + exceeded.getValue());
+        }
+        out.println("# HELP climate_result_budget_fallbacks_total Requests over the result budget by how they were served.");
+        out.println("# TYPE climate_result_budget_fallbacks_total counter");
+        out.println("climate_result_budget_fallbacks_total{action=\"streamed\"} " + resultBudget.getStreamed());
+        out.println("climate_result_budget_fallbacks_total{action=\"rejected\"} " + resultBudget.getRejected());
+        if (tracer != null) {
+            out.println("# HELP climate_traces_total Sampled request traces by outcome of their export.");
+            out.println("# TYPE climate_traces_total counter");
+            out.println("climate_traces_total{outcome=\"exported\"} " + tracer.getExported());
+            out.println("climate_traces_total{outcome=\"dropped\"} " + tracer.getDropped());
+        }
+        if (jobScheduler != null && !jobScheduler.getJobs().isEmpty()) {
+            List<JobStats> jobs = jobScheduler.getJobs();
+            out.println("# HELP climate_job_runs_total Scheduled job runs by outcome.");
+            out.println("# TYPE climate_job_runs_total counter");
+            for (JobStats job : jobs) {
+                for (JobStats.Outcome outcome : JobStats.Outcome.values()) {
+                    out.println("climate_job_runs_total{job=\"" + job.getName() + "\",outcome=\""
+                            + outcome.name().toLowerCase(Locale.ROOT) + "\"} " + job.getCount(outcome));
+                }
+            }
+            out.println("# HELP climate_job_duration_seconds_total Time spent running scheduled jobs.");
+            out.println("# TYPE climate_job_duration_seconds_total counter");
+            for (JobStats job : jobs) {
+                out.println("climate_job_duration_seconds_total{job=\"" + job.getName() + "\"} "
+                        + job.getTotalDurationMillis() / 1000.0);
+            }
+            out.println("# HELP climate_job_running Scheduled job runs in progress.");
+            out.println("# TYPE climate_job_running gauge");
+            for (JobStats job : jobs) {
+                out.println("climate_job_running{job=\"" + job.getName() + "\"} " + job.getRunning());
+            }
+        }
+        out.println("# HELP climate_derived_metrics_info Implementation of the derived metric kernels.");
+        out.println("# TYPE climate_derived_metrics_info gauge");
+        out.println("climate_derived_metrics_info{implementation=\"" + DerivedMetrics.getImplementation() + "\"} 1");
+        out.flush();
+    }
+
+    /**
+     * Opens a Server-Sent Events stream of committed changes. The request is switched to
+     * asynchronous mode and handed to the event hub, so no request thread is held while it is open.
+     * 
+     * @param request the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if an I/O error occurs
+     */
+    private void streamEvents(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType("text/event-stream");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        response.setHeader("X-Accel-Buffering", "no"); // Disables buffering in reverse proxies
+
+        long lastEventId = -1;
+        String lastEventIdHeader = request.getHeader("Last-Event-ID");
+        if (lastEventIdHeader != null) {
+            try {
+                lastEventId = Long.parseLong(lastEventIdHeader.trim());
+            } catch (NumberFormatException e) {
+                Logger.debug("Ignoring invalid Last-Event-ID: {}", lastEventIdHeader);
+            }
+        }
+
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(0); // Held open until the client disconnects
+        eventHub.subscribe(asyncContext, lastEventId);
+    }
+
     /**
      * Updates an existing climate record in the database.
      * 
@@ -276,38 +1403,6 @@ public class ClimateInfoDashboard extends HttpServlet {
         return new ClimateRecord(id, date, location, temperature, wind);
     }
 
-    /**
-     * Parses a string as an integer, throwing an exception if the conversion fails.
-     * 
-     * @param value the string value to be parsed
-     * @param fieldName the name of the field for error reporting
-     * @return the parsed integer value
-     * @throws IllegalArgumentException if the string cannot be parsed as an integer
-     */
-    private int parseInteger(String value, String fieldName) {
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(fieldName + " must be a valid integer: " + value, e);
-        }
-    }
-
-    /**
-     * Parses a string as a float, throwing an exception if the conversion fails.
-     * 
-     * @param value the string value to be parsed
-     * @param fieldName the name of the field for error reporting
-     * @return the parsed float value
-     * @throws IllegalArgumentException if the string cannot be parsed as a float
-     */
-    private float parseFloat(String value, String fieldName) {
-        try {
-            return Float.parseFloat(value);
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException(fieldName + " must be a valid number: " + value, e);
-        }
-    }
-
     /**
      * Forwards the request and response to a given JSP page.
      * 
@@ -320,7 +1415,9 @@ public class ClimateInfoDashboard extends HttpServlet {
     private void forwardToPage(HttpServletRequest request, HttpServletResponse response, String page)
             throws ServletException, IOException {
         RequestDispatcher dispatcher = request.getRequestDispatcher(page);
-        dispatcher.forward(request, response);
+        try (Span span = Tracer.startScopedSpan("render " + page)) {
+            dispatcher.forward(request, response);
+        }
     }
 
     /**
@@ -334,7 +1431,52 @@ public class ClimateInfoDashboard extends HttpServlet {
      */
     protected void handleException(HttpServletRequest request, HttpServletResponse response, Exception e)
              {
+        if (e instanceof OverloadedException) {
+            Logger.warn("Shed {} request: {}", request.getServletPath(), e.getMessage());
+            if (!response.isCommitted()) {
+                response.setHeader("Retry-After", Integer.toString(((OverloadedException) e).getRetryAfterSeconds()));
+                try {
+                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "The service is busy. Please try again shortly.");
+                } catch (IOException e1) {
+                    Logger.debug(e1, "Could not send the overload response.");
+                }
+            }
+            return;
+        }
+        if (e instanceof ResultTooLargeException) {
+            resultBudget.countRejected();
+            Logger.warn("Refused {} request: {}", request.getServletPath(), e.getMessage());
+            if (!response.isCommitted()) {
+                request.setAttribute("errorTitle", "Result Too Large");
+                request.setAttribute("errorMessage", e.getMessage());
+                response.setStatus(SC_UNPROCESSABLE_ENTITY);
+                try {
+                    forwardToPage(request, response, "Error.jsp");
+                } catch (ServletException | IOException e1) {
+                    Logger.debug(e1, "Could not send the result size response.");
+                }
+            }
+            return;
+        }
+        if (e instanceof InvalidArgumentsException) {
+            Logger.warn("Rejected {} request: {}", request.getServletPath(), e.getMessage());
+            if (!response.isCommitted()) {
+                request.setAttribute("errorTitle", "Invalid Input");
+                request.setAttribute("errorMessage", e.getMessage());
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                try {
+                    forwardToPage(request, response, "Error.jsp");
+                } catch (ServletException | IOException e1) {
+                    Logger.debug(e1, "Could not send the invalid input response.");
+                }
+            }
+            return;
+        }
         Logger.error(e, "Unhandled exception occurred.");
+        if (response.isCommitted()) {
+            // Part of a streamed page has already been sent; the error page can no longer be shown
+            return;
+        }
         request.setAttribute("errorTitle", "Unexpected Error");
         request.setAttribute("errorMessage", e.getMessage());
         response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
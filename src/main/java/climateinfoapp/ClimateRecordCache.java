@@ -0,0 +1,318 @@
+package climateinfoapp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the read queries of the dashboard in memory and drops exactly the entries a change touches.
+ * <p>
+ * Records are cached by ID, the records of a city by the searched name, and the list of all
+ * records as one entry. The cache learns of the writes of this node as a
+ * {@link ClimateRecordListener}, and of the writes of other nodes and of other database clients
+ * through a {@link ClimateChangeFeed}. A change evicts its record, the list of all records and the
+ * cities it may belong to: the searched name equals its location, the name is a {@code LIKE}
+ * pattern, or the cached result holds its ID. An update made on this node replaces the cached record
+ * instead of evicting it.
+ * </p>
+ * <p>
+ * Every change advances a generation counter. A query result is stored only if no change
+ * happened while it was read, so a read that raced with a write never fills the cache with the
+ * data from before it. Query misses go through a {@link CoalescingRecordReader}, so concurrent
+ * misses of the same entry run one query; every change also detaches the reader's in-flight
+ * queries, so a miss after a change made elsewhere does not join a query read before it.
+ * </p>
+ */
+public class ClimateRecordCache implements ClimateRecordListener, ClimateChangeFeed.Handler {
+
+    private final CoalescingRecordReader recordReader;
+    private final ClimateRecordDAO climateRecordDAO;
+    private final int maxEntries;
+    private final Map<Integer, ClimateRecord> recordsById;
+    private final Map<String, List<ClimateRecord>> recordsByCity;
+    private List<ClimateRecord> allRecords;
+    private long generation;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param recordReader runs the list queries on a miss
+     * @param climateRecordDAO reads single records on a miss
+     * @param maxEntries the largest number of records and of city results each kept; 0 disables caching
+     */
+    public ClimateRecordCache(CoalescingRecordReader recordReader, ClimateRecordDAO climateRecordDAO, int maxEntries) {
+        this.recordReader = recordReader;
+        this.climateRecordDAO = climateRecordDAO;
+        this.maxEntries = maxEntries;
+        this.recordsById = newLruMap(maxEntries);
+        this.recordsByCity = newLruMap(maxEntries);
+    }
+
+    /**
+     * Retrieves a climate record by its ID.
+     *
+     * @param id the ID of the record
+     * @return the record, or null if no record has the ID
+     * @throws DatabaseException if an error occurs while retrieving the record
+     * @throws InvalidArgumentsException if the stored record holds invalid data
+     */
+    public ClimateRecord getClimateRecord(int id) throws DatabaseException, InvalidArgumentsException {
+        long readGeneration;
+        synchronized (this) {
+            ClimateRecord record = recordsById.get(id);
+            if (record != null) {
+                hits.incrementAndGet();
+                return record;
+            }
+            readGeneration = generation;
+        }
+        misses.incrementAndGet();
+        ClimateRecord record = climateRecordDAO.getClimateRecord(id);
+        if (record != null) {
+            synchronized (this) {
+                if (generation == readGeneration && maxEntries > 0) {
+                    recordsById.put(id, record);
+                }
+            }
+        }
+        return record;
+    }
+
+    /**
+     * Retrieves the climate records of a city.
+     *
+     * @param city the location to match; may be a LIKE pattern
+     * @return an unmodifiable list of the matching records, ordered by date and ID
+     * @throws DatabaseException if an error occurs while retrieving the records
+     * @throws InvalidArgumentsException if a stored record holds invalid data
+     */
+    public List<ClimateRecord> getRecordsByCity(String city) throws DatabaseException, InvalidArgumentsException {
+        long readGeneration;
+        synchronized (this) {
+            List<ClimateRecord> records = recordsByCity.get(city);
+            if (records != null) {
+                hits.incrementAndGet();
+                return records;
+            }
+            readGeneration = generation;
+        }
+        misses.incrementAndGet();
+        List<ClimateRecord> records = recordReader.getRecordsByCity(city);
+        synchronized (this) {
+            if (generation == readGeneration && maxEntries > 0) {
+                recordsByCity.put(city, records);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Retrieves all climate records, including the daily means of archived readings.
+     *
+     * @return an unmodifiable list of all records, ordered by date and ID
+     * @throws DatabaseException if an error occurs while retrieving the records
+     * @throws InvalidArgumentsException if a stored record holds invalid data
+     */
+    public List<ClimateRecord> listAllClimateRecords() throws DatabaseException, InvalidArgumentsException {
+        long readGeneration;
+        synchronized (this) {
+            if (allRecords != null) {
+                hits.incrementAndGet();
+                return allRecords;
+            }
+            readGeneration = generation;
+        }
+        misses.incrementAndGet();
+        List<ClimateRecord> records = recordReader.listAllClimateRecords();
+        synchronized (this) {
+            if (generation == readGeneration && maxEntries > 0) {
+                allRecords = records;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Evicts the entries an insert on this node touches.
+     *
+     * @param record the inserted record
+     */
+    @Override
+    public void recordInserted(ClimateRecord record) {
+        evict(record.getId(), record.getLocation());
+    }
+
+    /**
+     * Evicts the entries an update on this node touches and caches the updated record.
+     *
+     * @param record the updated record
+     */
+    @Override
+    public synchronized void recordUpdated(ClimateRecord record) {
+        evict(record.getId(), record.getLocation());
+        if (maxEntries > 0) {
+            recordsById.put(record.getId(), record);
+        }
+    }
+
+    /**
+     * Evicts the entries a delete on this node touches.
+     *
+     * @param id the ID of the deleted record
+     */
+    @Override
+    public void recordDeleted(int id) {
+        evict(id, null);
+    }
+
+    /**
+     * Evicts the entries holding readings that were rolled up into daily means.
+     *
+     * @param cutoffDate the first date kept as raw readings
+     */
+    @Override
+    public synchronized void recordsArchived(String cutoffDate) {
+        generation++;
+        recordReader.forgetAll();
+        allRecords = null;
+        int cachedRecords = recordsById.size();
+        recordsById.values().removeIf(record -> record.getDate().compareTo(cutoffDate) < 0);
+        evictions.addAndGet(cachedRecords - recordsById.size());
+        Iterator<List<ClimateRecord>> cities = recordsByCity.values().iterator();
+        while (cities.hasNext()) {
+            if (cities.next().stream().anyMatch(record -> record.getDate().compareTo(cutoffDate) < 0)) {
+                cities.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Evicts the entries a change made elsewhere touches.
+     *
+     * @param change the change
+     */
+    @Override
+    public void changed(ClimateChangeFeed.Change change) {
+        if (change.getKind() == ClimateChangeFeed.Change.Kind.ARCHIVED) {
+            recordsArchived(change.getDate());
+        } else {
+            evict(change.getId(), change.getLocation());
+        }
+    }
+
+    /**
+     * Drops all entries.
+     */
+    @Override
+    public synchronized void resynchronize() {
+        generation++;
+        recordReader.forgetAll();
+        evictions.addAndGet(recordsById.size() + recordsByCity.size() + (allRecords != null ? 1 : 0));
+        recordsById.clear();
+        recordsByCity.clear();
+        allRecords = null;
+    }
+
+    /**
+     * Returns the number of reads answered from the cache.
+     *
+     * @return the count
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of reads that ran a query.
+     *
+     * @return the count
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of entries evicted by changes.
+     *
+     * @return the count
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the number of cached records and city results.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return recordsById.size() + recordsByCity.size() + (allRecords != null ? 1 : 0);
+    }
+
+    /**
+     * Evicts the record with an ID, the list of all records and the city results the record may
+     * belong to.
+     *
+     * @param id the ID of the changed record, or null if not known
+     * @param location the location of the changed record, or null if not known
+     */
+    private synchronized void evict(Integer id, String location) {
+        generation++;
+        recordReader.forgetAll();
+        if (allRecords != null) {
+            allRecords = null;
+            evictions.incrementAndGet();
+        }
+        if (id == null) {
+            // Without an ID the change cannot be matched to any entry
+            resynchronize();
+            return;
+        }
+        if (recordsById.remove(id) != null) {
+            evictions.incrementAndGet();
+        }
+        Iterator<Map.Entry<String, List<ClimateRecord>>> cities = recordsByCity.entrySet().iterator();
+        while (cities.hasNext()) {
+            Map.Entry<String, List<ClimateRecord>> city = cities.next();
+            if (city.getKey().equals(location) || isPattern(city.getKey())
+                    || city.getValue().stream().anyMatch(record -> record.getId() == id)) {
+                cities.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns whether a searched city name is a {@code LIKE} pattern, whose results a change of any
+     * location may affect.
+     *
+     * @param city the searched name
+     * @return true if the name holds a wildcard or escape character
+     */
+    private static boolean isPattern(String city) {
+        return city.indexOf('%') >= 0 || city.indexOf('_') >= 0 || city.indexOf('\\') >= 0;
+    }
+
+    /**
+     * Creates a map that drops its least recently read entry beyond a size.
+     *
+     * @param maxEntries the largest number of entries
+     * @return the map
+     */
+    private static <K, V> Map<K, V> newLruMap(int maxEntries) {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package climateinfoapp;
+
+import java.util.Iterator;
+
+/**
+ * Forward-only iterator over climate records that are read from the database while iterating.
+ * <p>
+ * A cursor holds database resources until it is closed and must be closed by the caller,
+ * typically with try-with-resources.
+ * </p>
+ */
+public interface ClimateRecordCursor extends Iterator<ClimateRecord>, AutoCloseable {
+
+    /**
+     * Returns the number of records returned so far.
+     *
+     * @return the row count
+     */
+    int getRowCount();
+
+    /**
+     * Releases the database resources held by the cursor. Errors are logged and ignored.
+     */
+    @Override
+    void close();
+
+    /**
+     * Returns the checked exception behind the {@link IllegalStateException} a cursor throws when a
+     * row cannot be read, for callers to rethrow with {@code throw ClimateRecordCursor.readFailure(e)}.
+     *
+     * @param e the exception thrown by {@link #hasNext()} or {@link #next()}
+     * @return a database exception wrapping the cause
+     * @throws InvalidArgumentsException if the cause is a stored record holding invalid data
+     */
+    static DatabaseException readFailure(IllegalStateException e) throws InvalidArgumentsException {
+        if (e.getCause() instanceof InvalidArgumentsException) {
+            throw (InvalidArgumentsException) e.getCause();
+        }
+        return new DatabaseException("Failed to retrieve climate records", e.getCause());
+    }
+}
@@ -4,29 +4,201 @@ import org.tinylog.Logger;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Data Access Object (DAO) class for performing CRUD operations on climate records
  * in the database. It provides methods to insert, update, delete, and retrieve climate records.
+ * <p>
+ * The records may be spread over several database shards by location (see {@link ShardRouter}).
+ * Operations on one record or one location go to a single shard; reads across all locations query
+ * every shard in parallel and merge the results, ordered by date and ID, as they are streamed.
+ * </p>
+ * <p>
+ * Reads cover two tiers: the raw readings in {@code climate_data} and the daily per-location
+ * means in {@code climate_data_daily} that {@link #archiveRecordsBefore(int, String, int)} rolls
+ * aged readings up into. Daily rows are returned as records with negative IDs, so they never
+ * collide with raw records and cannot be edited.
+ * </p>
  */
 public class ClimateRecordDAO {
+    // Rows fetched per round trip when streaming through a cursor
+    static final int STREAM_FETCH_SIZE = 500;
+
+    // Key column returned by inserts so that listeners see the stored record's ID
+    private static final String[] GENERATED_ID_COLUMNS = {"id"};
+
+    // Order of cross-shard scans, which the merge relies on
+    private static final String SCAN_ORDER = " ORDER BY date, id";
+
+    // Raw readings and the daily means of archived readings, which carry negative IDs
+    private static final String ALL_TIERS = "SELECT * FROM (SELECT id, date, location, temp, wind FROM climate_data"
+            + " UNION ALL SELECT -id AS id, date, location,"
+            + " CAST(temperature_sum / sample_count AS REAL) AS temp, CAST(wind_sum / sample_count AS REAL) AS wind"
+            + " FROM climate_data_daily) records";
+
+    // All tiers plus the archived raw readings that are not in segment files yet
+    private static final String ALL_TIERS_WITH_ARCHIVE = "SELECT * FROM (SELECT id, date, location, temp, wind FROM climate_data"
+            + " UNION ALL SELECT id, date, location, temp, wind FROM climate_data_archive"
+            + " UNION ALL SELECT -id AS id, date, location,"
+            + " CAST(temperature_sum / sample_count AS REAL) AS temp, CAST(wind_sum / sample_count AS REAL) AS wind"
+            + " FROM climate_data_daily) records";
+
+    // Moves one batch of aged readings to the archive and merges them into the daily tier, in one statement.
+    // SKIP LOCKED leaves rows that a request is updating to a later batch instead of waiting for them.
+    private static final String ARCHIVE_BATCH = "WITH batch AS ("
+            + " SELECT id FROM climate_data WHERE date < ? ORDER BY date, id LIMIT ? FOR UPDATE SKIP LOCKED"
+            + "), moved AS ("
+            + " DELETE FROM climate_data USING batch WHERE climate_data.id = batch.id"
+            + " RETURNING climate_data.id, climate_data.date, climate_data.location, climate_data.temp, climate_data.wind"
+            + "), archived AS ("
+            + " INSERT INTO climate_data_archive (id, date, location, temp, wind)"
+            + " SELECT id, date, location, temp, wind FROM moved"
+            + "), rolled_up AS ("
+            + " INSERT INTO climate_data_daily AS daily (date, location, sample_count, temperature_sum,"
+            + " temperature_min, temperature_max, wind_sum, wind_min, wind_max)"
+            + " SELECT date, location, count(*), sum(temp), min(temp), max(temp), sum(wind), min(wind), max(wind)"
+            + " FROM moved GROUP BY date, location"
+            + " ON CONFLICT (location, date) DO UPDATE SET"
+            + " sample_count = daily.sample_count + EXCLUDED.sample_count,"
+            + " temperature_sum = daily.temperature_sum + EXCLUDED.temperature_sum,"
+            + " temperature_min = LEAST(daily.temperature_min, EXCLUDED.temperature_min),"
+            + " temperature_max = GREATEST(daily.temperature_max, EXCLUDED.temperature_max),"
+            + " wind_sum = daily.wind_sum + EXCLUDED.wind_sum,"
+            + " wind_min = LEAST(daily.wind_min, EXCLUDED.wind_min),"
+            + " wind_max = GREATEST(daily.wind_max, EXCLUDED.wind_max)"
+            + ") SELECT count(*) FROM moved";
+
+    // Inserts new readings and overwrites changed ones in one set-based statement. The WHERE clause turns
+    // exact replays into no-ops that return no row; xmax is 0 only for rows this statement inserted.
+    private static final String UPSERT = "INSERT INTO climate_data AS existing (date, location, temp, wind)"
+            + " SELECT * FROM unnest(?, ?, ?, ?)"
+            + " ON CONFLICT (location, date) DO UPDATE SET temp = EXCLUDED.temp, wind = EXCLUDED.wind"
+            + " WHERE existing.temp <> EXCLUDED.temp OR existing.wind <> EXCLUDED.wind"
+            + " RETURNING id, date, location, temp, wind, xmax = 0 AS inserted";
+
+    // SQLSTATE of a unique constraint violation
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    // SQLSTATE of a missing table: PostgreSQL and the SQL standard
+    private static final Set<String> UNDEFINED_TABLE_STATES = Set.of("42P01", "42S02");
+
+    // Row estimate of the top node of an EXPLAIN plan
+    private static final Pattern PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    // Opens the per-shard queries of a scatter-gather read concurrently
+    private static final ExecutorService SCATTER_EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
     private Connection jdbcConnection;
+    private final ShardRouter shardRouter;
+    private final List<ClimateRecordListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile QueryMonitor queryMonitor = new QueryMonitor();
+    private volatile ResultBudget resultBudget = new ResultBudget(0, 0);
 
     /**
      * Default constructor for creating a DAO instance without an existing database connection.
      */
-    public ClimateRecordDAO() {}
+    public ClimateRecordDAO() {
+        this(new ShardRouter(1));
+    }
 
     /**
-     * Constructs a DAO with a specific database connection.
+     * Constructs a DAO over the shards configured in {@link DBUtils}.
+     *
+     * @param shardRouter the router that places records on shards
+     */
+    public ClimateRecordDAO(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+    }
+
+    /**
+     * Constructs a DAO with a specific database connection, used as the only shard.
      *
      * @param connection the connection to be used for database operations
      */
     public ClimateRecordDAO(Connection connection) {
+        this(new ShardRouter(1));
         this.jdbcConnection = connection;
     }
 
+    /**
+     * Returns the number of shards the records are spread over.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shardRouter.getShardCount();
+    }
+
+    /**
+     * Returns the router that places records on shards.
+     *
+     * @return the shard router
+     */
+    ShardRouter getShardRouter() {
+        return shardRouter;
+    }
+
+    /**
+     * Registers a listener to be notified after successful writes.
+     *
+     * @param listener the listener to register
+     */
+    public void addListener(ClimateRecordListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Replaces the monitor that applies query timeouts to the statements and logs the slow ones.
+     *
+     * @param queryMonitor the monitor to use
+     */
+    public void setQueryMonitor(QueryMonitor queryMonitor) {
+        this.queryMonitor = queryMonitor;
+    }
+
+    /**
+     * Returns the monitor that applies query timeouts to the statements and logs the slow ones.
+     *
+     * @return the query monitor
+     */
+    public QueryMonitor getQueryMonitor() {
+        return queryMonitor;
+    }
+
+    /**
+     * Replaces the budget that bounds the results read into lists.
+     *
+     * @param resultBudget the budget to use
+     */
+    public void setResultBudget(ResultBudget resultBudget) {
+        this.resultBudget = resultBudget;
+    }
+
+    /**
+     * Returns the budget that bounds the results read into lists.
+     *
+     * @return the budget
+     */
+    public ResultBudget getResultBudget() {
+        return resultBudget;
+    }
+
     /**
      * Inserts a new climate record into the database.
      *
@@ -35,18 +207,263 @@ public class ClimateRecordDAO {
      * @throws DatabaseException if an error occurs during the insertion process
      */
     public boolean insertClimateRecord(ClimateRecord record) throws DatabaseException {
+        try {
+            return insertRow(record);
+        } catch (SQLException e) {
+            Logger.error(e, "Error inserting record: {}", record);
+            throw new DatabaseException("Failed to insert climate record", e);
+        }
+    }
+
+    /**
+     * Inserts a climate record with a plain INSERT and notifies the listeners.
+     *
+     * @param record the climate record to be inserted; receives the ID of the stored row
+     * @return true if the record was inserted, false otherwise
+     * @throws SQLException if the statement fails
+     */
+    private boolean insertRow(ClimateRecord record) throws SQLException {
         String sql = "INSERT INTO climate_data (date, location, temp, wind) VALUES (?, ?, ?, ?)";
-        try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        int shard = shardRouter.shardForLocation(record.getLocation());
+        try (Connection connection = getConnection(shard);
+             PreparedStatement statement = connection.prepareStatement(sql, GENERATED_ID_COLUMNS);
+             QueryMonitor.Execution execution = queryMonitor.start(statement, "insertClimateRecord", shard, sql,
+                     record.getDate(), record.getLocation(), record.getTemperature(), record.getWind())) {
 
             setStatementParams(statement, record, false);
             boolean rowInserted = statement.executeUpdate() > 0;
+            execution.setRows(rowInserted ? 1 : 0);
             Logger.info("Record inserted successfully: {}", record);
+            if (rowInserted) {
+                assignGeneratedIds(statement, Collections.singletonList(record));
+                fireRecordInserted(record);
+            }
             return rowInserted;
+        }
+    }
+
+    /**
+     * Inserts several climate records as one JDBC batch per shard.
+     * <p>
+     * Every shard's batch runs in its own transaction and the transactions are committed only after
+     * all batches have succeeded, so a failing batch leaves no shard changed. A shard that fails
+     * while committing, after another shard has committed, is the only case of a partial insert.
+     * </p>
+     *
+     * @param records the climate records to be inserted
+     * @return the number of records inserted
+     * @throws DatabaseException if an error occurs during the insertion process; no record is inserted in that case
+     */
+    public int insertClimateRecords(List<ClimateRecord> records) throws DatabaseException {
+        String sql = "INSERT INTO climate_data (date, location, temp, wind) VALUES (?, ?, ?, ?)";
+        Map<Integer, List<ClimateRecord>> recordsByShard = new LinkedHashMap<>();
+        for (ClimateRecord record : records) {
+            recordsByShard.computeIfAbsent(shardRouter.shardForLocation(record.getLocation()), shard -> new ArrayList<>())
+                    .add(record);
+        }
+
+        List<Connection> connections = new ArrayList<>();
+        try {
+            try {
+                for (Map.Entry<Integer, List<ClimateRecord>> shardRecords : recordsByShard.entrySet()) {
+                    Connection connection = getConnection(shardRecords.getKey());
+                    connections.add(connection);
+                    connection.setAutoCommit(false);
+                    try (PreparedStatement statement = connection.prepareStatement(sql, GENERATED_ID_COLUMNS);
+                         QueryMonitor.Execution execution = queryMonitor.start(statement, "insertClimateRecords",
+                                 shardRecords.getKey(), sql, shardRecords.getValue())) {
+                        for (ClimateRecord record : shardRecords.getValue()) {
+                            setStatementParams(statement, record, false);
+                            statement.addBatch();
+                        }
+                        statement.executeBatch();
+                        execution.setRows(shardRecords.getValue().size());
+                        assignGeneratedIds(statement, shardRecords.getValue());
+                    }
+                }
+                for (Connection connection : connections) {
+                    connection.commit();
+                }
+            } catch (SQLException e) {
+                for (Connection connection : connections) {
+                    rollbackQuietly(connection);
+                }
+                throw e;
+            }
+            Logger.info("Batch of {} records inserted successfully into {} shards.", records.size(), recordsByShard.size());
+            for (ClimateRecord record : records) {
+                fireRecordInserted(record);
+            }
+            return records.size();
 
         } catch (SQLException e) {
-            Logger.error(e, "Error inserting record: {}", record);
-            throw new DatabaseException("Failed to insert climate record", e);
+            Logger.error(e, "Error inserting batch of {} records.", records.size());
+            throw new DatabaseException("Failed to insert climate records", e);
+        } finally {
+            for (Connection connection : connections) {
+                restoreAutoCommitAndClose(connection);
+            }
+        }
+    }
+
+    /**
+     * Inserts a reading, or replaces the stored reading of the same location and day if its values
+     * differ. Replaying a reading that is already stored changes nothing.
+     * <p>
+     * A new reading, the common case, is stored with a plain INSERT; only a reading whose location
+     * and day are already stored goes through {@link #upsertClimateRecords(List)}.
+     * </p>
+     *
+     * @param record the reading to store; receives the ID of the stored row if it was inserted or updated
+     * @return the counts of inserted, updated and unchanged readings
+     * @throws DatabaseException if an error occurs while storing the reading
+     */
+    public UpsertResult upsertClimateRecord(ClimateRecord record) throws DatabaseException {
+        try {
+            if (insertRow(record)) {
+                return new UpsertResult(1, 0, 0);
+            }
+        } catch (SQLException e) {
+            if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                Logger.error(e, "Error inserting record: {}", record);
+                throw new DatabaseException("Failed to upsert climate records", e);
+            }
+        }
+        return upsertClimateRecords(Collections.singletonList(record));
+    }
+
+    /**
+     * Inserts readings, replacing the stored readings of the same location and day whose values
+     * differ, with one set-based statement per shard. Re-sent feeds can be ingested again without
+     * creating duplicates, and the readings that are already stored cost no write.
+     * <p>
+     * Every shard's statement runs in its own transaction and the transactions are committed only
+     * after all statements have succeeded, as in {@link #insertClimateRecords(List)}. If the list
+     * holds several readings of the same location and day, the last one wins and the others count
+     * as unchanged. Listeners see inserts and updates; unchanged readings are not reported.
+     * </p>
+     *
+     * @param records the readings to store; each receives the ID of its row if it was inserted or updated
+     * @return the counts of inserted, updated and unchanged readings
+     * @throws DatabaseException if an error occurs; no reading is stored in that case
+     */
+    public UpsertResult upsertClimateRecords(List<ClimateRecord> records) throws DatabaseException {
+        Map<Integer, Map<String, ClimateRecord>> recordsByShard = new LinkedHashMap<>();
+        for (ClimateRecord record : records) {
+            recordsByShard.computeIfAbsent(shardRouter.shardForLocation(record.getLocation()), shard -> new LinkedHashMap<>())
+                    .put(naturalKey(record.getLocation(), record.getDate()), record);
+        }
+
+        List<Connection> connections = new ArrayList<>();
+        List<ClimateRecord> inserted = new ArrayList<>();
+        List<ClimateRecord> updated = new ArrayList<>();
+        try {
+            try {
+                for (Map.Entry<Integer, Map<String, ClimateRecord>> shardRecords : recordsByShard.entrySet()) {
+                    Connection connection = getConnection(shardRecords.getKey());
+                    connections.add(connection);
+                    connection.setAutoCommit(false);
+                    upsertShard(connection, shardRecords.getKey(), shardRecords.getValue(), inserted, updated);
+                }
+                for (Connection connection : connections) {
+                    connection.commit();
+                }
+            } catch (SQLException e) {
+                for (Connection connection : connections) {
+                    rollbackQuietly(connection);
+                }
+                throw e;
+            }
+            UpsertResult result = new UpsertResult(inserted.size(), updated.size(),
+                    records.size() - inserted.size() - updated.size());
+            Logger.info("Upserted {} records into {} shards: {} inserted, {} updated, {} unchanged.", records.size(),
+                    recordsByShard.size(), result.getInserted(), result.getUpdated(), result.getUnchanged());
+            inserted.forEach(this::fireRecordInserted);
+            updated.forEach(this::fireRecordUpdated);
+            return result;
+
+        } catch (SQLException e) {
+            Logger.error(e, "Error upserting batch of {} records.", records.size());
+            throw new DatabaseException("Failed to upsert climate records", e);
+        } finally {
+            for (Connection connection : connections) {
+                restoreAutoCommitAndClose(connection);
+            }
+        }
+    }
+
+    /**
+     * Upserts the readings of one shard with a single statement and sorts the changed readings
+     * into inserted and updated ones.
+     *
+     * @param connection the connection to the shard
+     * @param shard the shard index
+     * @param records the readings of the shard by natural key
+     * @param inserted receives the inserted readings
+     * @param updated receives the updated readings
+     * @throws SQLException if the statement fails
+     */
+    private void upsertShard(Connection connection, int shard, Map<String, ClimateRecord> records,
+            List<ClimateRecord> inserted, List<ClimateRecord> updated) throws SQLException {
+        int size = records.size();
+        Date[] dates = new Date[size];
+        String[] locations = new String[size];
+        Float[] temperatures = new Float[size];
+        Float[] winds = new Float[size];
+        int i = 0;
+        for (ClimateRecord record : records.values()) {
+            dates[i] = Date.valueOf(record.getDate());
+            locations[i] = record.getLocation();
+            temperatures[i] = record.getTemperature();
+            winds[i] = record.getWind();
+            i++;
+        }
+
+        try (PreparedStatement statement = connection.prepareStatement(UPSERT);
+             QueryMonitor.Execution execution = queryMonitor.start(statement, "upsertClimateRecords", shard, UPSERT,
+                     dates, locations, temperatures, winds)) {
+            statement.setArray(1, connection.createArrayOf("date", dates));
+            statement.setArray(2, connection.createArrayOf("varchar", locations));
+            statement.setArray(3, connection.createArrayOf("float4", temperatures));
+            statement.setArray(4, connection.createArrayOf("float4", winds));
+            int rows = 0;
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ClimateRecord record = records.get(naturalKey(resultSet.getString("location"), resultSet.getString("date")));
+                    record.setId(resultSet.getInt("id"));
+                    (resultSet.getBoolean("inserted") ? inserted : updated).add(record);
+                    rows++;
+                }
+            }
+            execution.setRows(rows);
+        }
+    }
+
+    /**
+     * Returns the key under which a reading is unique.
+     *
+     * @param location the location of the reading
+     * @param date the date of the reading in yyyy-MM-dd format
+     * @return the key
+     */
+    private static String naturalKey(String location, String date) {
+        return location + '\u0000' + date;
+    }
+
+    /**
+     * Reports a write that failed because another reading of the record's location and date is
+     * stored, which is a problem with the request rather than with the database.
+     *
+     * @param e the error of the write
+     * @param record the record that was written
+     * @throws InvalidArgumentsException if the error is a unique constraint violation
+     */
+    private static void checkUniqueViolation(SQLException e, ClimateRecord record) throws InvalidArgumentsException {
+        if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+            Logger.warn("Rejected record {}: a reading of {} on {} is already stored.", record, record.getLocation(),
+                    record.getDate());
+            throw new InvalidArgumentsException("A reading of " + record.getLocation() + " on " + record.getDate()
+                    + " already exists.", e);
         }
     }
 
@@ -56,23 +473,91 @@ public class ClimateRecordDAO {
      * @param record the climate record to be updated
      * @return true if the record was updated successfully, false otherwise
      * @throws DatabaseException if an error occurs during the update process
+     * @throws InvalidArgumentsException if another reading of the record's location and date is stored
      */
-    public boolean updateClimateRecord(ClimateRecord record) throws DatabaseException {
+    public boolean updateClimateRecord(ClimateRecord record) throws DatabaseException, InvalidArgumentsException {
+        int currentShard = shardRouter.shardForId(record.getId());
+        int targetShard = shardRouter.shardForLocation(record.getLocation());
+        if (currentShard != targetShard) {
+            return moveClimateRecord(record, currentShard, targetShard);
+        }
+
         String sql = "UPDATE climate_data SET date = ?, location = ?, temp = ?, wind = ? WHERE id = ?";
-        try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        try (Connection connection = getConnection(currentShard);
+             PreparedStatement statement = connection.prepareStatement(sql);
+             QueryMonitor.Execution execution = queryMonitor.start(statement, "updateClimateRecord", currentShard, sql,
+                     record.getDate(), record.getLocation(), record.getTemperature(), record.getWind(), record.getId())) {
 
             setStatementParams(statement, record, true);
             boolean rowUpdated = statement.executeUpdate() > 0;
+            execution.setRows(rowUpdated ? 1 : 0);
             Logger.info("Record updated successfully: {}", record);
+            if (rowUpdated) {
+                fireRecordUpdated(record);
+            }
             return rowUpdated;
 
         } catch (SQLException e) {
+            checkUniqueViolation(e, record);
             Logger.error(e, "Error updating record: {}", record);
             throw new DatabaseException("Failed to update climate record", e);
         }
     }
 
+    /**
+     * Moves a record whose location now belongs to another shard. The record is deleted from its
+     * current shard and inserted into the target shard, where it receives a new ID from that shard's
+     * sequence; the delete is committed only after the insert has succeeded. Listeners see the move
+     * as a deletion of the old ID followed by an insertion.
+     *
+     * @param record the updated record, carrying its current ID
+     * @param currentShard the shard that stores the record
+     * @param targetShard the shard of the record's new location
+     * @return true if the record existed and was moved, false otherwise
+     * @throws DatabaseException if an error occurs while moving the record
+     * @throws InvalidArgumentsException if the target shard stores a reading of the record's location and date
+     */
+    private boolean moveClimateRecord(ClimateRecord record, int currentShard, int targetShard)
+            throws DatabaseException, InvalidArgumentsException {
+        int oldId = record.getId();
+        Connection source = null;
+        try {
+            source = getConnection(currentShard);
+            source.setAutoCommit(false);
+            try (PreparedStatement delete = source.prepareStatement("DELETE FROM climate_data WHERE id = ?")) {
+                delete.setInt(1, oldId);
+                if (delete.executeUpdate() == 0) {
+                    source.rollback();
+                    return false;
+                }
+            }
+            try (Connection target = getConnection(targetShard);
+                 PreparedStatement insert = target.prepareStatement(
+                         "INSERT INTO climate_data (date, location, temp, wind) VALUES (?, ?, ?, ?)", GENERATED_ID_COLUMNS)) {
+                setStatementParams(insert, record, false);
+                insert.executeUpdate();
+                assignGeneratedIds(insert, Collections.singletonList(record));
+            } catch (SQLException e) {
+                source.rollback();
+                throw e;
+            }
+            source.commit();
+            Logger.info("Record {} moved from shard {} to shard {}: {}", oldId, currentShard, targetShard, record);
+            fireRecordDeleted(oldId);
+            fireRecordInserted(record);
+            return true;
+
+        } catch (SQLException e) {
+            checkUniqueViolation(e, record);
+            Logger.error(e, "Error moving record: {}", record);
+            throw new DatabaseException("Failed to update climate record", e);
+        } finally {
+            if (source != null) {
+                restoreAutoCommitAndClose(source);
+            }
+        }
+    }
+
     /**
      * Deletes a climate record from the database based on its ID.
      *
@@ -82,12 +567,18 @@ public class ClimateRecordDAO {
      */
     public boolean deleteClimateRecord(int id) throws DatabaseException {
         String sql = "DELETE FROM climate_data WHERE id = ?";
-        try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        int shard = shardRouter.shardForId(id);
+        try (Connection connection = getConnection(shard);
+             PreparedStatement statement = connection.prepareStatement(sql);
+             QueryMonitor.Execution execution = queryMonitor.start(statement, "deleteClimateRecord", shard, sql, id)) {
 
             statement.setInt(1, id);
             boolean rowDeleted = statement.executeUpdate() > 0;
+            execution.setRows(rowDeleted ? 1 : 0);
             Logger.info("Record deleted with ID: {}", id);
+            if (rowDeleted) {
+                fireRecordDeleted(id);
+            }
             return rowDeleted;
 
         } catch (SQLException e) {
@@ -106,14 +597,18 @@ public class ClimateRecordDAO {
      */
     public ClimateRecord getClimateRecord(int id) throws DatabaseException, InvalidArgumentsException {
         String sql = "SELECT * FROM climate_data WHERE id = ?";
-        try (Connection connection = getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
+        int shard = shardRouter.shardForId(id);
+        try (Connection connection = getConnection(shard);
+             PreparedStatement statement = connection.prepareStatement(sql);
+             QueryMonitor.Execution execution = queryMonitor.start(statement, "getClimateRecord", shard, sql, id)) {
 
             statement.setInt(1, id);
             try (ResultSet resultSet = statement.executeQuery()) {
                 if (resultSet.next()) {
+                    execution.setRows(1);
                     return mapResultSetToClimateRecord(resultSet);
                 } else {
+                    execution.setRows(0);
                     Logger.warn("No record found for ID: {}", id);
                     return null;
                 }
@@ -126,28 +621,586 @@ public class ClimateRecordDAO {
     }
 
     /**
-     * Retrieves all climate records from the database.
+     * Moves one batch of readings older than a cutoff date from a shard's live table to its archive
+     * table and merges them into the daily per-location aggregates, in a single transaction.
+     * <p>
+     * The batch is bounded and rows locked by concurrent writes are skipped, so the transaction
+     * is short and never waits for a request. Listeners are notified of the batch as a whole, not of
+     * each reading; the readings reappear as daily means in the next read.
+     * </p>
+     *
+     * @param shard the shard to compact
+     * @param cutoffDate the first date to keep as raw readings, in yyyy-MM-dd format
+     * @param batchSize the largest number of readings to move
+     * @return the number of readings moved; less than the batch size once the shard is compacted
+     * @throws DatabaseException if an error occurs while moving the readings
+     */
+    public int archiveRecordsBefore(int shard, String cutoffDate, int batchSize) throws DatabaseException {
+        try (Connection connection = getConnection(shard);
+             PreparedStatement statement = connection.prepareStatement(ARCHIVE_BATCH);
+             QueryMonitor.Execution execution = queryMonitor.start(statement, "archiveRecordsBefore", shard, ARCHIVE_BATCH,
+                     Date.valueOf(cutoffDate), batchSize)) {
+
+            statement.setDate(1, Date.valueOf(cutoffDate));
+            statement.setInt(2, batchSize);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                int moved = resultSet.next() ? resultSet.getInt(1) : 0;
+                execution.setRows(moved);
+                if (moved > 0) {
+                    fireRecordsArchived(cutoffDate);
+                }
+                return moved;
+            }
+
+        } catch (SQLException e) {
+            Logger.error(e, "Error archiving records before {} on shard {}.", cutoffDate, shard);
+            throw new DatabaseException("Failed to archive climate records", e);
+        }
+    }
+
+    /**
+     * Retrieves the oldest readings of a shard's archive table that have not yet been moved to
+     * segment files, ordered by location, date and ID.
+     *
+     * @param shard the shard to read
+     * @param limit the largest number of readings to return
+     * @return the archived readings
+     * @throws DatabaseException if an error occurs while retrieving the readings
+     * @throws InvalidArgumentsException if an archived reading holds invalid data
+     */
+    public List<ClimateRecord> listArchivedRecords(int shard, int limit) throws DatabaseException, InvalidArgumentsException {
+        String sql = "SELECT id, date, location, temp, wind FROM climate_data_archive ORDER BY location, date, id LIMIT ?";
+        try (Connection connection = getConnection(shard);
+             PreparedStatement statement = connection.prepareStatement(sql);
+             QueryMonitor.Execution execution = queryMonitor.start(statement, "listArchivedRecords", shard, sql, limit)) {
+
+            statement.setInt(1, limit);
+            List<ClimateRecord> records = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    records.add(mapResultSetToClimateRecord(resultSet));
+                }
+            }
+            execution.setRows(records.size());
+            return records;
+
+        } catch (SQLException e) {
+            Logger.error(e, "Error reading archived records on shard {}.", shard);
+            throw new DatabaseException("Failed to retrieve archived climate records", e);
+        }
+    }
+
+    /**
+     * Deletes readings from a shard's archive table once they are stored elsewhere.
+     *
+     * @param shard the shard to delete from
+     * @param ids the IDs of the readings to delete
+     * @return the number of readings deleted
+     * @throws DatabaseException if an error occurs while deleting the readings
+     */
+    public int deleteArchivedRecords(int shard, List<Integer> ids) throws DatabaseException {
+        String sql = "DELETE FROM climate_data_archive WHERE id = ANY(?)";
+        try (Connection connection = getConnection(shard);
+             PreparedStatement statement = connection.prepareStatement(sql);
+             QueryMonitor.Execution execution = queryMonitor.start(statement, "deleteArchivedRecords", shard, sql, ids)) {
+
+            statement.setArray(1, connection.createArrayOf("integer", ids.toArray()));
+            int deleted = statement.executeUpdate();
+            execution.setRows(deleted);
+            return deleted;
+
+        } catch (SQLException e) {
+            Logger.error(e, "Error deleting {} archived records on shard {}.", ids.size(), shard);
+            throw new DatabaseException("Failed to delete archived climate records", e);
+        }
+    }
+
+    /**
+     * Retrieves all climate records from the database, including the daily means of archived
+     * readings, ordered by date and ID.
      *
      * @return a list of all climate records in the database
+     * @throws ResultTooLargeException if the records exceed the result budget; use
+     *         {@link #openAllClimateRecords()} to stream them
      * @throws DatabaseException if an error occurs while retrieving the records
-     * @throws InvalidArgumentsException 
+     * @throws InvalidArgumentsException if a stored record holds invalid data
      */
     public List<ClimateRecord> listAllClimateRecords() throws DatabaseException, InvalidArgumentsException {
-        List<ClimateRecord> records = new ArrayList<>();
-        String sql = "SELECT * FROM climate_data";
+        List<ClimateRecord> records = drain(openAllClimateRecords(), "all_records");
+        Logger.info("All records retrieved successfully.");
+        return records;
+    }
+
+    /**
+     * Opens a cursor over all climate records, including the daily means of archived readings,
+     * ordered by date and ID. Rows are fetched in batches
+     * while the caller iterates, so the records are never held in memory all at once.
+     *
+     * @return an open cursor; the caller must close it
+     * @throws DatabaseException if an error occurs while executing the query
+     */
+    public ClimateRecordCursor openAllClimateRecords() throws DatabaseException {
+        return scatter("openAllClimateRecords", ALL_TIERS + SCAN_ORDER, null);
+    }
+
+    /**
+     * Opens a cursor over the raw readings that are still in the live table, ordered by date and ID,
+     * without the daily means of archived readings.
+     *
+     * @return an open cursor; the caller must close it
+     * @throws DatabaseException if an error occurs while executing the query
+     */
+    public ClimateRecordCursor openRawClimateRecords() throws DatabaseException {
+        return scatter("openRawClimateRecords", "SELECT id, date, location, temp, wind FROM climate_data" + SCAN_ORDER, null);
+    }
 
-        try (Connection connection = getConnection();
-             Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery(sql)) {
+    /**
+     * Opens a cursor over the raw readings of the live table and of the archive table, together
+     * with the daily means of archived readings, ordered by date and ID. The archive table holds
+     * the readings that have not been moved to a {@link SegmentArchive} yet.
+     *
+     * @return an open cursor; the caller must close it
+     * @throws DatabaseException if an error occurs while executing the query
+     */
+    public ClimateRecordCursor openRecordsWithArchivedReadings() throws DatabaseException {
+        return scatter("openRecordsWithArchivedReadings", ALL_TIERS_WITH_ARCHIVE + SCAN_ORDER, null);
+    }
 
-            while (resultSet.next()) {
-                records.add(mapResultSetToClimateRecord(resultSet));
+    /**
+     * Opens a cursor over the raw readings from a date on, ordered by date and ID.
+     *
+     * @param fromDate the first date to return in yyyy-MM-dd format
+     * @return an open cursor; the caller must close it
+     * @throws DatabaseException if an error occurs while executing the query
+     */
+    public ClimateRecordCursor openRawClimateRecordsSince(String fromDate) throws DatabaseException {
+        return scatter("openRawClimateRecordsSince",
+                "SELECT id, date, location, temp, wind FROM climate_data WHERE date >= ?" + SCAN_ORDER, Date.valueOf(fromDate));
+    }
+
+    /**
+     * Adds up the maintained per-location and per-month record counters of all shards, which
+     * count the raw readings and the daily means. The counter table holds one row per location and
+     * month, so this never scans the records.
+     *
+     * @return the exact number of records, or null if a shard has no counter table
+     * @throws DatabaseException if an error occurs while reading the counters
+     */
+    public Long sumRecordCounters() throws DatabaseException {
+        String sql = "SELECT coalesce(sum(row_count), 0) FROM climate_data_counts";
+        long total = 0;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            try (Connection connection = getConnection(shard);
+                 PreparedStatement statement = connection.prepareStatement(sql);
+                 QueryMonitor.Execution execution = queryMonitor.start(statement, "sumRecordCounters", shard, sql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                total += resultSet.getLong(1);
+                execution.setRows(1);
+            } catch (SQLException e) {
+                if (UNDEFINED_TABLE_STATES.contains(e.getSQLState())) {
+                    Logger.warn("Shard {} has no record counters; run sql-scripts/create-record-counts.sql.", shard);
+                    return null;
+                }
+                Logger.error(e, "Error reading the record counters of shard {}.", shard);
+                throw new DatabaseException("Failed to count climate records", e);
             }
-            Logger.info("All records retrieved successfully.");
-            return records;
+        }
+        return total;
+    }
+
+    /**
+     * Estimates the number of records from the row counts the planner keeps in {@code pg_class},
+     * which are refreshed by {@code VACUUM} and {@code ANALYZE}.
+     *
+     * @return the estimated number of raw readings and daily means; 0 for tables never analyzed
+     * @throws DatabaseException if an error occurs while reading the estimates
+     */
+    public long estimateRecordCount() throws DatabaseException {
+        // reltuples is -1 for a table that has never been vacuumed or analyzed
+        String sql = "SELECT coalesce(sum(greatest(reltuples, 0)), 0)::bigint FROM pg_class"
+                + " WHERE oid IN ('climate_data'::regclass, 'climate_data_daily'::regclass)";
+        long total = 0;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            try (Connection connection = getConnection(shard);
+                 PreparedStatement statement = connection.prepareStatement(sql);
+                 QueryMonitor.Execution execution = queryMonitor.start(statement, "estimateRecordCount", shard, sql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                total += resultSet.getLong(1);
+                execution.setRows(1);
+            } catch (SQLException e) {
+                Logger.error(e, "Error reading the row estimates of shard {}.", shard);
+                throw new DatabaseException("Failed to estimate climate records", e);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Adds up the record counters of the locations matching a city, read from the city's shard or,
+     * for a LIKE pattern, from all shards.
+     *
+     * @param city the location to match
+     * @return the number of records of the matching locations, or null if a shard has no counter
+     *         table
+     * @throws DatabaseException if an error occurs while reading the counters
+     */
+    public Long sumRecordCounters(String city) throws DatabaseException {
+        String sql = "SELECT coalesce(sum(row_count), 0) FROM climate_data_counts WHERE location like ?";
+        long total = 0;
+        for (int shard : shardsForCity(city)) {
+            try (Connection connection = getConnection(shard);
+                 PreparedStatement statement = connection.prepareStatement(sql);
+                 QueryMonitor.Execution execution = queryMonitor.start(statement, "sumRecordCounters", shard, sql, city)) {
+
+                statement.setString(1, city);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    total += resultSet.getLong(1);
+                    execution.setRows(1);
+                }
+            } catch (SQLException e) {
+                if (UNDEFINED_TABLE_STATES.contains(e.getSQLState())) {
+                    Logger.warn("Shard {} has no record counters; run sql-scripts/create-record-counts.sql.", shard);
+                    return null;
+                }
+                Logger.error(e, "Error reading the record counters of shard {}.", shard);
+                throw new DatabaseException("Failed to count climate records", e);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Estimates the number of records of the locations matching a city from the planner's row
+     * estimate for the query of {@link #openRecordsByCity(String)}, without running it.
+     *
+     * @param city the location to match
+     * @return the estimated number of records
+     * @throws DatabaseException if an error occurs while planning the query
+     */
+    public long estimateRecordCount(String city) throws DatabaseException {
+        String sql = "EXPLAIN " + ALL_TIERS + " WHERE location like ?";
+        long total = 0;
+        for (int shard : shardsForCity(city)) {
+            try (Connection connection = getConnection(shard);
+                 PreparedStatement statement = connection.prepareStatement(sql);
+                 QueryMonitor.Execution execution = queryMonitor.start(statement, "estimateRecordCount", shard, sql, city)) {
+
+                statement.setString(1, city);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    // The first line describes the top plan node: "... (cost=0.00..1.23 rows=456 width=32)"
+                    if (resultSet.next()) {
+                        Matcher rows = PLAN_ROWS.matcher(resultSet.getString(1));
+                        if (rows.find()) {
+                            total += Long.parseLong(rows.group(1));
+                        }
+                    }
+                    execution.setRows(1);
+                }
+            } catch (SQLException e) {
+                Logger.error(e, "Error estimating the records of {} on shard {}.", city, shard);
+                throw new DatabaseException("Failed to estimate climate records", e);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the shards that may hold locations matching a city: the city's shard for a plain
+     * name, all shards for a LIKE pattern.
+     *
+     * @param city the location to match
+     * @return the shard numbers
+     */
+    private int[] shardsForCity(String city) {
+        if (city.indexOf('%') >= 0 || city.indexOf('_') >= 0) {
+            int[] shards = new int[shardRouter.getShardCount()];
+            for (int shard = 0; shard < shards.length; shard++) {
+                shards[shard] = shard;
+            }
+            return shards;
+        }
+        return new int[] {shardRouter.shardForLocation(city)};
+    }
+
+    /**
+     * Reads the coordinates of the weather stations. The station table is small reference data and
+     * may be kept on any shard or on all of them; the stations of every shard that has the table
+     * are combined, the first shard winning for a location listed twice.
+     *
+     * @return the stations ordered by location; empty if no shard has a station table
+     * @throws DatabaseException if an error occurs while reading the stations
+     * @throws InvalidArgumentsException if a stored station has invalid coordinates
+     */
+    public List<Station> listStations() throws DatabaseException, InvalidArgumentsException {
+        String sql = "SELECT location, latitude, longitude FROM stations";
+        Map<String, Station> stations = new TreeMap<>();
+        int missing = 0;
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            try (Connection connection = getConnection(shard);
+                 PreparedStatement statement = connection.prepareStatement(sql);
+                 QueryMonitor.Execution execution = queryMonitor.start(statement, "listStations", shard, sql);
+                 ResultSet resultSet = statement.executeQuery()) {
+                int rows = 0;
+                while (resultSet.next()) {
+                    Station station = new Station(resultSet.getString("location"),
+                            resultSet.getDouble("latitude"), resultSet.getDouble("longitude"));
+                    stations.putIfAbsent(station.getLocation(), station);
+                    rows++;
+                }
+                execution.setRows(rows);
+            } catch (SQLException e) {
+                if (UNDEFINED_TABLE_STATES.contains(e.getSQLState())) {
+                    missing++;
+                    continue;
+                }
+                Logger.error(e, "Error reading the stations of shard {}.", shard);
+                throw new DatabaseException("Failed to retrieve stations", e);
+            }
+        }
+        if (missing == shardRouter.getShardCount()) {
+            Logger.warn("No shard has a station table; run sql-scripts/create-stations.sql.");
+        }
+        return new ArrayList<>(stations.values());
+    }
+
+    /**
+     * Opens a connection to every shard and checks that it is usable, so that the driver, the
+     * network path and the server's authentication are warmed up before the first request.
+     *
+     * @param timeoutSeconds the time to wait for each shard to answer
+     * @return the number of shards checked
+     * @throws DatabaseException if a shard cannot be reached
+     */
+    public int checkConnections(int timeoutSeconds) throws DatabaseException {
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            try (Connection connection = getConnection(shard)) {
+                if (!connection.isValid(timeoutSeconds)) {
+                    throw new SQLException("Connection to shard " + shard + " is not valid");
+                }
+            } catch (SQLException e) {
+                Logger.error(e, "Error checking the connection to shard {}.", shard);
+                throw new DatabaseException("Failed to connect to the database", e);
+            }
+        }
+        return shardRouter.getShardCount();
+    }
+
+    /**
+     * Opens a cursor over the climate records of a city. A plain city name is looked up on the
+     * city's shard; a LIKE pattern may match locations on any shard and is sent to all of them.
+     *
+     * @param city the location to match
+     * @return an open cursor; the caller must close it
+     * @throws DatabaseException if an error occurs while executing the query
+     */
+    public ClimateRecordCursor openRecordsByCity(String city) throws DatabaseException {
+        String sql = ALL_TIERS + " WHERE location like ?" + SCAN_ORDER;
+        if (city.indexOf('%') >= 0 || city.indexOf('_') >= 0) {
+            return scatter("openRecordsByCity", sql, city);
+        }
+        return openCursor(shardRouter.shardForLocation(city), "openRecordsByCity", sql, city);
+    }
+
+    /**
+     * Opens a cursor over the climate records of several locations in a date range, ordered by
+     * location, date and ID. Each shard holding one of the locations is queried once with all of
+     * its locations as an array parameter, so comparing N cities costs one round trip per shard
+     * instead of N queries.
+     *
+     * @param locations the locations to read
+     * @param fromDate the first date of the range in yyyy-MM-dd format, or null with {@code toDate}
+     *        for all dates
+     * @param toDate the last date of the range in yyyy-MM-dd format, or null with {@code fromDate}
+     * @return an open cursor; the caller must close it
+     * @throws DatabaseException if an error occurs while executing the query
+     * @throws IllegalArgumentException if no location is given, a date is not in yyyy-MM-dd format,
+     *         or only one end of the range is given
+     */
+    public ClimateRecordCursor openRecordsByCities(Collection<String> locations, String fromDate, String toDate)
+            throws DatabaseException {
+        if (locations.isEmpty()) {
+            throw new IllegalArgumentException("At least one location is required");
+        }
+        if ((fromDate == null) != (toDate == null)) {
+            throw new IllegalArgumentException("A date range needs both a start and an end date");
+        }
+        boolean allDates = fromDate == null;
+        String sql = ALL_TIERS + " WHERE location = ANY(?)" + (allDates ? "" : " AND date BETWEEN ? AND ?")
+                + " ORDER BY location, date, id";
+        Map<Integer, List<String>> locationsByShard = new TreeMap<>();
+        for (String location : new TreeSet<>(locations)) {
+            locationsByShard.computeIfAbsent(shardRouter.shardForLocation(location), k -> new ArrayList<>()).add(location);
+        }
+        Date from = allDates ? null : Date.valueOf(fromDate);
+        Date to = allDates ? null : Date.valueOf(toDate);
+        Map<Integer, Object[]> parametersByShard = new TreeMap<>();
+        locationsByShard.forEach((shard, shardLocations) -> parametersByShard.put(shard, allDates
+                ? new Object[] {shardLocations.toArray(new String[0])}
+                : new Object[] {shardLocations.toArray(new String[0]), from, to}));
+        return gather("openRecordsByCities", sql, parametersByShard, MergedRecordCursor.BY_LOCATION_DATE_AND_ID);
+    }
+
+    /**
+     * Opens a cursor over the climate records of all locations, ordered by location, date and ID,
+     * so that each location's records can be consumed as one date-ordered run. Every shard sorts its
+     * own rows and the shards are merged as they are streamed.
+     *
+     * @param withArchivedReadings whether to include the raw readings of the archive table, as
+     *        {@link #openRecordsWithArchivedReadings()} does
+     * @return an open cursor; the caller must close it
+     * @throws DatabaseException if an error occurs while executing the query
+     */
+    public ClimateRecordCursor openRecordsByLocation(boolean withArchivedReadings) throws DatabaseException {
+        String sql = (withArchivedReadings ? ALL_TIERS_WITH_ARCHIVE : ALL_TIERS) + " ORDER BY location, date, id";
+        Map<Integer, Object[]> parametersByShard = new TreeMap<>();
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            parametersByShard.put(shard, new Object[0]);
+        }
+        return gather("openRecordsByLocation", sql, parametersByShard, MergedRecordCursor.BY_LOCATION_DATE_AND_ID);
+    }
+
+    /**
+     * Runs a query on every shard and merges the ordered results. The shard queries are started
+     * concurrently, so the time to the first row is that of the slowest shard rather than the sum.
+     *
+     * @param method the DAO method running the query, which determines its timeout
+     * @param sql the query, ordered by {@link MergedRecordCursor#BY_DATE_AND_ID}
+     * @param parameter the value for the single placeholder, or null if the query has none
+     * @return an open cursor over all shards
+     * @throws DatabaseException if the query fails on any shard
+     */
+    private ClimateRecordCursor scatter(String method, String sql, Object parameter) throws DatabaseException {
+        Map<Integer, Object[]> parametersByShard = new TreeMap<>();
+        for (int shard = 0; shard < shardRouter.getShardCount(); shard++) {
+            parametersByShard.put(shard, parameter != null ? new Object[] {parameter} : new Object[0]);
+        }
+        return gather(method, sql, parametersByShard, MergedRecordCursor.BY_DATE_AND_ID);
+    }
+
+    /**
+     * Runs a query on a set of shards, each with its own parameters, and merges the ordered results.
+     * The shard queries are started concurrently.
+     *
+     * @param method the DAO method running the query, which determines its timeout
+     * @param sql the query, ordered by {@code order}
+     * @param parametersByShard the placeholder values of each shard to query
+     * @param order the order of the query's rows
+     * @return an open cursor over the shards
+     * @throws DatabaseException if the query fails on any shard
+     */
+    private ClimateRecordCursor gather(String method, String sql, Map<Integer, Object[]> parametersByShard,
+            Comparator<ClimateRecord> order) throws DatabaseException {
+        if (parametersByShard.size() == 1) {
+            Map.Entry<Integer, Object[]> only = parametersByShard.entrySet().iterator().next();
+            return openCursor(only.getKey(), method, sql, only.getValue());
+        }
+
+        List<Future<ClimateRecordCursor>> pending = new ArrayList<>(parametersByShard.size());
+        for (Map.Entry<Integer, Object[]> target : parametersByShard.entrySet()) {
+            pending.add(SCATTER_EXECUTOR.submit(() -> openCursor(target.getKey(), method, sql, target.getValue())));
+        }
+        List<ClimateRecordCursor> cursors = new ArrayList<>(pending.size());
+        DatabaseException failure = null;
+        for (Future<ClimateRecordCursor> future : pending) {
+            try {
+                cursors.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof DatabaseException ? (DatabaseException) e.getCause()
+                            : new DatabaseException("Failed to retrieve climate records", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (failure == null) {
+                    failure = new DatabaseException("Interrupted while retrieving climate records", e);
+                }
+            }
+        }
+        if (failure != null) {
+            cursors.forEach(ClimateRecordCursor::close);
+            throw failure;
+        }
+        try {
+            return new MergedRecordCursor(cursors, order);
+        } catch (IllegalStateException e) {
+            throw new DatabaseException("Failed to retrieve climate records", e.getCause());
+        }
+    }
+
+    /**
+     * Reads every record from a cursor into a list and closes the cursor. The result budget is
+     * checked after each record, so an oversized result is abandoned as soon as it exceeds it.
+     *
+     * @param cursor the cursor to read
+     * @param query the name of the query, counted when the budget is exceeded
+     * @return the records
+     * @throws ResultTooLargeException if the records exceed the result budget
+     * @throws DatabaseException if a row cannot be read
+     * @throws InvalidArgumentsException if a stored record holds invalid data
+     */
+    private List<ClimateRecord> drain(ClimateRecordCursor cursor, String query)
+            throws DatabaseException, InvalidArgumentsException {
+        ResultBudget budget = resultBudget;
+        // Rows are fetched as the cursor advances, so the span covers fetching and mapping them
+        try (ClimateRecordCursor records = cursor; Span span = Tracer.startSpan("map rows", Span.Kind.INTERNAL)) {
+            List<ClimateRecord> list = new ArrayList<>();
+            long bytes = 0;
+            while (records.hasNext()) {
+                ClimateRecord record = records.next();
+                list.add(record);
+                bytes += ResultBudget.estimateBytes(record);
+                budget.check(query, list.size(), bytes);
+            }
+            span.setAttribute("db.rows", list.size());
+            return list;
+        } catch (IllegalStateException e) {
+            Logger.error(e, "Error reading climate records.");
+            throw ClimateRecordCursor.readFailure(e);
+        }
+    }
+
+    /**
+     * Executes a query on one shard and wraps the result in a cursor. String arrays are bound as
+     * SQL arrays, for {@code = ANY(?)} conditions.
+     * <p>
+     * PostgreSQL only streams rows with a fetch size when auto-commit is off, so the query runs in a
+     * read-only transaction that ends when the cursor is closed.
+     * </p>
+     *
+     * @param shard the shard to query
+     * @param method the DAO method running the query, which determines its timeout
+     * @param sql the query
+     * @param parameters the values for the placeholders, in order
+     * @return an open cursor
+     * @throws DatabaseException if an error occurs while executing the query
+     */
+    private ClimateRecordCursor openCursor(int shard, String method, String sql, Object... parameters) throws DatabaseException {
+        Connection connection = null;
+        QueryMonitor.Execution execution = null;
+        try {
+            connection = getConnection(shard);
+            connection.setAutoCommit(false);
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            execution = queryMonitor.start(statement, method, shard, sql, parameters);
+            for (int i = 0; i < parameters.length; i++) {
+                if (parameters[i] instanceof String[]) {
+                    statement.setArray(i + 1, connection.createArrayOf("varchar", (String[]) parameters[i]));
+                } else {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+            }
+            return new ResultSetRecordCursor(connection, statement, statement.executeQuery(), true, execution);
 
         } catch (SQLException e) {
-            Logger.error(e, "Error listing records.");
+            Logger.error(e, "Error opening cursor on shard {} for query: {}", shard, sql);
+            if (execution != null) {
+                execution.close();
+            }
+            DBUtils.closeConnection(connection);
             throw new DatabaseException("Failed to retrieve climate records", e);
         }
     }
@@ -178,7 +1231,7 @@ public class ClimateRecordDAO {
      * @throws SQLException if an error occurs while mapping the ResultSet
      * @throws InvalidArgumentsException 
      */
-    private ClimateRecord mapResultSetToClimateRecord(ResultSet resultSet) throws SQLException, InvalidArgumentsException {
+    static ClimateRecord mapResultSetToClimateRecord(ResultSet resultSet) throws SQLException, InvalidArgumentsException {
         int id = resultSet.getInt("id");
         String date = resultSet.getString("date");
         String location = resultSet.getString("location");
@@ -188,38 +1241,148 @@ public class ClimateRecordDAO {
     }
 
     /**
-     * Returns a connection to the database. If the connection is null or closed, a new connection is created.
+     * Copies the IDs generated by an insert into the inserted records, in insertion order.
      *
-     * @return the database connection
-     * @throws SQLException if an error occurs while establishing the connection
+     * @param statement the executed insert statement
+     * @param records the inserted records
+     * @throws SQLException if the generated keys cannot be read
      */
-    private Connection getConnection() throws SQLException {
-        if (jdbcConnection == null || jdbcConnection.isClosed()) {
-            jdbcConnection = DBUtils.getConnection();
+    private void assignGeneratedIds(Statement statement, List<ClimateRecord> records) throws SQLException {
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            for (int i = 0; keys != null && i < records.size() && keys.next(); i++) {
+                records.get(i).setId(keys.getInt(1));
+            }
         }
-        return jdbcConnection;
     }
 
-	public List<ClimateRecord> getRecordsByCity(String city) throws DatabaseException, InvalidArgumentsException {
-		List<ClimateRecord> records = new ArrayList<>();
-        String sql = "SELECT * FROM climate_data WHERE location like ?";
+    /**
+     * Notifies the registered listeners of an inserted record. Listener failures are logged and ignored.
+     *
+     * @param record the inserted record
+     */
+    private void fireRecordInserted(ClimateRecord record) {
+        for (ClimateRecordListener listener : listeners) {
+            try {
+                listener.recordInserted(record);
+            } catch (RuntimeException e) {
+                Logger.error(e, "Listener failed on insert of record: {}", record);
+            }
+        }
+    }
 
-        try (Connection connection = getConnection();
-        		PreparedStatement statement = connection.prepareStatement(sql)) {
+    /**
+     * Notifies the registered listeners of an updated record. Listener failures are logged and ignored.
+     *
+     * @param record the updated record
+     */
+    void fireRecordUpdated(ClimateRecord record) {
+        for (ClimateRecordListener listener : listeners) {
+            try {
+                listener.recordUpdated(record);
+            } catch (RuntimeException e) {
+                Logger.error(e, "Listener failed on update of record: {}", record);
+            }
+        }
+    }
 
-        	
-        	statement.setString(1, city);
-        	
-        	ResultSet resultSet = statement.executeQuery();
-            while (resultSet.next()) {
-                records.add(mapResultSetToClimateRecord(resultSet));
+    /**
+     * Notifies the registered listeners of a deleted record. Listener failures are logged and ignored.
+     *
+     * @param id the ID of the deleted record
+     */
+    void fireRecordDeleted(int id) {
+        for (ClimateRecordListener listener : listeners) {
+            try {
+                listener.recordDeleted(id);
+            } catch (RuntimeException e) {
+                Logger.error(e, "Listener failed on delete of record with ID: {}", id);
             }
-            Logger.info("All records retrieved successfully based on city.");
-            return records;
+        }
+    }
+
+    /**
+     * Notifies the registered listeners of archived readings. Listener failures are logged and ignored.
+     *
+     * @param cutoffDate the first date kept as raw readings
+     */
+    private void fireRecordsArchived(String cutoffDate) {
+        for (ClimateRecordListener listener : listeners) {
+            try {
+                listener.recordsArchived(cutoffDate);
+            } catch (RuntimeException e) {
+                Logger.error(e, "Listener failed on archive of records before {}", cutoffDate);
+            }
+        }
+    }
+
+    /**
+     * Rolls back the current transaction of a connection, logging any failure.
+     *
+     * @param connection the connection to roll back
+     */
+    private void rollbackQuietly(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            Logger.warn(e, "Error while rolling back transaction.");
+        }
+    }
 
+    /**
+     * Re-enables auto-commit on a connection and closes it, logging any failure.
+     *
+     * @param connection the connection to release
+     */
+    private void restoreAutoCommitAndClose(Connection connection) {
+        try {
+            connection.setAutoCommit(true);
         } catch (SQLException e) {
-            Logger.error(e, "Error listing records based on city");
-            throw new DatabaseException("Failed to retrieve climate records based on city", e);
+            Logger.warn(e, "Error while restoring auto-commit.");
         }
+        DBUtils.closeConnection(connection);
+    }
+
+    /**
+     * Returns a connection to a shard. If no open connection was supplied to the constructor,
+     * a new connection is created for the caller.
+     * <p>
+     * Newly created connections are not cached: the DAO is shared by all request threads and every
+     * caller closes its connection when done, so a shared connection would be closed underneath
+     * concurrent requests.
+     * </p>
+     *
+     * @param shard the shard index
+     * @return the database connection
+     * @throws SQLException if an error occurs while establishing the connection
+     */
+    Connection getConnection(int shard) throws SQLException {
+        if (jdbcConnection != null && !jdbcConnection.isClosed()) {
+            return jdbcConnection;
+        }
+        try (Span span = Tracer.startSpan("db.connect", Span.Kind.CLIENT)) {
+            span.setAttribute("db.system", "postgresql").setAttribute("db.shard", shard);
+            try {
+                return DBUtils.getConnection(shard);
+            } catch (SQLException e) {
+                span.setError(e.getMessage());
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Retrieves the climate records of a city, ordered by date and ID.
+     *
+     * @param city the location to match; may be a LIKE pattern
+     * @return the matching records
+     * @throws ResultTooLargeException if the records exceed the result budget; use
+     *         {@link #openRecordsByCity(String)} to stream them
+     * @throws DatabaseException if an error occurs while retrieving the records
+     * @throws InvalidArgumentsException if a stored record holds invalid data
+     */
+	public List<ClimateRecord> getRecordsByCity(String city) throws DatabaseException, InvalidArgumentsException {
+        List<ClimateRecord> records = drain(openRecordsByCity(city), "records_by_city");
+        Logger.info("All records retrieved successfully based on city.");
+        return records;
 	}
 }
@@ -0,0 +1,41 @@
+package climateinfoapp;
+
+/**
+ * Callback interface for components that react to committed changes in the climate data.
+ * <p>
+ * Listeners are registered with {@link ClimateRecordDAO#addListener(ClimateRecordListener)} and
+ * are invoked synchronously after a write has succeeded. Implementations should be cheap and must
+ * not throw; any failure is logged by the DAO and does not affect the write itself.
+ * </p>
+ */
+public interface ClimateRecordListener {
+
+    /**
+     * Called after a climate record has been inserted.
+     *
+     * @param record the inserted record
+     */
+    default void recordInserted(ClimateRecord record) {}
+
+    /**
+     * Called after a climate record has been updated.
+     *
+     * @param record the updated record
+     */
+    default void recordUpdated(ClimateRecord record) {}
+
+    /**
+     * Called after a climate record has been deleted.
+     *
+     * @param id the ID of the deleted record
+     */
+    default void recordDeleted(int id) {}
+
+    /**
+     * Called after the raw readings before a date have been moved to the archive and rolled up
+     * into daily means on one shard.
+     *
+     * @param cutoffDate the first date kept as raw readings, in yyyy-MM-dd format
+     */
+    default void recordsArchived(String cutoffDate) {}
+}
@@ -0,0 +1,146 @@
+package climateinfoapp;
+
+/**
+ * Running summary of the temperature and wind readings of a group of climate records: count,
+ * sum, minimum, maximum and mean.
+ * <p>
+ * Instances are not thread-safe. Each task of a parallel aggregation fills its own instances and
+ * partial results are combined with {@link #merge(ClimateStats)} once the tasks have joined, so
+ * the readings are never accumulated under a lock.
+ * </p>
+ */
+public class ClimateStats {
+    private long count;
+    private double temperatureSum;
+    private float minTemperature = Float.POSITIVE_INFINITY;
+    private float maxTemperature = Float.NEGATIVE_INFINITY;
+    private double windSum;
+    private float minWind = Float.POSITIVE_INFINITY;
+    private float maxWind = Float.NEGATIVE_INFINITY;
+
+    /**
+     * Adds the readings of a record.
+     *
+     * @param record the record to add
+     */
+    public void add(ClimateRecord record) {
+        float temperature = record.getTemperature();
+        float wind = record.getWind();
+        count++;
+        temperatureSum += temperature;
+        minTemperature = Math.min(minTemperature, temperature);
+        maxTemperature = Math.max(maxTemperature, temperature);
+        windSum += wind;
+        minWind = Math.min(minWind, wind);
+        maxWind = Math.max(maxWind, wind);
+    }
+
+    /**
+     * Adds the readings summarized by another instance.
+     *
+     * @param other the partial result to merge into this one
+     * @return this instance
+     */
+    public ClimateStats merge(ClimateStats other) {
+        count += other.count;
+        temperatureSum += other.temperatureSum;
+        minTemperature = Math.min(minTemperature, other.minTemperature);
+        maxTemperature = Math.max(maxTemperature, other.maxTemperature);
+        windSum += other.windSum;
+        minWind = Math.min(minWind, other.minWind);
+        maxWind = Math.max(maxWind, other.maxWind);
+        return this;
+    }
+
+    /**
+     * Returns the number of records.
+     *
+     * @return the record count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns the sum of the temperatures.
+     *
+     * @return the temperature sum
+     */
+    public double getTemperatureSum() {
+        return temperatureSum;
+    }
+
+    /**
+     * Returns the lowest temperature.
+     *
+     * @return the minimum temperature, or NaN if no record was added
+     */
+    public float getMinTemperature() {
+        return count == 0 ? Float.NaN : minTemperature;
+    }
+
+    /**
+     * Returns the highest temperature.
+     *
+     * @return the maximum temperature, or NaN if no record was added
+     */
+    public float getMaxTemperature() {
+        return count == 0 ? Float.NaN : maxTemperature;
+    }
+
+    /**
+     * Returns the mean temperature.
+     *
+     * @return the mean temperature, or NaN if no record was added
+     */
+    public double getMeanTemperature() {
+        return count == 0 ? Double.NaN : temperatureSum / count;
+    }
+
+    /**
+     * Returns the sum of the wind speeds.
+     *
+     * @return the wind speed sum
+     */
+    public double getWindSum() {
+        return windSum;
+    }
+
+    /**
+     * Returns the lowest wind speed.
+     *
+     * @return the minimum wind speed, or NaN if no record was added
+     */
+    public float getMinWind() {
+        return count == 0 ? Float.NaN : minWind;
+    }
+
+    /**
+     * Returns the highest wind speed.
+     *
+     * @return the maximum wind speed, or NaN if no record was added
+     */
+    public float getMaxWind() {
+        return count == 0 ? Float.NaN : maxWind;
+    }
+
+    /**
+     * Returns the mean wind speed.
+     *
+     * @return the mean wind speed, or NaN if no record was added
+     */
+    public double getMeanWind() {
+        return count == 0 ? Double.NaN : windSum / count;
+    }
+
+    /**
+     * Returns a string representation of the summary.
+     *
+     * @return the count and the temperature and wind summaries
+     */
+    @Override
+    public String toString() {
+        return "ClimateStats [count=" + count + ", temperature=" + getMinTemperature() + "/" + getMeanTemperature() + "/"
+                + getMaxTemperature() + ", wind=" + getMinWind() + "/" + getMeanWind() + "/" + getMaxWind() + "]";
+    }
+}
@@ -0,0 +1,145 @@
+package climateinfoapp;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.tinylog.Logger;
+
+/**
+ * Runs the expensive read queries of the dashboard through {@link SingleFlight}, so that a burst
+ * of identical requests, such as a shared wall-screen link, runs each query once.
+ * <p>
+ * Calls are keyed by the query and its bound parameter. City names are not case-folded or trimmed
+ * because {@code LIKE} is case-sensitive: only calls that would run exactly the same SQL are
+ * coalesced. The shared lists are unmodifiable. The reader is registered as a
+ * {@link ClimateRecordListener} and detaches the in-flight queries after every committed write or
+ * archive run, so a request that arrives after a write never receives a result read before it.
+ * </p>
+ */
+public class CoalescingRecordReader implements ClimateRecordListener {
+    private final ClimateRecordDAO climateRecordDAO;
+    private final SingleFlight<String, List<ClimateRecord>> allRecords = new SingleFlight<>();
+    private final SingleFlight<String, List<ClimateRecord>> recordsByCity = new SingleFlight<>();
+
+    /**
+     * Creates a reader over a DAO.
+     *
+     * @param climateRecordDAO the DAO that runs the queries
+     */
+    public CoalescingRecordReader(ClimateRecordDAO climateRecordDAO) {
+        this.climateRecordDAO = climateRecordDAO;
+    }
+
+    /**
+     * Retrieves all climate records, sharing the query with concurrent identical calls.
+     *
+     * @return an unmodifiable list of all climate records, ordered by date and ID
+     * @throws DatabaseException if an error occurs while retrieving the records
+     * @throws InvalidArgumentsException if a stored record holds invalid data
+     */
+    public List<ClimateRecord> listAllClimateRecords() throws DatabaseException, InvalidArgumentsException {
+        return execute(allRecords, "all", () -> Collections.unmodifiableList(climateRecordDAO.listAllClimateRecords()));
+    }
+
+    /**
+     * Retrieves the climate records of a city, sharing the query with concurrent identical calls.
+     *
+     * @param city the location to match; may be a LIKE pattern
+     * @return an unmodifiable list of the matching records, ordered by date and ID
+     * @throws DatabaseException if an error occurs while retrieving the records
+     * @throws InvalidArgumentsException if a stored record holds invalid data
+     */
+    public List<ClimateRecord> getRecordsByCity(String city) throws DatabaseException, InvalidArgumentsException {
+        return execute(recordsByCity, city, () -> Collections.unmodifiableList(climateRecordDAO.getRecordsByCity(city)));
+    }
+
+    /**
+     * Returns the flights of the query for all records.
+     *
+     * @return the single-flight group, for its metrics
+     */
+    public SingleFlight<String, List<ClimateRecord>> getAllRecordsFlights() {
+        return allRecords;
+    }
+
+    /**
+     * Returns the flights of the query for the records of a city.
+     *
+     * @return the single-flight group, for its metrics
+     */
+    public SingleFlight<String, List<ClimateRecord>> getRecordsByCityFlights() {
+        return recordsByCity;
+    }
+
+    /**
+     * Detaches the in-flight queries after an insert.
+     *
+     * @param record the inserted record
+     */
+    @Override
+    public void recordInserted(ClimateRecord record) {
+        forgetAll();
+    }
+
+    /**
+     * Detaches the in-flight queries after an update.
+     *
+     * @param record the updated record
+     */
+    @Override
+    public void recordUpdated(ClimateRecord record) {
+        forgetAll();
+    }
+
+    /**
+     * Detaches the in-flight queries after a delete.
+     *
+     * @param id the ID of the deleted record
+     */
+    @Override
+    public void recordDeleted(int id) {
+        forgetAll();
+    }
+
+    /**
+     * Detaches the in-flight queries after readings were rolled up into daily means.
+     *
+     * @param cutoffDate the first date kept as raw readings
+     */
+    @Override
+    public void recordsArchived(String cutoffDate) {
+        forgetAll();
+    }
+
+    /**
+     * Detaches the in-flight queries, so that later calls run a new query. Called for the writes of
+     * this node through the listener methods, and by {@link ClimateRecordCache} for changes made
+     * elsewhere.
+     */
+    public void forgetAll() {
+        allRecords.forgetAll();
+        recordsByCity.forgetAll();
+    }
+
+    private static List<ClimateRecord> execute(SingleFlight<String, List<ClimateRecord>> flights, String key,
+            Query query) throws DatabaseException, InvalidArgumentsException {
+        try {
+            return flights.execute(key, query::run);
+        } catch (DatabaseException | InvalidArgumentsException | RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            throw new DatabaseException("Interrupted while waiting for a shared query", e);
+        } catch (Exception e) {
+            Logger.error(e, "Unexpected error in shared query.");
+            throw new DatabaseException("Failed to retrieve climate records", e);
+        }
+    }
+
+    /**
+     * A read query of the DAO.
+     */
+    @FunctionalInterface
+    private interface Query {
+        List<ClimateRecord> run() throws DatabaseException, InvalidArgumentsException;
+    }
+}
@@ -0,0 +1,144 @@
+package climateinfoapp;
+
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * A standard five-field cron expression: minute, hour, day of month, month and day of week.
+ * <p>
+ * Each field is {@code *}, a value, a range {@code a-b}, or a comma-separated list of these, and
+ * each may be followed by a step such as {@code *}{@code /15}. Days of the week run from 0 (Sunday)
+ * to 6, with 7 also meaning Sunday. As in cron, if both the day of month and the day of week are
+ * restricted, a day matches if either matches.
+ * </p>
+ */
+public final class CronExpression {
+
+    // Searching further than this for a matching minute means the expression can never match, e.g. 30 February
+    private static final int MAX_YEARS_AHEAD = 5;
+
+    private final String expression;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    private CronExpression(String expression, String[] fields) {
+        this.expression = expression;
+        minutes = parseField(fields[0], 0, 59, "minute");
+        hours = parseField(fields[1], 0, 23, "hour");
+        daysOfMonth = parseField(fields[2], 1, 31, "day of month");
+        months = parseField(fields[3], 1, 12, "month");
+        daysOfWeek = parseField(fields[4], 0, 7, "day of week");
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+        anyDayOfMonth = fields[2].startsWith("*");
+        anyDayOfWeek = fields[4].startsWith("*");
+    }
+
+    /**
+     * Parses an expression.
+     *
+     * @param expression five whitespace-separated fields, such as {@code 30 2 * * 1-5}
+     * @return the parsed expression
+     * @throws IllegalArgumentException if the expression is malformed or a value is out of range
+     */
+    public static CronExpression parse(String expression) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression must have 5 fields: " + expression);
+        }
+        return new CronExpression(expression.trim(), fields);
+    }
+
+    /**
+     * Returns the first time after the given time that matches, at the start of a minute.
+     *
+     * @param after the time to search from; it never matches itself
+     * @return the next matching time, in the time zone of {@code after}
+     * @throws IllegalStateException if no time in the next years matches
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = time.plusYears(MAX_YEARS_AHEAD);
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!matchesDay(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        throw new IllegalStateException("Cron expression never matches: " + expression);
+    }
+
+    private boolean matchesDay(ZonedDateTime time) {
+        boolean dayOfMonth = daysOfMonth.get(time.getDayOfMonth());
+        boolean dayOfWeek = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dayOfMonth && dayOfWeek;
+        }
+        return dayOfMonth || dayOfWeek;
+    }
+
+    private static BitSet parseField(String field, int min, int max, String name) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            int step = 1;
+            int slash = part.indexOf('/');
+            if (slash >= 0) {
+                step = parseValue(part.substring(slash + 1), 1, max, name);
+                part = part.substring(0, slash);
+            }
+            int from;
+            int to;
+            if (part.equals("*")) {
+                from = min;
+                to = max;
+            } else {
+                int dash = part.indexOf('-');
+                from = parseValue(dash >= 0 ? part.substring(0, dash) : part, min, max, name);
+                to = dash >= 0 ? parseValue(part.substring(dash + 1), min, max, name) : (slash >= 0 ? max : from);
+                if (to < from) {
+                    throw new IllegalArgumentException("Invalid " + name + " range: " + part);
+                }
+            }
+            for (int value = from; value <= to; value += step) {
+                values.set(value);
+            }
+        }
+        return values;
+    }
+
+    private static int parseValue(String value, int min, int max, String name) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < min || parsed > max) {
+                throw new IllegalArgumentException("The " + name + " must be between " + min + " and " + max + ": " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value, e);
+        }
+    }
+
+    /**
+     * Returns the expression as it was parsed.
+     *
+     * @return the expression
+     */
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
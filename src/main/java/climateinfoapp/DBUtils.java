@@ -3,6 +3,10 @@ package climateinfoapp;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
 
 import javax.servlet.ServletContext;
 
@@ -24,6 +28,13 @@ public class DBUtils {
     protected static String jdbcUsername;
     protected static String jdbcPassword;
 
+    // One URL per shard; a single shard at jdbcURL unless jdbcShardURLs is configured
+    protected static List<String> shardURLs = Collections.emptyList();
+
+    // Session application_name of the dashboard's connections; the change notification trigger skips
+    // the writes of these sessions because the dashboard publishes them itself
+    static final String APPLICATION_NAME = "climateinfoapp";
+
     /**
      * Initializes the JDBC settings by retrieving them from the servlet context.
      * It also registers the PostgreSQL JDBC driver.
@@ -33,6 +44,12 @@ public class DBUtils {
      * in the servlet's context parameters (e.g., web.xml).
      * </p>
      *
+     * <p>
+     * When the optional {@code jdbcShardURLs} parameter lists several URLs, separated by whitespace
+     * (JDBC URLs may themselves contain commas), the climate data is sharded across them; all
+     * shards use the same credentials.
+     * </p>
+     *
      * @param context The servlet context from which to retrieve JDBC connection settings.
      * @throws ExceptionInInitializerError if the JDBC driver class cannot be loaded or if there are other initialization issues.
      */
@@ -42,6 +59,7 @@ public class DBUtils {
             jdbcURL = context.getInitParameter("jdbcURL");
             jdbcUsername = context.getInitParameter("jdbcUsername");
             jdbcPassword = context.getInitParameter("jdbcPassword");
+            shardURLs = parseShardURLs(context.getInitParameter("jdbcShardURLs"), jdbcURL);
 
             // Register JDBC driver
             Class.forName("org.postgresql.Driver");
@@ -69,13 +87,87 @@ public class DBUtils {
     public static Connection getConnection() throws SQLException {
         try {
             // Return the connection using stored settings
-            return DriverManager.getConnection(jdbcURL, jdbcUsername, jdbcPassword);
+            return DriverManager.getConnection(jdbcURL, connectionProperties());
         } catch (SQLException e) {
             Logger.error(e, "Error establishing database connection.");
             throw e;
         }
     }
 
+    /**
+     * Obtains a connection to one shard of the database.
+     *
+     * @param shard the shard index, from 0 to {@link #getShardCount()} - 1
+     * @return A {@link Connection} object representing the connection to the shard.
+     * @throws SQLException if there is an error while establishing the connection.
+     * @throws IllegalArgumentException if the shard index is out of range.
+     */
+    public static Connection getConnection(int shard) throws SQLException {
+        if (shardURLs.isEmpty()) {
+            if (shard != 0) {
+                throw new IllegalArgumentException("Unknown shard: " + shard);
+            }
+            return getConnection();
+        }
+        if (shard < 0 || shard >= shardURLs.size()) {
+            throw new IllegalArgumentException("Unknown shard: " + shard);
+        }
+        try {
+            return DriverManager.getConnection(shardURLs.get(shard), connectionProperties());
+        } catch (SQLException e) {
+            Logger.error(e, "Error establishing connection to shard {}.", shard);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of shards the climate data is spread over.
+     *
+     * @return the shard count, at least 1
+     */
+    public static int getShardCount() {
+        return Math.max(1, shardURLs.size());
+    }
+
+    /**
+     * Returns the properties every connection is opened with: the credentials and the application name.
+     *
+     * @return the connection properties
+     */
+    private static Properties connectionProperties() {
+        Properties properties = new Properties();
+        if (jdbcUsername != null) {
+            properties.setProperty("user", jdbcUsername);
+        }
+        if (jdbcPassword != null) {
+            properties.setProperty("password", jdbcPassword);
+        }
+        properties.setProperty("ApplicationName", APPLICATION_NAME);
+        return properties;
+    }
+
+    /**
+     * Splits the whitespace-separated shard URLs, falling back to the single database URL.
+     *
+     * @param shardURLList the configured shard URLs, or null
+     * @param defaultURL the URL used when no shards are configured
+     * @return the shard URLs
+     */
+    static List<String> parseShardURLs(String shardURLList, String defaultURL) {
+        List<String> urls = new ArrayList<>();
+        if (shardURLList != null) {
+            for (String url : shardURLList.trim().split("\\s+")) {
+                if (!url.isEmpty()) {
+                    urls.add(url);
+                }
+            }
+        }
+        if (urls.isEmpty() && defaultURL != null) {
+            urls.add(defaultURL);
+        }
+        return Collections.unmodifiableList(urls);
+    }
+
     /**
      * Closes the provided database connection if it is open.
      * <p>
@@ -0,0 +1,441 @@
+package climateinfoapp;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.tinylog.Logger;
+
+/**
+ * Computes indicators derived from temperature and wind over primitive {@code float[]} columns:
+ * wind chill, apparent temperature and heating and cooling degree-days.
+ * <p>
+ * The column kernels use the JDK Vector API when the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, processing as many readings per instruction as the
+ * CPU's widest vector register holds, and a scalar loop otherwise. Both give the same results up to
+ * float rounding. Setting the system property {@code climateinfoapp.vector} to {@code false}
+ * forces the scalar loop.
+ * </p>
+ * <p>
+ * Temperatures are in degrees Celsius and wind speeds in km/h, as recorded by the stations.
+ * </p>
+ */
+public final class DerivedMetrics {
+
+    /**
+     * Base temperature of the heating and cooling degree-days, in degrees Celsius.
+     */
+    public static final float DEGREE_DAY_BASE = 18f;
+
+    /**
+     * Highest temperature for which wind chill is defined, in degrees Celsius.
+     */
+    public static final float WIND_CHILL_MAX_TEMPERATURE = 10f;
+
+    /**
+     * Lowest wind speed for which wind chill is defined, in km/h.
+     */
+    public static final float WIND_CHILL_MIN_WIND = 4.8f;
+
+    /**
+     * A value a chart or export can show in place of the air temperature.
+     */
+    public enum Metric {
+        /** The recorded air temperature. */
+        TEMPERATURE("temperature"),
+        /** The wind chill, NaN where it is not defined. */
+        WIND_CHILL("windChill"),
+        /** The wind chill where it is defined, the air temperature elsewhere. */
+        APPARENT_TEMPERATURE("apparent");
+
+        private final String parameter;
+
+        Metric(String parameter) {
+            this.parameter = parameter;
+        }
+
+        /**
+         * Returns the name of the metric in request parameters.
+         *
+         * @return the name, such as {@code windChill}
+         */
+        public String getParameter() {
+            return parameter;
+        }
+
+        /**
+         * Looks up a metric by its parameter name.
+         *
+         * @param parameter the name; null or empty selects {@link #TEMPERATURE}
+         * @return the metric
+         * @throws InvalidArgumentsException if no metric has the name
+         */
+        public static Metric fromParameter(String parameter) throws InvalidArgumentsException {
+            if (parameter == null || parameter.isEmpty()) {
+                return TEMPERATURE;
+            }
+            for (Metric metric : values()) {
+                if (metric.parameter.equals(parameter)) {
+                    return metric;
+                }
+            }
+            throw new InvalidArgumentsException("Unknown metric: " + parameter);
+        }
+    }
+
+    /**
+     * Column operations with a scalar and a vector implementation. The arrays may be longer than
+     * the given length; only the first {@code length} elements are read and written.
+     */
+    interface Kernels {
+
+        /**
+         * Computes the wind chill of each reading, NaN where it is not defined.
+         *
+         * @param temperatures the temperatures
+         * @param winds the wind speeds
+         * @param result receives the wind chills
+         * @param length the number of readings
+         */
+        void windChill(float[] temperatures, float[] winds, float[] result, int length);
+
+        /**
+         * Computes the apparent temperature of each reading.
+         *
+         * @param temperatures the temperatures
+         * @param winds the wind speeds
+         * @param result receives the apparent temperatures
+         * @param length the number of readings
+         */
+        void apparentTemperature(float[] temperatures, float[] winds, float[] result, int length);
+
+        /**
+         * Computes the heating and cooling degrees of each daily mean temperature.
+         *
+         * @param temperatures the daily mean temperatures
+         * @param base the base temperature
+         * @param heating receives the degrees below the base, or 0
+         * @param cooling receives the degrees above the base, or 0
+         * @param length the number of days
+         */
+        void degrees(float[] temperatures, float base, float[] heating, float[] cooling, int length);
+
+        /**
+         * Returns a description of the implementation for logs and metrics.
+         *
+         * @return the description, such as {@code scalar}
+         */
+        String getName();
+    }
+
+    /**
+     * The scalar implementation, used when the Vector API is not available.
+     */
+    static final Kernels SCALAR = new ScalarKernels();
+
+    private static final Kernels KERNELS = loadKernels();
+
+    private DerivedMetrics() {
+    }
+
+    /**
+     * Computes the wind chill of one reading with the Environment Canada formula.
+     *
+     * @param temperature the air temperature in degrees Celsius
+     * @param wind the wind speed in km/h
+     * @return the wind chill, or NaN if it is not defined: above 10 degrees or below 4.8 km/h
+     */
+    public static float windChill(float temperature, float wind) {
+        if (temperature > WIND_CHILL_MAX_TEMPERATURE || wind < WIND_CHILL_MIN_WIND) {
+            return Float.NaN;
+        }
+        float power = (float) Math.pow(wind, 0.16);
+        return 13.12f + 0.6215f * temperature + (0.3965f * temperature - 11.37f) * power;
+    }
+
+    /**
+     * Computes the apparent temperature of one reading: the wind chill where it is defined,
+     * otherwise the air temperature. Humidity is not recorded, so no heat index is applied.
+     *
+     * @param temperature the air temperature in degrees Celsius
+     * @param wind the wind speed in km/h
+     * @return the apparent temperature in degrees Celsius
+     */
+    public static float apparentTemperature(float temperature, float wind) {
+        float windChill = windChill(temperature, wind);
+        return Float.isNaN(windChill) ? temperature : windChill;
+    }
+
+    /**
+     * Computes a metric for one reading.
+     *
+     * @param metric the metric
+     * @param temperature the air temperature in degrees Celsius
+     * @param wind the wind speed in km/h
+     * @return the value, NaN where the metric is not defined
+     */
+    public static float compute(Metric metric, float temperature, float wind) {
+        switch (metric) {
+            case WIND_CHILL:
+                return windChill(temperature, wind);
+            case APPARENT_TEMPERATURE:
+                return apparentTemperature(temperature, wind);
+            default:
+                return temperature;
+        }
+    }
+
+    /**
+     * Computes the wind chill of each reading in a batch of columns.
+     *
+     * @param temperatures the temperatures
+     * @param winds the wind speeds
+     * @param result receives the wind chills, NaN where not defined
+     * @param length the number of readings
+     */
+    public static void windChill(float[] temperatures, float[] winds, float[] result, int length) {
+        KERNELS.windChill(temperatures, winds, result, length);
+    }
+
+    /**
+     * Computes the apparent temperature of each reading in a batch of columns.
+     *
+     * @param temperatures the temperatures
+     * @param winds the wind speeds
+     * @param result receives the apparent temperatures
+     * @param length the number of readings
+     */
+    public static void apparentTemperature(float[] temperatures, float[] winds, float[] result, int length) {
+        KERNELS.apparentTemperature(temperatures, winds, result, length);
+    }
+
+    /**
+     * Computes a metric for each reading in a batch of columns.
+     *
+     * @param metric the metric
+     * @param temperatures the temperatures
+     * @param winds the wind speeds
+     * @param result receives the values; for {@link Metric#TEMPERATURE} a copy of the temperatures
+     * @param length the number of readings
+     */
+    public static void compute(Metric metric, float[] temperatures, float[] winds, float[] result, int length) {
+        switch (metric) {
+            case WIND_CHILL:
+                KERNELS.windChill(temperatures, winds, result, length);
+                break;
+            case APPARENT_TEMPERATURE:
+                KERNELS.apparentTemperature(temperatures, winds, result, length);
+                break;
+            default:
+                System.arraycopy(temperatures, 0, result, 0, length);
+                break;
+        }
+    }
+
+    /**
+     * Returns the implementation the column kernels use.
+     *
+     * @return {@code scalar}, or the vector shape such as {@code vector (256-bit)}
+     */
+    public static String getImplementation() {
+        return KERNELS.getName();
+    }
+
+    /**
+     * Computes the heating and cooling degree-days of every location and month. The records of
+     * each location and day are first averaged into a daily mean temperature; the degrees of the
+     * daily means are then summed per month.
+     *
+     * @param records the records, in any order
+     * @return the degree-days of each location and month, ordered by location and month
+     */
+    public static Map<ClimateGroupKey, DegreeDays> degreeDays(Iterator<ClimateRecord> records) {
+        // location -> day -> [temperature sum, reading count]
+        Map<String, Map<LocalDate, double[]>> days = new TreeMap<>();
+        while (records.hasNext()) {
+            ClimateRecord record = records.next();
+            double[] day = days.computeIfAbsent(record.getLocation(), key -> new HashMap<>())
+                    .computeIfAbsent(LocalDate.parse(record.getDate()), key -> new double[2]);
+            day[0] += record.getTemperature();
+            day[1]++;
+        }
+
+        Map<ClimateGroupKey, DegreeDays> result = new TreeMap<>();
+        for (Map.Entry<String, Map<LocalDate, double[]>> location : days.entrySet()) {
+            Map<LocalDate, double[]> byDay = new TreeMap<>(location.getValue());
+            int length = byDay.size();
+            float[] means = new float[length];
+            LocalDate[] dates = new LocalDate[length];
+            int i = 0;
+            for (Map.Entry<LocalDate, double[]> day : byDay.entrySet()) {
+                dates[i] = day.getKey();
+                means[i++] = (float) (day.getValue()[0] / day.getValue()[1]);
+            }
+            float[] heating = new float[length];
+            float[] cooling = new float[length];
+            KERNELS.degrees(means, DEGREE_DAY_BASE, heating, cooling, length);
+
+            // The days are in date order, so each month is one run
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                double heatingSum = 0;
+                double coolingSum = 0;
+                while (end < length && dates[end].getYear() == dates[start].getYear()
+                        && dates[end].getMonthValue() == dates[start].getMonthValue()) {
+                    heatingSum += heating[end];
+                    coolingSum += cooling[end];
+                    end++;
+                }
+                result.put(new ClimateGroupKey(location.getKey(), dates[start].toString().substring(0, 7)),
+                        new DegreeDays(end - start, heatingSum, coolingSum));
+                start = end;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Chooses the vector kernels if the incubator module is present and not disabled.
+     *
+     * @return the kernels
+     */
+    private static Kernels loadKernels() {
+        Kernels vector = loadVectorKernels();
+        Logger.info("Derived metrics use {} kernels.", (vector != null ? vector : SCALAR).getName());
+        return vector != null ? vector : SCALAR;
+    }
+
+    /**
+     * Loads the vector kernels. They are loaded reflectively, so this class never links against
+     * the incubator module when it is absent.
+     *
+     * @return the kernels, or null if the Vector API is not available or disabled
+     */
+    static Kernels loadVectorKernels() {
+        if (!Boolean.parseBoolean(System.getProperty("climateinfoapp.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (Kernels) Class.forName("climateinfoapp.VectorMetricKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            Logger.warn(e, "The Vector API is unavailable; using scalar kernels.");
+            return null;
+        }
+    }
+
+    /**
+     * The heating and cooling degree-days of one location and month.
+     */
+    public static final class DegreeDays {
+        private final int days;
+        private final double heating;
+        private final double cooling;
+
+        /**
+         * Creates a result.
+         *
+         * @param days the number of days with readings
+         * @param heating the heating degree-days
+         * @param cooling the cooling degree-days
+         */
+        public DegreeDays(int days, double heating, double cooling) {
+            this.days = days;
+            this.heating = heating;
+            this.cooling = cooling;
+        }
+
+        /**
+         * Returns the number of days with readings; days without readings add no degrees.
+         *
+         * @return the day count
+         */
+        public int getDays() {
+            return days;
+        }
+
+        /**
+         * Returns the sum of the degrees by which the daily means fell below the base.
+         *
+         * @return the heating degree-days
+         */
+        public double getHeating() {
+            return heating;
+        }
+
+        /**
+         * Returns the sum of the degrees by which the daily means rose above the base.
+         *
+         * @return the cooling degree-days
+         */
+        public double getCooling() {
+            return cooling;
+        }
+    }
+
+    /**
+     * Loops over the readings one at a time.
+     */
+    private static final class ScalarKernels implements Kernels {
+
+        /**
+         * Computes the wind chill of each reading, NaN where it is not defined.
+         *
+         * @param temperatures the temperatures
+         * @param winds the wind speeds
+         * @param result receives the wind chills
+         * @param length the number of readings
+         */
+        @Override
+        public void windChill(float[] temperatures, float[] winds, float[] result, int length) {
+            for (int i = 0; i < length; i++) {
+                result[i] = DerivedMetrics.windChill(temperatures[i], winds[i]);
+            }
+        }
+
+        /**
+         * Computes the apparent temperature of each reading.
+         *
+         * @param temperatures the temperatures
+         * @param winds the wind speeds
+         * @param result receives the apparent temperatures
+         * @param length the number of readings
+         */
+        @Override
+        public void apparentTemperature(float[] temperatures, float[] winds, float[] result, int length) {
+            for (int i = 0; i < length; i++) {
+                result[i] = DerivedMetrics.apparentTemperature(temperatures[i], winds[i]);
+            }
+        }
+
+        /**
+         * Computes the heating and cooling degrees of each daily mean temperature.
+         *
+         * @param temperatures the daily mean temperatures
+         * @param base the base temperature
+         * @param heating receives the degrees below the base, or 0
+         * @param cooling receives the degrees above the base, or 0
+         * @param length the number of days
+         */
+        @Override
+        public void degrees(float[] temperatures, float base, float[] heating, float[] cooling, int length) {
+            for (int i = 0; i < length; i++) {
+                heating[i] = Math.max(0f, base - temperatures[i]);
+                cooling[i] = Math.max(0f, temperatures[i] - base);
+            }
+        }
+
+        /**
+         * Returns a description of the implementation.
+         *
+         * @return the description
+         */
+        @Override
+        public String getName() {
+            return "scalar";
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package climateinfoapp;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response wrapper that throws away everything written to it, used to render pages for their side
+ * effects only, such as compiling and loading a JSP during warmup. Flushing never commits the
+ * wrapped response.
+ */
+class DiscardingResponse extends HttpServletResponseWrapper {
+    private final PrintWriter writer = new PrintWriter(Writer.nullWriter());
+    private final ServletOutputStream outputStream = new ServletOutputStream() {
+        @Override
+        public void write(int b) {
+            // Discarded
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            // Discarded
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Discarded output is written synchronously");
+        }
+    };
+
+    /**
+     * Wraps a response.
+     *
+     * @param response the response that must stay untouched
+     */
+    DiscardingResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Returns a writer that discards its output.
+     *
+     * @return the writer
+     */
+    @Override
+    public PrintWriter getWriter() {
+        return writer;
+    }
+
+    /**
+     * Returns a stream that discards its output.
+     *
+     * @return the stream
+     */
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * Does nothing, so that the wrapped response is not committed.
+     */
+    @Override
+    public void flushBuffer() {
+        // Nothing is buffered
+    }
+
+    /**
+     * Does nothing; the output is discarded anyway.
+     */
+    @Override
+    public void resetBuffer() {
+        // Nothing is buffered
+    }
+}
@@ -0,0 +1,180 @@
+package climateinfoapp;
+
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+import org.tinylog.Logger;
+
+/**
+ * One Server-Sent Events connection registered with the {@link ClimateEventHub}.
+ * <p>
+ * Events are queued as pre-encoded bytes and written with non-blocking servlet I/O: the queue is
+ * drained only while the output stream reports that it is ready, and the container calls
+ * {@link #onWritePossible()} once a blocked socket can take more data. No thread is held while a
+ * connection is idle or while a slow client catches up. A client that falls more than the allowed
+ * number of events behind is disconnected; the browser reconnects and resumes from its last event ID.
+ * </p>
+ */
+class EventStream implements WriteListener, AsyncListener {
+    private final ClimateEventHub hub;
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final int maxPendingEvents;
+    private final Queue<byte[]> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private boolean unflushed;
+    private volatile boolean closed;
+
+    /**
+     * Creates a stream over an asynchronous request whose response headers have been set.
+     *
+     * @param hub the hub to unregister from when the connection ends
+     * @param asyncContext the asynchronous context of the request
+     * @param out the response output stream
+     * @param maxPendingEvents the number of queued events after which the client is disconnected
+     */
+    EventStream(ClimateEventHub hub, AsyncContext asyncContext, ServletOutputStream out, int maxPendingEvents) {
+        this.hub = hub;
+        this.asyncContext = asyncContext;
+        this.out = out;
+        this.maxPendingEvents = maxPendingEvents;
+    }
+
+    /**
+     * Queues an encoded event and writes as much of the queue as the connection accepts.
+     *
+     * @param event the encoded event
+     */
+    void send(byte[] event) {
+        if (closed) {
+            return;
+        }
+        if (pendingCount.incrementAndGet() > maxPendingEvents) {
+            Logger.warn("Closing event stream that is {} events behind.", maxPendingEvents);
+            close();
+            return;
+        }
+        pending.add(event);
+        drain();
+    }
+
+    /**
+     * Writes queued events while the output stream is ready and flushes once the queue is empty.
+     * Writes from the publishing threads and the container's callback are serialized here.
+     */
+    private synchronized void drain() {
+        try {
+            while (!closed && out.isReady()) {
+                byte[] event = pending.poll();
+                if (event != null) {
+                    pendingCount.decrementAndGet();
+                    out.write(event);
+                    unflushed = true;
+                } else if (unflushed) {
+                    unflushed = false;
+                    out.flush();
+                } else {
+                    return;
+                }
+            }
+        } catch (IOException | IllegalStateException e) {
+            Logger.debug(e, "Event stream write failed.");
+            close();
+        }
+    }
+
+    /**
+     * Ends the response and unregisters the stream. Safe to call more than once.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        hub.unsubscribe(this);
+        pending.clear();
+        try {
+            asyncContext.complete();
+        } catch (IllegalStateException e) {
+            // Already completed by the container
+        }
+    }
+
+    /**
+     * Returns whether the stream has been closed.
+     *
+     * @return true once the connection has ended
+     */
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Resumes writing once the connection can accept more data.
+     */
+    @Override
+    public void onWritePossible() {
+        drain();
+    }
+
+    /**
+     * Closes the stream after a write error reported by the container.
+     *
+     * @param t the error
+     */
+    @Override
+    public void onError(Throwable t) {
+        Logger.debug(t, "Event stream closed by I/O error.");
+        close();
+    }
+
+    /**
+     * Unregisters the stream once the response has been completed.
+     *
+     * @param event the asynchronous event
+     */
+    @Override
+    public void onComplete(AsyncEvent event) {
+        closed = true;
+        hub.unsubscribe(this);
+    }
+
+    /**
+     * Closes the stream when the asynchronous request times out.
+     *
+     * @param event the asynchronous event
+     */
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        close();
+    }
+
+    /**
+     * Closes the stream when the asynchronous request fails.
+     *
+     * @param event the asynchronous event
+     */
+    @Override
+    public void onError(AsyncEvent event) {
+        close();
+    }
+
+    /**
+     * Not used; the request is not restarted.
+     *
+     * @param event the asynchronous event
+     */
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+        // Not restarted
+    }
+}
@@ -0,0 +1,337 @@
+package climateinfoapp;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Bit-level encoding of a block of one location's climate records, after the Gorilla time-series
+ * format: dates and IDs are stored as delta-of-deltas, temperatures and winds as the XOR with the
+ * previous value.
+ * <p>
+ * Daily readings make the delta of consecutive dates constant, so most dates take a single bit;
+ * IDs assigned in arrival order behave the same. A value equal to its predecessor takes one bit,
+ * and a changed value only stores the bits between the leading and trailing zeros of the XOR,
+ * reusing the previous window when the new one fits inside it. The first record of a block is
+ * stored in full, so every block can be decoded on its own.
+ * </p>
+ * <p>
+ * Blocks are padded to whole 64-bit words, which lets the decoder read any bit field with at most
+ * two absolute {@code getLong} calls on the underlying buffer.
+ * </p>
+ */
+final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    /**
+     * Encodes records into a block. Records must be added in date order.
+     */
+    static final class Encoder {
+        private final BitWriter bits = new BitWriter();
+        private final DeltaState days = new DeltaState();
+        private final DeltaState ids = new DeltaState();
+        private final XorState temperatures = new XorState();
+        private final XorState winds = new XorState();
+        private int count;
+
+        /**
+         * Appends a record to the block.
+         *
+         * @param record the record to append
+         */
+        void add(ClimateRecord record) {
+            long day = LocalDate.parse(record.getDate()).toEpochDay();
+            int temperature = Float.floatToRawIntBits(record.getTemperature());
+            int wind = Float.floatToRawIntBits(record.getWind());
+            if (count == 0) {
+                bits.write(day, 32);
+                bits.write(record.getId(), 32);
+                bits.write(temperature, 32);
+                bits.write(wind, 32);
+                days.first(day);
+                ids.first(record.getId());
+                temperatures.previous = temperature;
+                winds.previous = wind;
+            } else {
+                writeDeltaOfDelta(days, day);
+                writeDeltaOfDelta(ids, record.getId());
+                writeXor(temperatures, temperature);
+                writeXor(winds, wind);
+            }
+            count++;
+        }
+
+        /**
+         * Returns the number of records in the block.
+         *
+         * @return the record count
+         */
+        int getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the encoded block, padded to whole words.
+         *
+         * @return the words of the block
+         */
+        long[] toWords() {
+            return bits.toWords();
+        }
+
+        private void writeDeltaOfDelta(DeltaState state, long value) {
+            long delta = value - state.previous;
+            long deltaOfDelta = delta - state.previousDelta;
+            state.previous = value;
+            state.previousDelta = delta;
+
+            if (deltaOfDelta == 0) {
+                bits.write(0b0, 1);
+            } else if (fits(deltaOfDelta, 7)) {
+                bits.write(0b10, 2);
+                bits.write(deltaOfDelta, 7);
+            } else if (fits(deltaOfDelta, 9)) {
+                bits.write(0b110, 3);
+                bits.write(deltaOfDelta, 9);
+            } else if (fits(deltaOfDelta, 12)) {
+                bits.write(0b1110, 4);
+                bits.write(deltaOfDelta, 12);
+            } else {
+                bits.write(0b1111, 4);
+                bits.write(deltaOfDelta, 64);
+            }
+        }
+
+        private void writeXor(XorState state, int value) {
+            int xor = value ^ state.previous;
+            state.previous = value;
+            if (xor == 0) {
+                bits.write(0b0, 1);
+                return;
+            }
+            int leading = Integer.numberOfLeadingZeros(xor);
+            int trailing = Integer.numberOfTrailingZeros(xor);
+            if (state.leading >= 0 && leading >= state.leading && trailing >= state.trailing) {
+                bits.write(0b10, 2);
+                bits.write(xor >>> state.trailing, 32 - state.leading - state.trailing);
+            } else {
+                int meaningful = 32 - leading - trailing;
+                bits.write(0b11, 2);
+                bits.write(leading, 5);
+                bits.write(meaningful - 1, 5);
+                bits.write(xor >>> trailing, meaningful);
+                state.leading = leading;
+                state.trailing = trailing;
+            }
+        }
+
+        private static boolean fits(long value, int bitCount) {
+            long limit = 1L << (bitCount - 1);
+            return value >= -limit && value < limit;
+        }
+    }
+
+    /**
+     * Decodes the records of a block in order, reading directly from a buffer.
+     */
+    static final class Decoder {
+        private final BitReader bits;
+        private final String location;
+        private final int count;
+        private final DeltaState days = new DeltaState();
+        private final DeltaState ids = new DeltaState();
+        private final XorState temperatures = new XorState();
+        private final XorState winds = new XorState();
+        private int decoded;
+        private long day;
+
+        /**
+         * Creates a decoder.
+         *
+         * @param buffer the buffer holding the block; it is only read with absolute gets
+         * @param offset the position of the block in the buffer
+         * @param count the number of records in the block
+         * @param location the location of the records
+         */
+        Decoder(ByteBuffer buffer, int offset, int count, String location) {
+            this.bits = new BitReader(buffer, offset);
+            this.count = count;
+            this.location = location;
+        }
+
+        /**
+         * Returns whether the block has more records.
+         *
+         * @return true if {@link #next()} will return a record
+         */
+        boolean hasNext() {
+            return decoded < count;
+        }
+
+        /**
+         * Decodes the next record.
+         *
+         * @return the record
+         * @throws InvalidArgumentsException if the decoded values are not a valid record
+         */
+        ClimateRecord next() throws InvalidArgumentsException {
+            int id;
+            if (decoded == 0) {
+                day = (int) bits.read(32);
+                id = (int) bits.read(32);
+                temperatures.previous = (int) bits.read(32);
+                winds.previous = (int) bits.read(32);
+                days.first(day);
+                ids.first(id);
+            } else {
+                day = readDeltaOfDelta(days);
+                id = (int) readDeltaOfDelta(ids);
+                readXor(temperatures);
+                readXor(winds);
+            }
+            decoded++;
+            return new ClimateRecord(id, LocalDate.ofEpochDay(day).toString(), location,
+                    Float.intBitsToFloat(temperatures.previous), Float.intBitsToFloat(winds.previous));
+        }
+
+        /**
+         * Returns the date of the record last returned by {@link #next()}.
+         *
+         * @return the date as days since the epoch
+         */
+        long getDay() {
+            return day;
+        }
+
+        private long readDeltaOfDelta(DeltaState state) {
+            long deltaOfDelta;
+            if (bits.read(1) == 0) {
+                deltaOfDelta = 0;
+            } else if (bits.read(1) == 0) {
+                deltaOfDelta = signed(bits.read(7), 7);
+            } else if (bits.read(1) == 0) {
+                deltaOfDelta = signed(bits.read(9), 9);
+            } else if (bits.read(1) == 0) {
+                deltaOfDelta = signed(bits.read(12), 12);
+            } else {
+                deltaOfDelta = bits.read(64);
+            }
+            state.previousDelta += deltaOfDelta;
+            state.previous += state.previousDelta;
+            return state.previous;
+        }
+
+        private void readXor(XorState state) {
+            if (bits.read(1) == 0) {
+                return;
+            }
+            if (bits.read(1) == 1) {
+                state.leading = (int) bits.read(5);
+                int meaningful = (int) bits.read(5) + 1;
+                state.trailing = 32 - state.leading - meaningful;
+            }
+            int meaningful = 32 - state.leading - state.trailing;
+            state.previous ^= (int) bits.read(meaningful) << state.trailing;
+        }
+
+        private static long signed(long value, int bitCount) {
+            return (value << (64 - bitCount)) >> (64 - bitCount);
+        }
+    }
+
+    private static final class DeltaState {
+        private long previous;
+        private long previousDelta;
+
+        private void first(long value) {
+            previous = value;
+            previousDelta = 0;
+        }
+    }
+
+    private static final class XorState {
+        private int previous;
+        private int leading = -1;
+        private int trailing;
+    }
+
+    /**
+     * Appends bit fields, most significant bit first, to a growing array of words.
+     */
+    static final class BitWriter {
+        private long[] words = new long[16];
+        private long position;
+
+        /**
+         * Appends the low bits of a value.
+         *
+         * @param value the value to write
+         * @param bitCount the number of low bits to write, from 1 to 64
+         */
+        void write(long value, int bitCount) {
+            int index = (int) (position >>> 6);
+            if (index + 1 >= words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            long field = bitCount == 64 ? value : value & ((1L << bitCount) - 1);
+            int free = 64 - (int) (position & 63);
+            if (bitCount <= free) {
+                words[index] |= field << (free - bitCount);
+            } else {
+                int spill = bitCount - free;
+                words[index] |= field >>> spill;
+                words[index + 1] |= field << (64 - spill);
+            }
+            position += bitCount;
+        }
+
+        /**
+         * Returns the bits written so far, padded with zeros to a whole word.
+         *
+         * @return the words
+         */
+        long[] toWords() {
+            return Arrays.copyOf(words, (int) ((position + 63) >>> 6));
+        }
+    }
+
+    /**
+     * Reads bit fields from word-padded data in a buffer without copying it.
+     */
+    static final class BitReader {
+        private final ByteBuffer buffer;
+        private final int offset;
+        private long position;
+
+        /**
+         * Creates a reader.
+         *
+         * @param buffer the buffer to read with absolute gets
+         * @param offset the position of the first word in the buffer
+         */
+        BitReader(ByteBuffer buffer, int offset) {
+            this.buffer = buffer;
+            this.offset = offset;
+        }
+
+        /**
+         * Reads the next bit field.
+         *
+         * @param bitCount the number of bits to read, from 1 to 64
+         * @return the bits as the low bits of the result
+         */
+        long read(int bitCount) {
+            int index = offset + (int) (position >>> 6) * Long.BYTES;
+            int used = (int) (position & 63);
+            long value = (buffer.getLong(index) << used) >>> (64 - bitCount);
+            if (used + bitCount > 64) {
+                int spill = used + bitCount - 64;
+                value |= buffer.getLong(index + Long.BYTES) >>> (64 - spill);
+            }
+            position += bitCount;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package climateinfoapp;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+/**
+ * Escapes text for HTML element content and quoted attribute values while writing it.
+ * <p>
+ * The replacements are looked up in a table precomputed for the ASCII range, and unescaped runs
+ * are written straight from the source string, so escaping a cell allocates nothing. The output
+ * matches {@code Encode.forHtml} for the characters that can appear in climate records.
+ * </p>
+ */
+public final class HtmlEscaper {
+    private static final char[][] REPLACEMENTS = new char[128][];
+
+    static {
+        REPLACEMENTS['&'] = "&amp;".toCharArray();
+        REPLACEMENTS['<'] = "&lt;".toCharArray();
+        REPLACEMENTS['>'] = "&gt;".toCharArray();
+        REPLACEMENTS['"'] = "&#34;".toCharArray();
+        REPLACEMENTS['\''] = "&#39;".toCharArray();
+    }
+
+    private HtmlEscaper() {
+    }
+
+    /**
+     * Writes the escaped form of a string.
+     *
+     * @param out the writer to write to
+     * @param text the text to escape; null writes nothing
+     * @throws IOException if an I/O error occurs
+     */
+    public static void write(Writer out, String text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int unescapedFrom = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < REPLACEMENTS.length && REPLACEMENTS[c] != null) {
+                if (i > unescapedFrom) {
+                    out.write(text, unescapedFrom, i - unescapedFrom);
+                }
+                out.write(REPLACEMENTS[c]);
+                unescapedFrom = i + 1;
+            }
+        }
+        if (unescapedFrom < length) {
+            out.write(text, unescapedFrom, length - unescapedFrom);
+        }
+    }
+
+    /**
+     * Returns the escaped form of a string.
+     *
+     * @param text the text to escape
+     * @return the escaped text, or an empty string if the text is null
+     */
+    public static String escape(String text) {
+        StringWriter out = new StringWriter();
+        try {
+            write(out, text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,343 @@
+package climateinfoapp;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.tinylog.Logger;
+
+/**
+ * In-process scheduler for background work such as retention, rollups and cache refreshes.
+ * <p>
+ * One timer thread waits for the next due time of every job and starts each run on its own virtual
+ * thread, so a long run never delays another job's timer. Each job has a limit on the runs in
+ * progress at once on this node; a run that falls due while the limit is reached is skipped
+ * rather than queued. Jobs marked exclusive additionally take a cluster-wide {@link JobLock}
+ * before they run, so that only one node of the cluster runs them; the other nodes skip the run.
+ * </p>
+ * <p>
+ * The outcome and duration of every run are recorded in the job's {@link JobStats}.
+ * </p>
+ */
+public class JobScheduler implements AutoCloseable {
+
+    /**
+     * Determines when a job falls due.
+     */
+    @FunctionalInterface
+    public interface Trigger {
+
+        /**
+         * Returns the next due time.
+         *
+         * @param after the previous due time, or the time the job was scheduled
+         * @return the next due time, later than {@code after}
+         */
+        Instant nextRun(Instant after);
+
+        /**
+         * Returns a trigger that fires at a fixed rate, the first time one period after scheduling.
+         *
+         * @param period the time between two due times
+         * @return the trigger
+         * @throws IllegalArgumentException if the period is not positive
+         */
+        static Trigger fixedRate(Duration period) {
+            if (period.isNegative() || period.isZero()) {
+                throw new IllegalArgumentException("Period must be positive: " + period);
+            }
+            return new Trigger() {
+                @Override
+                public Instant nextRun(Instant after) {
+                    return after.plus(period);
+                }
+
+                @Override
+                public String toString() {
+                    return "every " + period;
+                }
+            };
+        }
+
+        /**
+         * Returns a trigger that fires at the times matched by a cron expression.
+         *
+         * @param expression the five-field expression (see {@link CronExpression})
+         * @param zone the time zone the expression is evaluated in
+         * @return the trigger
+         * @throws IllegalArgumentException if the expression is malformed
+         */
+        static Trigger cron(String expression, ZoneId zone) {
+            CronExpression cron = CronExpression.parse(expression);
+            return new Trigger() {
+                @Override
+                public Instant nextRun(Instant after) {
+                    return cron.next(after.atZone(zone)).toInstant();
+                }
+
+                @Override
+                public String toString() {
+                    return "cron " + cron;
+                }
+            };
+        }
+    }
+
+    /**
+     * Cluster-wide lock that lets one node at a time run an exclusive job.
+     */
+    @FunctionalInterface
+    public interface JobLock {
+
+        /**
+         * Tries to take the lock of a job without waiting.
+         *
+         * @param job the job name
+         * @return the held lock, to be closed when the run ends, or null if another node holds it
+         * @throws SQLException if the lock cannot be checked
+         */
+        Lease tryLock(String job) throws SQLException;
+    }
+
+    /**
+     * A held {@link JobLock}.
+     */
+    @FunctionalInterface
+    public interface Lease extends AutoCloseable {
+
+        /**
+         * Releases the lock.
+         */
+        @Override
+        void close();
+    }
+
+    private final JobLock clusterLock;
+    private final Clock clock;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+    private final ExecutorService runner = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile boolean closed;
+
+    /**
+     * Creates a scheduler and starts its timer thread.
+     *
+     * @param clusterLock the lock taken by exclusive jobs, or null to run them on every node
+     * @param clock the clock that determines the due times
+     */
+    public JobScheduler(JobLock clusterLock, Clock clock) {
+        this.clusterLock = clusterLock;
+        this.clock = clock;
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "climate-jobs");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Registers a job and schedules its first run.
+     *
+     * @param name the unique job name, which also identifies its cluster lock
+     * @param trigger determines when the job falls due
+     * @param maxConcurrent the largest number of runs at once on this node
+     * @param exclusive whether the job takes the cluster lock, so that one node at a time runs it
+     * @param task the work to run
+     * @return the statistics of the job
+     * @throws IllegalArgumentException if the name is taken or the limit is not positive
+     * @throws IllegalStateException if the scheduler has been closed
+     */
+    public JobStats schedule(String name, Trigger trigger, int maxConcurrent, boolean exclusive, Runnable task) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Concurrency limit must be positive: " + maxConcurrent);
+        }
+        if (closed) {
+            throw new IllegalStateException("The scheduler is closed");
+        }
+        Job job = new Job(name, trigger, maxConcurrent, exclusive, task);
+        if (jobs.putIfAbsent(name, job) != null) {
+            throw new IllegalArgumentException("A job named " + name + " is already scheduled");
+        }
+        arm(job, trigger.nextRun(clock.instant()));
+        Logger.info("Scheduled job {} ({}, at most {} at once{}).", name, trigger, maxConcurrent,
+                exclusive ? ", one node at a time" : "");
+        return job.stats;
+    }
+
+    /**
+     * Starts a run of a job now, outside its schedule, subject to the same limits.
+     *
+     * @param name the job name
+     * @return completes with the outcome when the run has ended or been skipped
+     * @throws IllegalArgumentException if no job has the name
+     */
+    public CompletableFuture<JobStats.Outcome> runNow(String name) {
+        Job job = jobs.get(name);
+        if (job == null) {
+            throw new IllegalArgumentException("No job named " + name);
+        }
+        return launch(job);
+    }
+
+    /**
+     * Returns the statistics of all jobs, ordered by name.
+     *
+     * @return the statistics
+     */
+    public List<JobStats> getJobs() {
+        List<JobStats> stats = new ArrayList<>();
+        jobs.values().forEach(job -> stats.add(job.stats));
+        stats.sort((a, b) -> a.getName().compareTo(b.getName()));
+        return stats;
+    }
+
+    /**
+     * Stops scheduling runs and interrupts the runs in progress.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        timer.shutdownNow();
+        runner.shutdownNow();
+        jobs.values().forEach(job -> job.stats.setNextRun(null));
+    }
+
+    /**
+     * Schedules the next run of a job on the timer.
+     *
+     * @param job the job
+     * @param due the due time
+     */
+    private void arm(Job job, Instant due) {
+        job.stats.setNextRun(due);
+        long delayMillis = Math.max(0, Duration.between(clock.instant(), due).toMillis());
+        timer.schedule(() -> fire(job, due), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts the due run of a job and schedules the one after it. A due time that has already
+     * passed, for instance after the machine was suspended, is moved past the current time rather
+     * than fired repeatedly to catch up.
+     *
+     * @param job the job
+     * @param due the due time of this run
+     */
+    private void fire(Job job, Instant due) {
+        if (closed) {
+            return;
+        }
+        Instant next = job.trigger.nextRun(due);
+        Instant now = clock.instant();
+        if (next.isBefore(now)) {
+            next = job.trigger.nextRun(now);
+        }
+        arm(job, next);
+        launch(job);
+    }
+
+    /**
+     * Runs a job on a virtual thread, unless its concurrency limit is reached.
+     *
+     * @param job the job
+     * @return completes with the outcome
+     */
+    private CompletableFuture<JobStats.Outcome> launch(Job job) {
+        if (!job.permits.tryAcquire()) {
+            Logger.info("Skipped job {}: {} runs are already in progress.", job.name, job.stats.getMaxConcurrent());
+            job.stats.skipped(JobStats.Outcome.SKIPPED_OVERLAP);
+            return CompletableFuture.completedFuture(JobStats.Outcome.SKIPPED_OVERLAP);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return run(job);
+                } finally {
+                    job.permits.release();
+                }
+            }, runner);
+        } catch (RuntimeException e) {
+            // The runner rejects new runs once the scheduler is closed
+            job.permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes the cluster lock if the job is exclusive and runs it.
+     *
+     * @param job the job
+     * @return the outcome
+     */
+    private JobStats.Outcome run(Job job) {
+        Lease lease = null;
+        if (job.exclusive && clusterLock != null) {
+            try {
+                lease = clusterLock.tryLock(job.name);
+            } catch (SQLException e) {
+                Logger.warn(e, "Skipped job {}: its cluster lock could not be checked.", job.name);
+                job.stats.skipped(JobStats.Outcome.SKIPPED_LOCKED);
+                return JobStats.Outcome.SKIPPED_LOCKED;
+            }
+            if (lease == null) {
+                Logger.debug("Skipped job {}: another node is running it.", job.name);
+                job.stats.skipped(JobStats.Outcome.SKIPPED_LOCKED);
+                return JobStats.Outcome.SKIPPED_LOCKED;
+            }
+        }
+
+        Instant start = clock.instant();
+        long startNanos = System.nanoTime();
+        job.stats.started(start);
+        JobStats.Outcome outcome = JobStats.Outcome.FAILED;
+        Throwable error = null;
+        try {
+            job.task.run();
+            outcome = JobStats.Outcome.SUCCEEDED;
+        } catch (RuntimeException e) {
+            error = e;
+            Logger.error(e, "Job {} failed.", job.name);
+        } finally {
+            if (lease != null) {
+                lease.close();
+            }
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            job.stats.finished(outcome, durationMillis, error);
+            Logger.info("Job {} {} in {} ms.", job.name, outcome == JobStats.Outcome.SUCCEEDED ? "completed" : "failed",
+                    durationMillis);
+        }
+        return outcome;
+    }
+
+    /**
+     * A registered job with its schedule, concurrency permits and statistics.
+     */
+    private static final class Job {
+        private final String name;
+        private final Trigger trigger;
+        private final boolean exclusive;
+        private final Runnable task;
+        private final Semaphore permits;
+        private final JobStats stats;
+
+        Job(String name, Trigger trigger, int maxConcurrent, boolean exclusive, Runnable task) {
+            this.name = name;
+            this.trigger = trigger;
+            this.exclusive = exclusive;
+            this.task = task;
+            this.permits = new Semaphore(maxConcurrent);
+            this.stats = new JobStats(name, trigger.toString(), maxConcurrent, exclusive);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package climateinfoapp;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run counts and timings of one job registered with a {@link JobScheduler}. The counters are
+ * updated by the runs as they finish and can be read at any time.
+ */
+public final class JobStats {
+
+    /**
+     * How a scheduled run ended.
+     */
+    public enum Outcome {
+        /** The job ran and returned normally. */
+        SUCCEEDED,
+        /** The job ran and threw an exception. */
+        FAILED,
+        /** The job was already running its maximum number of times on this node. */
+        SKIPPED_OVERLAP,
+        /** Another node holds the job's cluster lock, or the lock could not be checked. */
+        SKIPPED_LOCKED
+    }
+
+    private final String name;
+    private final String trigger;
+    private final int maxConcurrent;
+    private final boolean exclusive;
+    private final AtomicLong[] outcomes = new AtomicLong[Outcome.values().length];
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicLong totalDurationMillis = new AtomicLong();
+    private final AtomicLong maxDurationMillis = new AtomicLong();
+    private volatile Instant nextRun;
+    private volatile Instant lastStart;
+    private volatile long lastDurationMillis;
+    private volatile Outcome lastOutcome;
+    private volatile String lastError;
+
+    /**
+     * Creates empty statistics.
+     *
+     * @param name the job name
+     * @param trigger a description of the job's schedule
+     * @param maxConcurrent the largest number of runs at once on one node
+     * @param exclusive whether the job runs on one node of the cluster at a time
+     */
+    JobStats(String name, String trigger, int maxConcurrent, boolean exclusive) {
+        this.name = name;
+        this.trigger = trigger;
+        this.maxConcurrent = maxConcurrent;
+        this.exclusive = exclusive;
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = new AtomicLong();
+        }
+    }
+
+    /**
+     * Records that a run has started.
+     *
+     * @param start the start time
+     */
+    void started(Instant start) {
+        running.incrementAndGet();
+        lastStart = start;
+    }
+
+    /**
+     * Records a finished run.
+     *
+     * @param outcome how the run ended
+     * @param durationMillis the time the job ran
+     * @param error the exception the job threw, or null
+     */
+    void finished(Outcome outcome, long durationMillis, Throwable error) {
+        running.decrementAndGet();
+        totalDurationMillis.addAndGet(durationMillis);
+        maxDurationMillis.accumulateAndGet(durationMillis, Math::max);
+        lastDurationMillis = durationMillis;
+        lastError = error != null ? String.valueOf(error.getMessage()) : null;
+        lastOutcome = outcome;
+        outcomes[outcome.ordinal()].incrementAndGet();
+    }
+
+    /**
+     * Records a run that was skipped before the job started.
+     *
+     * @param outcome {@link Outcome#SKIPPED_OVERLAP} or {@link Outcome#SKIPPED_LOCKED}
+     */
+    void skipped(Outcome outcome) {
+        lastOutcome = outcome;
+        outcomes[outcome.ordinal()].incrementAndGet();
+    }
+
+    /**
+     * Sets the time of the next scheduled run.
+     *
+     * @param nextRun the next run, or null if none is scheduled
+     */
+    void setNextRun(Instant nextRun) {
+        this.nextRun = nextRun;
+    }
+
+    /**
+     * Returns the job name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns a description of the job's schedule.
+     *
+     * @return the trigger, such as {@code every PT1H} or {@code cron 30 2 * * *}
+     */
+    public String getTrigger() {
+        return trigger;
+    }
+
+    /**
+     * Returns the largest number of runs at once on one node.
+     *
+     * @return the concurrency limit
+     */
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Returns whether the job runs on one node of the cluster at a time.
+     *
+     * @return true if the job takes the cluster lock
+     */
+    public boolean isExclusive() {
+        return exclusive;
+    }
+
+    /**
+     * Returns the number of runs that ended in an outcome.
+     *
+     * @param outcome the outcome
+     * @return the number of runs
+     */
+    public long getCount(Outcome outcome) {
+        return outcomes[outcome.ordinal()].get();
+    }
+
+    /**
+     * Returns the number of runs that succeeded.
+     *
+     * @return the number of runs
+     */
+    public long getSucceeded() {
+        return getCount(Outcome.SUCCEEDED);
+    }
+
+    /**
+     * Returns the number of runs that failed.
+     *
+     * @return the number of runs
+     */
+    public long getFailed() {
+        return getCount(Outcome.FAILED);
+    }
+
+    /**
+     * Returns the number of runs skipped because the job was already running.
+     *
+     * @return the number of runs
+     */
+    public long getSkippedOverlap() {
+        return getCount(Outcome.SKIPPED_OVERLAP);
+    }
+
+    /**
+     * Returns the number of runs skipped because another node held the cluster lock.
+     *
+     * @return the number of runs
+     */
+    public long getSkippedLocked() {
+        return getCount(Outcome.SKIPPED_LOCKED);
+    }
+
+    /**
+     * Returns the number of runs in progress on this node.
+     *
+     * @return the number of runs
+     */
+    public int getRunning() {
+        return running.get();
+    }
+
+    /**
+     * Returns the total time of all runs.
+     *
+     * @return the time in milliseconds
+     */
+    public long getTotalDurationMillis() {
+        return totalDurationMillis.get();
+    }
+
+    /**
+     * Returns the time of the longest run.
+     *
+     * @return the time in milliseconds
+     */
+    public long getMaxDurationMillis() {
+        return maxDurationMillis.get();
+    }
+
+    /**
+     * Returns the time of the next scheduled run.
+     *
+     * @return the time, or null if the scheduler has stopped
+     */
+    public Instant getNextRun() {
+        return nextRun;
+    }
+
+    /**
+     * Returns the time the last run started.
+     *
+     * @return the time, or null if the job has not run yet
+     */
+    public Instant getLastStart() {
+        return lastStart;
+    }
+
+    /**
+     * Returns the time the last finished run took.
+     *
+     * @return the time in milliseconds
+     */
+    public long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    /**
+     * Returns how the last scheduled run ended.
+     *
+     * @return the outcome, or null if the job has not been due yet
+     */
+    public Outcome getLastOutcome() {
+        return lastOutcome;
+    }
+
+    /**
+     * Returns the message of the exception that ended the last finished run.
+     *
+     * @return the message, or null if the last run succeeded
+     */
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,121 @@
+package climateinfoapp;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * {@link ClimateRecordCursor} that merges several cursors, each already sorted by the same order,
+ * into one sorted stream.
+ * <p>
+ * Only the current head record of each input is held in memory: a k-way merge over a heap of
+ * size k takes O(log k) per record, and every input keeps fetching its rows in batches as it is
+ * consumed. Closing the merged cursor closes all inputs.
+ * </p>
+ */
+class MergedRecordCursor implements ClimateRecordCursor {
+
+    /**
+     * The order used by sharded scans: by date, then by ID.
+     */
+    static final Comparator<ClimateRecord> BY_DATE_AND_ID = Comparator
+            .comparing(ClimateRecord::getDate)
+            .thenComparingInt(ClimateRecord::getId);
+
+    /**
+     * The order of multi-location reads: by location, then by date and ID.
+     */
+    static final Comparator<ClimateRecord> BY_LOCATION_DATE_AND_ID = Comparator
+            .comparing(ClimateRecord::getLocation)
+            .thenComparing(BY_DATE_AND_ID);
+
+    private final List<ClimateRecordCursor> inputs;
+    private final PriorityQueue<Head> heads;
+    private int rowCount;
+
+    /**
+     * Creates a merged cursor.
+     *
+     * @param inputs the cursors to merge, each sorted by {@code order}
+     * @param order the order of the inputs and of the merged output
+     * @throws IllegalStateException if an input cannot be read
+     */
+    MergedRecordCursor(List<ClimateRecordCursor> inputs, Comparator<ClimateRecord> order) {
+        this.inputs = inputs;
+        this.heads = new PriorityQueue<>(Math.max(1, inputs.size()), (a, b) -> order.compare(a.record, b.record));
+        try {
+            for (ClimateRecordCursor input : inputs) {
+                advance(input);
+            }
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns whether another record is available.
+     *
+     * @return true if {@link #next()} will return a record
+     */
+    @Override
+    public boolean hasNext() {
+        return !heads.isEmpty();
+    }
+
+    /**
+     * Returns the smallest head record and advances the input it came from.
+     *
+     * @return the next climate record
+     * @throws NoSuchElementException if there are no more records
+     * @throws IllegalStateException if an input cannot be read
+     */
+    @Override
+    public ClimateRecord next() {
+        Head head = heads.poll();
+        if (head == null) {
+            throw new NoSuchElementException();
+        }
+        advance(head.source);
+        rowCount++;
+        return head.record;
+    }
+
+    /**
+     * Returns the number of records returned so far.
+     *
+     * @return the row count
+     */
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Closes every input cursor.
+     */
+    @Override
+    public void close() {
+        heads.clear();
+        for (ClimateRecordCursor input : inputs) {
+            input.close();
+        }
+    }
+
+    private void advance(ClimateRecordCursor input) {
+        if (input.hasNext()) {
+            heads.add(new Head(input.next(), input));
+        }
+    }
+
+    private static final class Head {
+        private final ClimateRecord record;
+        private final ClimateRecordCursor source;
+
+        private Head(ClimateRecord record, ClimateRecordCursor source) {
+            this.record = record;
+            this.source = source;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package climateinfoapp;
+
+/**
+ * Thrown when a request is shed because the database is at capacity. The dashboard answers it
+ * with {@code 503 Service Unavailable} and a {@code Retry-After} header.
+ */
+public class OverloadedException extends Exception {
+	private static final long serialVersionUID = 1L;
+
+	private final int retryAfterSeconds;
+
+	/**
+	 * Creates an exception.
+	 *
+	 * @param message the reason the request was shed
+	 * @param retryAfterSeconds the number of seconds after which the client may retry
+	 */
+	public OverloadedException(String message, int retryAfterSeconds) {
+		super(message);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+	/**
+	 * Returns the number of seconds after which the client may retry.
+	 *
+	 * @return the retry delay in seconds
+	 */
+	public int getRetryAfterSeconds() {
+		return retryAfterSeconds;
+	}
+}
@@ -0,0 +1,487 @@
+package climateinfoapp;
+
+import java.lang.reflect.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.tinylog.Logger;
+
+/**
+ * Times the statements run by {@link ClimateRecordDAO}, bounds them with per-method query timeouts
+ * and keeps a log of the slow ones.
+ * <p>
+ * Every statement gets the timeout configured for its DAO method, shortened to the time left before
+ * the deadline of the request it serves (see {@link #openScope(long)}). Clients and proxies give up
+ * on a request at that deadline, so the driver cancels the statement on the server instead of
+ * letting it run to completion for nobody.
+ * </p>
+ * <p>
+ * Statements that take at least the slow-query threshold are logged with their SQL, a summary of the
+ * bound parameters, the row count and the duration, and kept in a bounded in-memory log. The plan of
+ * a slow {@code SELECT} is captured with {@code EXPLAIN (ANALYZE, BUFFERS)} on a background thread.
+ * ANALYZE runs the query again, so a plan is captured at most once per statement shape and interval.
+ * </p>
+ */
+public class QueryMonitor implements AutoCloseable {
+
+    /**
+     * Slow-query threshold of a monitor created without one.
+     */
+    public static final long DEFAULT_SLOW_THRESHOLD_MILLIS = 1000;
+
+    /**
+     * Number of slow queries kept by a monitor created without a capacity.
+     */
+    public static final int DEFAULT_CAPACITY = 100;
+
+    // Longest rendering of a single parameter value in the log
+    private static final int MAX_PARAMETER_LENGTH = 32;
+
+    // Plan captures waiting for the background thread; further captures are dropped
+    private static final int MAX_PENDING_PLANS = 8;
+
+    // Inheritable, so that the shard queries a request starts on other threads share its deadline
+    private static final InheritableThreadLocal<Scope> CURRENT_SCOPE = new InheritableThreadLocal<>();
+
+    private final int defaultTimeoutSeconds;
+    private final Map<String, Integer> methodTimeouts;
+    private final long slowThresholdMillis;
+    private final int capacity;
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private final AtomicLong slowQueryCount = new AtomicLong();
+    private final Map<String, Long> lastPlanCaptures = new ConcurrentHashMap<>();
+    private volatile ConnectionProvider planConnections;
+    private volatile long planIntervalNanos;
+    private ThreadPoolExecutor planExecutor;
+
+    /**
+     * Supplies the connections that plans are captured on.
+     */
+    @FunctionalInterface
+    public interface ConnectionProvider {
+
+        /**
+         * Opens a connection to a shard.
+         *
+         * @param shard the shard index
+         * @return a connection that the caller closes
+         * @throws SQLException if the connection cannot be opened
+         */
+        Connection getConnection(int shard) throws SQLException;
+    }
+
+    /**
+     * Creates a monitor without timeouts that logs statements slower than
+     * {@link #DEFAULT_SLOW_THRESHOLD_MILLIS}.
+     */
+    public QueryMonitor() {
+        this(0, Collections.emptyMap(), DEFAULT_SLOW_THRESHOLD_MILLIS, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a monitor.
+     *
+     * @param defaultTimeoutSeconds the query timeout of methods without their own, or 0 for none
+     * @param methodTimeouts the query timeouts by DAO method name; 0 disables the timeout of a method
+     * @param slowThresholdMillis the duration from which a statement is logged as slow
+     * @param capacity the number of slow queries kept
+     * @throws IllegalArgumentException if a timeout is negative or the capacity is not positive
+     */
+    public QueryMonitor(int defaultTimeoutSeconds, Map<String, Integer> methodTimeouts, long slowThresholdMillis,
+            int capacity) {
+        if (defaultTimeoutSeconds < 0 || methodTimeouts.values().stream().anyMatch(timeout -> timeout < 0)) {
+            throw new IllegalArgumentException("Query timeouts must not be negative: " + methodTimeouts);
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.defaultTimeoutSeconds = defaultTimeoutSeconds;
+        this.methodTimeouts = new LinkedHashMap<>(methodTimeouts);
+        this.slowThresholdMillis = slowThresholdMillis;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Parses per-method timeouts written as comma-separated {@code method=seconds} pairs.
+     *
+     * @param spec the timeouts, for example {@code "getClimateRecord=5, openAllClimateRecords=60"}; may be blank
+     * @return the timeouts by method name, in the order given
+     * @throws IllegalArgumentException if a pair is malformed
+     */
+    public static Map<String, Integer> parseTimeouts(String spec) {
+        Map<String, Integer> timeouts = new LinkedHashMap<>();
+        for (String pair : spec.split(",")) {
+            if (pair.trim().isEmpty()) {
+                continue;
+            }
+            String[] parts = pair.split("=");
+            try {
+                if (parts.length != 2 || parts[0].trim().isEmpty()) {
+                    throw new NumberFormatException();
+                }
+                timeouts.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid query timeout, expected method=seconds: " + pair.trim());
+            }
+        }
+        return timeouts;
+    }
+
+    /**
+     * Captures the plans of slow {@code SELECT} statements from now on.
+     *
+     * @param connections the source of the connections that the plans are captured on
+     * @param intervalMillis the least time between two captures of the same statement shape
+     */
+    public synchronized void enablePlanCapture(ConnectionProvider connections, long intervalMillis) {
+        if (planExecutor == null) {
+            planExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(MAX_PENDING_PLANS), runnable -> {
+                        Thread thread = new Thread(runnable, "climate-plan-capture");
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.DiscardPolicy());
+        }
+        planIntervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        planConnections = connections;
+    }
+
+    /**
+     * Starts the deadline of a request on the current thread. Statements started by this thread,
+     * or by threads it creates, until the scope is closed get at most the time left as timeout.
+     *
+     * @param timeoutMillis the time the client waits for the request, or 0 for no deadline
+     * @return the scope, to be closed when the request is done
+     */
+    public static Scope openScope(long timeoutMillis) {
+        Scope scope = new Scope(timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0);
+        CURRENT_SCOPE.set(scope);
+        return scope;
+    }
+
+    /**
+     * Returns the query timeout of a DAO method, before the request deadline is applied.
+     *
+     * @param method the method name
+     * @return the timeout in seconds, or 0 for none
+     */
+    public int getTimeoutSeconds(String method) {
+        return methodTimeouts.getOrDefault(method, defaultTimeoutSeconds);
+    }
+
+    /**
+     * Returns the query timeout of methods without their own.
+     *
+     * @return the timeout in seconds, or 0 for none
+     */
+    public int getDefaultTimeoutSeconds() {
+        return defaultTimeoutSeconds;
+    }
+
+    /**
+     * Returns the configured per-method query timeouts.
+     *
+     * @return the timeouts in seconds by method name
+     */
+    public Map<String, Integer> getMethodTimeouts() {
+        return Collections.unmodifiableMap(methodTimeouts);
+    }
+
+    /**
+     * Returns the duration from which a statement is logged as slow.
+     *
+     * @return the threshold in milliseconds
+     */
+    public long getSlowThresholdMillis() {
+        return slowThresholdMillis;
+    }
+
+    /**
+     * Returns the number of slow statements since the monitor was created, including those no
+     * longer kept in the log.
+     *
+     * @return the slow statement count
+     */
+    public long getSlowQueryCount() {
+        return slowQueryCount.get();
+    }
+
+    /**
+     * Returns the slow queries still kept in the log.
+     *
+     * @return a snapshot of the log, most recent first
+     */
+    public List<SlowQuery> getSlowQueries() {
+        synchronized (slowQueries) {
+            return new ArrayList<>(slowQueries);
+        }
+    }
+
+    /**
+     * Applies the timeout of a DAO method to a statement and starts timing it. The execution must be
+     * closed once the statement has completed or failed.
+     *
+     * @param statement the statement about to be executed
+     * @param method the DAO method running the statement
+     * @param shard the shard the statement runs on
+     * @param sql the SQL of the statement
+     * @param parameters the values bound to the placeholders, in order
+     * @return the running execution
+     * @throws SQLException if the timeout cannot be set
+     * @throws SQLTimeoutException if the deadline of the current request has already passed
+     */
+    public Execution start(Statement statement, String method, int shard, String sql, Object... parameters)
+            throws SQLException {
+        int timeout = getTimeoutSeconds(method);
+        Scope scope = CURRENT_SCOPE.get();
+        if (scope != null && !scope.closed && scope.deadlineNanos != 0) {
+            long remainingNanos = scope.deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0) {
+                throw new SQLTimeoutException("The request deadline passed before " + method + " ran", "57014");
+            }
+            int remainingSeconds = (int) Math.min(Integer.MAX_VALUE, (remainingNanos + 999_999_999) / 1_000_000_000);
+            timeout = timeout == 0 ? remainingSeconds : Math.min(timeout, remainingSeconds);
+        }
+        if (timeout > 0) {
+            statement.setQueryTimeout(timeout);
+        }
+        return new Execution(method, shard, sql, parameters);
+    }
+
+    /**
+     * Stops the plan capture thread.
+     */
+    @Override
+    public synchronized void close() {
+        planConnections = null;
+        if (planExecutor != null) {
+            planExecutor.shutdownNow();
+            planExecutor = null;
+        }
+    }
+
+    /**
+     * Renders bound parameters for the log: long strings are truncated and arrays and collections
+     * are reduced to their length, so that neither the log nor the page grows with a bulk statement.
+     *
+     * @param parameters the parameter values
+     * @return the summary, for example {@code 'Victoria', 2024-01-01, int[5000]}
+     */
+    static String summarize(Object[] parameters) {
+        StringBuilder summary = new StringBuilder();
+        for (Object parameter : parameters) {
+            if (summary.length() > 0) {
+                summary.append(", ");
+            }
+            if (parameter == null) {
+                summary.append("null");
+            } else if (parameter instanceof CharSequence) {
+                String value = parameter.toString();
+                summary.append('\'')
+                        .append(value.length() > MAX_PARAMETER_LENGTH ? value.substring(0, MAX_PARAMETER_LENGTH) + "..." : value)
+                        .append('\'');
+            } else if (parameter.getClass().isArray()) {
+                summary.append(parameter.getClass().getComponentType().getSimpleName())
+                        .append('[').append(Array.getLength(parameter)).append(']');
+            } else if (parameter instanceof Collection) {
+                summary.append("list[").append(((Collection<?>) parameter).size()).append(']');
+            } else {
+                summary.append(parameter);
+            }
+        }
+        return summary.toString();
+    }
+
+    private void record(SlowQuery query, Object[] parameters) {
+        Logger.warn("Slow query in {} on shard {}: {} ms, {} rows, parameters [{}]: {}", query.getMethod(),
+                query.getShard(), query.getDurationMillis(), query.isFailed() ? "failed" : query.getRows(),
+                query.getParameters(), query.getSql());
+        slowQueryCount.incrementAndGet();
+        synchronized (slowQueries) {
+            if (slowQueries.size() == capacity) {
+                slowQueries.removeLast();
+            }
+            slowQueries.addFirst(query);
+        }
+        if (planConnections != null && isSelect(query.getSql()) && claimPlanCapture(query.getSql())) {
+            ThreadPoolExecutor executor;
+            synchronized (this) {
+                executor = planExecutor;
+            }
+            if (executor != null) {
+                executor.execute(() -> query.setPlan(explain(query, parameters)));
+            }
+        }
+    }
+
+    /**
+     * Reserves the capture of a statement shape's plan if none was captured within the interval.
+     *
+     * @param sql the SQL of the statement
+     * @return true if the caller should capture the plan
+     */
+    private boolean claimPlanCapture(String sql) {
+        long now = System.nanoTime();
+        Long last = lastPlanCaptures.get(sql);
+        if (last == null) {
+            return lastPlanCaptures.putIfAbsent(sql, now) == null;
+        }
+        return now - last >= planIntervalNanos && lastPlanCaptures.replace(sql, last, now);
+    }
+
+    private static boolean isSelect(String sql) {
+        return sql.trim().toUpperCase(Locale.ROOT).startsWith("SELECT");
+    }
+
+    /**
+     * Runs a slow query again under {@code EXPLAIN (ANALYZE, BUFFERS)} in a transaction that is
+     * rolled back.
+     *
+     * @param query the slow query
+     * @param parameters the values bound to its placeholders
+     * @return the plan, or a note why it could not be captured
+     */
+    private String explain(SlowQuery query, Object[] parameters) {
+        ConnectionProvider connections = planConnections;
+        if (connections == null) {
+            return null;
+        }
+        Connection connection = null;
+        try {
+            connection = connections.getConnection(query.getShard());
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + query.getSql())) {
+                int timeout = getTimeoutSeconds(query.getMethod());
+                if (timeout > 0) {
+                    statement.setQueryTimeout(timeout);
+                }
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            } finally {
+                connection.rollback();
+            }
+        } catch (SQLException e) {
+            Logger.warn(e, "Could not capture the plan of a slow query in {}.", query.getMethod());
+            return "Plan unavailable: " + e.getMessage();
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    Logger.warn(e, "Error while restoring auto-commit.");
+                }
+                DBUtils.closeConnection(connection);
+            }
+        }
+    }
+
+    /**
+     * The deadline of one request, see {@link QueryMonitor#openScope(long)}.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final long deadlineNanos;
+        private volatile boolean closed;
+
+        private Scope(long deadlineNanos) {
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * Ends the deadline. Threads that inherited the scope ignore it from now on.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            if (CURRENT_SCOPE.get() == this) {
+                CURRENT_SCOPE.remove();
+            }
+        }
+    }
+
+    /**
+     * A statement being timed, see {@link QueryMonitor#start(Statement, String, int, String, Object...)}.
+     */
+    public final class Execution implements AutoCloseable {
+        private final String method;
+        private final int shard;
+        private final String sql;
+        private final Object[] parameters;
+        private final long startNanos = System.nanoTime();
+        private final Span span;
+        private int rows = -1;
+        private boolean closed;
+
+        private Execution(String method, int shard, String sql, Object[] parameters) {
+            this.method = method;
+            this.shard = shard;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.span = Tracer.startSpan(method, Span.Kind.CLIENT);
+            if (span.isRecording()) {
+                span.setAttribute("db.system", "postgresql")
+                        .setAttribute("db.operation", method)
+                        .setAttribute("db.statement", sql)
+                        .setAttribute("db.shard", shard);
+            }
+        }
+
+        /**
+         * Marks the statement as completed. An execution closed without a row count is logged as failed.
+         *
+         * @param rows the number of rows returned or changed
+         */
+        public void setRows(int rows) {
+            this.rows = rows;
+        }
+
+        /**
+         * Stops timing and records the statement if it was slow. The span of the statement, if the
+         * request is traced, ends here as well.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (rows >= 0) {
+                span.setAttribute("db.rows", rows);
+            } else {
+                span.setError("Statement failed");
+            }
+            span.close();
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            if (durationMillis >= slowThresholdMillis) {
+                record(new SlowQuery(Instant.now(), method, shard, sql, summarize(parameters), rows, durationMillis),
+                        parameters);
+            }
+        }
+    }
+}
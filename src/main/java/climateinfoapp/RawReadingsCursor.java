@@ -0,0 +1,127 @@
+package climateinfoapp;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * {@link ClimateRecordCursor} that turns a cursor over several storage tiers, ordered by date and
+ * ID or by location, date and ID, into one reading per stored reading.
+ * <p>
+ * A reading can be read twice when it is both in a segment and in the archive table, or in two
+ * segments, after the retention job failed between writing a segment and deleting the readings;
+ * the copies are returned once. A daily mean (a record with a negative ID) is dropped when raw
+ * readings of its location and day are in the input, and kept otherwise, so a day whose raw
+ * readings are not available is still represented.
+ * </p>
+ * <p>
+ * The input is read in runs of records with the same date, which in either order hold all the
+ * records of a location and day; only one run is held in memory at a time.
+ * </p>
+ */
+class RawReadingsCursor implements ClimateRecordCursor {
+    private final ClimateRecordCursor input;
+    private final List<ClimateRecord> day = new ArrayList<>();
+    private int position;
+    private ClimateRecord nextDayFirst;
+    private int rowCount;
+
+    /**
+     * Creates a cursor.
+     *
+     * @param input the records of all tiers, ordered by date and ID or by location, date and ID;
+     *        closed with this cursor
+     */
+    RawReadingsCursor(ClimateRecordCursor input) {
+        this.input = input;
+    }
+
+    /**
+     * Returns whether another record is available.
+     *
+     * @return true if {@link #next()} will return a record
+     * @throws IllegalStateException if the input cannot be read
+     */
+    @Override
+    public boolean hasNext() {
+        while (position == day.size()) {
+            if (!readDay()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the next record.
+     *
+     * @return the next climate record
+     * @throws NoSuchElementException if there are no more records
+     * @throws IllegalStateException if the input cannot be read
+     */
+    @Override
+    public ClimateRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        rowCount++;
+        return day.get(position++);
+    }
+
+    /**
+     * Returns the number of records returned so far.
+     *
+     * @return the row count
+     */
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Closes the input cursor.
+     */
+    @Override
+    public void close() {
+        day.clear();
+        input.close();
+    }
+
+    private boolean readDay() {
+        day.clear();
+        position = 0;
+        if (nextDayFirst == null && !input.hasNext()) {
+            return false;
+        }
+        List<ClimateRecord> records = new ArrayList<>();
+        records.add(nextDayFirst != null ? nextDayFirst : input.next());
+        nextDayFirst = null;
+        String date = records.get(0).getDate();
+        while (input.hasNext()) {
+            ClimateRecord record = input.next();
+            if (!record.getDate().equals(date)) {
+                nextDayFirst = record;
+                break;
+            }
+            records.add(record);
+        }
+
+        Set<String> rawLocations = new HashSet<>();
+        for (ClimateRecord record : records) {
+            if (record.getId() > 0) {
+                rawLocations.add(record.getLocation());
+            }
+        }
+        // IDs are unique per shard and a location lives on one shard, so location and ID identify a reading
+        Set<String> seen = new HashSet<>();
+        for (ClimateRecord record : records) {
+            if (record.getId() < 0 ? !rawLocations.contains(record.getLocation())
+                    : seen.add(record.getLocation() + '\0' + record.getId())) {
+                day.add(record);
+            }
+        }
+        return true;
+    }
+}
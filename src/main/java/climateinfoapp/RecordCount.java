@@ -0,0 +1,70 @@
+package climateinfoapp;
+
+import java.util.Locale;
+
+/**
+ * A number of records for display, either exact or an estimate.
+ */
+public final class RecordCount {
+
+    private final long value;
+    private final boolean exact;
+
+    private RecordCount(long value, boolean exact) {
+        this.value = value;
+        this.exact = exact;
+    }
+
+    /**
+     * Creates an exact count.
+     *
+     * @param value the number of records
+     * @return the count
+     */
+    public static RecordCount exact(long value) {
+        return new RecordCount(value, true);
+    }
+
+    /**
+     * Creates an estimated count, rounded to two significant digits so that it does not look more
+     * precise than it is.
+     *
+     * @param value the estimated number of records
+     * @return the count
+     */
+    public static RecordCount estimate(long value) {
+        long scale = 1;
+        while (value / scale >= 100) {
+            scale *= 10;
+        }
+        return new RecordCount(Math.round((double) value / scale) * scale, false);
+    }
+
+    /**
+     * Returns the number of records.
+     *
+     * @return the count, rounded if it is an estimate
+     */
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * Returns whether the count is exact.
+     *
+     * @return true if exact, false if estimated
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * Returns the count as shown to users.
+     *
+     * @return the value, prefixed with "about" if it is an estimate
+     */
+    @Override
+    public String toString() {
+        return exact ? String.format(Locale.ROOT, "%,d", value) : String.format(Locale.ROOT, "about %,d", value);
+    }
+}
@@ -0,0 +1,76 @@
+package climateinfoapp;
+
+import org.tinylog.Logger;
+
+/**
+ * Counts the climate records for the totals shown above listings, without scanning the records.
+ * <p>
+ * {@code COUNT(*)} reads every row in PostgreSQL. Instead, the count is read from the
+ * per-location and per-month counters that the triggers of {@code sql-scripts/create-record-counts.sql}
+ * maintain, which is exact. On a database without the counters the planner's row estimates are
+ * used and the count is marked as approximate. Whether the counters exist is checked once; the
+ * application must be restarted after the script has run.
+ * </p>
+ */
+public class RecordCounter {
+
+    private final ClimateRecordDAO climateRecordDAO;
+    private volatile boolean countersAvailable = true;
+
+    /**
+     * Creates a counter.
+     *
+     * @param climateRecordDAO the DAO that reads the counters and estimates
+     */
+    public RecordCounter(ClimateRecordDAO climateRecordDAO) {
+        this.climateRecordDAO = climateRecordDAO;
+    }
+
+    /**
+     * Counts all records, including the daily means of archived readings.
+     *
+     * @return the exact count if the counters are available, otherwise an estimate; null if neither
+     *         can be read, in which case the page shows no total
+     */
+    public RecordCount countAll() {
+        try {
+            if (countersAvailable) {
+                Long total = climateRecordDAO.sumRecordCounters();
+                if (total != null) {
+                    return RecordCount.exact(total);
+                }
+                countersAvailable = false;
+            }
+            return RecordCount.estimate(climateRecordDAO.estimateRecordCount());
+        } catch (DatabaseException e) {
+            // A missing total must not fail the listing itself
+            Logger.warn(e, "Record count unavailable.");
+            return null;
+        }
+    }
+
+    /**
+     * Counts the records of the locations matching a city, for a search too large to be read into
+     * a list. The records are streamed by a separate query, so the count is always shown as an
+     * estimate.
+     *
+     * @param city the location to match
+     * @return the approximate count from the counters if they are available, otherwise from the
+     *         planner's estimate; null if neither can be read
+     */
+    public RecordCount countCity(String city) {
+        try {
+            if (countersAvailable) {
+                Long total = climateRecordDAO.sumRecordCounters(city);
+                if (total != null) {
+                    return RecordCount.estimate(total);
+                }
+                countersAvailable = false;
+            }
+            return RecordCount.estimate(climateRecordDAO.estimateRecordCount(city));
+        } catch (DatabaseException e) {
+            Logger.warn(e, "Record count of {} unavailable.", city);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package climateinfoapp;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.JspWriter;
+import javax.servlet.jsp.tagext.SimpleTagSupport;
+
+/**
+ * JSP tag that streams climate records into a table with {@link RecordTableWriter}.
+ * <p>
+ * Usage: {@code <cr:recordRows rows="${recordRows}" emptyMessage="No records found."/>}. When the
+ * iterator yields no rows, the optional empty message is written as a single table row instead.
+ * </p>
+ */
+public class RecordRowsTag extends SimpleTagSupport {
+    private Iterator<ClimateRecord> rows;
+    private String emptyMessage;
+
+    /**
+     * Sets the records to render.
+     *
+     * @param rows an iterator over the records, such as a {@link ClimateRecordCursor}
+     */
+    public void setRows(Iterator<ClimateRecord> rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Sets the message shown when there are no records.
+     *
+     * @param emptyMessage the message text; it is HTML escaped
+     */
+    public void setEmptyMessage(String emptyMessage) {
+        this.emptyMessage = emptyMessage;
+    }
+
+    /**
+     * Writes the rows to the page.
+     *
+     * @throws JspException if the rows cannot be read
+     * @throws IOException if an I/O error occurs
+     */
+    @Override
+    public void doTag() throws JspException, IOException {
+        JspWriter out = getJspContext().getOut();
+        int written = 0;
+        if (rows != null) {
+            try {
+                written = new RecordTableWriter().writeRows(rows, out);
+            } catch (IllegalStateException e) {
+                throw new JspException("Failed to render climate records", e);
+            }
+        }
+        if (written == 0 && emptyMessage != null) {
+            out.write("<tr><td colspan=\"6\">");
+            HtmlEscaper.write(out, emptyMessage);
+            out.write("</td></tr>\n");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package climateinfoapp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+/**
+ * Writes climate records as HTML table rows directly to a response writer.
+ * <p>
+ * Rows are written as they are read from the iterator (typically a {@link ClimateRecordCursor}) and
+ * the writer is flushed every few rows, so the first rows reach the client before the query has
+ * finished and the container never buffers more than one chunk of the table.
+ * </p>
+ */
+public class RecordTableWriter {
+
+    /**
+     * Default number of rows written between flushes.
+     */
+    public static final int DEFAULT_FLUSH_EVERY = 200;
+
+    private final int flushEvery;
+
+    /**
+     * Creates a writer that flushes every {@link #DEFAULT_FLUSH_EVERY} rows.
+     */
+    public RecordTableWriter() {
+        this(DEFAULT_FLUSH_EVERY);
+    }
+
+    /**
+     * Creates a writer with the given flush interval.
+     *
+     * @param flushEvery the number of rows written between flushes
+     * @throws IllegalArgumentException if the interval is not positive
+     */
+    public RecordTableWriter(int flushEvery) {
+        if (flushEvery <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive: " + flushEvery);
+        }
+        this.flushEvery = flushEvery;
+    }
+
+    /**
+     * Writes one table row per record.
+     *
+     * @param records the records to write
+     * @param out the writer to write to
+     * @return the number of rows written
+     * @throws IOException if an I/O error occurs
+     */
+    public int writeRows(Iterator<ClimateRecord> records, Writer out) throws IOException {
+        int rows = 0;
+        while (records.hasNext()) {
+            writeRow(records.next(), out);
+            if (++rows % flushEvery == 0) {
+                out.flush();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes a single table row with the record's values and its edit and delete actions. The row's
+     * element ID is {@code record-<id>}, which the live update script uses to patch it in place.
+     * Daily means of archived readings (negative IDs) are read-only and are labelled instead.
+     *
+     * @param record the record to write
+     * @param out the writer to write to
+     * @throws IOException if an I/O error occurs
+     */
+    public void writeRow(ClimateRecord record, Writer out) throws IOException {
+        boolean dailyMean = record.getId() < 0;
+        String id = Integer.toString(dailyMean ? -record.getId() : record.getId());
+        out.write(dailyMean ? "<tr id=\"daily-" : "<tr id=\"record-");
+        out.write(id);
+        out.write("\">\n<td>");
+        out.write(dailyMean ? "&ndash;" : id);
+        out.write("</td>\n<td>");
+        HtmlEscaper.write(out, record.getDate());
+        out.write("</td>\n<td>");
+        HtmlEscaper.write(out, record.getLocation());
+        out.write("</td>\n<td>");
+        out.write(Float.toString(record.getTemperature()));
+        out.write("</td>\n<td>");
+        out.write(Float.toString(record.getWind()));
+        if (dailyMean) {
+            out.write("</td>\n<td>Daily mean (archived)</td>\n</tr>\n");
+            return;
+        }
+        out.write("</td>\n<td>\n<button class=\"btn btn-edit\"><a href=\"edit?id=");
+        out.write(id);
+        out.write("\" style=\"color:white;\">Edit</a></button>\n<button class=\"btn btn-delete\"><a href=\"delete?id=");
+        out.write(id);
+        out.write("\" style=\"color:white;\">Delete</a></button>\n</td>\n</tr>\n");
+    }
+}
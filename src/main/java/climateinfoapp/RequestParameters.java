@@ -0,0 +1,70 @@
+package climateinfoapp;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Parsing of the request parameters shared by the dashboard's route handlers.
+ */
+final class RequestParameters {
+
+    private RequestParameters() {
+    }
+
+    /**
+     * Returns a request parameter that must be present.
+     *
+     * @param request the HTTP request
+     * @param name the parameter name
+     * @return the trimmed value
+     * @throws InvalidArgumentsException if the parameter is missing or blank
+     */
+    static String requireParameter(HttpServletRequest request, String name) throws InvalidArgumentsException {
+        String value = request.getParameter(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new InvalidArgumentsException("Missing parameter: " + name);
+        }
+        return value.trim();
+    }
+
+    /**
+     * Parses a string as an integer, throwing an exception if the conversion fails.
+     *
+     * @param value the string value to be parsed
+     * @param fieldName the name of the field for error reporting
+     * @return the parsed integer value
+     * @throws IllegalArgumentException if the string cannot be parsed as an integer
+     */
+    static int parseInteger(String value, String fieldName) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(fieldName + " must be a valid integer: " + value, e);
+        }
+    }
+
+    /**
+     * Parses a string as a float, throwing an exception if the conversion fails.
+     *
+     * @param value the string value to be parsed
+     * @param fieldName the name of the field for error reporting
+     * @return the parsed float value
+     * @throws IllegalArgumentException if the string cannot be parsed as a float
+     */
+    static float parseFloat(String value, String fieldName) {
+        try {
+            return Float.parseFloat(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(fieldName + " must be a valid number: " + value, e);
+        }
+    }
+
+    /**
+     * Returns whether a request parameter is missing or empty.
+     *
+     * @param value the parameter value
+     * @return true if there is no value
+     */
+    static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
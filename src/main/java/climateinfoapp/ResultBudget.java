@@ -0,0 +1,146 @@
+package climateinfoapp;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the query results that are read into memory as lists, by row count and by an estimate of
+ * their heap size.
+ * <p>
+ * {@link ClimateRecordDAO} checks the budget after every row it maps, so an oversized result is
+ * abandoned once it crosses the limit rather than after it has filled the heap. The size of a
+ * record is estimated from the object layout of a 64-bit JVM with compressed references: the
+ * record itself, its two strings and the list slot holding it.
+ * </p>
+ */
+public class ResultBudget {
+
+    // Object header, id, two floats and two references, padded to 8 bytes
+    private static final int RECORD_BYTES = 32;
+    // String object with its hash fields, plus the header and length of its byte array
+    private static final int STRING_BYTES = 24 + 16;
+    // Reference held by the backing array of the list
+    private static final int SLOT_BYTES = 4;
+
+    private final long maxRows;
+    private final long maxBytes;
+    private final Map<String, AtomicLong> exceeded = new ConcurrentHashMap<>();
+    private final AtomicLong streamed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Creates a budget.
+     *
+     * @param maxRows the largest number of rows of one result, or 0 for no limit
+     * @param maxBytes the largest estimated heap size of one result, or 0 for no limit
+     * @throws IllegalArgumentException if a limit is negative
+     */
+    public ResultBudget(long maxRows, long maxBytes) {
+        if (maxRows < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Result limits must not be negative: " + maxRows + " rows, " + maxBytes + " bytes");
+        }
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the largest number of rows of one result.
+     *
+     * @return the limit, or 0 for none
+     */
+    public long getMaxRows() {
+        return maxRows;
+    }
+
+    /**
+     * Returns the largest estimated heap size of one result.
+     *
+     * @return the limit in bytes, or 0 for none
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Estimates the heap taken by a record held in a list.
+     *
+     * @param record the record
+     * @return the estimate in bytes
+     */
+    public static long estimateBytes(ClimateRecord record) {
+        return RECORD_BYTES + SLOT_BYTES + stringBytes(record.getDate()) + stringBytes(record.getLocation());
+    }
+
+    /**
+     * Checks a result that is being read.
+     *
+     * @param query the name of the query, used in the message and the metrics
+     * @param rows the number of rows read so far
+     * @param bytes the estimated size of those rows
+     * @throws ResultTooLargeException if either limit has been exceeded
+     */
+    public void check(String query, long rows, long bytes) throws ResultTooLargeException {
+        if (maxRows > 0 && rows > maxRows) {
+            throw exceeded(query, "more than " + maxRows + " rows");
+        }
+        if (maxBytes > 0 && bytes > maxBytes) {
+            throw exceeded(query, "more than " + maxBytes / (1024 * 1024) + " MB");
+        }
+    }
+
+    /**
+     * Returns the number of results abandoned for exceeding the budget, by query name.
+     *
+     * @return the counts, ordered by query name
+     */
+    public Map<String, Long> getExceeded() {
+        Map<String, Long> counts = new TreeMap<>();
+        exceeded.forEach((query, count) -> counts.put(query, count.get()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * Counts a request that switched to streaming after its result exceeded the budget.
+     */
+    public void countStreamed() {
+        streamed.incrementAndGet();
+    }
+
+    /**
+     * Counts a request that was refused because its result exceeded the budget.
+     */
+    public void countRejected() {
+        rejected.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of requests that switched to streaming.
+     *
+     * @return the count
+     */
+    public long getStreamed() {
+        return streamed.get();
+    }
+
+    /**
+     * Returns the number of requests refused for a result exceeding the budget.
+     *
+     * @return the count
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    private ResultTooLargeException exceeded(String query, String limit) {
+        exceeded.computeIfAbsent(query, key -> new AtomicLong()).incrementAndGet();
+        return new ResultTooLargeException("The result is too large (" + limit + "). Please narrow your filter.", query);
+    }
+
+    private static long stringBytes(String value) {
+        // Compact strings of Latin-1 text take one byte per character; arrays are padded to 8 bytes
+        return value == null ? 0 : STRING_BYTES + ((value.length() + 7) & ~7);
+    }
+}
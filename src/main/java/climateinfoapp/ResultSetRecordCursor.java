@@ -0,0 +1,129 @@
+package climateinfoapp;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.NoSuchElementException;
+
+import org.tinylog.Logger;
+
+/**
+ * {@link ClimateRecordCursor} backed by an open JDBC result set on a single database.
+ * <p>
+ * Rows are fetched from the server in batches and mapped one at a time, so memory use does not
+ * grow with the size of the result. The cursor owns its connection, statement and result set, and
+ * completes the statement's {@link QueryMonitor.Execution} when it is closed.
+ * </p>
+ */
+class ResultSetRecordCursor implements ClimateRecordCursor {
+    private final Connection connection;
+    private final Statement statement;
+    private final ResultSet resultSet;
+    private final boolean restoreAutoCommit;
+    private final QueryMonitor.Execution execution;
+
+    private boolean hasNextRow;
+    private boolean advanced;
+    private boolean closed;
+    private int rowCount;
+
+    /**
+     * Wraps an executed query.
+     *
+     * @param connection the connection the query runs on; closed together with the cursor
+     * @param statement the statement that produced the result set
+     * @param resultSet the result set to iterate
+     * @param restoreAutoCommit whether auto-commit must be re-enabled on close
+     * @param execution the monitored execution of the query, closed with the cursor; may be null
+     */
+    ResultSetRecordCursor(Connection connection, Statement statement, ResultSet resultSet, boolean restoreAutoCommit,
+            QueryMonitor.Execution execution) {
+        this.connection = connection;
+        this.statement = statement;
+        this.resultSet = resultSet;
+        this.restoreAutoCommit = restoreAutoCommit;
+        this.execution = execution;
+    }
+
+    /**
+     * Returns whether another record is available.
+     *
+     * @return true if {@link #next()} will return a record
+     * @throws IllegalStateException if the database cursor cannot be advanced
+     */
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!advanced) {
+            try {
+                hasNextRow = resultSet.next();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to read climate records", e);
+            }
+            advanced = true;
+        }
+        return hasNextRow;
+    }
+
+    /**
+     * Returns the next record.
+     *
+     * @return the next climate record
+     * @throws NoSuchElementException if there are no more records
+     * @throws IllegalStateException if the row cannot be read or holds invalid data
+     */
+    @Override
+    public ClimateRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        advanced = false;
+        try {
+            ClimateRecord record = ClimateRecordDAO.mapResultSetToClimateRecord(resultSet);
+            rowCount++;
+            return record;
+        } catch (SQLException | InvalidArgumentsException e) {
+            throw new IllegalStateException("Failed to read climate record", e);
+        }
+    }
+
+    /**
+     * Returns the number of records returned so far.
+     *
+     * @return the row count
+     */
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Closes the result set, statement and connection. Errors are logged and ignored.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (execution != null) {
+            execution.setRows(rowCount);
+            execution.close();
+        }
+        try {
+            resultSet.close();
+            statement.close();
+            if (restoreAutoCommit) {
+                connection.commit();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            Logger.warn(e, "Error while closing climate record cursor.");
+        } finally {
+            DBUtils.closeConnection(connection);
+        }
+    }
+}
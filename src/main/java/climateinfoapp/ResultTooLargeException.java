@@ -0,0 +1,32 @@
+package climateinfoapp;
+
+/**
+ * Thrown when a query result would be read into memory beyond the {@link ResultBudget}. Callers
+ * that can stream switch to a cursor instead; the dashboard answers the others with
+ * {@code 422 Unprocessable Entity} and asks the user to narrow the filter.
+ */
+public class ResultTooLargeException extends DatabaseException {
+	private static final long serialVersionUID = 1L;
+
+	private final String query;
+
+	/**
+	 * Creates an exception.
+	 *
+	 * @param message the budget that was exceeded
+	 * @param query the name of the query whose result was too large
+	 */
+	public ResultTooLargeException(String message, String query) {
+		super(message, null);
+		this.query = query;
+	}
+
+	/**
+	 * Returns the name of the query whose result was too large.
+	 *
+	 * @return the query name, such as {@code records_by_city}
+	 */
+	public String getQuery() {
+		return query;
+	}
+}
@@ -0,0 +1,180 @@
+package climateinfoapp;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.tinylog.Logger;
+
+/**
+ * Scheduled job that enforces the retention policy for raw readings: readings older than the
+ * configured number of days are rolled up into daily per-location aggregates and moved out of the
+ * live table, so queries and indexes on {@code climate_data} only pay for recent data.
+ * <p>
+ * Every shard is compacted in batches of a bounded size through
+ * {@link ClimateRecordDAO#archiveRecordsBefore(int, String, int)}. Each batch is its own short
+ * transaction that skips rows locked by requests, and the job pauses between batches, so it never
+ * holds up the write path for long. A run that fails on one shard is logged and continues with the
+ * next; the remaining readings are picked up by the next run.
+ * </p>
+ * <p>
+ * With a {@link SegmentArchive}, the readings moved to a shard's archive table are then written
+ * to compressed segment files, one per location, and deleted from the table. A segment is
+ * durable before its readings are deleted, so a failure in between can only leave readings both
+ * in a segment and in the table, never in neither. The next run then rewrites the same segment,
+ * which {@link SegmentArchive#write(String, List)} skips, and reads return each reading once.
+ * </p>
+ * <p>
+ * The job is run by the {@link JobScheduler}, on one node of the cluster at a time.
+ * </p>
+ */
+public class RetentionJob implements Runnable {
+    private final ClimateRecordDAO climateRecordDAO;
+    private final int rawRetentionDays;
+    private final int batchSize;
+    private final long batchPauseMillis;
+    private final Clock clock;
+    private final SegmentArchive segmentArchive;
+    private final int segmentMaxRecords;
+
+    /**
+     * Creates a job.
+     *
+     * @param climateRecordDAO the DAO that moves the readings
+     * @param rawRetentionDays the number of days of raw readings to keep
+     * @param batchSize the largest number of readings moved in one transaction
+     * @param batchPauseMillis the pause between two batches
+     * @param clock the clock that determines today's date
+     * @throws IllegalArgumentException if the retention period or the batch size is not positive
+     */
+    public RetentionJob(ClimateRecordDAO climateRecordDAO, int rawRetentionDays, int batchSize, long batchPauseMillis,
+            Clock clock) {
+        this(climateRecordDAO, rawRetentionDays, batchSize, batchPauseMillis, clock, null, 0);
+    }
+
+    /**
+     * Creates a job that also moves the archived readings to segment files.
+     *
+     * @param climateRecordDAO the DAO that moves the readings
+     * @param rawRetentionDays the number of days of raw readings to keep
+     * @param batchSize the largest number of readings moved in one transaction
+     * @param batchPauseMillis the pause between two batches
+     * @param clock the clock that determines today's date
+     * @param segmentArchive the archive that receives the archived readings, or null to keep them in the database
+     * @param segmentMaxRecords the largest number of readings read from the archive table at once
+     * @throws IllegalArgumentException if the retention period, the batch size or, with an archive,
+     *         the segment size is not positive
+     */
+    public RetentionJob(ClimateRecordDAO climateRecordDAO, int rawRetentionDays, int batchSize, long batchPauseMillis,
+            Clock clock, SegmentArchive segmentArchive, int segmentMaxRecords) {
+        if (rawRetentionDays <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Retention days and batch size must be positive: "
+                    + rawRetentionDays + ", " + batchSize);
+        }
+        if (segmentArchive != null && segmentMaxRecords <= 0) {
+            throw new IllegalArgumentException("Segment size must be positive: " + segmentMaxRecords);
+        }
+        this.climateRecordDAO = climateRecordDAO;
+        this.rawRetentionDays = rawRetentionDays;
+        this.batchSize = batchSize;
+        this.batchPauseMillis = batchPauseMillis;
+        this.clock = clock;
+        this.segmentArchive = segmentArchive;
+        this.segmentMaxRecords = segmentMaxRecords;
+    }
+
+    /**
+     * Runs the job once; failures are logged.
+     */
+    @Override
+    public void run() {
+        try {
+            runOnce();
+        } catch (RuntimeException e) {
+            Logger.error(e, "Retention job failed.");
+        }
+    }
+
+    /**
+     * Rolls up and archives every reading older than the retention period on every shard.
+     *
+     * @return the number of readings moved
+     */
+    public int runOnce() {
+        String cutoff = getCutoffDate();
+        long start = System.nanoTime();
+        int total = 0;
+        for (int shard = 0; shard < climateRecordDAO.getShardCount(); shard++) {
+            try {
+                total += compactShard(shard, cutoff);
+                if (segmentArchive != null) {
+                    moveToSegments(shard);
+                }
+            } catch (DatabaseException | InvalidArgumentsException | IOException e) {
+                Logger.warn(e, "Retention stopped on shard {}; the remaining readings are moved by the next run.", shard);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                Logger.info("Retention run interrupted after moving {} readings.", total);
+                return total;
+            }
+        }
+        Logger.info("Retention moved {} readings older than {} in {} ms.", total, cutoff,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return total;
+    }
+
+    /**
+     * Returns the first date whose readings are kept raw.
+     *
+     * @return the cutoff date in yyyy-MM-dd format
+     */
+    String getCutoffDate() {
+        return LocalDate.now(clock).minusDays(rawRetentionDays).toString();
+    }
+
+    private int compactShard(int shard, String cutoff) throws DatabaseException, InterruptedException {
+        int moved = 0;
+        while (true) {
+            int batch = climateRecordDAO.archiveRecordsBefore(shard, cutoff, batchSize);
+            moved += batch;
+            if (batch < batchSize) {
+                return moved;
+            }
+            if (batchPauseMillis > 0) {
+                Thread.sleep(batchPauseMillis);
+            }
+        }
+    }
+
+    /**
+     * Writes the readings in a shard's archive table to segments, one per location and read, and
+     * deletes them from the table.
+     *
+     * @param shard the shard to drain
+     * @throws DatabaseException if the readings cannot be read or deleted
+     * @throws InvalidArgumentsException if an archived reading holds invalid data
+     * @throws IOException if a segment cannot be written
+     */
+    private void moveToSegments(int shard) throws DatabaseException, InvalidArgumentsException, IOException {
+        List<ClimateRecord> records;
+        do {
+            records = climateRecordDAO.listArchivedRecords(shard, segmentMaxRecords);
+            List<Integer> ids = new ArrayList<>(records.size());
+            int start = 0;
+            for (int i = 1; i <= records.size(); i++) {
+                // The readings are ordered by location, so each location is a contiguous run
+                if (i == records.size() || !records.get(i).getLocation().equals(records.get(start).getLocation())) {
+                    segmentArchive.write(records.get(start).getLocation(), records.subList(start, i));
+                    start = i;
+                }
+                ids.add(records.get(i - 1).getId());
+            }
+            if (!ids.isEmpty()) {
+                climateRecordDAO.deleteArchivedRecords(shard, ids);
+            }
+        } while (records.size() == segmentMaxRecords);
+    }
+}
@@ -0,0 +1,303 @@
+package climateinfoapp;
+
+/**
+ * Streaming statistics of the values of the last N days of a date-ordered series: the moving
+ * average and the rolling minimum and maximum.
+ * <p>
+ * Each value is added once and evicted once, so a point costs O(1) amortized however long the
+ * window. The mean comes from a running sum over the values in the window; the extremes from
+ * monotonic deques, which keep only the values that can still become the minimum or maximum
+ * before they leave the window. Memory grows with the number of points in one window, never with
+ * the length of the series. The window is measured in calendar days rather than points, so gaps in
+ * the readings do not stretch it.
+ * </p>
+ */
+public final class RollingWindow {
+
+    /** Longest window accepted, in days: ten years. */
+    public static final int MAX_DAYS = 3660;
+
+    /**
+     * The statistic of the window reported for each point.
+     */
+    public enum Statistic {
+        /** The moving average. */
+        MEAN("mean"),
+        /** The rolling minimum. */
+        MIN("min"),
+        /** The rolling maximum. */
+        MAX("max");
+
+        private final String parameter;
+
+        Statistic(String parameter) {
+            this.parameter = parameter;
+        }
+
+        /**
+         * Returns the name of the statistic in request parameters.
+         *
+         * @return the name, such as {@code mean}
+         */
+        public String getParameter() {
+            return parameter;
+        }
+
+        /**
+         * Looks up a statistic by its parameter name.
+         *
+         * @param parameter the name; null or empty selects {@link #MEAN}
+         * @return the statistic
+         * @throws InvalidArgumentsException if no statistic has the name
+         */
+        public static Statistic fromParameter(String parameter) throws InvalidArgumentsException {
+            if (parameter == null || parameter.isEmpty()) {
+                return MEAN;
+            }
+            for (Statistic statistic : values()) {
+                if (statistic.parameter.equals(parameter)) {
+                    return statistic;
+                }
+            }
+            throw new InvalidArgumentsException("Unknown statistic: " + parameter);
+        }
+    }
+
+    private final int days;
+    // Every value in the window, oldest first; their sum is kept alongside
+    private final DayQueue window = new DayQueue();
+    // Increasing values from the oldest: the front is the minimum
+    private final DayQueue minimums = new DayQueue();
+    // Decreasing values from the oldest: the front is the maximum
+    private final DayQueue maximums = new DayQueue();
+    private double sum;
+    private long lastDay = Long.MIN_VALUE;
+
+    /**
+     * Creates an empty window.
+     *
+     * @param days the length of the window: a point's statistic covers its own day and the
+     *        {@code days - 1} days before it
+     * @throws IllegalArgumentException if the length is not between 1 and {@link #MAX_DAYS}
+     */
+    public RollingWindow(int days) {
+        if (days < 1 || days > MAX_DAYS) {
+            throw new IllegalArgumentException("Window must be between 1 and " + MAX_DAYS + " days: " + days);
+        }
+        this.days = days;
+    }
+
+    /**
+     * Parses the window length of a request.
+     *
+     * @param parameter the number of days
+     * @return the number of days
+     * @throws InvalidArgumentsException if the value is not a whole number between 1 and {@link #MAX_DAYS}
+     */
+    public static int parseDays(String parameter) throws InvalidArgumentsException {
+        try {
+            int days = Integer.parseInt(parameter.trim());
+            if (days >= 1 && days <= MAX_DAYS) {
+                return days;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below with the range
+        }
+        throw new InvalidArgumentsException("Window must be a number of days between 1 and " + MAX_DAYS + ": " + parameter);
+    }
+
+    /**
+     * Returns the length of the window.
+     *
+     * @return the number of days
+     */
+    public int getDays() {
+        return days;
+    }
+
+    /**
+     * Moves the window to a day and adds the value of that day. A NaN value, such as an undefined
+     * wind chill, only moves the window.
+     *
+     * @param epochDay the day of the value, not before the day of the previous value
+     * @param value the value
+     * @throws IllegalArgumentException if the day is before the previous one
+     */
+    public void add(long epochDay, float value) {
+        if (epochDay < lastDay) {
+            throw new IllegalArgumentException("Values must be added in date order: day " + epochDay + " after " + lastDay);
+        }
+        lastDay = epochDay;
+        long oldest = epochDay - days + 1;
+        while (!window.isEmpty() && window.firstDay() < oldest) {
+            sum -= window.firstValue();
+            window.removeFirst();
+        }
+        if (window.isEmpty()) {
+            // Drops the rounding error the running sum has collected
+            sum = 0;
+        }
+        while (!minimums.isEmpty() && minimums.firstDay() < oldest) {
+            minimums.removeFirst();
+        }
+        while (!maximums.isEmpty() && maximums.firstDay() < oldest) {
+            maximums.removeFirst();
+        }
+        if (Float.isNaN(value)) {
+            return;
+        }
+        window.addLast(epochDay, value);
+        sum += value;
+        // A value cannot be the extreme while a newer one at least as extreme is in the window
+        while (!minimums.isEmpty() && minimums.lastValue() >= value) {
+            minimums.removeLast();
+        }
+        minimums.addLast(epochDay, value);
+        while (!maximums.isEmpty() && maximums.lastValue() <= value) {
+            maximums.removeLast();
+        }
+        maximums.addLast(epochDay, value);
+    }
+
+    /**
+     * Returns a statistic of the values in the window.
+     *
+     * @param statistic the statistic
+     * @return the value, or NaN if the window holds no value
+     */
+    public float get(Statistic statistic) {
+        if (window.isEmpty()) {
+            return Float.NaN;
+        }
+        switch (statistic) {
+            case MIN:
+                return minimums.firstValue();
+            case MAX:
+                return maximums.firstValue();
+            default:
+                return (float) (sum / window.size());
+        }
+    }
+
+    /**
+     * Returns the number of values in the window.
+     *
+     * @return the count
+     */
+    public int size() {
+        return window.size();
+    }
+
+    /**
+     * Empties the window, to start the series of another location.
+     */
+    public void reset() {
+        window.clear();
+        minimums.clear();
+        maximums.clear();
+        sum = 0;
+        lastDay = Long.MIN_VALUE;
+    }
+
+    /**
+     * A double-ended queue of day and value pairs in a growable ring of primitive arrays.
+     */
+    private static final class DayQueue {
+        private long[] days = new long[16];
+        private float[] values = new float[16];
+        private int head;
+        private int size;
+
+        /**
+         * Returns whether the queue is empty.
+         *
+         * @return true if it holds no pair
+         */
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Returns the number of pairs.
+         *
+         * @return the count
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Returns the day of the oldest pair.
+         *
+         * @return the day
+         */
+        long firstDay() {
+            return days[head];
+        }
+
+        /**
+         * Returns the value of the oldest pair.
+         *
+         * @return the value
+         */
+        float firstValue() {
+            return values[head];
+        }
+
+        /**
+         * Returns the value of the newest pair.
+         *
+         * @return the value
+         */
+        float lastValue() {
+            return values[(head + size - 1) & (values.length - 1)];
+        }
+
+        /**
+         * Appends a pair, doubling the arrays when they are full.
+         *
+         * @param day the day
+         * @param value the value
+         */
+        void addLast(long day, float value) {
+            if (size == values.length) {
+                long[] grownDays = new long[size * 2];
+                float[] grownValues = new float[size * 2];
+                for (int i = 0; i < size; i++) {
+                    grownDays[i] = days[(head + i) & (size - 1)];
+                    grownValues[i] = values[(head + i) & (size - 1)];
+                }
+                days = grownDays;
+                values = grownValues;
+                head = 0;
+            }
+            int tail = (head + size) & (values.length - 1);
+            days[tail] = day;
+            values[tail] = value;
+            size++;
+        }
+
+        /**
+         * Removes the oldest pair.
+         */
+        void removeFirst() {
+            head = (head + 1) & (values.length - 1);
+            size--;
+        }
+
+        /**
+         * Removes the newest pair.
+         */
+        void removeLast() {
+            size--;
+        }
+
+        /**
+         * Removes every pair.
+         */
+        void clear() {
+            head = 0;
+            size = 0;
+        }
+    }
+}
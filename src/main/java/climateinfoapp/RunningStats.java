@@ -0,0 +1,100 @@
+package climateinfoapp;
+
+/**
+ * Incrementally maintained statistics for a single series of readings.
+ * <p>
+ * The mean and variance are computed with Welford's algorithm, which is numerically stable and
+ * needs O(1) work and memory per observation. An exponentially weighted moving average (EWMA)
+ * is tracked alongside it as a baseline that follows slow drift such as seasonal change.
+ * </p>
+ * <p>
+ * Instances are thread-safe.
+ * </p>
+ */
+public class RunningStats {
+    private final double alpha;
+
+    private long count;
+    private double mean;
+    private double m2;
+    private double ewma;
+
+    /**
+     * Constructs an empty statistics accumulator.
+     *
+     * @param alpha the EWMA smoothing factor, in the range (0, 1]
+     * @throws IllegalArgumentException if alpha is out of range
+     */
+    public RunningStats(double alpha) {
+        if (!(alpha > 0.0 && alpha <= 1.0)) {
+            throw new IllegalArgumentException("EWMA alpha must be in (0, 1]: " + alpha);
+        }
+        this.alpha = alpha;
+    }
+
+    /**
+     * Adds an observation.
+     *
+     * @param value the observed value
+     */
+    public synchronized void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        ewma = count == 1 ? value : ewma + alpha * (value - ewma);
+    }
+
+    /**
+     * Computes the z-score of a value against the EWMA baseline, scaled by the running
+     * standard deviation, and then adds the value to the statistics.
+     *
+     * @param value the observed value
+     * @param minSamples the number of prior observations required before a score is produced
+     * @return the z-score, or {@code Double.NaN} if there is not enough history to score the value
+     */
+    public synchronized double scoreAndAdd(double value, long minSamples) {
+        double z = Double.NaN;
+        double stdDev = getStdDev();
+        if (count >= minSamples && stdDev > 0.0) {
+            z = (value - ewma) / stdDev;
+        }
+        add(value);
+        return z;
+    }
+
+    /**
+     * @return the number of observations
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the arithmetic mean of all observations
+     */
+    public synchronized double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return the sample variance, or 0 when fewer than two values have been observed
+     */
+    public synchronized double getVariance() {
+        return count > 1 ? m2 / (count - 1) : 0.0;
+    }
+
+    /**
+     * @return the sample standard deviation
+     */
+    public synchronized double getStdDev() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * @return the exponentially weighted baseline
+     */
+    public synchronized double getBaseline() {
+        return ewma;
+    }
+}
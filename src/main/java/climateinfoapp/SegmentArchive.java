@@ -0,0 +1,390 @@
+package climateinfoapp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.CRC32C;
+
+import org.tinylog.Logger;
+
+/**
+ * Cold storage for archived raw readings: a directory of immutable, Gorilla-compressed segment
+ * files, each holding one location's readings in date order.
+ * <p>
+ * Segments are written to a temporary file, forced to disk and then renamed into place, so a
+ * crash never leaves a partial segment behind. Reads merge the segments that overlap a date range
+ * into one cursor in date and ID order, which can be merged with database cursors like any other
+ * shard.
+ * </p>
+ * <p>
+ * In a cluster the directory must be on storage shared by all nodes: the retention job runs on
+ * one node and deletes the readings from the database once they are in a segment. Every read
+ * rescans the directory, so a segment written by any node is visible to all of them as soon as it
+ * is renamed into place, and a segment replaced by {@link #rewrite} is dropped once it is deleted.
+ * </p>
+ */
+public class SegmentArchive implements AutoCloseable {
+
+    /**
+     * Records per block; a range scan decodes whole blocks.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    // Temporary files older than this are left over from interrupted writes; younger ones may be
+    // segments that another node is still writing to the shared directory
+    private static final Duration STALE_TEMPORARY_AGE = Duration.ofHours(1);
+
+    private final Path directory;
+    private final int blockSize;
+    private final ConcurrentMap<Path, SegmentReader> segments = new ConcurrentHashMap<>();
+
+    /**
+     * Opens the archive in a directory, creating the directory if needed. Temporary files left
+     * over from interrupted writes are deleted once they are an hour old.
+     *
+     * @param directory the directory holding the segments
+     * @param blockSize the number of records per block of new segments
+     * @throws IOException if the directory or a segment cannot be read
+     * @throws IllegalArgumentException if the block size is not positive
+     */
+    public SegmentArchive(Path directory, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.directory = directory;
+        this.blockSize = blockSize;
+        Files.createDirectories(directory);
+        try {
+            refresh();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+        Logger.info("Opened segment archive {} with {} segments.", directory, segments.size());
+    }
+
+    /**
+     * Opens the segments that were added to the directory since the last scan, such as those
+     * written by other nodes, closes those that were removed because they were rewritten, and
+     * deletes stale temporary files.
+     *
+     * @throws IOException if the directory or a new segment cannot be read; the other new segments
+     *         are opened all the same
+     */
+    public void refresh() throws IOException {
+        Instant staleBefore = Instant.now().minus(STALE_TEMPORARY_AGE);
+        IOException failure = null;
+        Set<Path> listed = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    if (name.endsWith(TEMPORARY_SUFFIX)) {
+                        if (Files.getLastModifiedTime(file).toInstant().isBefore(staleBefore)) {
+                            Files.deleteIfExists(file);
+                        }
+                    } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                        listed.add(file);
+                        if (!segments.containsKey(file)) {
+                            addSegment(new SegmentReader(file));
+                        }
+                    }
+                } catch (NoSuchFileException e) {
+                    // Renamed into place or deleted by another node since the listing
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        for (Path file : segments.keySet()) {
+            // A segment written since the listing is not listed yet, but exists
+            if (!listed.contains(file) && Files.notExists(file)) {
+                removeSegment(file);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Writes one location's readings as a new segment. The segment is named after its readings, so
+     * writing the same readings again, as a retention run does after failing before it could delete
+     * them from the database, returns the existing segment instead of a duplicate.
+     *
+     * @param location the location of all records
+     * @param records the records, ordered by date and ID
+     * @return the new or existing segment
+     * @throws IOException if the segment cannot be written
+     * @throws IllegalArgumentException if the records are empty, out of order or from another location
+     */
+    public SegmentReader write(String location, List<ClimateRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("A segment needs at least one record");
+        }
+        String name = segmentName(location, records);
+        Path file = directory.resolve(name + SEGMENT_SUFFIX);
+        if (Files.exists(file)) {
+            SegmentReader existing = segments.get(file);
+            Logger.info("Readings of {} in {} are already archived.", location, file.getFileName());
+            return existing != null ? existing : addSegment(new SegmentReader(file));
+        }
+        // Unique, in case another node writes the same segment at the same time
+        Path temporary = directory.resolve(name + "_" + UUID.randomUUID() + TEMPORARY_SUFFIX);
+        try {
+            SegmentWriter.write(temporary, location, records, blockSize);
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        SegmentReader segment = addSegment(new SegmentReader(file));
+        Logger.info("Archived {} readings of {} in {} ({} bytes).", records.size(), location, file.getFileName(),
+                segment.getSizeBytes());
+        return segment;
+    }
+
+    /**
+     * Opens a cursor over the archived readings in a date range, in date and ID order. A reading
+     * that is in several segments is returned once.
+     *
+     * @param fromDate the first date to return in yyyy-MM-dd format, or null for no lower bound
+     * @param toDate the last date to return in yyyy-MM-dd format, or null for no upper bound
+     * @return a cursor over the segments that overlap the range
+     */
+    public ClimateRecordCursor openRange(String fromDate, String toDate) {
+        return open(fromDate, toDate, MergedRecordCursor.BY_DATE_AND_ID);
+    }
+
+    /**
+     * Opens a cursor over all archived readings in location, date and ID order. A reading that is
+     * in several segments is returned once.
+     *
+     * @return a cursor over all segments
+     */
+    public ClimateRecordCursor openByLocation() {
+        return open(null, null, MergedRecordCursor.BY_LOCATION_DATE_AND_ID);
+    }
+
+    /**
+     * Opens a cursor over the archived readings of one location in a date range, in date and ID
+     * order.
+     *
+     * @param location the location of the readings
+     * @param fromDate the first date to return in yyyy-MM-dd format
+     * @param toDate the last date to return in yyyy-MM-dd format
+     * @return a cursor over the location's segments that overlap the range
+     */
+    public ClimateRecordCursor openRange(String location, String fromDate, String toDate) {
+        refreshQuietly();
+        List<ClimateRecordCursor> cursors = new ArrayList<>();
+        for (SegmentReader segment : segments.values()) {
+            if (segment.getLocation().equals(location) && segment.overlaps(fromDate, toDate)) {
+                cursors.add(segment.openRange(fromDate, toDate));
+            }
+        }
+        return new RawReadingsCursor(new MergedRecordCursor(cursors, MergedRecordCursor.BY_DATE_AND_ID));
+    }
+
+    /**
+     * Changes or deletes the archived readings of a location in a date range. Segments are
+     * immutable, so every segment holding such readings is replaced by a new segment with the
+     * changed readings and its other readings, or removed if no reading is left.
+     * <p>
+     * All replacements are computed before any file is written, so a change that rejects a reading
+     * leaves the archive untouched. Each new segment is renamed into place before the segment it
+     * replaces is deleted; if the rewrite fails in between, both are read, the copies of a
+     * reading are returned once, and running the same delete again removes what is left.
+     * </p>
+     *
+     * @param location the location of the readings
+     * @param fromDate the first date of the range in yyyy-MM-dd format
+     * @param toDate the last date of the range in yyyy-MM-dd format
+     * @param change the change applied to each reading of the range
+     * @return the number of readings changed or deleted
+     * @throws IOException if a segment cannot be written or deleted
+     * @throws InvalidArgumentsException if the change rejects a reading; nothing is rewritten then
+     */
+    public int rewrite(String location, String fromDate, String toDate, Change change)
+            throws IOException, InvalidArgumentsException {
+        refreshQuietly();
+        Map<SegmentReader, List<ClimateRecord>> replacements = new LinkedHashMap<>();
+        int changed = 0;
+        for (SegmentReader segment : segments.values()) {
+            if (!segment.getLocation().equals(location) || !segment.overlaps(fromDate, toDate)) {
+                continue;
+            }
+            List<ClimateRecord> kept = new ArrayList<>(segment.getRecordCount());
+            int segmentChanged = 0;
+            try (ClimateRecordCursor records = segment.openRange(null, null)) {
+                while (records.hasNext()) {
+                    ClimateRecord record = records.next();
+                    if (record.getDate().compareTo(fromDate) < 0 || record.getDate().compareTo(toDate) > 0) {
+                        kept.add(record);
+                        continue;
+                    }
+                    ClimateRecord replacement = change.apply(record);
+                    if (replacement != null) {
+                        kept.add(replacement);
+                    }
+                    segmentChanged++;
+                }
+            } catch (IllegalStateException e) {
+                throw new IOException("Failed to read segment " + segment.getFile(), e.getCause());
+            }
+            if (segmentChanged > 0) {
+                replacements.put(segment, kept);
+                changed += segmentChanged;
+            }
+        }
+
+        for (Map.Entry<SegmentReader, List<ClimateRecord>> replacement : replacements.entrySet()) {
+            if (!replacement.getValue().isEmpty()) {
+                write(location, replacement.getValue());
+            }
+            Path file = replacement.getKey().getFile();
+            Files.deleteIfExists(file);
+            removeSegment(file);
+        }
+        Logger.info("Rewrote {} segments of {} to change {} readings from {} to {}.", replacements.size(), location,
+                changed, fromDate, toDate);
+        return changed;
+    }
+
+    /**
+     * Returns the open segments.
+     *
+     * @return an unmodifiable snapshot of the segments
+     */
+    public List<SegmentReader> getSegments() {
+        refreshQuietly();
+        return Collections.unmodifiableList(new ArrayList<>(segments.values()));
+    }
+
+    /**
+     * Returns the number of archived readings.
+     *
+     * @return the record count over all segments
+     */
+    public long getRecordCount() {
+        refreshQuietly();
+        return segments.values().stream().mapToLong(SegmentReader::getRecordCount).sum();
+    }
+
+    /**
+     * Returns the disk space used by the segments.
+     *
+     * @return the size in bytes
+     */
+    public long getSizeBytes() {
+        refreshQuietly();
+        return segments.values().stream().mapToLong(SegmentReader::getSizeBytes).sum();
+    }
+
+    /**
+     * Closes all segments.
+     */
+    @Override
+    public void close() {
+        segments.values().forEach(SegmentReader::close);
+        segments.clear();
+    }
+
+    private void removeSegment(Path file) {
+        SegmentReader segment = segments.remove(file);
+        if (segment != null) {
+            // Cursors still reading it keep the mapping until they are unreachable
+            segment.close();
+        }
+    }
+
+    private SegmentReader addSegment(SegmentReader segment) {
+        SegmentReader existing = segments.putIfAbsent(segment.getFile(), segment);
+        if (existing != null) {
+            // Opened concurrently by a scan
+            segment.close();
+            return existing;
+        }
+        return segment;
+    }
+
+    // Each segment is one location in date and ID order, so it can be merged in either order
+    private ClimateRecordCursor open(String fromDate, String toDate, Comparator<ClimateRecord> order) {
+        refreshQuietly();
+        List<ClimateRecordCursor> cursors = new ArrayList<>();
+        for (SegmentReader segment : segments.values()) {
+            if (segment.overlaps(fromDate, toDate)) {
+                cursors.add(segment.openRange(fromDate, toDate));
+            }
+        }
+        return new RawReadingsCursor(new MergedRecordCursor(cursors, order));
+    }
+
+    // The date range, the ID range and a checksum of the location and all readings, so a
+    // rewritten segment with corrected values gets a new name
+    private static String segmentName(String location, List<ClimateRecord> records) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(location.getBytes(StandardCharsets.UTF_8));
+        ByteBuffer reading = ByteBuffer.allocate(3 * Integer.BYTES);
+        int minId = Integer.MAX_VALUE;
+        int maxId = Integer.MIN_VALUE;
+        for (ClimateRecord record : records) {
+            minId = Math.min(minId, record.getId());
+            maxId = Math.max(maxId, record.getId());
+            reading.putInt(0, record.getId())
+                    .putInt(Integer.BYTES, Float.floatToIntBits(record.getTemperature()))
+                    .putInt(2 * Integer.BYTES, Float.floatToIntBits(record.getWind()));
+            checksum.update(reading.array());
+        }
+        return String.format("%s_%s_%d-%d_%08x", records.get(0).getDate(), records.get(records.size() - 1).getDate(),
+                minId, maxId, checksum.getValue());
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (IOException e) {
+            Logger.warn(e, "Could not rescan segment archive {}; new segments are picked up by a later read.", directory);
+        }
+    }
+
+    /**
+     * A change of one archived reading.
+     */
+    @FunctionalInterface
+    public interface Change {
+
+        /**
+         * Changes a reading.
+         *
+         * @param reading the archived reading
+         * @return the changed reading, or null to delete it
+         * @throws InvalidArgumentsException if the changed reading would be invalid
+         */
+        ClimateRecord apply(ClimateRecord reading) throws InvalidArgumentsException;
+    }
+}
@@ -0,0 +1,274 @@
+package climateinfoapp;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.NoSuchElementException;
+
+import org.tinylog.Logger;
+
+/**
+ * Reads a segment file written by {@link SegmentWriter}.
+ * <p>
+ * The file is memory-mapped once and records are decoded straight from the mapping, so a scan
+ * copies no file data onto the heap and the operating system's page cache is the only cache.
+ * Range scans use the footer to visit only the blocks whose dates overlap the range. The mapping
+ * is read with absolute gets only, so one reader serves any number of concurrent cursors.
+ * </p>
+ */
+public class SegmentReader implements AutoCloseable {
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final String location;
+    private final int blockCount;
+    private final int footerOffset;
+    private final int recordCount;
+
+    /**
+     * Opens and maps a segment.
+     *
+     * @param file the segment file
+     * @throws IOException if the file cannot be read or is not a valid segment
+     */
+    public SegmentReader(Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < 2 * Integer.BYTES + SegmentWriter.TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a segment file: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int trailer = (int) size - SegmentWriter.TRAILER_BYTES;
+            if (buffer.getInt(0) != SegmentWriter.MAGIC || buffer.getInt(trailer + 3 * Integer.BYTES) != SegmentWriter.MAGIC) {
+                throw new IOException("Not a segment file or incomplete: " + file);
+            }
+            blockCount = buffer.getInt(trailer);
+            footerOffset = buffer.getInt(trailer + Integer.BYTES);
+            recordCount = buffer.getInt(trailer + 2 * Integer.BYTES);
+            if (footerOffset + (long) blockCount * SegmentWriter.FOOTER_ENTRY_BYTES != trailer) {
+                throw new IOException("Corrupt segment footer: " + file);
+            }
+            byte[] name = new byte[buffer.getShort(Integer.BYTES)];
+            buffer.get(Integer.BYTES + Short.BYTES, name);
+            location = new String(name, StandardCharsets.UTF_8);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the segment file.
+     *
+     * @return the path of the file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the location of the records in the segment.
+     *
+     * @return the location
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns the number of records in the segment.
+     *
+     * @return the record count
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the size of the segment file.
+     *
+     * @return the size in bytes
+     */
+    public long getSizeBytes() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Returns the date of the first record.
+     *
+     * @return the date in yyyy-MM-dd format
+     */
+    public String getFirstDate() {
+        return LocalDate.ofEpochDay(firstDay(0)).toString();
+    }
+
+    /**
+     * Returns the date of the last record.
+     *
+     * @return the date in yyyy-MM-dd format
+     */
+    public String getLastDate() {
+        return LocalDate.ofEpochDay(lastDay(blockCount - 1)).toString();
+    }
+
+    /**
+     * Returns whether the segment has records in a date range.
+     *
+     * @param fromDate the first date of the range in yyyy-MM-dd format, or null for no lower bound
+     * @param toDate the last date of the range in yyyy-MM-dd format, or null for no upper bound
+     * @return true if the segment's dates overlap the range
+     */
+    public boolean overlaps(String fromDate, String toDate) {
+        return lastDay(blockCount - 1) >= toEpochDay(fromDate, Long.MIN_VALUE)
+                && firstDay(0) <= toEpochDay(toDate, Long.MAX_VALUE);
+    }
+
+    /**
+     * Opens a cursor over the records in a date range, in date and ID order.
+     *
+     * @param fromDate the first date to return in yyyy-MM-dd format, or null for no lower bound
+     * @param toDate the last date to return in yyyy-MM-dd format, or null for no upper bound
+     * @return a cursor; closing it is not required but harmless
+     */
+    public ClimateRecordCursor openRange(String fromDate, String toDate) {
+        return new RangeCursor(toEpochDay(fromDate, Long.MIN_VALUE), toEpochDay(toDate, Long.MAX_VALUE));
+    }
+
+    /**
+     * Closes the file. The mapping is released once the reader and its cursors are unreachable.
+     */
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            Logger.warn(e, "Error while closing segment {}.", file);
+        }
+    }
+
+    private int footerEntry(int block, int field) {
+        return buffer.getInt(footerOffset + block * SegmentWriter.FOOTER_ENTRY_BYTES + field * Integer.BYTES);
+    }
+
+    private int blockOffset(int block) {
+        return footerEntry(block, 0);
+    }
+
+    private int blockRecordCount(int block) {
+        return footerEntry(block, 1);
+    }
+
+    private int firstDay(int block) {
+        return footerEntry(block, 2);
+    }
+
+    private int lastDay(int block) {
+        return footerEntry(block, 3);
+    }
+
+    private static long toEpochDay(String date, long unbounded) {
+        return date == null ? unbounded : LocalDate.parse(date).toEpochDay();
+    }
+
+    /**
+     * Decodes the blocks overlapping a date range one after the other, skipping the records
+     * outside the range.
+     */
+    private final class RangeCursor implements ClimateRecordCursor {
+        private final long fromDay;
+        private final long toDay;
+        private int block = -1;
+        private GorillaCodec.Decoder decoder;
+        private ClimateRecord nextRecord;
+        private boolean done;
+        private int rowCount;
+
+        private RangeCursor(long fromDay, long toDay) {
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        /**
+         * Returns whether another record is available.
+         *
+         * @return true if {@link #next()} will return a record
+         * @throws IllegalStateException if the segment holds an invalid record
+         */
+        @Override
+        public boolean hasNext() {
+            while (nextRecord == null && !done) {
+                if (decoder == null || !decoder.hasNext()) {
+                    if (!nextBlock()) {
+                        done = true;
+                        break;
+                    }
+                }
+                ClimateRecord record;
+                try {
+                    record = decoder.next();
+                } catch (InvalidArgumentsException e) {
+                    throw new IllegalStateException("Invalid climate record in segment " + file, e);
+                }
+                if (decoder.getDay() > toDay) {
+                    done = true;
+                } else if (decoder.getDay() >= fromDay) {
+                    nextRecord = record;
+                }
+            }
+            return nextRecord != null;
+        }
+
+        /**
+         * Returns the next record.
+         *
+         * @return the next climate record
+         * @throws NoSuchElementException if there are no more records
+         */
+        @Override
+        public ClimateRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ClimateRecord record = nextRecord;
+            nextRecord = null;
+            rowCount++;
+            return record;
+        }
+
+        /**
+         * Returns the number of records returned so far.
+         *
+         * @return the row count
+         */
+        @Override
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Stops the scan; the segment stays open for other cursors.
+         */
+        @Override
+        public void close() {
+            done = true;
+            nextRecord = null;
+        }
+
+        private boolean nextBlock() {
+            do {
+                block++;
+                if (block >= blockCount || firstDay(block) > toDay) {
+                    return false;
+                }
+            } while (lastDay(block) < fromDay);
+            decoder = new GorillaCodec.Decoder(buffer, blockOffset(block), blockRecordCount(block), location);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package climateinfoapp;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes one location's climate records as an immutable segment file.
+ * <p>
+ * A segment is a header naming the location, a run of {@link GorillaCodec} blocks of up to
+ * {@code blockSize} records in date and ID order, and a footer that indexes each block by its
+ * offset, record count and first and last date. Readers use the footer to skip the blocks outside
+ * a date range. All numbers are big-endian.
+ * </p>
+ */
+final class SegmentWriter {
+
+    /**
+     * Identifies a segment file; written at the start and at the end.
+     */
+    static final int MAGIC = 0x43534731; // "CSG1"
+
+    /**
+     * Bytes per block in the footer: offset, record count, first and last date.
+     */
+    static final int FOOTER_ENTRY_BYTES = 4 * Integer.BYTES;
+
+    /**
+     * Bytes after the footer: block count, footer offset, record count and magic.
+     */
+    static final int TRAILER_BYTES = 4 * Integer.BYTES;
+
+    private SegmentWriter() {
+    }
+
+    /**
+     * Writes a segment and forces it to disk.
+     *
+     * @param file the file to create; it must not exist
+     * @param location the location of all records
+     * @param records the records, ordered by date and ID
+     * @param blockSize the largest number of records per block
+     * @throws IOException if the file cannot be written or would exceed 2 GB
+     * @throws IllegalArgumentException if there are no records, a record belongs to another location
+     *         or the records are out of order
+     */
+    static void write(Path file, String location, List<ClimateRecord> records, int blockSize) throws IOException {
+        if (records.isEmpty()) {
+            throw new IllegalArgumentException("A segment needs at least one record");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+
+            byte[] name = location.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(MAGIC);
+            out.writeShort(name.length);
+            out.write(name);
+
+            List<int[]> footer = new ArrayList<>();
+            ClimateRecord previous = null;
+            for (int start = 0; start < records.size(); start += blockSize) {
+                List<ClimateRecord> block = records.subList(start, Math.min(records.size(), start + blockSize));
+                GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+                for (ClimateRecord record : block) {
+                    if (!location.equals(record.getLocation())) {
+                        throw new IllegalArgumentException("Record " + record.getId() + " is not from " + location);
+                    }
+                    if (previous != null && MergedRecordCursor.BY_DATE_AND_ID.compare(previous, record) > 0) {
+                        throw new IllegalArgumentException("Records must be ordered by date and ID: " + record.getId());
+                    }
+                    encoder.add(record);
+                    previous = record;
+                }
+                footer.add(new int[] {out.size(), block.size(), epochDay(block.get(0)), epochDay(previous)});
+                for (long word : encoder.toWords()) {
+                    out.writeLong(word);
+                }
+                if (out.size() == Integer.MAX_VALUE) { // The counter saturates instead of overflowing
+                    throw new IOException("Segment exceeds 2 GB: " + file);
+                }
+            }
+
+            int footerOffset = out.size();
+            for (int[] entry : footer) {
+                for (int field : entry) {
+                    out.writeInt(field);
+                }
+            }
+            out.writeInt(footer.size());
+            out.writeInt(footerOffset);
+            out.writeInt(records.size());
+            out.writeInt(MAGIC);
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    private static int epochDay(ClimateRecord record) {
+        return (int) LocalDate.parse(record.getDate()).toEpochDay();
+    }
+}
@@ -0,0 +1,158 @@
+package climateinfoapp;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.tinylog.Logger;
+
+/**
+ * Maps climate records to the database shard that stores them.
+ * <p>
+ * A location is placed with consistent hashing: every shard owns a number of virtual nodes on a
+ * 64-bit hash ring and a location belongs to the first node at or after its own hash. Adding a
+ * shard therefore moves only about 1/N of the locations. Entries in the override table take
+ * precedence over the ring, which allows a busy location to be pinned to a shard of its own.
+ * </p>
+ * <p>
+ * Record IDs are drawn from per-shard sequences that start at the shard's index plus one and
+ * increment by the shard count (see {@code sql-scripts/create-climate-data-shard.sql}), so IDs
+ * are unique across shards and the shard of a record follows from its ID alone.
+ * </p>
+ */
+public class ShardRouter {
+    private static final int VIRTUAL_NODES_PER_SHARD = 128;
+
+    private final int shardCount;
+    private final NavigableMap<Long, Integer> ring = new TreeMap<>();
+    private final Map<String, Integer> ringPlacements = new ConcurrentHashMap<>();
+    private volatile Map<String, Integer> overrides = Collections.emptyMap();
+
+    /**
+     * Creates a router over the given number of shards.
+     *
+     * @param shardCount the number of shards
+     * @throws IllegalArgumentException if the shard count is not positive
+     */
+    public ShardRouter(int shardCount) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive: " + shardCount);
+        }
+        this.shardCount = shardCount;
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int node = 0; node < VIRTUAL_NODES_PER_SHARD; node++) {
+                ring.put(hash("shard-" + shard + "#" + node), shard);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return the shard count
+     */
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * Returns the shard that stores the records of a location.
+     *
+     * @param location the location
+     * @return the shard index
+     */
+    public int shardForLocation(String location) {
+        if (shardCount == 1) {
+            return 0;
+        }
+        Integer override = overrides.get(location);
+        if (override != null) {
+            return override;
+        }
+        return ringPlacements.computeIfAbsent(location, key -> {
+            Map.Entry<Long, Integer> node = ring.ceilingEntry(hash(key));
+            return node != null ? node.getValue() : ring.firstEntry().getValue();
+        });
+    }
+
+    /**
+     * Returns the shard that stores the record with the given ID.
+     *
+     * @param id the record ID
+     * @return the shard index
+     */
+    public int shardForId(int id) {
+        return Math.floorMod(id - 1, shardCount);
+    }
+
+    /**
+     * Replaces the override table.
+     *
+     * @param overrides the shard of each pinned location
+     * @throws IllegalArgumentException if an override names a shard that does not exist
+     */
+    public void setOverrides(Map<String, Integer> overrides) {
+        for (Map.Entry<String, Integer> entry : overrides.entrySet()) {
+            if (entry.getValue() < 0 || entry.getValue() >= shardCount) {
+                throw new IllegalArgumentException("Override for " + entry.getKey() + " names unknown shard " + entry.getValue());
+            }
+        }
+        this.overrides = Collections.unmodifiableMap(new HashMap<>(overrides));
+    }
+
+    /**
+     * Returns the override table.
+     *
+     * @return the shard of each pinned location
+     */
+    public Map<String, Integer> getOverrides() {
+        return overrides;
+    }
+
+    /**
+     * Loads the override table from the {@code climate_shard_overrides} table.
+     *
+     * @param connection a connection to the shard holding the override table
+     * @throws SQLException if the table cannot be read
+     */
+    public void loadOverrides(Connection connection) throws SQLException {
+        Map<String, Integer> loaded = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT location, shard FROM climate_shard_overrides")) {
+            while (resultSet.next()) {
+                loaded.put(resultSet.getString("location"), resultSet.getInt("shard"));
+            }
+        }
+        setOverrides(loaded);
+        Logger.info("Loaded {} shard overrides.", loaded.size());
+    }
+
+    /**
+     * Hashes a key onto the ring with 64-bit FNV-1a followed by a finalizing mix, which is stable
+     * across JVMs and spreads similar keys such as virtual node names evenly.
+     *
+     * @param key the key to hash
+     * @return the ring position
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
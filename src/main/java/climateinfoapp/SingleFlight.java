@@ -0,0 +1,107 @@
+package climateinfoapp;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces concurrent identical calls: while a call for a key is in flight, further calls for the
+ * same key wait for it and share its result or exception instead of running the loader again.
+ * <p>
+ * A flight is removed from the table before its result is published, so a call that arrives after
+ * a flight has finished always starts a new one; results are never cached beyond the calls that
+ * overlapped with their execution. {@link #forgetAll()} detaches the current flights, so callers
+ * that arrive after a write do not join a query that started before it.
+ * </p>
+ *
+ * @param <K> the type of the keys identifying identical calls
+ * @param <V> the type of the results
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Returns the result of the in-flight call for a key, or runs the loader if there is none.
+     *
+     * @param key identifies identical calls
+     * @param loader computes the result; runs on the calling thread
+     * @return the result, shared by all calls that joined the same flight
+     * @throws Exception the exception thrown by the loader of the flight, or an
+     *         {@link InterruptedException} if the thread was interrupted while waiting
+     */
+    public V execute(K key, Callable<V> loader) throws Exception {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        executions.increment();
+        V result;
+        try {
+            result = loader.call();
+        } catch (Throwable e) {
+            inFlight.remove(key, flight);
+            flight.completeExceptionally(e);
+            throw e;
+        }
+        inFlight.remove(key, flight);
+        flight.complete(result);
+        return result;
+    }
+
+    /**
+     * Detaches every in-flight call; later calls start new flights. Calls that have already
+     * joined a flight still receive its result.
+     */
+    public void forgetAll() {
+        inFlight.clear();
+    }
+
+    /**
+     * Returns the number of calls that ran the loader.
+     *
+     * @return the execution count
+     */
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /**
+     * Returns the number of calls that shared the result of another call.
+     *
+     * @return the coalesced call count
+     */
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Returns the number of keys with a call in flight.
+     *
+     * @return the in-flight count
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> flight) throws Exception {
+        try {
+            return flight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw (Exception) cause;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package climateinfoapp;
+
+import java.time.Instant;
+
+/**
+ * A statement that ran longer than the slow-query threshold, as recorded by {@link QueryMonitor}.
+ * The execution plan is filled in later, when the background capture has finished.
+ */
+public final class SlowQuery {
+    private final Instant time;
+    private final String method;
+    private final int shard;
+    private final String sql;
+    private final String parameters;
+    private final int rows;
+    private final long durationMillis;
+    private volatile String plan;
+
+    /**
+     * Creates an entry.
+     *
+     * @param time the time the statement finished
+     * @param method the DAO method that ran the statement
+     * @param shard the shard the statement ran on
+     * @param sql the SQL of the statement, with placeholders
+     * @param parameters a summary of the bound parameters
+     * @param rows the number of rows returned or changed, or -1 if the statement failed
+     * @param durationMillis the time from execution to completion
+     */
+    public SlowQuery(Instant time, String method, int shard, String sql, String parameters, int rows, long durationMillis) {
+        this.time = time;
+        this.method = method;
+        this.shard = shard;
+        this.sql = sql;
+        this.parameters = parameters;
+        this.rows = rows;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Returns the time the statement finished.
+     *
+     * @return the completion time
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the DAO method that ran the statement.
+     *
+     * @return the method name
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * Returns the shard the statement ran on.
+     *
+     * @return the shard index
+     */
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * Returns the SQL of the statement, with placeholders instead of values.
+     *
+     * @return the SQL
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Returns a summary of the bound parameters, with long values truncated and arrays reduced to
+     * their length.
+     *
+     * @return the parameter summary
+     */
+    public String getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Returns the number of rows returned or changed.
+     *
+     * @return the row count, or -1 if the statement failed
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns whether the statement failed, for example because it was cancelled by its timeout.
+     *
+     * @return true if the statement did not complete
+     */
+    public boolean isFailed() {
+        return rows < 0;
+    }
+
+    /**
+     * Returns the time from execution to completion. For a cursor this includes the time the caller
+     * spent reading the rows.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Returns the captured execution plan.
+     *
+     * @return the output of {@code EXPLAIN (ANALYZE, BUFFERS)}, or null if no plan was captured
+     */
+    public String getPlan() {
+        return plan;
+    }
+
+    /**
+     * Attaches the captured execution plan.
+     *
+     * @param plan the plan text
+     */
+    void setPlan(String plan) {
+        this.plan = plan;
+    }
+}
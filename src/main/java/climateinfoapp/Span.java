@@ -0,0 +1,231 @@
+package climateinfoapp;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A timed operation within a traced request, such as opening a connection, running a statement or
+ * rendering a page. Spans are created by {@link Tracer} and completed by closing them; a span of
+ * a request that is not sampled is {@link #NOOP}, which records nothing.
+ */
+public final class Span implements AutoCloseable {
+
+    /**
+     * The role of a span in OpenTelemetry terms; the ordinal is the OTLP enum value.
+     */
+    public enum Kind {
+        /** Unspecified; not used. */
+        UNSPECIFIED,
+        /** An operation within the application. */
+        INTERNAL,
+        /** The handling of an incoming request. */
+        SERVER,
+        /** A call to another service, such as the database. */
+        CLIENT
+    }
+
+    /** The span of requests that are not traced. */
+    public static final Span NOOP = new Span();
+
+    private final Tracer.Trace trace;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final Kind kind;
+    private final long startEpochNanos;
+    private final long startNanos;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private long durationNanos = -1;
+    private String errorMessage;
+    private boolean scoped;
+    private Span previous;
+
+    private Span() {
+        this.trace = null;
+        this.spanId = null;
+        this.parentSpanId = null;
+        this.name = null;
+        this.kind = Kind.INTERNAL;
+        this.startEpochNanos = 0;
+        this.startNanos = 0;
+    }
+
+    /**
+     * Starts a span.
+     *
+     * @param trace the trace the span belongs to
+     * @param spanId the 16-digit hexadecimal span ID
+     * @param parentSpanId the ID of the enclosing span, or null for the root of the trace
+     * @param name the operation name
+     * @param kind the role of the span
+     */
+    Span(Tracer.Trace trace, String spanId, String parentSpanId, String name, Kind kind) {
+        this.trace = trace;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.kind = kind;
+        Instant now = Instant.now();
+        this.startEpochNanos = now.getEpochSecond() * 1_000_000_000L + now.getNano();
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Adds an attribute. Strings, booleans, integral and floating-point numbers are exported with
+     * their types; other values as their string form.
+     *
+     * @param key the attribute name, such as {@code db.statement}
+     * @param value the value; null is ignored
+     * @return this span
+     */
+    public Span setAttribute(String key, Object value) {
+        if (trace != null && value != null) {
+            synchronized (attributes) {
+                attributes.put(key, value);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Marks the operation as failed.
+     *
+     * @param message a description of the failure
+     * @return this span
+     */
+    public Span setError(String message) {
+        if (trace != null) {
+            errorMessage = message != null ? message : "error";
+        }
+        return this;
+    }
+
+    /**
+     * Returns whether the span is recorded.
+     *
+     * @return false for {@link #NOOP}
+     */
+    public boolean isRecording() {
+        return trace != null;
+    }
+
+    /**
+     * Returns the trace the span belongs to.
+     *
+     * @return the trace, or null for {@link #NOOP}
+     */
+    Tracer.Trace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Makes the span current until it is closed.
+     *
+     * @param previous the span current before, restored on close; may be null
+     */
+    void scope(Span previous) {
+        this.scoped = true;
+        this.previous = previous;
+        Tracer.makeCurrent(this);
+    }
+
+    /**
+     * Returns the ID of the trace the span belongs to.
+     *
+     * @return the 32-digit hexadecimal trace ID, or null for {@link #NOOP}
+     */
+    public String getTraceId() {
+        return trace != null ? trace.getTraceId() : null;
+    }
+
+    /**
+     * Returns the ID of the span.
+     *
+     * @return the 16-digit hexadecimal span ID, or null for {@link #NOOP}
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * Returns the ID of the enclosing span.
+     *
+     * @return the parent span ID, or null for the root of a trace
+     */
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    /**
+     * Returns the operation name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the role of the span.
+     *
+     * @return the kind
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * Returns the start time.
+     *
+     * @return nanoseconds since the epoch
+     */
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    /**
+     * Returns the time the operation took.
+     *
+     * @return the duration in nanoseconds, or -1 while the span is open
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * Returns a copy of the attributes.
+     *
+     * @return the attributes in the order they were added
+     */
+    public Map<String, Object> getAttributes() {
+        synchronized (attributes) {
+            return new LinkedHashMap<>(attributes);
+        }
+    }
+
+    /**
+     * Returns the failure of the operation.
+     *
+     * @return the error message, or null if the operation succeeded
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Ends the span and hands it to its trace; a span made current is replaced by the span current
+     * before it. Closing a span again has no effect.
+     */
+    @Override
+    public void close() {
+        if (trace == null || durationNanos >= 0) {
+            return;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        if (scoped) {
+            Tracer.restore(this, previous);
+        }
+        trace.finished(this);
+    }
+}
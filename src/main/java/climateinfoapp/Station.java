@@ -0,0 +1,67 @@
+package climateinfoapp;
+
+/**
+ * A weather station: the location its readings are recorded under, and where it stands.
+ */
+public final class Station {
+    private final String location;
+    private final double latitude;
+    private final double longitude;
+
+    /**
+     * Creates a station.
+     *
+     * @param location the location name used by the station's climate records
+     * @param latitude the latitude in decimal degrees, between -90 and 90
+     * @param longitude the longitude in decimal degrees, between -180 and 180
+     * @throws InvalidArgumentsException if the name is empty or a coordinate is out of range
+     */
+    public Station(String location, double latitude, double longitude) throws InvalidArgumentsException {
+        if (location == null || location.isEmpty()) {
+            throw new InvalidArgumentsException("Station location cannot be empty.");
+        }
+        if (!(latitude >= -90 && latitude <= 90) || !(longitude >= -180 && longitude <= 180)) {
+            throw new InvalidArgumentsException("Invalid coordinates for " + location + ": " + latitude + ", " + longitude);
+        }
+        this.location = location;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    /**
+     * Returns the location name used by the station's climate records.
+     *
+     * @return the location
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * Returns the latitude.
+     *
+     * @return the latitude in decimal degrees
+     */
+    public double getLatitude() {
+        return latitude;
+    }
+
+    /**
+     * Returns the longitude.
+     *
+     * @return the longitude in decimal degrees
+     */
+    public double getLongitude() {
+        return longitude;
+    }
+
+    /**
+     * Returns the station as its name and coordinates.
+     *
+     * @return a string such as {@code Victoria (48.4284, -123.3656)}
+     */
+    @Override
+    public String toString() {
+        return location + " (" + latitude + ", " + longitude + ")";
+    }
+}
@@ -0,0 +1,353 @@
+package climateinfoapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * An immutable k-d tree of the stations, answering radius and nearest-station queries in memory.
+ * <p>
+ * Each station is stored as a point on the unit sphere in 3-D space. The straight-line (chord)
+ * distance between two such points grows with the great-circle distance between the stations, so
+ * the tree can prune with plain coordinate differences while the results are exact on the sphere,
+ * with no special case at the poles or the antimeridian. A query visits the few subtrees that can
+ * hold a match, taking microseconds where trigonometry over every row in SQL takes a table scan.
+ * </p>
+ */
+public final class StationIndex {
+
+    /** Mean radius of the Earth used for distances, in kilometres. */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private static final int DIMENSIONS = 3;
+
+    private static final StationIndex EMPTY = new StationIndex(Collections.emptyList());
+
+    // Stations and their unit vectors in tree order: the root of each range is the middle element
+    private final Station[] stations;
+    private final double[] points;
+
+    /**
+     * A station found by a query and its distance from the queried point.
+     */
+    public static final class Neighbor {
+        private final Station station;
+        private final double distanceKm;
+
+        /**
+         * Creates a result.
+         *
+         * @param station the station
+         * @param distanceKm the great-circle distance from the queried point
+         */
+        Neighbor(Station station, double distanceKm) {
+            this.station = station;
+            this.distanceKm = distanceKm;
+        }
+
+        /**
+         * Returns the station.
+         *
+         * @return the station
+         */
+        public Station getStation() {
+            return station;
+        }
+
+        /**
+         * Returns the great-circle distance from the queried point.
+         *
+         * @return the distance in kilometres
+         */
+        public double getDistanceKm() {
+            return distanceKm;
+        }
+    }
+
+    /**
+     * Builds the tree.
+     *
+     * @param stations the stations, in any order
+     */
+    public StationIndex(List<Station> stations) {
+        int count = stations.size();
+        this.stations = stations.toArray(new Station[0]);
+        this.points = new double[count * DIMENSIONS];
+        for (int i = 0; i < count; i++) {
+            toPoint(this.stations[i].getLatitude(), this.stations[i].getLongitude(), points, i * DIMENSIONS);
+        }
+        build(0, count, 0);
+    }
+
+    /**
+     * Returns an index without stations.
+     *
+     * @return the empty index
+     */
+    public static StationIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns the number of stations.
+     *
+     * @return the count
+     */
+    public int size() {
+        return stations.length;
+    }
+
+    /**
+     * Finds the stations within a distance of a point.
+     *
+     * @param latitude the latitude of the point in decimal degrees
+     * @param longitude the longitude of the point in decimal degrees
+     * @param radiusKm the largest great-circle distance
+     * @return the stations within the radius, nearest first
+     */
+    public List<Neighbor> within(double latitude, double longitude, double radiusKm) {
+        double[] target = new double[DIMENSIONS];
+        toPoint(latitude, longitude, target, 0);
+        double chord = chordLength(radiusKm);
+        List<Integer> found = new ArrayList<>();
+        searchRadius(0, stations.length, 0, target, chord * chord, found);
+        List<Neighbor> result = new ArrayList<>(found.size());
+        for (int index : found) {
+            result.add(neighbor(index, target));
+        }
+        result.sort(Comparator.comparingDouble(Neighbor::getDistanceKm));
+        return result;
+    }
+
+    /**
+     * Finds the stations nearest to a point.
+     *
+     * @param latitude the latitude of the point in decimal degrees
+     * @param longitude the longitude of the point in decimal degrees
+     * @param count the largest number of stations to return
+     * @return up to {@code count} stations, nearest first
+     */
+    public List<Neighbor> nearest(double latitude, double longitude, int count) {
+        if (count <= 0 || stations.length == 0) {
+            return Collections.emptyList();
+        }
+        double[] target = new double[DIMENSIONS];
+        toPoint(latitude, longitude, target, 0);
+        // Farthest candidate at the head, so it is the one replaced by a nearer station
+        PriorityQueue<double[]> best = new PriorityQueue<>(count + 1, (a, b) -> Double.compare(b[1], a[1]));
+        searchNearest(0, stations.length, 0, target, count, best);
+        List<Neighbor> result = new ArrayList<>(best.size());
+        for (double[] candidate : best) {
+            result.add(neighbor((int) candidate[0], target));
+        }
+        result.sort(Comparator.comparingDouble(Neighbor::getDistanceKm));
+        return result;
+    }
+
+    /**
+     * Orders a range of stations into a subtree: the median along the axis of the depth goes to
+     * the middle, the stations before it to the left subtree and those after it to the right.
+     *
+     * @param from the first index of the range
+     * @param to the index after the last of the range
+     * @param depth the depth of the subtree's root
+     */
+    private void build(int from, int to, int depth) {
+        if (to - from <= 1) {
+            return;
+        }
+        int axis = depth % DIMENSIONS;
+        int middle = (from + to) >>> 1;
+        select(from, to - 1, middle, axis);
+        build(from, middle, depth + 1);
+        build(middle + 1, to, depth + 1);
+    }
+
+    /**
+     * Moves the station of rank {@code k} along an axis to index {@code k}, with smaller values
+     * before it and larger ones after it (quickselect).
+     *
+     * @param left the first index of the range
+     * @param right the last index of the range
+     * @param k the index to fill
+     * @param axis the coordinate to compare
+     */
+    private void select(int left, int right, int k, int axis) {
+        while (left < right) {
+            double pivot = coordinate((left + right) >>> 1, axis);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (coordinate(i, axis) < pivot) {
+                    i++;
+                }
+                while (coordinate(j, axis) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Collects the stations of a subtree within a squared chord distance of the target.
+     *
+     * @param from the first index of the subtree
+     * @param to the index after the last of the subtree
+     * @param depth the depth of the subtree's root
+     * @param target the queried point
+     * @param limit the squared chord distance
+     * @param found receives the indexes of the matching stations
+     */
+    private void searchRadius(int from, int to, int depth, double[] target, double limit, List<Integer> found) {
+        if (from >= to) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        if (squaredDistance(middle, target) <= limit) {
+            found.add(middle);
+        }
+        int axis = depth % DIMENSIONS;
+        double difference = target[axis] - coordinate(middle, axis);
+        if (difference <= 0 || difference * difference <= limit) {
+            searchRadius(from, middle, depth + 1, target, limit, found);
+        }
+        if (difference >= 0 || difference * difference <= limit) {
+            searchRadius(middle + 1, to, depth + 1, target, limit, found);
+        }
+    }
+
+    /**
+     * Keeps the {@code count} stations of a subtree nearest to the target, visiting the side of
+     * the target first and the other side only if it can hold a nearer station.
+     *
+     * @param from the first index of the subtree
+     * @param to the index after the last of the subtree
+     * @param depth the depth of the subtree's root
+     * @param target the queried point
+     * @param count the number of stations to keep
+     * @param best the candidates as {index, squared distance}, farthest at the head
+     */
+    private void searchNearest(int from, int to, int depth, double[] target, int count, PriorityQueue<double[]> best) {
+        if (from >= to) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        double distance = squaredDistance(middle, target);
+        if (best.size() < count) {
+            best.add(new double[] {middle, distance});
+        } else if (distance < best.peek()[1]) {
+            best.poll();
+            best.add(new double[] {middle, distance});
+        }
+        int axis = depth % DIMENSIONS;
+        double difference = target[axis] - coordinate(middle, axis);
+        boolean leftFirst = difference <= 0;
+        if (leftFirst) {
+            searchNearest(from, middle, depth + 1, target, count, best);
+        } else {
+            searchNearest(middle + 1, to, depth + 1, target, count, best);
+        }
+        if (best.size() < count || difference * difference < best.peek()[1]) {
+            if (leftFirst) {
+                searchNearest(middle + 1, to, depth + 1, target, count, best);
+            } else {
+                searchNearest(from, middle, depth + 1, target, count, best);
+            }
+        }
+    }
+
+    /**
+     * Creates the result for a station, with its great-circle distance from the target.
+     *
+     * @param index the index of the station
+     * @param target the queried point
+     * @return the result
+     */
+    private Neighbor neighbor(int index, double[] target) {
+        double chord = Math.sqrt(squaredDistance(index, target));
+        return new Neighbor(stations[index], 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, chord / 2)));
+    }
+
+    /**
+     * Returns a coordinate of a station's unit vector.
+     *
+     * @param index the index of the station
+     * @param axis the coordinate
+     * @return the value
+     */
+    private double coordinate(int index, int axis) {
+        return points[index * DIMENSIONS + axis];
+    }
+
+    /**
+     * Returns the squared chord distance between a station and the target.
+     *
+     * @param index the index of the station
+     * @param target the queried point
+     * @return the squared distance on the unit sphere
+     */
+    private double squaredDistance(int index, double[] target) {
+        double sum = 0;
+        for (int axis = 0; axis < DIMENSIONS; axis++) {
+            double difference = points[index * DIMENSIONS + axis] - target[axis];
+            sum += difference * difference;
+        }
+        return sum;
+    }
+
+    /**
+     * Exchanges two stations and their unit vectors.
+     *
+     * @param i the index of one station
+     * @param j the index of the other
+     */
+    private void swap(int i, int j) {
+        Station station = stations[i];
+        stations[i] = stations[j];
+        stations[j] = station;
+        for (int axis = 0; axis < DIMENSIONS; axis++) {
+            double value = points[i * DIMENSIONS + axis];
+            points[i * DIMENSIONS + axis] = points[j * DIMENSIONS + axis];
+            points[j * DIMENSIONS + axis] = value;
+        }
+    }
+
+    /**
+     * Converts a great-circle distance to the straight-line distance between the unit vectors.
+     *
+     * @param distanceKm the distance along the surface
+     * @return the chord length on the unit sphere, at most 2
+     */
+    static double chordLength(double distanceKm) {
+        double angle = Math.min(Math.max(distanceKm, 0) / EARTH_RADIUS_KM, Math.PI);
+        return 2 * Math.sin(angle / 2);
+    }
+
+    /**
+     * Converts coordinates to a unit vector.
+     *
+     * @param latitude the latitude in decimal degrees
+     * @param longitude the longitude in decimal degrees
+     * @param point receives the x, y and z coordinates
+     * @param offset the index of x in {@code point}
+     */
+    private static void toPoint(double latitude, double longitude, double[] point, int offset) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        point[offset] = Math.cos(phi) * Math.cos(lambda);
+        point[offset + 1] = Math.cos(phi) * Math.sin(lambda);
+        point[offset + 2] = Math.sin(phi);
+    }
+}
@@ -0,0 +1,245 @@
+package climateinfoapp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.tinylog.Logger;
+
+/**
+ * {@link Tracer.Exporter} that appends completed traces to local files in the OTLP/JSON format of
+ * OpenTelemetry, one {@code ExportTraceServiceRequest} per line.
+ * <p>
+ * Traces are queued and written by a background thread, so request threads never wait for the
+ * disk; when the queue is full further traces are dropped. The current file is
+ * {@code traces.jsonl} in the trace directory. Once it would grow beyond the size limit it is
+ * renamed to {@code traces.1.jsonl}, the older files move up by one, and the oldest beyond the
+ * configured number is deleted. The files can be replayed into a collector, for example with the
+ * OpenTelemetry Collector's {@code otlpjsonfile} receiver.
+ * </p>
+ */
+public class TraceFileExporter implements Tracer.Exporter {
+
+    /** Name of the file traces are currently written to. */
+    public static final String CURRENT_FILE = "traces.jsonl";
+
+    // Service name recorded in the resource of every trace
+    private static final String SERVICE_NAME = "climateinfoapp";
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final BlockingQueue<List<Span>> queue;
+    private final Thread writerThread;
+    private Writer writer;
+    private long fileBytes;
+    private volatile boolean closed;
+
+    /**
+     * Creates an exporter. Nothing is written before {@link #start()}.
+     *
+     * @param directory the directory of the trace files, created if missing
+     * @param maxFileBytes the size from which the current file is rotated
+     * @param maxFiles the number of rotated files kept besides the current one
+     * @param maxPending the largest number of traces waiting to be written
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public TraceFileExporter(Path directory, long maxFileBytes, int maxFiles, int maxPending) {
+        if (maxFileBytes <= 0 || maxFiles < 0 || maxPending <= 0) {
+            throw new IllegalArgumentException("Invalid trace file limits: " + maxFileBytes + " bytes, "
+                    + maxFiles + " files, " + maxPending + " pending");
+        }
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.queue = new ArrayBlockingQueue<>(maxPending);
+        this.writerThread = new Thread(this::run, "climate-trace-export");
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Starts writing the queued traces.
+     */
+    public void start() {
+        writerThread.start();
+        Logger.info("Exporting traces to {}.", directory.resolve(CURRENT_FILE));
+    }
+
+    /**
+     * Queues a completed trace for writing.
+     *
+     * @param spans the spans of the trace
+     * @return false if the queue is full or the exporter is closed and the trace was dropped
+     */
+    @Override
+    public boolean export(List<Span> spans) {
+        return !closed && queue.offer(spans);
+    }
+
+    /**
+     * Writes the traces still queued and closes the current file.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                List<Span> spans = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (spans == null) {
+                    continue;
+                }
+                try {
+                    write(toJson(spans));
+                    if (queue.isEmpty()) {
+                        writer.flush();
+                    }
+                } catch (IOException e) {
+                    Logger.warn(e, "Could not write a trace to {}.", directory);
+                    closeWriter();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeWriter();
+        }
+    }
+
+    /**
+     * Appends one line to the current file, rotating it first if the line would take it beyond the
+     * size limit.
+     *
+     * @param line the line, without the line break
+     * @throws IOException if the file cannot be written or rotated
+     */
+    void write(String line) throws IOException {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        if (writer == null) {
+            Files.createDirectories(directory);
+            Path current = directory.resolve(CURRENT_FILE);
+            fileBytes = Files.exists(current) ? Files.size(current) : 0;
+        }
+        if (fileBytes > 0 && fileBytes + bytes.length > maxFileBytes) {
+            rotate();
+        }
+        if (writer == null) {
+            writer = Files.newBufferedWriter(directory.resolve(CURRENT_FILE), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        writer.write(line);
+        writer.write('\n');
+        fileBytes += bytes.length;
+    }
+
+    /**
+     * Flushes and closes the current file.
+     */
+    void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                Logger.warn(e, "Could not close the trace file in {}.", directory);
+            }
+            writer = null;
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeWriter();
+        Files.deleteIfExists(directory.resolve(rotatedFile(maxFiles)));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path older = directory.resolve(rotatedFile(i));
+            if (Files.exists(older)) {
+                Files.move(older, directory.resolve(rotatedFile(i + 1)), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Path current = directory.resolve(CURRENT_FILE);
+        if (maxFiles > 0) {
+            Files.move(current, directory.resolve(rotatedFile(1)), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.deleteIfExists(current);
+        }
+        fileBytes = 0;
+    }
+
+    private static String rotatedFile(int index) {
+        return "traces." + index + ".jsonl";
+    }
+
+    /**
+     * Renders the spans of a trace as an OTLP/JSON {@code ExportTraceServiceRequest}. IDs are
+     * hexadecimal and 64-bit numbers are strings, as the OTLP/JSON mapping requires.
+     *
+     * @param spans the spans
+     * @return the JSON object, on one line
+     */
+    static String toJson(List<Span> spans) {
+        StringBuilder json = new StringBuilder(256 + spans.size() * 256);
+        json.append("{\"resourceSpans\":[{\"resource\":{\"attributes\":[");
+        appendAttribute(json, "service.name", SERVICE_NAME);
+        json.append("]},\"scopeSpans\":[{\"scope\":{\"name\":\"").append(SERVICE_NAME).append("\"},\"spans\":[");
+        for (int i = 0; i < spans.size(); i++) {
+            Span span = spans.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"traceId\":\"").append(span.getTraceId())
+                    .append("\",\"spanId\":\"").append(span.getSpanId()).append('"');
+            if (span.getParentSpanId() != null) {
+                json.append(",\"parentSpanId\":\"").append(span.getParentSpanId()).append('"');
+            }
+            json.append(",\"name\":").append(ClimateEventHub.jsonString(span.getName()))
+                    .append(",\"kind\":").append(span.getKind().ordinal())
+                    .append(",\"startTimeUnixNano\":\"").append(span.getStartEpochNanos())
+                    .append("\",\"endTimeUnixNano\":\"").append(span.getStartEpochNanos() + span.getDurationNanos())
+                    .append("\",\"attributes\":[");
+            boolean first = true;
+            for (Map.Entry<String, Object> attribute : span.getAttributes().entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                appendAttribute(json, attribute.getKey(), attribute.getValue());
+            }
+            json.append(']');
+            if (span.getErrorMessage() != null) {
+                json.append(",\"status\":{\"code\":2,\"message\":")
+                        .append(ClimateEventHub.jsonString(span.getErrorMessage())).append('}');
+            }
+            json.append('}');
+        }
+        return json.append("]}]}]}").toString();
+    }
+
+    private static void appendAttribute(StringBuilder json, String key, Object value) {
+        json.append("{\"key\":").append(ClimateEventHub.jsonString(key)).append(",\"value\":{");
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            json.append("\"intValue\":\"").append(value).append('"');
+        } else if ((value instanceof Double || value instanceof Float) && Double.isFinite(((Number) value).doubleValue())) {
+            json.append("\"doubleValue\":").append(value);
+        } else if (value instanceof Boolean) {
+            json.append("\"boolValue\":").append(value);
+        } else {
+            json.append("\"stringValue\":").append(ClimateEventHub.jsonString(String.valueOf(value)));
+        }
+        json.append("}}");
+    }
+}
@@ -0,0 +1,328 @@
+package climateinfoapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Records where the time of sampled requests goes, as a tree of {@link Span spans}.
+ * <p>
+ * The servlet starts a trace per request with {@link #startTrace(String, String)}. The root span is
+ * the request context: it is current on the request thread, and inherited by the threads the
+ * request starts, such as the shard queries. Code further down, like the DAO, opens child spans
+ * with the static {@link #startSpan(String, Span.Kind)} without being handed a tracer. Once the
+ * root span is closed, the spans of the trace are passed to the {@link Exporter}.
+ * </p>
+ * <p>
+ * Sampling is decided once, at the root: a request carrying a W3C {@code traceparent} header
+ * follows the decision of its caller, any other request is traced with the configured probability.
+ * Outside a sampled request the current span is {@link Span#NOOP}, so instrumented code pays a
+ * thread-local read and nothing else.
+ * </p>
+ */
+public class Tracer implements AutoCloseable {
+
+    /**
+     * Largest number of spans kept per trace; a bulk operation running thousands of statements keeps
+     * its first ones and counts the rest.
+     */
+    public static final int MAX_SPANS_PER_TRACE = 512;
+
+    // Inheritable, so that the shard queries a request starts on other threads join its trace
+    private static final InheritableThreadLocal<Span> CURRENT = new InheritableThreadLocal<>();
+
+    private static final Pattern TRACEPARENT = Pattern.compile("00-([0-9a-f]{32})-([0-9a-f]{16})-([0-9a-f]{2})");
+    private static final String INVALID_TRACE_ID = "00000000000000000000000000000000";
+    private static final String INVALID_SPAN_ID = "0000000000000000";
+
+    private final double sampleRatio;
+    private final Exporter exporter;
+    private final AtomicLong started = new AtomicLong();
+    private final AtomicLong exported = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Receives the spans of completed traces.
+     */
+    @FunctionalInterface
+    public interface Exporter extends AutoCloseable {
+
+        /**
+         * Hands over the spans of a completed trace. Must not block the request thread.
+         *
+         * @param spans the spans, the root last
+         * @return false if the trace was dropped
+         */
+        boolean export(List<Span> spans);
+
+        /**
+         * Writes out the pending traces and releases the resources of the exporter.
+         */
+        @Override
+        default void close() {
+        }
+    }
+
+    /**
+     * Creates a tracer.
+     *
+     * @param sampleRatio the fraction of requests without a {@code traceparent} header that are traced
+     * @param exporter receives the completed traces
+     * @throws IllegalArgumentException if the ratio is not between 0 and 1
+     */
+    public Tracer(double sampleRatio, Exporter exporter) {
+        if (!(sampleRatio >= 0 && sampleRatio <= 1)) {
+            throw new IllegalArgumentException("Sample ratio must be between 0 and 1: " + sampleRatio);
+        }
+        this.sampleRatio = sampleRatio;
+        this.exporter = exporter;
+    }
+
+    /**
+     * Starts the trace of a request, if it is sampled, and makes its root span current.
+     *
+     * @param name the name of the root span, such as {@code GET /search}
+     * @param traceparent the W3C {@code traceparent} header of the request, or null
+     * @return the root span, to be closed when the request is done, or {@link Span#NOOP} if the
+     *         request is not sampled
+     */
+    public Span startTrace(String name, String traceparent) {
+        String traceId = null;
+        String parentSpanId = null;
+        boolean sampled;
+        Matcher matcher = traceparent != null ? TRACEPARENT.matcher(traceparent.trim()) : null;
+        if (matcher != null && matcher.matches() && !INVALID_TRACE_ID.equals(matcher.group(1))
+                && !INVALID_SPAN_ID.equals(matcher.group(2))) {
+            traceId = matcher.group(1);
+            parentSpanId = matcher.group(2);
+            sampled = (Integer.parseInt(matcher.group(3), 16) & 1) != 0;
+        } else {
+            sampled = sampleRatio > 0 && ThreadLocalRandom.current().nextDouble() < sampleRatio;
+        }
+        if (!sampled) {
+            return Span.NOOP;
+        }
+        started.incrementAndGet();
+        Trace trace = new Trace(traceId != null ? traceId : randomHex(16), this);
+        Span root = new Span(trace, randomHex(8), parentSpanId, name, Span.Kind.SERVER);
+        trace.root = root;
+        root.scope(null);
+        return root;
+    }
+
+    /**
+     * Starts a child of the current span, without making it current. Used for leaf operations such
+     * as opening a connection or running a statement.
+     *
+     * @param name the operation name
+     * @param kind the role of the span
+     * @return the span, to be closed when the operation is done, or {@link Span#NOOP} outside a
+     *         sampled request
+     */
+    public static Span startSpan(String name, Span.Kind kind) {
+        Span parent = currentSpan();
+        if (!parent.isRecording()) {
+            return Span.NOOP;
+        }
+        return new Span(parent.getTrace(), randomHex(8), parent.getSpanId(), name, kind);
+    }
+
+    /**
+     * Starts a child of the current span and makes it current until it is closed, so that the spans
+     * started within become its children. Used for operations that contain others, such as
+     * rendering a page.
+     *
+     * @param name the operation name
+     * @return the span, to be closed when the operation is done, or {@link Span#NOOP} outside a
+     *         sampled request
+     */
+    public static Span startScopedSpan(String name) {
+        Span parent = currentSpan();
+        if (!parent.isRecording()) {
+            return Span.NOOP;
+        }
+        Span span = new Span(parent.getTrace(), randomHex(8), parent.getSpanId(), name, Span.Kind.INTERNAL);
+        span.scope(parent);
+        return span;
+    }
+
+    /**
+     * Returns the innermost open span of the current request.
+     *
+     * @return the span, or {@link Span#NOOP} outside a sampled request
+     */
+    public static Span currentSpan() {
+        Span span = CURRENT.get();
+        if (span == null) {
+            return Span.NOOP;
+        }
+        if (span.getTrace().isFinished()) {
+            // Inherited by a pooled thread from a request that is long done
+            CURRENT.remove();
+            return Span.NOOP;
+        }
+        return span;
+    }
+
+    /**
+     * Makes a span current.
+     *
+     * @param span the span
+     */
+    static void makeCurrent(Span span) {
+        CURRENT.set(span);
+    }
+
+    /**
+     * Makes a span current again after a scoped span ends.
+     *
+     * @param ended the span that ended
+     * @param previous the span that was current before it, or null
+     */
+    static void restore(Span ended, Span previous) {
+        if (CURRENT.get() != ended) {
+            return;
+        }
+        if (previous != null) {
+            CURRENT.set(previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Returns the fraction of requests without a {@code traceparent} header that are traced.
+     *
+     * @return the ratio
+     */
+    public double getSampleRatio() {
+        return sampleRatio;
+    }
+
+    /**
+     * Returns the number of traces started.
+     *
+     * @return the count
+     */
+    public long getStarted() {
+        return started.get();
+    }
+
+    /**
+     * Returns the number of traces handed to the exporter.
+     *
+     * @return the count
+     */
+    public long getExported() {
+        return exported.get();
+    }
+
+    /**
+     * Returns the number of completed traces the exporter dropped.
+     *
+     * @return the count
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes out the pending traces and closes the exporter.
+     */
+    @Override
+    public void close() {
+        exporter.close();
+    }
+
+    private void export(List<Span> spans) {
+        if (exporter.export(spans)) {
+            exported.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private static String randomHex(int bytes) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder hex = new StringBuilder(bytes * 2);
+        long bits = 0;
+        for (int i = 0; i < bytes; i++) {
+            if (i % 8 == 0) {
+                // Never all zeros, which W3C trace context reserves as invalid
+                do {
+                    bits = random.nextLong();
+                } while (bits == 0);
+            }
+            int b = (int) (bits >>> (56 - (i % 8) * 8)) & 0xff;
+            hex.append(Character.forDigit(b >>> 4, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * The spans of one request, collected until its root span ends.
+     */
+    static final class Trace {
+        private final String traceId;
+        private final Tracer tracer;
+        private final List<Span> spans = new ArrayList<>();
+        private Span root;
+        private int droppedSpans;
+        private volatile boolean finished;
+
+        private Trace(String traceId, Tracer tracer) {
+            this.traceId = traceId;
+            this.tracer = tracer;
+        }
+
+        /**
+         * Returns the ID of the trace.
+         *
+         * @return the 32-digit hexadecimal trace ID
+         */
+        String getTraceId() {
+            return traceId;
+        }
+
+        /**
+         * Returns whether the root span has ended.
+         *
+         * @return true once the trace has been exported
+         */
+        boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * Adds an ended span; the end of the root exports the trace. Spans ending after the root are
+         * discarded.
+         *
+         * @param span the span that ended
+         */
+        void finished(Span span) {
+            List<Span> completed;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                if (span != root && spans.size() >= MAX_SPANS_PER_TRACE - 1) {
+                    droppedSpans++;
+                    return;
+                }
+                spans.add(span);
+                if (span != root) {
+                    return;
+                }
+                finished = true;
+                if (droppedSpans > 0) {
+                    root.setAttribute("trace.dropped_spans", droppedSpans);
+                }
+                completed = new ArrayList<>(spans);
+            }
+            tracer.export(completed);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package climateinfoapp;
+
+/**
+ * Outcome of an upsert: how many readings were new, how many replaced a stored reading with
+ * different values, and how many matched a stored reading exactly and were left alone.
+ */
+public final class UpsertResult {
+    private final int inserted;
+    private final int updated;
+    private final int unchanged;
+
+    /**
+     * Creates a result.
+     *
+     * @param inserted the number of readings inserted
+     * @param updated the number of stored readings changed
+     * @param unchanged the number of readings that were already stored
+     */
+    public UpsertResult(int inserted, int updated, int unchanged) {
+        this.inserted = inserted;
+        this.updated = updated;
+        this.unchanged = unchanged;
+    }
+
+    /**
+     * Returns the number of readings inserted.
+     *
+     * @return the inserted count
+     */
+    public int getInserted() {
+        return inserted;
+    }
+
+    /**
+     * Returns the number of stored readings whose values were changed.
+     *
+     * @return the updated count
+     */
+    public int getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Returns the number of readings that were already stored with the same values.
+     *
+     * @return the unchanged count
+     */
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * Returns the counts in the {@code name=value} form of the ingest response.
+     *
+     * @return the counts, one per line
+     */
+    @Override
+    public String toString() {
+        return "inserted=" + inserted + "\nupdated=" + updated + "\nunchanged=" + unchanged;
+    }
+}
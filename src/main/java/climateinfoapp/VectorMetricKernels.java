@@ -0,0 +1,118 @@
+package climateinfoapp;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link DerivedMetrics.Kernels} on the JDK Vector API, using the widest float vectors the CPU
+ * supports. The readings left over after the last full vector go through the scalar formulas.
+ * <p>
+ * Only loaded by {@link DerivedMetrics} when the {@code jdk.incubator.vector} module is present.
+ * </p>
+ */
+final class VectorMetricKernels implements DerivedMetrics.Kernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    /**
+     * Computes the wind chill of each reading, NaN where it is not defined.
+     *
+     * @param temperatures the temperatures
+     * @param winds the wind speeds
+     * @param result receives the wind chills
+     * @param length the number of readings
+     */
+    @Override
+    public void windChill(float[] temperatures, float[] winds, float[] result, int length) {
+        FloatVector undefined = FloatVector.broadcast(SPECIES, Float.NaN);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector temperature = FloatVector.fromArray(SPECIES, temperatures, i);
+            FloatVector wind = FloatVector.fromArray(SPECIES, winds, i);
+            undefined.blend(windChill(temperature, wind), defined(temperature, wind)).intoArray(result, i);
+        }
+        for (; i < length; i++) {
+            result[i] = DerivedMetrics.windChill(temperatures[i], winds[i]);
+        }
+    }
+
+    /**
+     * Computes the apparent temperature of each reading.
+     *
+     * @param temperatures the temperatures
+     * @param winds the wind speeds
+     * @param result receives the apparent temperatures
+     * @param length the number of readings
+     */
+    @Override
+    public void apparentTemperature(float[] temperatures, float[] winds, float[] result, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector temperature = FloatVector.fromArray(SPECIES, temperatures, i);
+            FloatVector wind = FloatVector.fromArray(SPECIES, winds, i);
+            temperature.blend(windChill(temperature, wind), defined(temperature, wind)).intoArray(result, i);
+        }
+        for (; i < length; i++) {
+            result[i] = DerivedMetrics.apparentTemperature(temperatures[i], winds[i]);
+        }
+    }
+
+    /**
+     * Computes the heating and cooling degrees of each daily mean temperature.
+     *
+     * @param temperatures the daily mean temperatures
+     * @param base the base temperature
+     * @param heating receives the degrees below the base, or 0
+     * @param cooling receives the degrees above the base, or 0
+     * @param length the number of days
+     */
+    @Override
+    public void degrees(float[] temperatures, float base, float[] heating, float[] cooling, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector temperature = FloatVector.fromArray(SPECIES, temperatures, i);
+            temperature.neg().add(base).max(0f).intoArray(heating, i);
+            temperature.sub(base).max(0f).intoArray(cooling, i);
+        }
+        for (; i < length; i++) {
+            heating[i] = Math.max(0f, base - temperatures[i]);
+            cooling[i] = Math.max(0f, temperatures[i] - base);
+        }
+    }
+
+    /**
+     * Returns a description of the implementation.
+     *
+     * @return the description
+     */
+    @Override
+    public String getName() {
+        return "vector (" + SPECIES.vectorBitSize() + "-bit)";
+    }
+
+    /**
+     * Applies the wind chill formula to every lane, whether or not it is defined there.
+     *
+     * @param temperature the temperatures
+     * @param wind the wind speeds
+     * @return the wind chills
+     */
+    private static FloatVector windChill(FloatVector temperature, FloatVector wind) {
+        FloatVector power = wind.lanewise(VectorOperators.POW, 0.16f);
+        return temperature.mul(0.3965f).sub(11.37f).mul(power).add(temperature.mul(0.6215f).add(13.12f));
+    }
+
+    /**
+     * Selects the lanes in which wind chill is defined.
+     *
+     * @param temperature the temperatures
+     * @param wind the wind speeds
+     * @return the mask of the lanes at or below 10 degrees with at least 4.8 km/h of wind
+     */
+    private static VectorMask<Float> defined(FloatVector temperature, FloatVector wind) {
+        return temperature.compare(VectorOperators.LE, DerivedMetrics.WIND_CHILL_MAX_TEMPERATURE)
+                .and(wind.compare(VectorOperators.GE, DerivedMetrics.WIND_CHILL_MIN_WIND));
+    }
+}
@@ -0,0 +1,248 @@
+package climateinfoapp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.tinylog.Logger;
+
+/**
+ * Startup warmup that runs once in the background after the servlet has been initialized, so that
+ * the first users do not pay for cold connections, empty baselines and an interpreted JVM.
+ * <p>
+ * The phases run in order: the connection to every shard is opened and validated; the anomaly
+ * baselines of every location are rebuilt from the recent raw readings; the query behind the
+ * trends and summary pages is run once to load its pages into the database's cache; and synthetic
+ * records are pushed through the record validation, table rendering, aggregation and segment codec
+ * hot paths until the JIT compiler has compiled them. A failing phase is logged and skipped, so a
+ * database outage delays the warmup by at most its timeouts. {@link #stop()} cancels the warmup
+ * between phases and between hot-path iterations, so that it does not outlive the servlet.
+ * </p>
+ * <p>
+ * The JSPs need a request to render and are warmed separately, by the readiness probe (see
+ * {@code /ready} in {@link ClimateInfoDashboard}).
+ * </p>
+ */
+public class Warmup implements Runnable {
+
+    // Time to wait for each shard when checking the connections
+    private static final int CONNECTION_TIMEOUT_SECONDS = 5;
+
+    // Synthetic days per location in one hot-path iteration
+    private static final int SYNTHETIC_DAYS = 64;
+
+    // Time to wait for the warmup thread to finish when stopping
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    private final ClimateRecordDAO climateRecordDAO;
+    private final AnomalyDetector anomalyDetector;
+    private final ClimateAggregator aggregator;
+    private final int preloadDays;
+    private final int iterations;
+    private final Clock clock;
+    private Thread thread;
+    private volatile boolean cancelled;
+    private volatile boolean complete;
+    private volatile long durationMillis;
+
+    /**
+     * Creates a warmup.
+     *
+     * @param climateRecordDAO the DAO whose connections and queries are warmed
+     * @param anomalyDetector the detector whose baselines are rebuilt, or null to skip that phase
+     * @param aggregator the aggregator behind the summary page
+     * @param preloadDays the number of days of recent readings the baselines are rebuilt from; 0 skips that phase
+     * @param iterations the number of synthetic iterations through the hot paths
+     * @param clock the clock that determines today's date
+     */
+    public Warmup(ClimateRecordDAO climateRecordDAO, AnomalyDetector anomalyDetector, ClimateAggregator aggregator,
+            int preloadDays, int iterations, Clock clock) {
+        this.climateRecordDAO = climateRecordDAO;
+        this.anomalyDetector = anomalyDetector;
+        this.aggregator = aggregator;
+        this.preloadDays = preloadDays;
+        this.iterations = iterations;
+        this.clock = clock;
+    }
+
+    /**
+     * Runs the warmup on a background thread.
+     */
+    public synchronized void start() {
+        thread = new Thread(this, "climate-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Cancels the warmup and waits for its thread to finish. The phase in progress is interrupted;
+     * the phases after it are skipped.
+     */
+    public synchronized void stop() {
+        cancelled = true;
+        if (thread == null) {
+            return;
+        }
+        thread.interrupt();
+        try {
+            thread.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            Logger.warn("Warmup thread did not stop within {} ms.", STOP_TIMEOUT_MILLIS);
+        }
+    }
+
+    /**
+     * Returns whether the warmup has finished, whether or not every phase succeeded.
+     *
+     * @return true once all phases have run
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Returns the time the warmup took.
+     *
+     * @return the duration in milliseconds, or 0 while the warmup is running
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Runs all phases once.
+     */
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        try {
+            runPhase("connections", this::checkConnections);
+            if (anomalyDetector != null && preloadDays > 0) {
+                runPhase("anomaly baselines", this::primeAnomalyBaselines);
+            }
+            runPhase("trend query", this::preloadTrends);
+            runPhase("hot paths", this::exerciseHotPaths);
+        } finally {
+            durationMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            complete = true;
+            if (cancelled) {
+                Logger.info("Warmup cancelled after {} ms.", durationMillis);
+            } else {
+                Logger.info("Warmup completed in {} ms.", durationMillis);
+            }
+        }
+    }
+
+    /**
+     * Opens and validates a connection to every shard.
+     *
+     * @return the number of shards
+     * @throws DatabaseException if a shard cannot be reached
+     */
+    int checkConnections() throws DatabaseException {
+        return climateRecordDAO.checkConnections(CONNECTION_TIMEOUT_SECONDS);
+    }
+
+    /**
+     * Rebuilds the anomaly baselines from the raw readings of the last {@code preloadDays} days.
+     *
+     * @return the number of readings folded into the baselines
+     * @throws DatabaseException if the readings cannot be read
+     * @throws InvalidArgumentsException if a stored reading holds invalid data
+     */
+    int primeAnomalyBaselines() throws DatabaseException, InvalidArgumentsException {
+        String fromDate = LocalDate.now(clock).minusDays(preloadDays).toString();
+        try (ClimateRecordCursor records = climateRecordDAO.openRawClimateRecordsSince(fromDate)) {
+            records.forEachRemaining(anomalyDetector::prime);
+            return records.getRowCount();
+        } catch (IllegalStateException e) {
+            throw ClimateRecordCursor.readFailure(e);
+        }
+    }
+
+    /**
+     * Runs the query and aggregation behind the trends and summary pages once.
+     *
+     * @return the number of records read
+     * @throws DatabaseException if the records cannot be read
+     * @throws InvalidArgumentsException if a stored record holds invalid data
+     */
+    int preloadTrends() throws DatabaseException, InvalidArgumentsException {
+        List<ClimateRecord> records = climateRecordDAO.listAllClimateRecords();
+        aggregator.byLocationAndMonth(records);
+        return records.size();
+    }
+
+    /**
+     * Pushes synthetic records through the validation, rendering, aggregation and codec hot paths.
+     *
+     * @return the number of synthetic records processed
+     * @throws InvalidArgumentsException if a synthetic record is invalid
+     * @throws IOException if rendering fails
+     */
+    int exerciseHotPaths() throws InvalidArgumentsException, IOException {
+        RecordTableWriter tableWriter = new RecordTableWriter();
+        LocalDate firstDay = LocalDate.now(clock).minusDays(SYNTHETIC_DAYS);
+        int processed = 0;
+        for (int iteration = 0; iteration < iterations && !cancelled; iteration++) {
+            List<ClimateRecord> records = new ArrayList<>();
+            for (String location : ClimateInfoDashboard.LOCATIONS) {
+                GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+                for (int day = 0; day < SYNTHETIC_DAYS; day++) {
+                    ClimateRecord record = new ClimateRecord(records.size() + 1, firstDay.plusDays(day).toString(), location,
+                            (float) (10 + 10 * Math.sin(day + iteration)), (float) (5 + day % 20));
+                    records.add(record);
+                    encoder.add(record);
+                }
+                decodeAll(encoder, location);
+            }
+            tableWriter.writeRows(records.iterator(), Writer.nullWriter());
+            aggregator.byLocationAndMonth(records);
+            processed += records.size();
+        }
+        return processed;
+    }
+
+    private static void decodeAll(GorillaCodec.Encoder encoder, String location) throws InvalidArgumentsException {
+        long[] words = encoder.toWords();
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * Long.BYTES);
+        buffer.asLongBuffer().put(words);
+        GorillaCodec.Decoder decoder = new GorillaCodec.Decoder(buffer, 0, encoder.getCount(), location);
+        while (decoder.hasNext()) {
+            decoder.next();
+        }
+    }
+
+    private void runPhase(String name, Phase phase) {
+        if (cancelled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            int count = phase.run();
+            Logger.info("Warmup of {} done in {} ms ({}).", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), count);
+        } catch (Exception e) {
+            if (cancelled) {
+                Logger.debug(e, "Warmup of {} cancelled.", name);
+                return;
+            }
+            Logger.warn(e, "Warmup of {} failed; continuing with the next phase.", name);
+        }
+    }
+
+    /**
+     * One phase of the warmup.
+     */
+    @FunctionalInterface
+    private interface Phase {
+        int run() throws Exception;
+    }
+}
@@ -0,0 +1,189 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import climateinfoapp.AdaptiveLimiter.Permit;
+import climateinfoapp.AdaptiveLimiter.Priority;
+
+public class AdaptiveLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testLimitGrowsWhileRequestsAreFast() throws Exception {
+        AdaptiveLimiter limiter = limiter(4, 1, 10, 10, 1000);
+
+        for (int round = 0; round < 20; round++) {
+            List<Permit> permits = new ArrayList<>();
+            for (int i = 0; i < limiter.getLimit(); i++) {
+                permits.add(limiter.acquire(Priority.READ));
+            }
+            advanceMillis(5);
+            permits.forEach(Permit::release);
+        }
+
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    void testLimitBacksOffWhenRequestsAreSlow() throws Exception {
+        AdaptiveLimiter limiter = limiter(20, 2, 100, 10, 1000);
+
+        for (int i = 0; i < 3; i++) {
+            Permit permit = limiter.acquire(Priority.READ);
+            advanceMillis(50);
+            permit.release();
+        }
+
+        assertEquals((int) (20 * AdaptiveLimiter.BACKOFF * AdaptiveLimiter.BACKOFF * AdaptiveLimiter.BACKOFF), limiter.getLimit());
+    }
+
+    @Test
+    void testSimultaneousSlowCompletionsBackOffOnce() throws Exception {
+        AdaptiveLimiter limiter = limiter(20, 2, 100, 10, 1000);
+        List<Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            permits.add(limiter.acquire(Priority.BULK));
+        }
+
+        advanceMillis(50);
+        permits.forEach(Permit::release);
+
+        assertEquals(18, limiter.getLimit());
+    }
+
+    @Test
+    void testDroppedRequestBacksOffAndLimitStaysAboveMinimum() throws Exception {
+        AdaptiveLimiter limiter = limiter(3, 2, 10, 10, 1000);
+
+        for (int i = 0; i < 10; i++) {
+            advanceMillis(20);
+            limiter.acquire(Priority.WRITE).drop();
+        }
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void testFullQueueRejectsAtOnce() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 10, 0, 1000, 5, now::get);
+        Permit busy = limiter.acquire(Priority.WRITE);
+
+        OverloadedException e = assertThrows(OverloadedException.class, () -> limiter.acquire(Priority.WRITE));
+
+        assertEquals(5, e.getRetryAfterSeconds());
+        assertEquals(1, limiter.getRejectedQueueFull());
+        busy.release();
+        assertNotNull(limiter.acquire(Priority.READ));
+    }
+
+    @Test
+    void testWaitingRequestTimesOut() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 10, 10, 20, 1);
+        limiter.acquire(Priority.WRITE);
+
+        assertThrows(OverloadedException.class, () -> limiter.acquire(Priority.READ));
+
+        assertEquals(1, limiter.getRejectedTimeout());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    void testWritesAreAdmittedBeforeReads() throws Exception {
+        AdaptiveLimiter limiter = limiter(1, 1, 1, 1000, 10_000);
+        Permit busy = limiter.acquire(Priority.WRITE);
+        List<Priority> order = new ArrayList<>();
+
+        Future<?> bulk = executor.submit(() -> admitAndRecord(limiter, Priority.BULK, order));
+        waitUntil(() -> limiter.getQueued() == 1);
+        Future<?> read = executor.submit(() -> admitAndRecord(limiter, Priority.READ, order));
+        waitUntil(() -> limiter.getQueued() == 2);
+        Future<?> write = executor.submit(() -> admitAndRecord(limiter, Priority.WRITE, order));
+        waitUntil(() -> limiter.getQueued() == 3);
+        busy.release();
+
+        bulk.get(5, TimeUnit.SECONDS);
+        read.get(5, TimeUnit.SECONDS);
+        write.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(Priority.WRITE, Priority.READ, Priority.BULK), order);
+    }
+
+    @Test
+    void testWriteDisplacesQueuedBulkReadWhenQueueIsFull() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 1000, 1, 10_000, 1);
+        Permit busy = limiter.acquire(Priority.WRITE);
+
+        Future<Permit> bulk = executor.submit(() -> limiter.acquire(Priority.BULK));
+        waitUntil(() -> limiter.getQueued() == 1);
+        Future<Permit> write = executor.submit(() -> limiter.acquire(Priority.WRITE));
+
+        Exception e = assertThrows(Exception.class, () -> bulk.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof OverloadedException);
+        assertEquals(1, limiter.getDisplaced());
+        busy.release();
+        assertNotNull(write.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testReadCannotDisplaceQueuedWrite() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1, 1000, 1, 10_000, 1);
+        Permit busy = limiter.acquire(Priority.WRITE);
+        Future<Permit> write = executor.submit(() -> limiter.acquire(Priority.WRITE));
+        waitUntil(() -> limiter.getQueued() == 1);
+
+        assertThrows(OverloadedException.class, () -> limiter.acquire(Priority.READ));
+
+        assertEquals(1, limiter.getRejectedQueueFull());
+        busy.release();
+        assertNotNull(write.get(5, TimeUnit.SECONDS));
+    }
+
+    private AdaptiveLimiter limiter(int initial, int min, int max, long targetMillis, long maxWaitMillis) {
+        return new AdaptiveLimiter(initial, min, max, targetMillis, 100, maxWaitMillis, 1, now::get);
+    }
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static void admitAndRecord(AdaptiveLimiter limiter, Priority priority, List<Priority> order) {
+        try {
+            Permit permit = limiter.acquire(priority);
+            synchronized (order) {
+                order.add(priority);
+            }
+            permit.release();
+        } catch (OverloadedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.junit.jupiter.api.Test;
+
+class AdvisoryJobLockTest {
+
+    @Test
+    void testLockIsHeldOnItsConnectionUntilReleased() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement lock = mock(PreparedStatement.class);
+        PreparedStatement unlock = mock(PreparedStatement.class);
+        ResultSet locked = mock(ResultSet.class);
+        when(connection.prepareStatement("SELECT pg_try_advisory_lock(?)")).thenReturn(lock);
+        when(connection.prepareStatement("SELECT pg_advisory_unlock(?)")).thenReturn(unlock);
+        when(lock.executeQuery()).thenReturn(locked);
+        when(unlock.executeQuery()).thenReturn(mock(ResultSet.class));
+        when(locked.next()).thenReturn(true);
+        when(locked.getBoolean(1)).thenReturn(true);
+        AdvisoryJobLock jobLock = new AdvisoryJobLock(shard -> connection);
+
+        JobScheduler.Lease lease = jobLock.tryLock("retention");
+
+        assertNotNull(lease);
+        long key = AdvisoryJobLock.lockKey("retention");
+        verify(lock).setLong(1, key);
+        verify(connection, never()).close();
+        lease.close();
+        verify(unlock).setLong(1, key);
+        verify(connection).close();
+    }
+
+    @Test
+    void testLockHeldElsewhereClosesTheConnection() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement lock = mock(PreparedStatement.class);
+        ResultSet notLocked = mock(ResultSet.class);
+        when(connection.prepareStatement("SELECT pg_try_advisory_lock(?)")).thenReturn(lock);
+        when(lock.executeQuery()).thenReturn(notLocked);
+        when(notLocked.next()).thenReturn(true);
+        when(notLocked.getBoolean(1)).thenReturn(false);
+
+        assertNull(new AdvisoryJobLock(shard -> connection).tryLock("retention"));
+        verify(connection).close();
+    }
+
+    @Test
+    void testLockKeysAreStablePerJob() {
+        assertEquals(AdvisoryJobLock.lockKey("retention"), AdvisoryJobLock.lockKey("retention"));
+        assertNotEquals(AdvisoryJobLock.lockKey("retention"), AdvisoryJobLock.lockKey("rollup"));
+    }
+}
@@ -0,0 +1,122 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AnomalyDetectorTest {
+
+    private AnomalyDAO mockAnomalyDAO;
+    private AnomalyDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        mockAnomalyDAO = mock(AnomalyDAO.class);
+        detector = new AnomalyDetector(mockAnomalyDAO, 3.0, 5, 0.2);
+    }
+
+    @Test
+    void testRunningStatsMatchesTwoPassComputation() {
+        RunningStats stats = new RunningStats(0.5);
+        double[] values = {12.5, 13.0, 11.0, 14.5, 12.0};
+        for (double value : values) {
+            stats.add(value);
+        }
+
+        double mean = 0;
+        for (double value : values) {
+            mean += value;
+        }
+        mean /= values.length;
+        double variance = 0;
+        for (double value : values) {
+            variance += (value - mean) * (value - mean);
+        }
+        variance /= values.length - 1;
+
+        assertEquals(values.length, stats.getCount());
+        assertEquals(mean, stats.getMean(), 1e-9);
+        assertEquals(variance, stats.getVariance(), 1e-9);
+    }
+
+    @Test
+    void testRunningStatsRejectsInvalidAlpha() {
+        assertThrows(IllegalArgumentException.class, () -> new RunningStats(0.0));
+        assertThrows(IllegalArgumentException.class, () -> new RunningStats(1.5));
+    }
+
+    @Test
+    void testPrimedBaselineScoresFirstReadingAfterRestart() throws Exception {
+        for (int day = 1; day <= 5; day++) {
+            detector.prime(new ClimateRecord(day, "2024-11-0" + day, "Victoria", 10.0f + day % 2, 5.0f));
+        }
+
+        detector.recordInserted(new ClimateRecord(6, "2024-11-06", "Victoria", 40.0f, 5.0f));
+
+        assertEquals(6, detector.getStats("Victoria", AnomalyDetector.METRIC_TEMPERATURE).getCount());
+        verify(mockAnomalyDAO).insertAnomaly(any(Anomaly.class));
+    }
+
+    @Test
+    void testNoAnomalyBeforeMinSamples() throws Exception {
+        // Even an extreme value is not flagged without enough history
+        detector.recordInserted(new ClimateRecord("2024-11-01", "Victoria", 10.0f, 5.0f));
+        detector.recordInserted(new ClimateRecord("2024-11-02", "Victoria", 90.0f, 5.0f));
+
+        verify(mockAnomalyDAO, never()).insertAnomaly(any(Anomaly.class));
+    }
+
+    @Test
+    void testOutlierIsFlaggedAndStored() throws Exception {
+        float[] temperatures = {10.0f, 11.0f, 9.5f, 10.5f, 10.0f, 9.0f, 11.5f};
+        for (int i = 0; i < temperatures.length; i++) {
+            detector.recordInserted(new ClimateRecord("2024-11-0" + (i + 1), "Victoria", temperatures[i], 5.0f));
+        }
+        verify(mockAnomalyDAO, never()).insertAnomaly(any(Anomaly.class));
+
+        Anomaly anomaly = detector.observe(new ClimateRecord("2024-11-08", "Victoria", 35.0f, 5.0f),
+                AnomalyDetector.METRIC_TEMPERATURE, 35.0f);
+
+        assertNotNull(anomaly);
+        assertEquals("Victoria", anomaly.getLocation());
+        assertEquals(AnomalyDetector.METRIC_TEMPERATURE, anomaly.getMetric());
+        assertTrue(anomaly.getScore() > 3.0);
+        verify(mockAnomalyDAO, times(1)).insertAnomaly(anomaly);
+    }
+
+    @Test
+    void testStatsAreKeptPerLocation() throws Exception {
+        for (int i = 1; i <= 6; i++) {
+            detector.recordInserted(new ClimateRecord("2024-11-0" + i, "Victoria", 10.0f + (i % 2), 5.0f));
+        }
+
+        // Tofino has no history, so its first reading cannot be an anomaly
+        assertNull(detector.observe(new ClimateRecord("2024-11-07", "Tofino", 35.0f, 5.0f),
+                AnomalyDetector.METRIC_TEMPERATURE, 35.0f));
+        assertEquals(6, detector.getStats("Victoria", AnomalyDetector.METRIC_TEMPERATURE).getCount());
+        assertEquals(1, detector.getStats("Tofino", AnomalyDetector.METRIC_TEMPERATURE).getCount());
+    }
+
+    @Test
+    void testStorageFailureDoesNotPropagate() throws Exception {
+        when(mockAnomalyDAO.insertAnomaly(any(Anomaly.class)))
+                .thenThrow(new DatabaseException("Failed to insert anomaly", null));
+        for (int i = 1; i <= 6; i++) {
+            detector.recordInserted(new ClimateRecord("2024-11-0" + i, "Victoria", 10.0f + (i % 2), 5.0f));
+        }
+
+        assertNotNull(detector.observe(new ClimateRecord("2024-11-07", "Victoria", 40.0f, 5.0f),
+                AnomalyDetector.METRIC_TEMPERATURE, 40.0f));
+    }
+}
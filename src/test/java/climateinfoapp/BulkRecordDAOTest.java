@@ -0,0 +1,194 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+class BulkRecordDAOTest {
+
+    private ClimateRecordDAO climateRecordDAO;
+    private BulkRecordDAO bulkRecordDAO;
+
+    @Mock
+    private Connection mockConnection;
+    @Mock
+    private PreparedStatement mockPreparedStatement;
+    @Mock
+    private ResultSet mockResultSet;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        climateRecordDAO = new ClimateRecordDAO(mockConnection);
+        bulkRecordDAO = new BulkRecordDAO(climateRecordDAO);
+    }
+
+    @Test
+    void testDeleteClimateRecordsInChunks() throws SQLException, DatabaseException {
+        ClimateRecordListener mockListener = mock(ClimateRecordListener.class);
+        climateRecordDAO.addListener(mockListener);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true, true, false, true, false);
+        when(mockResultSet.getInt(1)).thenReturn(1, 2, 3);
+
+        // When
+        int deleted = bulkRecordDAO.deleteClimateRecords(Arrays.asList(1, 2, 3), 2);
+
+        // Then
+        assertEquals(3, deleted);
+        verify(mockConnection).createArrayOf("integer", new Object[] {1, 2});
+        verify(mockConnection).createArrayOf("integer", new Object[] {3});
+        verify(mockListener).recordDeleted(1);
+        verify(mockListener).recordDeleted(2);
+        verify(mockListener).recordDeleted(3);
+    }
+
+    @Test
+    void testDeleteClimateRecordRangeRunsChunksUntilRangeIsEmpty() throws SQLException, DatabaseException {
+        ClimateRecordListener mockListener = mock(ClimateRecordListener.class);
+        climateRecordDAO.addListener(mockListener);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        // Two chunks of readings, one of archived readings, then the daily means
+        when(mockResultSet.next()).thenReturn(true, true, false, true, false, true, false, true, false);
+        when(mockResultSet.getInt(1)).thenReturn(10, 11, 12, -4);
+
+        // When
+        int deleted = bulkRecordDAO.deleteClimateRecords("Duncan", "2024-01-01", "2024-01-31", 2);
+
+        // Then
+        assertEquals(4, deleted);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection, times(4)).prepareStatement(sql.capture());
+        assertTrue(sql.getAllValues().get(0).contains("ORDER BY id LIMIT ?"));
+        assertTrue(sql.getAllValues().get(2).startsWith("DELETE FROM climate_data_archive"));
+        assertTrue(sql.getAllValues().get(3).startsWith("DELETE FROM climate_data_daily"));
+        assertTrue(sql.getAllValues().get(3).endsWith("RETURNING -id"));
+        verify(mockPreparedStatement, times(4)).setString(1, "Duncan");
+        verify(mockPreparedStatement, times(3)).setInt(4, 2);
+        verify(mockListener).recordDeleted(12);
+        verify(mockListener).recordDeleted(-4);
+        verify(mockListener, times(4)).recordDeleted(anyInt());
+    }
+
+    @Test
+    void testDeleteClimateRecordRangeOfArchivedReadingsNotifiesNothing() throws SQLException, DatabaseException {
+        ClimateRecordListener mockListener = mock(ClimateRecordListener.class);
+        climateRecordDAO.addListener(mockListener);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(false, true, true, false, false);
+
+        // When
+        int deleted = bulkRecordDAO.deleteClimateRecords("Duncan", "2020-01-01", "2020-01-31", 100);
+
+        // Then
+        assertEquals(2, deleted);
+        verify(mockListener, never()).recordDeleted(anyInt());
+    }
+
+    @Test
+    void testDeleteClimateRecordRangeOfDailyMeansOnlyNotifiesThem() throws SQLException, DatabaseException {
+        ClimateRecordListener mockListener = mock(ClimateRecordListener.class);
+        climateRecordDAO.addListener(mockListener);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(false, false, true, true, false);
+        when(mockResultSet.getInt(1)).thenReturn(-4, -5);
+
+        // When
+        int deleted = bulkRecordDAO.deleteClimateRecords("Duncan", "2020-01-01", "2020-01-31", 100);
+
+        // Then
+        assertEquals(0, deleted);
+        verify(mockListener).recordDeleted(-4);
+        verify(mockListener).recordDeleted(-5);
+    }
+
+    @Test
+    void testCorrectTemperaturesNotifiesCorrectedRecords() throws SQLException, DatabaseException, InvalidArgumentsException {
+        ClimateRecordListener mockListener = mock(ClimateRecordListener.class);
+        climateRecordDAO.addListener(mockListener);
+        ResultSet outOfRange = mock(ResultSet.class);
+        when(outOfRange.next()).thenReturn(true);
+        when(outOfRange.getInt(1)).thenReturn(0);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        ResultSet dailyMeans = mock(ResultSet.class);
+        when(dailyMeans.next()).thenReturn(true, false);
+        when(dailyMeans.getInt("id")).thenReturn(-3);
+        when(dailyMeans.getString("date")).thenReturn("2023-01-05");
+        when(dailyMeans.getString("location")).thenReturn("Duncan");
+        when(dailyMeans.getFloat("temp")).thenReturn(4.5f);
+        when(dailyMeans.getFloat("wind")).thenReturn(2.0f);
+        ResultSet archived = mock(ResultSet.class);
+        when(archived.next()).thenReturn(true, false);
+        when(archived.getInt("id")).thenReturn(40);
+        when(archived.getString("date")).thenReturn("2023-01-04");
+        when(archived.getString("location")).thenReturn("Duncan");
+        when(archived.getFloat("temp")).thenReturn(3.5f);
+        when(archived.getFloat("wind")).thenReturn(1.0f);
+        when(mockPreparedStatement.executeQuery()).thenReturn(outOfRange, mockResultSet, archived, dailyMeans);
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getInt("id")).thenReturn(7);
+        when(mockResultSet.getString("date")).thenReturn("2024-01-05");
+        when(mockResultSet.getString("location")).thenReturn("Duncan");
+        when(mockResultSet.getFloat("temp")).thenReturn(9.5f);
+        when(mockResultSet.getFloat("wind")).thenReturn(3.0f);
+
+        // When
+        int updated = bulkRecordDAO.correctTemperatures("Duncan", "2023-01-01", "2024-01-31", -0.5f, 100);
+
+        // Then
+        assertEquals(2, updated);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection, times(4)).prepareStatement(sql.capture());
+        assertTrue(sql.getAllValues().get(0).contains("FROM climate_data_archive"));
+        assertTrue(sql.getAllValues().get(1).contains("temp + ? BETWEEN -100 AND 100"));
+        assertTrue(sql.getAllValues().get(2).startsWith("UPDATE climate_data_archive"));
+        assertTrue(sql.getAllValues().get(3).contains("temperature_min + ? >= -100 AND temperature_max + ? <= 100"));
+        // The archived reading is corrected without a notification
+        ArgumentCaptor<ClimateRecord> record = ArgumentCaptor.forClass(ClimateRecord.class);
+        verify(mockListener, times(2)).recordUpdated(record.capture());
+        assertEquals(7, record.getAllValues().get(0).getId());
+        assertEquals(9.5f, record.getAllValues().get(0).getTemperature());
+        assertEquals(-3, record.getAllValues().get(1).getId());
+        assertEquals(4.5f, record.getAllValues().get(1).getTemperature());
+        verify(mockPreparedStatement, times(2)).setInt(5, Integer.MIN_VALUE);
+        verify(mockPreparedStatement, times(2)).setFloat(6, -0.5f);
+        verify(mockPreparedStatement).setFloat(13, -0.5f);
+    }
+
+    @Test
+    void testCorrectTemperaturesOutOfRangeChangesNothing() throws SQLException {
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getInt(1)).thenReturn(4);
+
+        // When / Then
+        assertThrows(InvalidArgumentsException.class,
+                () -> bulkRecordDAO.correctTemperatures("Duncan", "2024-01-01", "2024-01-31", 150f, 100));
+        verify(mockConnection, times(1)).prepareStatement(any(String.class));
+        verify(mockPreparedStatement, never()).executeUpdate();
+    }
+}
@@ -0,0 +1,137 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class ClimateAggregatorTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void testSummarizesEachLocationAndMonth() throws Exception {
+        List<ClimateRecord> records = Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f),
+                new ClimateRecord(2, "2024-11-30", "Victoria", 10.5f, 7.0f),
+                new ClimateRecord(3, "2024-12-01", "Victoria", -2.0f, 20.0f),
+                new ClimateRecord(4, "2024-11-15", "Tofino", 9.0f, 30.0f));
+
+        Map<ClimateGroupKey, ClimateStats> summary = new ClimateAggregator().byLocationAndMonth(records);
+
+        assertEquals(3, summary.size());
+        ClimateStats november = summary.get(new ClimateGroupKey("Victoria", "2024-11"));
+        assertEquals(2, november.getCount());
+        assertEquals(23.0, november.getTemperatureSum(), 1e-9);
+        assertEquals(10.5f, november.getMinTemperature());
+        assertEquals(12.5f, november.getMaxTemperature());
+        assertEquals(11.5, november.getMeanTemperature(), 1e-9);
+        assertEquals(5.0f, november.getMinWind());
+        assertEquals(7.0f, november.getMaxWind());
+        assertEquals(6.0, november.getMeanWind(), 1e-9);
+        assertEquals(1, summary.get(new ClimateGroupKey("Victoria", "2024-12")).getCount());
+        assertEquals(30.0f, summary.get(new ClimateGroupKey("Tofino", "2024-11")).getMaxWind());
+    }
+
+    @Test
+    void testParallelResultMatchesSequentialResult() throws Exception {
+        List<ClimateRecord> records = randomRecords(50_000, 42);
+
+        Map<ClimateGroupKey, ClimateStats> sequential = new ClimateAggregator(pool, Integer.MAX_VALUE).byLocationAndMonth(records);
+        Map<ClimateGroupKey, ClimateStats> parallel = new ClimateAggregator(pool, 1000).byLocationAndMonth(records);
+
+        assertEquals(sequential.keySet(), parallel.keySet());
+        for (Map.Entry<ClimateGroupKey, ClimateStats> entry : sequential.entrySet()) {
+            ClimateStats expected = entry.getValue();
+            ClimateStats actual = parallel.get(entry.getKey());
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals(expected.getTemperatureSum(), actual.getTemperatureSum(), 1e-6);
+            assertEquals(expected.getMinTemperature(), actual.getMinTemperature());
+            assertEquals(expected.getMaxTemperature(), actual.getMaxTemperature());
+            assertEquals(expected.getWindSum(), actual.getWindSum(), 1e-6);
+            assertEquals(expected.getMinWind(), actual.getMinWind());
+            assertEquals(expected.getMaxWind(), actual.getMaxWind());
+        }
+        long total = parallel.values().stream().mapToLong(ClimateStats::getCount).sum();
+        assertEquals(records.size(), total);
+    }
+
+    @Test
+    void testStreamedResultMatchesListResult() throws Exception {
+        List<ClimateRecord> records = randomRecords(5_000, 7);
+
+        Map<ClimateGroupKey, ClimateStats> listed = new ClimateAggregator().byLocationAndMonth(records);
+        Map<ClimateGroupKey, ClimateStats> streamed = new ClimateAggregator().aggregate(records.iterator(), ClimateGroupKey::of);
+
+        assertEquals(listed.keySet(), streamed.keySet());
+        for (Map.Entry<ClimateGroupKey, ClimateStats> entry : listed.entrySet()) {
+            assertEquals(entry.getValue().getCount(), streamed.get(entry.getKey()).getCount());
+            assertEquals(entry.getValue().getTemperatureSum(), streamed.get(entry.getKey()).getTemperatureSum(), 1e-6);
+        }
+    }
+
+    @Test
+    void testSmallInputIsSummarizedOnCallingThread() throws Exception {
+        List<ClimateRecord> records = randomRecords(100, 7);
+        Thread caller = Thread.currentThread();
+        List<Thread> threads = new ArrayList<>();
+
+        new ClimateAggregator(pool, 1000).aggregate(records, record -> {
+            threads.add(Thread.currentThread());
+            return record.getLocation();
+        });
+
+        assertEquals(records.size(), threads.size());
+        assertTrue(threads.stream().allMatch(thread -> thread == caller));
+    }
+
+    @Test
+    void testAcceptsListsWithoutRandomAccess() throws Exception {
+        List<ClimateRecord> records = new LinkedList<>(randomRecords(5_000, 3));
+
+        Map<String, ClimateStats> byLocation = new ClimateAggregator(pool, 100).byLocation(records);
+
+        assertEquals(5_000, byLocation.values().stream().mapToLong(ClimateStats::getCount).sum());
+    }
+
+    @Test
+    void testEmptyStatsReportNaN() {
+        ClimateStats stats = new ClimateStats();
+
+        assertEquals(0, stats.getCount());
+        assertTrue(Double.isNaN(stats.getMeanTemperature()));
+        assertTrue(Float.isNaN(stats.getMinWind()));
+    }
+
+    @Test
+    void testRejectsNonPositiveThreshold() {
+        assertThrows(IllegalArgumentException.class, () -> new ClimateAggregator(pool, 0));
+    }
+
+    private static List<ClimateRecord> randomRecords(int count, long seed) throws InvalidArgumentsException {
+        String[] locations = { "Victoria", "Nanaimo", "Port Alberni", "Duncan", "Tofino" };
+        Random random = new Random(seed);
+        List<ClimateRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String date = String.format("20%02d-%02d-%02d", 20 + random.nextInt(5), 1 + random.nextInt(12), 1 + random.nextInt(28));
+            records.add(new ClimateRecord(i + 1, date, locations[random.nextInt(locations.length)],
+                    -20f + random.nextFloat() * 60f, random.nextFloat() * 100f));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,147 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+public class ClimateChangeFeedTest {
+
+    private ClimateChangeFeed feed;
+
+    @AfterEach
+    void tearDown() {
+        if (feed != null) {
+            feed.close();
+        }
+    }
+
+    @Test
+    void testPayloadRoundTrip() {
+        ClimateChangeFeed.Change change = ClimateChangeFeed.Change.parse("db|U|-12|2024-11-01|Port|Alberni");
+
+        assertEquals(ClimateChangeFeed.DATABASE_ORIGIN, change.getOrigin());
+        assertEquals(ClimateChangeFeed.Change.Kind.UPDATED, change.getKind());
+        assertEquals(-12, change.getId());
+        assertEquals("2024-11-01", change.getDate());
+        assertEquals("Port|Alberni", change.getLocation());
+        assertEquals("db|U|-12|2024-11-01|Port|Alberni", change.toPayload());
+
+        ClimateChangeFeed.Change deleted = ClimateChangeFeed.Change.parse("n1|D|5||");
+        assertNull(deleted.getDate());
+        assertNull(deleted.getLocation());
+        assertThrows(IllegalArgumentException.class, () -> ClimateChangeFeed.Change.parse("n1|X|5||"));
+        assertThrows(IllegalArgumentException.class, () -> ClimateChangeFeed.Change.parse("n1|D|five||"));
+        assertThrows(IllegalArgumentException.class, () -> ClimateChangeFeed.Change.parse("n1|D|5"));
+    }
+
+    @Test
+    void testDispatchIgnoresOwnChanges() {
+        ClimateChangeFeed.Handler handler = mock(ClimateChangeFeed.Handler.class);
+        feed = new ClimateChangeFeed(shard -> mock(Connection.class), 1, handler, 10);
+
+        feed.dispatch(feed.getNodeId() + "|I|1|2024-11-01|Victoria");
+        feed.dispatch("other|I|2|2024-11-01|Victoria");
+        feed.dispatch("other|R|||");
+        feed.dispatch("garbage");
+
+        ArgumentCaptor<ClimateChangeFeed.Change> change = ArgumentCaptor.forClass(ClimateChangeFeed.Change.class);
+        verify(handler).changed(change.capture());
+        assertEquals(2, change.getValue().getId());
+        verify(handler, times(2)).resynchronize();
+        assertEquals(2, feed.getReceived());
+    }
+
+    @Test
+    void testPublishesWritesInOneStatementPerBatch() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement publish = mock(PreparedStatement.class);
+        Array payloads = mock(Array.class);
+        when(connection.prepareStatement(any(String.class))).thenReturn(publish);
+        when(publish.executeQuery()).thenReturn(mock(ResultSet.class));
+        ArgumentCaptor<Object[]> batch = ArgumentCaptor.forClass(Object[].class);
+        when(connection.createArrayOf(any(String.class), batch.capture())).thenReturn(payloads);
+
+        ClimateChangeFeed.send(connection, Arrays.asList("n1|I|1|2024-11-01|Victoria", "n1|D|2||"));
+
+        verify(publish).setString(1, ClimateChangeFeed.CHANNEL);
+        verify(publish).setArray(2, payloads);
+        assertEquals(Arrays.asList("n1|I|1|2024-11-01|Victoria", "n1|D|2||"), Arrays.asList(batch.getValue()));
+    }
+
+    @Test
+    void testListensPublishesAndAppliesRemoteChanges() throws Exception {
+        ClimateChangeFeed.Handler handler = mock(ClimateChangeFeed.Handler.class);
+        Connection connection = mock(Connection.class);
+        Statement listen = mock(Statement.class);
+        PreparedStatement publish = mock(PreparedStatement.class);
+        PGConnection notifications = mock(PGConnection.class);
+        PGNotification remote = mock(PGNotification.class);
+        when(connection.createStatement()).thenReturn(listen);
+        when(connection.prepareStatement(any(String.class))).thenReturn(publish);
+        when(publish.executeQuery()).thenReturn(mock(ResultSet.class));
+        when(connection.unwrap(PGConnection.class)).thenReturn(notifications);
+        when(remote.getParameter()).thenReturn("db|D|9|2024-11-01|Duncan");
+        when(notifications.getNotifications(anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(10);
+            return new PGNotification[] {remote};
+        });
+        feed = new ClimateChangeFeed(shard -> connection, 1, handler, 10);
+
+        feed.start();
+        feed.recordInserted(new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f));
+
+        verify(listen, timeout(5000)).execute("LISTEN " + ClimateChangeFeed.CHANNEL);
+        verify(handler, timeout(5000)).resynchronize();
+        verify(handler, timeout(5000).atLeastOnce()).changed(any(ClimateChangeFeed.Change.class));
+        ArgumentCaptor<Object[]> batch = ArgumentCaptor.forClass(Object[].class);
+        verify(connection, timeout(5000)).createArrayOf(any(String.class), batch.capture());
+        List<Object> payloads = Arrays.asList(batch.getValue());
+        assertEquals(Arrays.asList(feed.getNodeId() + "|I|1|2024-11-01|Victoria"), payloads);
+        assertTrue(feed.getReceived() > 0);
+        verify(handler, never()).changed(argThat(
+                change -> change.getOrigin().equals(feed.getNodeId())));
+    }
+
+    @Test
+    void testFullQueuePublishesReset() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement publish = mock(PreparedStatement.class);
+        when(connection.prepareStatement(any(String.class))).thenReturn(publish);
+        when(publish.executeQuery()).thenReturn(mock(ResultSet.class));
+        // No shard to listen on, so only the publisher runs
+        feed = new ClimateChangeFeed(shard -> connection, 0, mock(ClimateChangeFeed.Handler.class), 1);
+
+        feed.recordDeleted(1);
+        feed.recordDeleted(2);
+        feed.start();
+
+        ArgumentCaptor<Object[]> batch = ArgumentCaptor.forClass(Object[].class);
+        verify(connection, timeout(5000)).createArrayOf(any(String.class), batch.capture());
+        assertEquals(Arrays.asList(feed.getNodeId() + "|R|||", feed.getNodeId() + "|D|1||"),
+                Arrays.asList(batch.getValue()));
+    }
+}
@@ -0,0 +1,137 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ClimateEventHubTest {
+
+    private ClimateEventHub hub;
+
+    @BeforeEach
+    void setUp() {
+        hub = new ClimateEventHub(4, 3, 0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hub.close();
+    }
+
+    @Test
+    void testPublishesRecordChanges() throws Exception {
+        FakeOutputStream out = new FakeOutputStream();
+        hub.subscribe(asyncContext(out), -1);
+
+        hub.recordInserted(new ClimateRecord(7, "2024-11-01", "Victoria", 12.5f, 5.0f));
+        hub.recordDeleted(7);
+
+        String body = out.body();
+        assertTrue(body.startsWith("retry: 5000\n\n"));
+        assertTrue(body.contains("id: 1\nevent: record-inserted\ndata: {\"id\":7,\"date\":\"2024-11-01\","
+                + "\"location\":\"Victoria\",\"temperature\":12.5,\"wind\":5.0}\n\n"));
+        assertTrue(body.contains("event: trend\ndata: {\"op\":\"put\",\"id\":7,\"date\":\"2024-11-01\",\"location\":\"Victoria\","
+                + "\"temperature\":12.5}"));
+        assertTrue(body.contains("event: record-deleted\ndata: {\"id\":7}"));
+        assertTrue(body.contains("event: trend\ndata: {\"op\":\"remove\",\"id\":7}"));
+        assertEquals(1, hub.getSubscriberCount());
+    }
+
+    @Test
+    void testReplaysMissedEventsOnReconnect() throws Exception {
+        hub.publish("record-deleted", "{\"id\":1}");
+        hub.publish("record-deleted", "{\"id\":2}");
+        hub.publish("record-deleted", "{\"id\":3}");
+
+        FakeOutputStream out = new FakeOutputStream();
+        hub.subscribe(asyncContext(out), 1);
+
+        String body = out.body();
+        assertFalse(body.contains("id: 1\n"));
+        assertTrue(body.contains("id: 2\n"));
+        assertTrue(body.contains("id: 3\n"));
+    }
+
+    @Test
+    void testQueuesUntilWritePossible() throws Exception {
+        FakeOutputStream out = new FakeOutputStream();
+        out.ready = false;
+        hub.subscribe(asyncContext(out), -1);
+        hub.publish("record-deleted", "{\"id\":1}");
+        assertEquals("", out.body());
+
+        out.ready = true;
+        out.listener.onWritePossible();
+
+        assertTrue(out.body().contains("event: record-deleted"));
+    }
+
+    @Test
+    void testDisconnectsSlowClient() throws Exception {
+        FakeOutputStream out = new FakeOutputStream();
+        out.ready = false;
+        AsyncContext asyncContext = asyncContext(out);
+        hub.subscribe(asyncContext, -1);
+
+        for (int i = 0; i < 3; i++) {
+            hub.publish("record-deleted", "{\"id\":" + i + "}");
+        }
+
+        verify(asyncContext).complete();
+        assertEquals(0, hub.getSubscriberCount());
+    }
+
+    @Test
+    void testJsonStringEscaping() {
+        assertEquals("\"Port \\\"A\\\" \\\\ \\u003c\\u000a\"", ClimateEventHub.jsonString("Port \"A\" \\ <\n"));
+        assertEquals("null", ClimateEventHub.jsonString(null));
+    }
+
+    private AsyncContext asyncContext(ServletOutputStream out) throws Exception {
+        AsyncContext asyncContext = mock(AsyncContext.class);
+        ServletResponse response = mock(ServletResponse.class);
+        when(asyncContext.getResponse()).thenReturn(response);
+        when(response.getOutputStream()).thenReturn(out);
+        return asyncContext;
+    }
+
+    private static class FakeOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private boolean ready = true;
+        private WriteListener listener;
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            this.listener = writeListener;
+        }
+
+        @Override
+        public void write(int b) {
+            bytes.write(b);
+        }
+
+        String body() {
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -1,22 +1,49 @@
 package climateinfoapp;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import javax.servlet.AsyncContext;
 import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 
 class ClimateInfoDashboardTest {
@@ -26,6 +53,9 @@ class ClimateInfoDashboardTest {
     private HttpServletResponse mockResponse;
     private RequestDispatcher mockDispatcher;
     private ClimateRecordDAO mockClimateRecordDAO;
+    private AnomalyDAO mockAnomalyDAO;
+    private ClimateEventHub mockEventHub;
+    private BulkRecordDAO mockBulkRecordDAO;
 
     @BeforeEach
     void setUp() {
@@ -35,18 +65,28 @@ class ClimateInfoDashboardTest {
         mockDispatcher = mock(RequestDispatcher.class);
         mockClimateRecordDAO = mock(ClimateRecordDAO.class);
 
-        // Inject the mock DAO into the servlet
+        mockAnomalyDAO = mock(AnomalyDAO.class);
+
+        // Inject the mock DAOs into the servlet
         servlet.climateRecordDAO = mockClimateRecordDAO;
+        servlet.anomalyDAO = mockAnomalyDAO;
+        mockEventHub = mock(ClimateEventHub.class);
+        servlet.eventHub = mockEventHub;
+        servlet.aggregator = new ClimateAggregator();
+        servlet.recordReader = new CoalescingRecordReader(mockClimateRecordDAO);
+        servlet.recordCache = new ClimateRecordCache(servlet.recordReader, mockClimateRecordDAO, 100);
+        servlet.recordCounter = new RecordCounter(mockClimateRecordDAO);
+        servlet.admissionLimiter = new AdaptiveLimiter(20, 2, 100, 500, 100, 2000, 2);
+        mockBulkRecordDAO = mock(BulkRecordDAO.class);
+        servlet.bulkAdmin = new BulkAdminHandler(mockBulkRecordDAO, 5000, null);
     }
 
     @Test
     void testListClimateRecords() throws Exception {
         // Arrange
-        List<ClimateRecord> mockRecords = Arrays.asList(
-                new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f),
-                new ClimateRecord(2, "2024-11-02", "Nanaimo", 13.0f, 4.5f)
-        );
-        when(mockClimateRecordDAO.listAllClimateRecords()).thenReturn(mockRecords);
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockClimateRecordDAO.openAllClimateRecords()).thenReturn(mockCursor);
+        when(mockClimateRecordDAO.sumRecordCounters()).thenReturn(1234L);
         when(mockRequest.getRequestDispatcher("ClimateRecordList.jsp")).thenReturn(mockDispatcher);
 
         // Act
@@ -54,8 +94,226 @@ class ClimateInfoDashboardTest {
         servlet.doGet(mockRequest, mockResponse);
 
         // Assert
-        verify(mockRequest).setAttribute("listRecord", mockRecords);
+        ArgumentCaptor<RecordCount> count = ArgumentCaptor.forClass(RecordCount.class);
+        verify(mockRequest).setAttribute(eq("recordCount"), count.capture());
+        assertEquals("1,234", count.getValue().toString());
+        verify(mockClimateRecordDAO, never()).estimateRecordCount();
+        verify(mockRequest).setAttribute("recordRows", mockCursor);
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+        verify(mockCursor).close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSearchByCity() throws Exception {
+        // Arrange
+        List<ClimateRecord> mockRecords = Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f));
+        when(mockClimateRecordDAO.getRecordsByCity("Victoria")).thenReturn(mockRecords);
+        when(mockRequest.getParameter("city")).thenReturn("Victoria");
+        when(mockRequest.getRequestDispatcher("SearchByCity.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/search");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        ArgumentCaptor<Iterator<ClimateRecord>> rows = ArgumentCaptor.forClass(Iterator.class);
+        verify(mockRequest).setAttribute("city", "Victoria");
+        verify(mockRequest).setAttribute(eq("recordRows"), rows.capture());
+        assertEquals(mockRecords.get(0), rows.getValue().next());
+        ArgumentCaptor<RecordCount> count = ArgumentCaptor.forClass(RecordCount.class);
+        verify(mockRequest).setAttribute(eq("recordCount"), count.capture());
+        assertEquals(1, count.getValue().getValue());
+        assertTrue(count.getValue().isExact());
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+    }
+
+    @Test
+    void testSampledRequestIsTraced() throws Exception {
+        // Arrange
+        List<List<Span>> traces = new ArrayList<>();
+        servlet.tracer = new Tracer(1, traces::add);
+        when(mockClimateRecordDAO.getRecordsByCity("Victoria")).thenReturn(Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f)));
+        when(mockRequest.getMethod()).thenReturn("GET");
+        when(mockRequest.getParameter("city")).thenReturn("Victoria");
+        when(mockRequest.getRequestDispatcher("SearchByCity.jsp")).thenReturn(mockDispatcher);
+        when(mockResponse.getStatus()).thenReturn(200);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/search");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        assertEquals(1, traces.size());
+        List<Span> spans = traces.get(0);
+        assertEquals(Arrays.asList("admission.wait", "render SearchByCity.jsp", "GET /search"),
+                spans.stream().map(Span::getName).toList());
+        Span root = spans.get(2);
+        assertEquals("/search", root.getAttributes().get("http.route"));
+        assertEquals(200, root.getAttributes().get("http.status_code"));
+        assertTrue(spans.stream().allMatch(span -> span == root || root.getSpanId().equals(span.getParentSpanId())));
+        verify(mockResponse).setHeader("X-Trace-Id", root.getTraceId());
+        assertEquals(Span.NOOP, Tracer.currentSpan());
+    }
+
+    @Test
+    void testSearchStreamsResultOverBudget() throws Exception {
+        // Arrange
+        when(mockClimateRecordDAO.getRecordsByCity("%")).thenThrow(new ResultTooLargeException("Too large", "records_by_city"));
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockClimateRecordDAO.openRecordsByCity("%")).thenReturn(mockCursor);
+        when(mockClimateRecordDAO.sumRecordCounters("%")).thenReturn(45_678L);
+        when(mockRequest.getParameter("city")).thenReturn("%");
+        when(mockRequest.getRequestDispatcher("SearchByCity.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/search");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockRequest).setAttribute("recordRows", mockCursor);
+        verify(mockRequest).setAttribute(eq("recordCount"),
+                argThat(count -> "about 46,000".equals(String.valueOf(count))));
         verify(mockDispatcher).forward(mockRequest, mockResponse);
+        verify(mockCursor).close();
+        assertEquals(1, servlet.resultBudget.getStreamed());
+    }
+
+    @Test
+    void testSearchWithoutCity() throws Exception {
+        // Arrange
+        when(mockRequest.getRequestDispatcher("SearchByCity.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/search");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockClimateRecordDAO, never()).getRecordsByCity(any());
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+    }
+
+    @Test
+    void testNearbyReadsStationsWithinRadiusInOneQuery() throws Exception {
+        // Arrange
+        servlet.stationIndex = new StationIndex(Arrays.asList(
+                new Station("Victoria", 48.4284, -123.3656),
+                new Station("Duncan", 48.7787, -123.7079),
+                new Station("Tofino", 49.1530, -125.9066)));
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockClimateRecordDAO.openRecordsByCities(Arrays.asList("Victoria", "Duncan"), null, null)).thenReturn(mockCursor);
+        when(mockRequest.getParameter("lat")).thenReturn("48.43");
+        when(mockRequest.getParameter("lon")).thenReturn("-123.37");
+        when(mockRequest.getParameter("radiusKm")).thenReturn("50");
+        when(mockRequest.getRequestDispatcher("NearbyStations.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/nearby");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StationIndex.Neighbor>> stations = ArgumentCaptor.forClass(List.class);
+        verify(mockRequest).setAttribute(eq("stations"), stations.capture());
+        assertEquals(2, stations.getValue().size());
+        verify(mockRequest).setAttribute("recordRows", mockCursor);
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+        verify(mockCursor).close();
+    }
+
+    @Test
+    void testNearestStationWithDataOnDate() throws Exception {
+        // Arrange
+        servlet.stationIndex = new StationIndex(Arrays.asList(
+                new Station("Victoria", 48.4284, -123.3656),
+                new Station("Duncan", 48.7787, -123.7079),
+                new Station("Tofino", 49.1530, -125.9066)));
+        ClimateRecord duncan = new ClimateRecord(7, "2024-11-04", "Duncan", 25.6f, 10.4f);
+        Iterator<ClimateRecord> iterator = Arrays.asList(duncan).iterator();
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockCursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(mockCursor.next()).thenAnswer(invocation -> iterator.next());
+        when(mockClimateRecordDAO.openRecordsByCities(Arrays.asList("Victoria", "Duncan", "Tofino"), "2024-11-04", "2024-11-04"))
+                .thenReturn(mockCursor);
+        when(mockRequest.getParameter("lat")).thenReturn("48.43");
+        when(mockRequest.getParameter("lon")).thenReturn("-123.37");
+        when(mockRequest.getParameter("date")).thenReturn("2024-11-04");
+        when(mockRequest.getRequestDispatcher("NearbyStations.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/nearest");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StationIndex.Neighbor>> stations = ArgumentCaptor.forClass(List.class);
+        verify(mockRequest).setAttribute(eq("stations"), stations.capture());
+        assertEquals(1, stations.getValue().size());
+        assertEquals("Duncan", stations.getValue().get(0).getStation().getLocation());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Iterator<ClimateRecord>> rows = ArgumentCaptor.forClass(Iterator.class);
+        verify(mockRequest).setAttribute(eq("recordRows"), rows.capture());
+        assertEquals(duncan, rows.getValue().next());
+        verify(mockCursor).close();
+        assertEquals(1, servlet.admissionLimiter.getAdmitted());
+    }
+
+    @Test
+    void testNearestWidensTheCandidatesUntilAStationHasData() throws Exception {
+        // Arrange: 40 stations northwards, only the farthest with a reading on the date
+        List<Station> all = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            all.add(new Station("Station " + i, 48.0 + i * 0.1, -123.0));
+        }
+        servlet.stationIndex = new StationIndex(all);
+        ClimateRecord farthest = new ClimateRecord(7, "2024-11-04", "Station 39", 5.0f, 10.0f);
+        when(mockClimateRecordDAO.openRecordsByCities(any(), eq("2024-11-04"), eq("2024-11-04"))).thenAnswer(invocation -> {
+            Collection<String> locations = invocation.getArgument(0);
+            Iterator<ClimateRecord> iterator = (locations.contains("Station 39")
+                    ? Arrays.asList(farthest) : Collections.<ClimateRecord>emptyList()).iterator();
+            ClimateRecordCursor cursor = mock(ClimateRecordCursor.class);
+            when(cursor.hasNext()).thenAnswer(hasNext -> iterator.hasNext());
+            when(cursor.next()).thenAnswer(next -> iterator.next());
+            return cursor;
+        });
+        when(mockRequest.getParameter("lat")).thenReturn("48.0");
+        when(mockRequest.getParameter("lon")).thenReturn("-123.0");
+        when(mockRequest.getParameter("date")).thenReturn("2024-11-04");
+        when(mockRequest.getRequestDispatcher("NearbyStations.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/nearest");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<StationIndex.Neighbor>> stations = ArgumentCaptor.forClass(List.class);
+        verify(mockRequest).setAttribute(eq("stations"), stations.capture());
+        assertEquals(1, stations.getValue().size());
+        assertEquals("Station 39", stations.getValue().get(0).getStation().getLocation());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> queried = ArgumentCaptor.forClass(Collection.class);
+        verify(mockClimateRecordDAO, times(2)).openRecordsByCities(queried.capture(), eq("2024-11-04"), eq("2024-11-04"));
+        assertEquals(32, queried.getAllValues().get(0).size());
+        assertEquals(8, queried.getAllValues().get(1).size());
+    }
+
+    @Test
+    void testNearestRejectsInvalidCoordinates() throws Exception {
+        // Arrange
+        when(mockRequest.getParameter("lat")).thenReturn("95");
+        when(mockRequest.getParameter("lon")).thenReturn("-123.37");
+        when(mockRequest.getRequestDispatcher("Error.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/nearest");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockRequest).setAttribute("errorMessage", "Latitude must be between -90 and 90: 95");
+        verify(mockClimateRecordDAO, never()).openRecordsByCities(any(), any(), any());
     }
 
     @Test
@@ -80,7 +338,7 @@ class ClimateInfoDashboardTest {
         when(mockRequest.getParameter("temperature")).thenReturn("12.5");
         when(mockRequest.getParameter("wind")).thenReturn("5.0");
 
-        when(mockClimateRecordDAO.insertClimateRecord(any(ClimateRecord.class))).thenReturn(true);
+        when(mockClimateRecordDAO.upsertClimateRecord(any(ClimateRecord.class))).thenReturn(new UpsertResult(1, 0, 0));
 
         // Act
         when(mockRequest.getServletPath()).thenReturn("/insert");
@@ -88,7 +346,7 @@ class ClimateInfoDashboardTest {
 
         // Assert
         ArgumentCaptor<ClimateRecord> recordCaptor = ArgumentCaptor.forClass(ClimateRecord.class);
-        verify(mockClimateRecordDAO).insertClimateRecord(recordCaptor.capture());
+        verify(mockClimateRecordDAO).upsertClimateRecord(recordCaptor.capture());
         ClimateRecord capturedRecord = recordCaptor.getValue();
 
         assertEquals("2024-11-01", capturedRecord.getDate());
@@ -99,6 +357,28 @@ class ClimateInfoDashboardTest {
         verify(mockResponse).sendRedirect("list");
     }
 
+    @Test
+    void testInsertSameReadingTwiceStoresItOnce() throws Exception {
+        // Arrange
+        when(mockRequest.getParameter("date")).thenReturn("2024-11-01");
+        when(mockRequest.getParameter("location")).thenReturn("Victoria");
+        when(mockRequest.getParameter("temperature")).thenReturn("12.5");
+        when(mockRequest.getParameter("wind")).thenReturn("5.0");
+        when(mockClimateRecordDAO.upsertClimateRecord(any(ClimateRecord.class)))
+                .thenReturn(new UpsertResult(1, 0, 0), new UpsertResult(0, 0, 1));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/insert");
+        servlet.doPost(mockRequest, mockResponse);
+        servlet.doPost(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockClimateRecordDAO, times(2)).upsertClimateRecord(any(ClimateRecord.class));
+        verify(mockClimateRecordDAO, never()).insertClimateRecord(any(ClimateRecord.class));
+        verify(mockResponse, times(2)).sendRedirect("list");
+        verify(mockResponse, never()).setStatus(any(Integer.class));
+    }
+
     @Test
     void testDeleteClimateRecord() throws Exception {
         // Arrange
@@ -148,13 +428,210 @@ class ClimateInfoDashboardTest {
     }
 
     @Test
-    void testShowTemperatureTrends() throws Exception {
+    void testIngestClimateRecords() throws Exception {
+        // Arrange
+        String body = "date,location,temperature,wind\n2024-11-01,Victoria,12.5,5.0\n\n2024-11-02,Tofino,10.0,8.0\n";
+        when(mockRequest.getReader()).thenReturn(new BufferedReader(new StringReader(body)));
+        StringWriter output = new StringWriter();
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(output));
+        when(mockClimateRecordDAO.upsertClimateRecords(any())).thenReturn(new UpsertResult(1, 0, 1));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/ingest");
+        servlet.doPost(mockRequest, mockResponse);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<ClimateRecord>> recordsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockClimateRecordDAO).upsertClimateRecords(recordsCaptor.capture());
+        assertEquals(2, recordsCaptor.getValue().size());
+        assertEquals("Tofino", recordsCaptor.getValue().get(1).getLocation());
+        assertEquals("inserted=1\nupdated=0\nunchanged=1", output.toString().trim());
+    }
+
+    @Test
+    void testListAnomalies() throws Exception {
+        // Arrange
+        List<Anomaly> mockAnomalies = Arrays.asList(
+                new Anomaly(1, "2024-11-01", "Victoria", "temperature", 35.0f, 10.0, 4.2));
+        when(mockAnomalyDAO.listRecentAnomalies()).thenReturn(mockAnomalies);
+        when(mockRequest.getRequestDispatcher("AnomalyList.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/anomalies");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockRequest).setAttribute("anomalies", mockAnomalies);
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+    }
+
+    @Test
+    void testReadinessReportsWarmingUpUntilWarmupCompletes() throws Exception {
+        // Arrange
+        Warmup warmup = mock(Warmup.class);
+        when(warmup.isComplete()).thenReturn(false);
+        servlet.warmup = warmup;
+        StringWriter body = new StringWriter();
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/ready");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockResponse).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        assertTrue(body.toString().startsWith("warming up"));
+        verify(mockRequest, never()).getRequestDispatcher(any(String.class));
+    }
+
+    @Test
+    void testReadinessRendersPagesOnceAfterWarmup() throws Exception {
+        // Arrange
+        Warmup warmup = mock(Warmup.class);
+        when(warmup.isComplete()).thenReturn(true);
+        servlet.warmup = warmup;
+        when(mockRequest.getRequestDispatcher(any(String.class))).thenReturn(mockDispatcher);
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+        when(mockRequest.getServletPath()).thenReturn("/ready");
+
+        // Act
+        servlet.doGet(mockRequest, mockResponse);
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockResponse, times(2)).setStatus(HttpServletResponse.SC_OK);
+        verify(mockRequest).getRequestDispatcher("/ClimateRecordList.jsp");
+        verify(mockRequest).getRequestDispatcher("/Error.jsp");
+        verify(mockDispatcher, times(10)).include(eq(mockRequest), any(DiscardingResponse.class));
+        verify(mockDispatcher, never()).forward(any(), any());
+    }
+
+    @Test
+    void testShowSlowQueries() throws Exception {
+        // Arrange
+        QueryMonitor monitor = new QueryMonitor(0, Map.of(), 0, 10);
+        monitor.start(mock(Statement.class), "openAllClimateRecords", 0, "SELECT 1").close();
+        servlet.queryMonitor = monitor;
+        when(mockRequest.getRequestDispatcher("/SlowQueries.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/admin/slow-queries");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockRequest).setAttribute("queryMonitor", monitor);
+        verify(mockRequest).setAttribute("slowQueries", monitor.getSlowQueries());
+        verify(mockRequest).setAttribute("requestTimeoutSeconds", 30);
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+    }
+
+    @Test
+    void testShowJobs() throws Exception {
+        // Arrange
+        servlet.jobScheduler = new JobScheduler(null, Clock.systemUTC());
+        servlet.jobScheduler.schedule("retention", JobScheduler.Trigger.fixedRate(Duration.ofHours(1)), 1, true, () -> { });
+        servlet.jobScheduler.runNow("retention").get(5, TimeUnit.SECONDS);
+        when(mockRequest.getRequestDispatcher("/Jobs.jsp")).thenReturn(mockDispatcher);
+        StringWriter body = new StringWriter();
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/admin/jobs");
+        servlet.doGet(mockRequest, mockResponse);
+        when(mockRequest.getServletPath()).thenReturn("/metrics");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockRequest).setAttribute("jobs", servlet.jobScheduler.getJobs());
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+        assertTrue(body.toString().contains("climate_job_runs_total{job=\"retention\",outcome=\"succeeded\"} 1\n"));
+        assertTrue(body.toString().contains("climate_job_running{job=\"retention\"} 0\n"));
+        servlet.jobScheduler.close();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testShowMonthlySummary() throws Exception {
         // Arrange
         List<ClimateRecord> mockRecords = Arrays.asList(
                 new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f),
-                new ClimateRecord(2, "2024-11-02", "Nanaimo", 13.0f, 4.5f)
+                new ClimateRecord(2, "2024-11-02", "Victoria", 10.5f, 7.0f),
+                new ClimateRecord(3, "2024-10-31", "Victoria", 14.0f, 3.0f),
+                new ClimateRecord(4, "2024-11-01", "Nanaimo", 13.0f, 4.5f)
         );
         when(mockClimateRecordDAO.listAllClimateRecords()).thenReturn(mockRecords);
+        when(mockRequest.getRequestDispatcher("MonthlySummary.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/summary");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        ArgumentCaptor<Map<ClimateGroupKey, ClimateStats>> summary = ArgumentCaptor.forClass(Map.class);
+        verify(mockRequest).setAttribute(eq("summary"), summary.capture());
+        assertEquals(Arrays.asList(new ClimateGroupKey("Nanaimo", "2024-11"), new ClimateGroupKey("Victoria", "2024-10"),
+                new ClimateGroupKey("Victoria", "2024-11")), new ArrayList<>(summary.getValue().keySet()));
+        ClimateStats victoriaNovember = summary.getValue().get(new ClimateGroupKey("Victoria", "2024-11"));
+        assertEquals(2, victoriaNovember.getCount());
+        assertEquals(11.5, victoriaNovember.getMeanTemperature(), 1e-9);
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+    }
+
+    @Test
+    void testShowMetrics() throws Exception {
+        // Arrange
+        when(mockClimateRecordDAO.getRecordsByCity("Victoria")).thenReturn(Arrays.asList());
+        servlet.recordReader.getRecordsByCity("Victoria");
+        StringWriter body = new StringWriter();
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/metrics");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockResponse).setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        assertTrue(body.toString().contains("climate_query_executions_total{query=\"records_by_city\"} 1\n"));
+        assertTrue(body.toString().contains("climate_query_coalesced_total{query=\"all_records\"} 0\n"));
+    }
+
+    @Test
+    void testRequestIsShedWhenOverCapacity() throws Exception {
+        // Arrange
+        servlet.admissionLimiter = new AdaptiveLimiter(1, 1, 1, 500, 0, 0, 3);
+        AdaptiveLimiter.Permit busy = servlet.admissionLimiter.acquire(AdaptiveLimiter.Priority.WRITE);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/list");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockResponse).setHeader("Retry-After", "3");
+        verify(mockResponse).sendError(eq(HttpServletResponse.SC_SERVICE_UNAVAILABLE), any());
+        verify(mockClimateRecordDAO, never()).openAllClimateRecords();
+        busy.release();
+    }
+
+    @Test
+    void testPermitIsReleasedAfterRequest() throws Exception {
+        // Arrange
+        when(mockClimateRecordDAO.openAllClimateRecords()).thenThrow(new DatabaseException("Query failed", null));
+        when(mockRequest.getRequestDispatcher("Error.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/list");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        assertEquals(0, servlet.admissionLimiter.getInFlight());
+        assertEquals(1, servlet.admissionLimiter.getAdmitted());
+        verify(mockResponse).setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    void testShowTemperatureTrends() throws Exception {
+        // Arrange
         when(mockRequest.getRequestDispatcher("TempTrendsGraph.jsp")).thenReturn(mockDispatcher);
 
         // Act
@@ -162,8 +639,57 @@ class ClimateInfoDashboardTest {
         servlet.doGet(mockRequest, mockResponse);
 
         // Assert
-        verify(mockRequest).setAttribute("recordsList", mockRecords);
+        verify(mockRequest).setAttribute("locations", ClimateInfoDashboard.LOCATIONS);
         verify(mockDispatcher).forward(mockRequest, mockResponse);
+        verify(mockClimateRecordDAO, never()).listAllClimateRecords();
+        assertEquals(0, servlet.admissionLimiter.getAdmitted());
+    }
+
+    @Test
+    void testWriteTrendSeries() throws Exception {
+        // Arrange
+        List<ClimateRecord> mockRecords = Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f),
+                new ClimateRecord(2, "2024-11-02", "Nanaimo", 13.0f, 4.5f)
+        );
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenReturn(mockRecords);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(mockResponse.getOutputStream()).thenReturn(servletOutputStream(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/api/trends.bin");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        TrendSeriesWriter expected = new TrendSeriesWriter(mockRecords);
+        ByteArrayOutputStream expectedBody = new ByteArrayOutputStream();
+        expected.writeTo(Channels.newChannel(expectedBody));
+        verify(mockResponse).setContentType("application/octet-stream");
+        verify(mockResponse).setContentLengthLong(expected.getSize());
+        assertArrayEquals(expectedBody.toByteArray(), body.toByteArray());
+        assertEquals(1, servlet.admissionLimiter.getAdmitted());
+    }
+
+    @Test
+    void testWriteTrendSeriesOfDerivedMetric() throws Exception {
+        // Arrange
+        List<ClimateRecord> mockRecords = Arrays.asList(new ClimateRecord(1, "2024-01-10", "Tofino", -10.0f, 20.0f));
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenReturn(mockRecords);
+        when(mockRequest.getParameter("metric")).thenReturn("windChill");
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(mockResponse.getOutputStream()).thenReturn(servletOutputStream(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/api/trends.bin");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        TrendSeriesWriter expected = new TrendSeriesWriter(mockRecords);
+        ByteArrayOutputStream expectedBody = new ByteArrayOutputStream();
+        expected.writeTo(Channels.newChannel(expectedBody), DerivedMetrics.Metric.WIND_CHILL);
+        assertArrayEquals(expectedBody.toByteArray(), body.toByteArray());
+        float value = ByteBuffer.wrap(body.toByteArray()).order(ByteOrder.LITTLE_ENDIAN).getFloat(body.size() - 4);
+        assertEquals(-17.9f, value, 0.05f);
     }
 
     @Test
@@ -199,13 +725,37 @@ class ClimateInfoDashboardTest {
     }
 
 
+    @Test
+    void testUpdateOntoStoredReadingIsRejected() throws Exception {
+        // Arrange
+        when(mockRequest.getParameter("id")).thenReturn("1");
+        when(mockRequest.getParameter("date")).thenReturn("2024-11-01");
+        when(mockRequest.getParameter("location")).thenReturn("Victoria");
+        when(mockRequest.getParameter("temperature")).thenReturn("15.0");
+        when(mockRequest.getParameter("wind")).thenReturn("10.0");
+        when(mockRequest.getRequestDispatcher("Error.jsp")).thenReturn(mockDispatcher);
+        when(mockClimateRecordDAO.updateClimateRecord(any(ClimateRecord.class)))
+                .thenThrow(new InvalidArgumentsException("A reading of Victoria on 2024-11-01 already exists."));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/update");
+        servlet.doPost(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockResponse).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        verify(mockRequest).setAttribute("errorTitle", "Invalid Input");
+        verify(mockRequest).setAttribute("errorMessage", "A reading of Victoria on 2024-11-01 already exists.");
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+        verify(mockResponse, never()).sendRedirect("list");
+    }
+
     @Test
     void testHandleException() throws Exception {
         // Arrange
         when(mockRequest.getRequestDispatcher("Error.jsp")).thenReturn(mockDispatcher);
 
         doThrow(new RuntimeException("Test exception"))
-                .when(mockClimateRecordDAO).listAllClimateRecords();
+                .when(mockClimateRecordDAO).openAllClimateRecords();
 
         // Act
         when(mockRequest.getServletPath()).thenReturn("/");
@@ -216,4 +766,528 @@ class ClimateInfoDashboardTest {
         verify(mockRequest).setAttribute(eq("errorMessage"), eq("Test exception"));
         verify(mockDispatcher).forward(mockRequest, mockResponse);
     }
+
+    @Test
+    void testHandleExceptionAfterResponseCommitted() throws Exception {
+        // Arrange
+        when(mockResponse.isCommitted()).thenReturn(true);
+        doThrow(new RuntimeException("Test exception"))
+                .when(mockClimateRecordDAO).openAllClimateRecords();
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockRequest, never()).getRequestDispatcher("Error.jsp");
+    }
+
+    @Test
+    void testStreamEvents() throws Exception {
+        // Arrange
+        AsyncContext mockAsyncContext = mock(AsyncContext.class);
+        when(mockRequest.startAsync()).thenReturn(mockAsyncContext);
+        when(mockRequest.getHeader("Last-Event-ID")).thenReturn("42");
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/events");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockResponse).setContentType("text/event-stream");
+        verify(mockAsyncContext).setTimeout(0);
+        verify(mockEventHub).subscribe(mockAsyncContext, 42L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSummaryAggregatesResultOverBudgetFromCursor() throws Exception {
+        // Arrange
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenThrow(new ResultTooLargeException("Too large", "all_records"));
+        Iterator<ClimateRecord> iterator = Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f),
+                new ClimateRecord(2, "2024-11-02", "Victoria", 10.5f, 7.0f)).iterator();
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockCursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(mockCursor.next()).thenAnswer(invocation -> iterator.next());
+        when(mockClimateRecordDAO.openAllClimateRecords()).thenReturn(mockCursor);
+        when(mockRequest.getRequestDispatcher("MonthlySummary.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/summary");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        ArgumentCaptor<Map<ClimateGroupKey, ClimateStats>> summary = ArgumentCaptor.forClass(Map.class);
+        verify(mockRequest).setAttribute(eq("summary"), summary.capture());
+        assertEquals(2, summary.getValue().get(new ClimateGroupKey("Victoria", "2024-11")).getCount());
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+        verify(mockCursor).close();
+    }
+
+    @Test
+    void testFullTrendSeriesOverBudgetIsRefused() throws Exception {
+        // Arrange
+        servlet.resultBudget = new ResultBudget(1, 0);
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenAnswer(invocation -> {
+            servlet.resultBudget.check("all_records", 2, 0);
+            return null;
+        });
+        when(mockRequest.getRequestDispatcher("Error.jsp")).thenReturn(mockDispatcher);
+        StringWriter body = new StringWriter();
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/api/trends.bin");
+        servlet.doGet(mockRequest, mockResponse);
+        when(mockRequest.getServletPath()).thenReturn("/metrics");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockResponse).setStatus(422);
+        verify(mockRequest).setAttribute("errorTitle", "Result Too Large");
+        verify(mockRequest).setAttribute("errorMessage", "The result is too large (more than 1 rows). Please narrow your filter.");
+        verify(mockDispatcher).forward(mockRequest, mockResponse);
+        assertTrue(body.toString().contains("climate_result_budget_exceeded_total{query=\"all_records\"} 1\n"));
+        assertTrue(body.toString().contains("climate_result_budget_fallbacks_total{action=\"rejected\"} 1\n"));
+        assertEquals(20, servlet.admissionLimiter.getLimit());
+    }
+
+    @Test
+    void testExportClimateRecords() throws Exception {
+        // Arrange
+        List<ClimateRecord> records = Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f),
+                new ClimateRecord(2, "2024-11-02", "Nanaimo", 13.0f, 4.5f));
+        Iterator<ClimateRecord> iterator = records.iterator();
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockCursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(mockCursor.next()).thenAnswer(invocation -> iterator.next());
+        when(mockClimateRecordDAO.openAllClimateRecords()).thenReturn(mockCursor);
+        StringWriter body = new StringWriter();
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/export");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockResponse).setContentType("text/csv;charset=UTF-8");
+        assertEquals("date,location,temperature,wind\n2024-11-01,Victoria,12.5,5.0\n2024-11-02,Nanaimo,13.0,4.5\n",
+                body.toString());
+        verify(mockCursor).close();
+    }
+
+    @Test
+    void testExportWithDerivedMetrics() throws Exception {
+        // Arrange
+        Iterator<ClimateRecord> iterator = Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", -10.0f, 20.0f),
+                new ClimateRecord(2, "2024-11-02", "Nanaimo", 13.0f, 4.5f)).iterator();
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockCursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(mockCursor.next()).thenAnswer(invocation -> iterator.next());
+        when(mockClimateRecordDAO.openAllClimateRecords()).thenReturn(mockCursor);
+        when(mockRequest.getParameter("derived")).thenReturn("true");
+        StringWriter body = new StringWriter();
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/export");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        assertEquals("date,location,temperature,wind,wind_chill,apparent_temperature\n"
+                + "2024-11-01,Victoria,-10.0,20.0,-17.9,-17.9\n"
+                + "2024-11-02,Nanaimo,13.0,4.5,,13.0\n", body.toString());
+        verify(mockCursor).close();
+    }
+
+    @Test
+    void testExportDegreeDays() throws Exception {
+        // Arrange
+        Iterator<ClimateRecord> iterator = Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", 10.0f, 5.0f),
+                new ClimateRecord(2, "2024-11-01", "Victoria", 14.0f, 5.0f),
+                new ClimateRecord(3, "2024-11-02", "Victoria", 20.0f, 5.0f)).iterator();
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockCursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(mockCursor.next()).thenAnswer(invocation -> iterator.next());
+        when(mockClimateRecordDAO.openAllClimateRecords()).thenReturn(mockCursor);
+        when(mockRequest.getParameter("report")).thenReturn("degree-days");
+        StringWriter body = new StringWriter();
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/export");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        assertEquals(String.format("location,month,days,heating_degree_days,cooling_degree_days\nVictoria,2024-11,2,6.0,2.0%n"),
+                body.toString());
+        verify(mockResponse).setHeader("Content-Disposition", "attachment; filename=\"climate-degree-days.csv\"");
+        verify(mockCursor).close();
+    }
+
+    @Test
+    void testExportReadsArchivedReadingsFromSegments(@TempDir Path directory) throws Exception {
+        // Arrange
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            archive.write("Victoria", Arrays.asList(new ClimateRecord(1, "2024-01-01", "Victoria", 4.5f, 9.0f)));
+            servlet.segmentArchive = archive;
+            // The daily mean of the segment's reading, one of a reading still in the archive table
+            // that is also in the segment, and one of a day without raw readings
+            Iterator<ClimateRecord> iterator = Arrays.asList(
+                    new ClimateRecord(-3, "2024-01-01", "Victoria", 4.5f, 9.0f),
+                    new ClimateRecord(1, "2024-01-01", "Victoria", 4.5f, 9.0f),
+                    new ClimateRecord(-4, "2024-01-02", "Victoria", 3.0f, 7.0f),
+                    new ClimateRecord(2, "2024-11-01", "Duncan", 12.5f, 5.0f)).iterator();
+            ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+            when(mockCursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+            when(mockCursor.next()).thenAnswer(invocation -> iterator.next());
+            when(mockClimateRecordDAO.openRecordsWithArchivedReadings()).thenReturn(mockCursor);
+            StringWriter body = new StringWriter();
+            when(mockResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+            // Act
+            when(mockRequest.getServletPath()).thenReturn("/export");
+            servlet.doGet(mockRequest, mockResponse);
+
+            // Assert
+            assertEquals("date,location,temperature,wind\n2024-01-01,Victoria,4.5,9.0\n2024-01-02,Victoria,3.0,7.0\n"
+                    + "2024-11-01,Duncan,12.5,5.0\n", body.toString());
+            verify(mockClimateRecordDAO, never()).openAllClimateRecords();
+            verify(mockCursor).close();
+        }
+    }
+
+    @Test
+    void testCompareCitiesReadsOneCursor() throws Exception {
+        // Arrange
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockCursor.hasNext()).thenReturn(true, true, false);
+        when(mockCursor.next()).thenReturn(
+                new ClimateRecord(1, "2024-03-01", "Duncan", 7.0f, 4.0f),
+                new ClimateRecord(2, "2024-03-01", "Tofino", 8.0f, 5.0f));
+        when(mockRequest.getParameterValues("city")).thenReturn(new String[] {"Tofino", " Duncan ", ""});
+        when(mockRequest.getParameter("from")).thenReturn("2024-03-01");
+        when(mockRequest.getParameter("to")).thenReturn("2024-03-31");
+        when(mockClimateRecordDAO.openRecordsByCities(Arrays.asList("Tofino", "Duncan"), "2024-03-01", "2024-03-31"))
+                .thenReturn(mockCursor);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(mockResponse.getOutputStream()).thenReturn(servletOutputStream(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/api/trends.bin");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        ByteBuffer series = ByteBuffer.wrap(body.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(2, series.getInt(4));
+        assertEquals(2, series.getInt(8));
+        verify(mockCursor).close();
+        verify(mockClimateRecordDAO, never()).listAllClimateRecords();
+    }
+
+    @Test
+    void testCompareCitiesWithMovingAverageReadsTheWindowBeforeTheRange() throws Exception {
+        // Arrange
+        Iterator<ClimateRecord> iterator = Arrays.asList(
+                new ClimateRecord(1, "2024-02-25", "Tofino", 6.0f, 5.0f),
+                new ClimateRecord(2, "2024-03-01", "Tofino", 10.0f, 5.0f)).iterator();
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockCursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(mockCursor.next()).thenAnswer(invocation -> iterator.next());
+        when(mockRequest.getParameterValues("city")).thenReturn(new String[] {"Tofino"});
+        when(mockRequest.getParameter("from")).thenReturn("2024-03-01");
+        when(mockRequest.getParameter("to")).thenReturn("2024-03-31");
+        when(mockRequest.getParameter("window")).thenReturn("7");
+        when(mockClimateRecordDAO.openRecordsByCities(Arrays.asList("Tofino"), "2024-02-24", "2024-03-31"))
+                .thenReturn(mockCursor);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(mockResponse.getOutputStream()).thenReturn(servletOutputStream(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/api/trends.bin");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        ByteBuffer series = ByteBuffer.wrap(body.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(1, series.getInt(8));
+        assertEquals(8.0f, series.getFloat(body.size() - 4));
+        verify(mockCursor).close();
+    }
+
+    @Test
+    void testMovingAverageOfAllLocationsStreamsThemByLocation() throws Exception {
+        // Arrange
+        Iterator<ClimateRecord> iterator = Arrays.asList(
+                new ClimateRecord(2, "2024-03-01", "Duncan", 4.0f, 5.0f),
+                new ClimateRecord(1, "2024-02-29", "Tofino", 6.0f, 5.0f),
+                new ClimateRecord(3, "2024-03-01", "Tofino", 10.0f, 5.0f)).iterator();
+        ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+        when(mockCursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(mockCursor.next()).thenAnswer(invocation -> iterator.next());
+        when(mockRequest.getParameter("window")).thenReturn("7");
+        when(mockClimateRecordDAO.openRecordsByLocation(false)).thenReturn(mockCursor);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        when(mockResponse.getOutputStream()).thenReturn(servletOutputStream(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/api/trends.bin");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        ByteBuffer series = ByteBuffer.wrap(body.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(3, series.getInt(8));
+        assertEquals(8.0f, series.getFloat(body.size() - 4));
+        verify(mockClimateRecordDAO, never()).listAllClimateRecords();
+        verify(mockCursor).close();
+    }
+
+    @Test
+    void testTrendsRejectInvalidWindow() throws Exception {
+        // Arrange
+        when(mockRequest.getParameter("window")).thenReturn("0");
+        when(mockRequest.getRequestDispatcher("Error.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/api/trends.bin");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockRequest).setAttribute("errorMessage", "Window must be a number of days between 1 and 3660: 0");
+        verify(mockClimateRecordDAO, never()).listAllClimateRecords();
+    }
+
+    @Test
+    void testCompareCitiesRequiresDateRange() throws Exception {
+        // Arrange
+        when(mockRequest.getParameterValues("city")).thenReturn(new String[] {"Tofino"});
+        when(mockRequest.getRequestDispatcher("Error.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/api/trends.bin");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockRequest).setAttribute("errorMessage", "Missing parameter: from");
+        verify(mockClimateRecordDAO, never()).openRecordsByCities(any(), any(), any());
+    }
+
+    @Test
+    void testTrendsReplaceDailyMeansWithArchivedReadings(@TempDir Path directory) throws Exception {
+        // Arrange
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            archive.write("Victoria", Arrays.asList(new ClimateRecord(1, "2024-01-01", "Victoria", 4.5f, 9.0f)));
+            servlet.segmentArchive = archive;
+            Iterator<ClimateRecord> iterator = Arrays.asList(
+                    new ClimateRecord(-3, "2024-01-01", "Victoria", 4.5f, 9.0f),
+                    new ClimateRecord(2, "2024-11-01", "Duncan", 12.5f, 5.0f)).iterator();
+            ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+            when(mockCursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+            when(mockCursor.next()).thenAnswer(invocation -> iterator.next());
+            when(mockClimateRecordDAO.openRecordsWithArchivedReadings()).thenReturn(mockCursor);
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            when(mockResponse.getOutputStream()).thenReturn(servletOutputStream(body));
+
+            // Act
+            when(mockRequest.getServletPath()).thenReturn("/api/trends.bin");
+            servlet.doGet(mockRequest, mockResponse);
+
+            // Assert
+            ByteBuffer series = ByteBuffer.wrap(body.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(2, series.getInt(8));
+            int ids = series.limit() - 2 * TrendSeriesWriter.POINT_BYTES;
+            assertEquals(2, series.getInt(ids));
+            assertEquals(1, series.getInt(ids + 4));
+        }
+    }
+
+    @Test
+    void testArchivedTrendSeriesOverBudgetIsRefused(@TempDir Path directory) throws Exception {
+        // Arrange
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            archive.write("Victoria", Arrays.asList(
+                    new ClimateRecord(1, "2024-01-01", "Victoria", 4.5f, 9.0f),
+                    new ClimateRecord(2, "2024-01-02", "Victoria", 5.5f, 8.0f)));
+            servlet.segmentArchive = archive;
+            servlet.resultBudget = new ResultBudget(1, 0);
+            ClimateRecordCursor mockCursor = mock(ClimateRecordCursor.class);
+            when(mockClimateRecordDAO.openRecordsWithArchivedReadings()).thenReturn(mockCursor);
+            when(mockRequest.getRequestDispatcher("Error.jsp")).thenReturn(mockDispatcher);
+
+            // Act
+            when(mockRequest.getServletPath()).thenReturn("/api/trends.bin");
+            servlet.doGet(mockRequest, mockResponse);
+
+            // Assert
+            verify(mockResponse).setStatus(422);
+            verify(mockRequest).setAttribute("errorTitle", "Result Too Large");
+            assertEquals(Long.valueOf(1), servlet.resultBudget.getExceeded().get("all_readings"));
+            assertEquals(1, servlet.resultBudget.getRejected());
+            verify(mockCursor).close();
+        }
+    }
+
+    @Test
+    void testDeleteRecordsByIdList() throws Exception {
+        // Arrange
+        when(mockRequest.getParameter("ids")).thenReturn("4, 8,15");
+        when(mockBulkRecordDAO.deleteClimateRecords(Arrays.asList(4, 8, 15), 5000)).thenReturn(2);
+        StringWriter body = new StringWriter();
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/deleteRecords");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        assertEquals("deleted=2", body.toString().trim());
+    }
+
+    @Test
+    void testCorrectTemperatureOverRange() throws Exception {
+        // Arrange
+        when(mockRequest.getParameter("location")).thenReturn("Tofino");
+        when(mockRequest.getParameter("from")).thenReturn("2024-03-01");
+        when(mockRequest.getParameter("to")).thenReturn("2024-03-31");
+        when(mockRequest.getParameter("offset")).thenReturn("-1.5");
+        when(mockBulkRecordDAO.correctTemperatures("Tofino", "2024-03-01", "2024-03-31", -1.5f, 5000)).thenReturn(31);
+        StringWriter body = new StringWriter();
+        when(mockResponse.getWriter()).thenReturn(new PrintWriter(body));
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/correctTemperature");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        assertEquals("updated=31", body.toString().trim());
+    }
+
+    @Test
+    void testDeleteRangeRemovesArchivedReadingsFromExport(@TempDir Path directory) throws Exception {
+        // Arrange
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            archive.write("Victoria", Arrays.asList(
+                    new ClimateRecord(1, "2024-01-01", "Victoria", 4.5f, 9.0f),
+                    new ClimateRecord(2, "2024-01-02", "Victoria", 3.0f, 7.0f),
+                    new ClimateRecord(3, "2024-02-01", "Victoria", 6.0f, 8.0f)));
+            servlet.segmentArchive = archive;
+            servlet.bulkAdmin = new BulkAdminHandler(mockBulkRecordDAO, 5000, archive);
+            when(mockRequest.getParameter("location")).thenReturn("Victoria");
+            when(mockRequest.getParameter("from")).thenReturn("2024-01-01");
+            when(mockRequest.getParameter("to")).thenReturn("2024-01-31");
+            when(mockBulkRecordDAO.deleteClimateRecords("Victoria", "2024-01-01", "2024-01-31", 5000)).thenReturn(0);
+            // No reading is left in the tables
+            ClimateRecordCursor emptyCursor = mock(ClimateRecordCursor.class);
+            when(mockClimateRecordDAO.openRecordsWithArchivedReadings()).thenReturn(emptyCursor);
+            StringWriter deleted = new StringWriter();
+            StringWriter exported = new StringWriter();
+            when(mockResponse.getWriter()).thenReturn(new PrintWriter(deleted), new PrintWriter(exported));
+
+            // Act
+            when(mockRequest.getServletPath()).thenReturn("/deleteRange", "/export");
+            servlet.doGet(mockRequest, mockResponse);
+            servlet.doGet(mockRequest, mockResponse);
+
+            // Assert
+            assertEquals("deleted=2", deleted.toString().trim());
+            assertEquals("date,location,temperature,wind\n2024-02-01,Victoria,6.0,8.0\n", exported.toString());
+        }
+    }
+
+    @Test
+    void testCorrectTemperatureCorrectsArchivedReadingsInExport(@TempDir Path directory) throws Exception {
+        // Arrange
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            archive.write("Victoria", Arrays.asList(
+                    new ClimateRecord(1, "2024-01-01", "Victoria", 4.5f, 9.0f),
+                    new ClimateRecord(2, "2024-02-01", "Victoria", 6.0f, 8.0f)));
+            servlet.segmentArchive = archive;
+            servlet.bulkAdmin = new BulkAdminHandler(mockBulkRecordDAO, 5000, archive);
+            when(mockRequest.getParameter("location")).thenReturn("Victoria");
+            when(mockRequest.getParameter("from")).thenReturn("2024-01-01");
+            when(mockRequest.getParameter("to")).thenReturn("2024-01-31");
+            when(mockRequest.getParameter("offset")).thenReturn("-1.5");
+            when(mockBulkRecordDAO.correctTemperatures("Victoria", "2024-01-01", "2024-01-31", -1.5f, 5000)).thenReturn(0);
+            // No reading is left in the tables
+            ClimateRecordCursor emptyCursor = mock(ClimateRecordCursor.class);
+            when(mockClimateRecordDAO.openRecordsWithArchivedReadings()).thenReturn(emptyCursor);
+            StringWriter updated = new StringWriter();
+            StringWriter exported = new StringWriter();
+            when(mockResponse.getWriter()).thenReturn(new PrintWriter(updated), new PrintWriter(exported));
+
+            // Act
+            when(mockRequest.getServletPath()).thenReturn("/correctTemperature", "/export");
+            servlet.doGet(mockRequest, mockResponse);
+            servlet.doGet(mockRequest, mockResponse);
+
+            // Assert
+            assertEquals("updated=1", updated.toString().trim());
+            assertEquals("date,location,temperature,wind\n2024-01-01,Victoria,3.0,9.0\n2024-02-01,Victoria,6.0,8.0\n",
+                    exported.toString());
+        }
+    }
+
+    @Test
+    void testCorrectTemperatureTakingArchivedReadingOutOfRangeChangesNothing(@TempDir Path directory) throws Exception {
+        // Arrange
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            archive.write("Victoria", Arrays.asList(new ClimateRecord(1, "2024-01-01", "Victoria", 45.0f, 9.0f)));
+            servlet.segmentArchive = archive;
+            servlet.bulkAdmin = new BulkAdminHandler(mockBulkRecordDAO, 5000, archive);
+            when(mockRequest.getParameter("location")).thenReturn("Victoria");
+            when(mockRequest.getParameter("from")).thenReturn("2024-01-01");
+            when(mockRequest.getParameter("to")).thenReturn("2024-01-31");
+            when(mockRequest.getParameter("offset")).thenReturn("60");
+            when(mockRequest.getRequestDispatcher("Error.jsp")).thenReturn(mockDispatcher);
+
+            // Act
+            when(mockRequest.getServletPath()).thenReturn("/correctTemperature");
+            servlet.doGet(mockRequest, mockResponse);
+
+            // Assert
+            verify(mockRequest).setAttribute("errorMessage",
+                    "A correction of 60.0 would take the archived temperature of 2024-01-01 out of range.");
+            verify(mockBulkRecordDAO, never()).correctTemperatures(any(String.class), any(String.class), any(String.class),
+                    any(Float.class), any(Integer.class));
+            assertEquals(45.0f, archive.openRange("Victoria", null, null).next().getTemperature());
+        }
+    }
+
+    @Test
+    void testDeleteRangeRequiresLocation() throws Exception {
+        // Arrange
+        when(mockRequest.getParameter("from")).thenReturn("2024-03-01");
+        when(mockRequest.getParameter("to")).thenReturn("2024-03-31");
+        when(mockRequest.getRequestDispatcher("Error.jsp")).thenReturn(mockDispatcher);
+
+        // Act
+        when(mockRequest.getServletPath()).thenReturn("/deleteRange");
+        servlet.doGet(mockRequest, mockResponse);
+
+        // Assert
+        verify(mockRequest).setAttribute("errorMessage", "Missing parameter: location");
+        verify(mockBulkRecordDAO, never()).deleteClimateRecords(any(String.class), any(String.class), any(String.class), any(Integer.class));
+    }
+
+    private static ServletOutputStream servletOutputStream(ByteArrayOutputStream body) {
+        return new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                // Written synchronously
+            }
+        };
+    }
 }
@@ -0,0 +1,200 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ClimateRecordCacheTest {
+
+    private ClimateRecordDAO mockClimateRecordDAO;
+    private ClimateRecordCache cache;
+
+    @BeforeEach
+    void setUp() {
+        mockClimateRecordDAO = mock(ClimateRecordDAO.class);
+        cache = new ClimateRecordCache(new CoalescingRecordReader(mockClimateRecordDAO), mockClimateRecordDAO, 100);
+    }
+
+    @Test
+    void testRepeatedReadsRunOneQuery() throws Exception {
+        ClimateRecord record = new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f);
+        when(mockClimateRecordDAO.getClimateRecord(1)).thenReturn(record);
+        when(mockClimateRecordDAO.getRecordsByCity("Victoria")).thenReturn(Arrays.asList(record));
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenReturn(Arrays.asList(record));
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(record, cache.getClimateRecord(1));
+            assertEquals(Arrays.asList(record), cache.getRecordsByCity("Victoria"));
+            assertEquals(Arrays.asList(record), cache.listAllClimateRecords());
+        }
+
+        verify(mockClimateRecordDAO).getClimateRecord(1);
+        verify(mockClimateRecordDAO).getRecordsByCity("Victoria");
+        verify(mockClimateRecordDAO).listAllClimateRecords();
+        assertEquals(6, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    void testChangeEvictsOnlyTheEntriesItTouches() throws Exception {
+        ClimateRecord victoria = new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f);
+        ClimateRecord duncan = new ClimateRecord(2, "2024-11-01", "Duncan", 10.0f, 4.0f);
+        when(mockClimateRecordDAO.getClimateRecord(1)).thenReturn(victoria);
+        when(mockClimateRecordDAO.getClimateRecord(2)).thenReturn(duncan);
+        when(mockClimateRecordDAO.getRecordsByCity("Victoria")).thenReturn(Arrays.asList(victoria));
+        when(mockClimateRecordDAO.getRecordsByCity("Duncan")).thenReturn(Arrays.asList(duncan));
+        when(mockClimateRecordDAO.getRecordsByCity("D%")).thenReturn(Arrays.asList(duncan));
+        when(mockClimateRecordDAO.getRecordsByCity("Tofino")).thenReturn(Collections.emptyList());
+        cache.getClimateRecord(1);
+        cache.getClimateRecord(2);
+        cache.getRecordsByCity("Victoria");
+        cache.getRecordsByCity("Duncan");
+        cache.getRecordsByCity("D%");
+        cache.getRecordsByCity("Tofino");
+
+        // Another node inserted a Tofino reading
+        cache.changed(ClimateChangeFeed.Change.parse("a1b2c3d4|I|7|2024-11-02|Tofino"));
+
+        cache.getClimateRecord(1);
+        cache.getClimateRecord(2);
+        cache.getRecordsByCity("Victoria");
+        cache.getRecordsByCity("Duncan");
+        cache.getRecordsByCity("D%");
+        cache.getRecordsByCity("Tofino");
+        verify(mockClimateRecordDAO).getClimateRecord(1);
+        verify(mockClimateRecordDAO).getClimateRecord(2);
+        verify(mockClimateRecordDAO).getRecordsByCity("Victoria");
+        verify(mockClimateRecordDAO).getRecordsByCity("Duncan");
+        verify(mockClimateRecordDAO, times(2)).getRecordsByCity("D%");
+        verify(mockClimateRecordDAO, times(2)).getRecordsByCity("Tofino");
+
+        // A delete of this node carries only the ID
+        cache.recordDeleted(2);
+
+        cache.getClimateRecord(1);
+        cache.getClimateRecord(2);
+        cache.getRecordsByCity("Victoria");
+        cache.getRecordsByCity("Duncan");
+        verify(mockClimateRecordDAO).getClimateRecord(1);
+        verify(mockClimateRecordDAO, times(2)).getClimateRecord(2);
+        verify(mockClimateRecordDAO).getRecordsByCity("Victoria");
+        verify(mockClimateRecordDAO, times(2)).getRecordsByCity("Duncan");
+    }
+
+    @Test
+    void testLocalUpdateReplacesTheCachedRecord() throws Exception {
+        when(mockClimateRecordDAO.getClimateRecord(1)).thenReturn(new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f));
+        cache.getClimateRecord(1);
+        ClimateRecord updated = new ClimateRecord(1, "2024-11-01", "Victoria", 14.0f, 5.0f);
+
+        cache.recordUpdated(updated);
+
+        assertSame(updated, cache.getClimateRecord(1));
+        verify(mockClimateRecordDAO).getClimateRecord(1);
+    }
+
+    @Test
+    void testReadThatRacedWithAWriteIsNotCached() throws Exception {
+        ClimateRecord stale = new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f);
+        when(mockClimateRecordDAO.getRecordsByCity("Victoria")).thenAnswer(invocation -> {
+            // The write commits while the query is running
+            cache.recordInserted(new ClimateRecord(3, "2024-11-02", "Victoria", 13.0f, 5.0f));
+            return Arrays.asList(stale);
+        });
+
+        assertEquals(Arrays.asList(stale), cache.getRecordsByCity("Victoria"));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testMissAfterRemoteChangeDoesNotJoinAQueryReadBeforeIt() throws Exception {
+        List<ClimateRecord> stale = Arrays.asList(new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f));
+        List<ClimateRecord> fresh = Arrays.asList(new ClimateRecord(1, "2024-11-01", "Victoria", 14.0f, 5.0f));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return stale;
+        }).thenReturn(fresh);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<ClimateRecord>> before = executor.submit(() -> cache.listAllClimateRecords());
+            started.await();
+
+            // Another node updated the reading while the first query is running
+            cache.changed(ClimateChangeFeed.Change.parse("a1b2c3d4|U|1|2024-11-01|Victoria"));
+            Future<List<ClimateRecord>> after = executor.submit(() -> cache.listAllClimateRecords());
+
+            assertEquals(fresh, after.get(5, TimeUnit.SECONDS));
+            release.countDown();
+            assertEquals(stale, before.get(5, TimeUnit.SECONDS));
+            assertEquals(fresh, cache.listAllClimateRecords());
+            verify(mockClimateRecordDAO, times(2)).listAllClimateRecords();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testArchiveEvictsEntriesBeforeTheCutoff() throws Exception {
+        ClimateRecord old = new ClimateRecord(1, "2024-01-01", "Victoria", 12.5f, 5.0f);
+        ClimateRecord recent = new ClimateRecord(2, "2024-11-01", "Duncan", 10.0f, 4.0f);
+        when(mockClimateRecordDAO.getClimateRecord(1)).thenReturn(old);
+        when(mockClimateRecordDAO.getClimateRecord(2)).thenReturn(recent);
+        when(mockClimateRecordDAO.getRecordsByCity("Victoria")).thenReturn(Arrays.asList(old));
+        when(mockClimateRecordDAO.getRecordsByCity("Duncan")).thenReturn(Arrays.asList(recent));
+        cache.getClimateRecord(1);
+        cache.getClimateRecord(2);
+        cache.getRecordsByCity("Victoria");
+        cache.getRecordsByCity("Duncan");
+
+        cache.recordsArchived("2024-08-01");
+
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    void testResynchronizeDropsEverything() throws Exception {
+        when(mockClimateRecordDAO.getClimateRecord(1)).thenReturn(new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f));
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenReturn(Collections.emptyList());
+        cache.getClimateRecord(1);
+        cache.listAllClimateRecords();
+
+        cache.resynchronize();
+
+        assertEquals(0, cache.size());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    void testZeroEntriesDisablesCaching() throws Exception {
+        cache = new ClimateRecordCache(new CoalescingRecordReader(mockClimateRecordDAO), mockClimateRecordDAO, 0);
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenReturn(Collections.emptyList());
+
+        cache.listAllClimateRecords();
+        cache.listAllClimateRecords();
+
+        verify(mockClimateRecordDAO, times(2)).listAllClimateRecords();
+        assertEquals(0, cache.size());
+    }
+}
@@ -2,24 +2,34 @@ package climateinfoapp;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.ServletContext;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -51,7 +61,7 @@ class ClimateRecordDAOTest {
         ClimateRecord record = new ClimateRecord("2024-11-24", "New York", 25.5f, 12.5f);
 
         // Mock the PreparedStatement
-        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockConnection.prepareStatement(any(String.class), any(String[].class))).thenReturn(mockPreparedStatement);
         when(mockPreparedStatement.executeUpdate()).thenReturn(1);
 
         // When
@@ -70,7 +80,7 @@ class ClimateRecordDAOTest {
         ClimateRecord record = new ClimateRecord("2024-11-24", "New York", 25.5f, 12.5f);
 
         // Mock SQLException
-        when(mockConnection.prepareStatement(any(String.class))).thenThrow(new SQLException("Database error"));
+        when(mockConnection.prepareStatement(any(String.class), any(String[].class))).thenThrow(new SQLException("Database error"));
 
         // When & Then
         try {
@@ -80,11 +90,69 @@ class ClimateRecordDAOTest {
         }
     }
 
+    @Test
+    void testInsertClimateRecordNotifiesListeners() throws SQLException, DatabaseException, InvalidArgumentsException {
+        ClimateRecord record = new ClimateRecord("2024-11-24", "Victoria", 12.5f, 5.0f);
+        ClimateRecordListener mockListener = mock(ClimateRecordListener.class);
+        climateRecordDAO.addListener(mockListener);
+
+        when(mockConnection.prepareStatement(any(String.class), any(String[].class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeUpdate()).thenReturn(1);
+
+        climateRecordDAO.insertClimateRecord(record);
+
+        verify(mockListener).recordInserted(record);
+    }
+
+    @Test
+    void testInsertClimateRecordsBatch() throws SQLException, DatabaseException, InvalidArgumentsException {
+        List<ClimateRecord> records = Arrays.asList(
+                new ClimateRecord("2024-11-24", "Victoria", 12.5f, 5.0f),
+                new ClimateRecord("2024-11-25", "Tofino", 10.0f, 8.0f));
+        ClimateRecordListener mockListener = mock(ClimateRecordListener.class);
+        climateRecordDAO.addListener(mockListener);
+
+        when(mockConnection.prepareStatement(any(String.class), any(String[].class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeBatch()).thenReturn(new int[] {1, 1});
+        ResultSet mockKeys = mock(ResultSet.class);
+        when(mockPreparedStatement.getGeneratedKeys()).thenReturn(mockKeys);
+        when(mockKeys.next()).thenReturn(true, true, false);
+        when(mockKeys.getInt(1)).thenReturn(41, 42);
+
+        int inserted = climateRecordDAO.insertClimateRecords(records);
+
+        assertEquals(2, inserted);
+        assertEquals(41, records.get(0).getId());
+        assertEquals(42, records.get(1).getId());
+        verify(mockPreparedStatement, times(2)).addBatch();
+        verify(mockConnection).commit();
+        verify(mockListener).recordInserted(records.get(0));
+        verify(mockListener).recordInserted(records.get(1));
+    }
+
+    @Test
+    void testInsertClimateRecordsBatchRollsBackOnFailure() throws SQLException, InvalidArgumentsException {
+        List<ClimateRecord> records = Arrays.asList(new ClimateRecord("2024-11-24", "Victoria", 12.5f, 5.0f));
+        ClimateRecordListener mockListener = mock(ClimateRecordListener.class);
+        climateRecordDAO.addListener(mockListener);
+
+        when(mockConnection.prepareStatement(any(String.class), any(String[].class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeBatch()).thenThrow(new SQLException("Database error"));
+
+        try {
+            climateRecordDAO.insertClimateRecords(records);
+        } catch (DatabaseException e) {
+            assertEquals("Failed to insert climate records", e.getMessage());
+        }
+        verify(mockConnection).rollback();
+        verify(mockListener, never()).recordInserted(any(ClimateRecord.class));
+    }
+
     @Test
     void testListAllClimateRecords() throws SQLException, DatabaseException, InvalidArgumentsException {
         // Mock the result set
-        when(mockConnection.createStatement()).thenReturn(mockStatement);
-        when(mockStatement.executeQuery(any(String.class))).thenReturn(mockResultSet);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
         when(mockResultSet.next()).thenReturn(true, true, false); // Two rows in result set
         when(mockResultSet.getInt("id")).thenReturn(1, 2);
         when(mockResultSet.getString("date")).thenReturn("2024-11-24", "2024-11-25");
@@ -97,14 +165,43 @@ class ClimateRecordDAOTest {
 
         // Then
         assertEquals(2, result.size());
-        verify(mockStatement).executeQuery(any(String.class));
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue().contains("FROM climate_data UNION ALL SELECT -id AS id"));
+        assertTrue(sql.getValue().endsWith(" ORDER BY date, id"));
+        verify(mockPreparedStatement).setFetchSize(ClimateRecordDAO.STREAM_FETCH_SIZE);
         verify(mockResultSet, times(3)).next();
+        verify(mockConnection).commit();
+    }
+
+    @Test
+    void testGetRecordsByCityStopsAtResultBudget() throws SQLException {
+        // Mock a result set with more rows than the budget allows
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getInt("id")).thenReturn(1, 2, 3, 4);
+        when(mockResultSet.getString("date")).thenReturn("2024-11-24");
+        when(mockResultSet.getString("location")).thenReturn("Victoria");
+        when(mockResultSet.getFloat("temp")).thenReturn(25.5f);
+        when(mockResultSet.getFloat("wind")).thenReturn(12.5f);
+        ResultBudget budget = new ResultBudget(2, 0);
+        climateRecordDAO.setResultBudget(budget);
+
+        // When & Then
+        ResultTooLargeException e = assertThrows(ResultTooLargeException.class,
+                () -> climateRecordDAO.getRecordsByCity("V%"));
+        assertEquals("records_by_city", e.getQuery());
+        assertTrue(e.getMessage().contains("narrow your filter"));
+        verify(mockResultSet, times(3)).next();
+        verify(mockResultSet).close();
+        assertEquals(Map.of("records_by_city", 1L), budget.getExceeded());
     }
 
     @Test
     void testListAllClimateRecordsSQLException() throws SQLException, InvalidArgumentsException {
         // Mock SQLException
-        when(mockConnection.createStatement()).thenThrow(new SQLException("Database error"));
+        when(mockConnection.prepareStatement(any(String.class))).thenThrow(new SQLException("Database error"));
 
         // When & Then
         try {
@@ -180,6 +277,18 @@ class ClimateRecordDAOTest {
         }
     }
 
+    @Test
+    void testUpdateClimateRecordOntoStoredReadingIsInvalid() throws SQLException, InvalidArgumentsException {
+        ClimateRecord record = new ClimateRecord(1, "2024-11-24", "New York", 27.5f, 14.5f);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeUpdate()).thenThrow(new SQLException("duplicate key", "23505"));
+
+        // When & Then
+        InvalidArgumentsException e = assertThrows(InvalidArgumentsException.class,
+                () -> climateRecordDAO.updateClimateRecord(record));
+        assertEquals("A reading of New York on 2024-11-24 already exists.", e.getMessage());
+    }
+
     @Test
     void testGetClimateRecord() throws SQLException, DatabaseException, InvalidArgumentsException {
         int recordId = 1;
@@ -207,6 +316,120 @@ class ClimateRecordDAOTest {
         assertEquals(expectedRecord.getWind(), result.getWind());
     }
 
+    @Test
+    void testGetClimateRecordAppliesMethodTimeoutAndLogsSlowQuery() throws SQLException, DatabaseException, InvalidArgumentsException {
+        QueryMonitor monitor = new QueryMonitor(30, Map.of("getClimateRecord", 5), 0, 10);
+        climateRecordDAO.setQueryMonitor(monitor);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(false);
+
+        // When
+        climateRecordDAO.getClimateRecord(7);
+
+        // Then
+        verify(mockPreparedStatement).setQueryTimeout(5);
+        List<SlowQuery> slowQueries = monitor.getSlowQueries();
+        assertEquals(1, slowQueries.size());
+        assertEquals("getClimateRecord", slowQueries.get(0).getMethod());
+        assertEquals("7", slowQueries.get(0).getParameters());
+        assertEquals(0, slowQueries.get(0).getRows());
+    }
+
+    @Test
+    void testOpenRawClimateRecordsSinceBindsDate() throws SQLException, DatabaseException {
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(false);
+
+        // When
+        try (ClimateRecordCursor cursor = climateRecordDAO.openRawClimateRecordsSince("2024-09-01")) {
+            assertTrue(!cursor.hasNext());
+        }
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue().contains("FROM climate_data WHERE date >= ? ORDER BY date, id"));
+        verify(mockPreparedStatement).setObject(1, Date.valueOf("2024-09-01"));
+    }
+
+    @Test
+    void testOpenRecordsByLocationOrdersEveryShardByLocation() throws SQLException, DatabaseException {
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(false);
+
+        // When
+        try (ClimateRecordCursor cursor = climateRecordDAO.openRecordsByLocation(true)) {
+            assertTrue(!cursor.hasNext());
+        }
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue().contains("FROM climate_data_archive"));
+        assertTrue(sql.getValue().endsWith(" ORDER BY location, date, id"));
+    }
+
+    @Test
+    void testOpenRecordsByCitiesUsesOneQuery() throws SQLException, DatabaseException {
+        Array locations = mock(Array.class);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockConnection.createArrayOf("varchar", new String[] {"Tofino", "Victoria"})).thenReturn(locations);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(false);
+
+        // When
+        try (ClimateRecordCursor cursor = climateRecordDAO.openRecordsByCities(
+                Arrays.asList("Victoria", "Tofino", "Victoria"), "2024-01-01", "2024-12-31")) {
+            assertTrue(!cursor.hasNext());
+        }
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue().endsWith("WHERE location = ANY(?) AND date BETWEEN ? AND ? ORDER BY location, date, id"));
+        verify(mockPreparedStatement).setArray(1, locations);
+        verify(mockPreparedStatement).setObject(2, Date.valueOf("2024-01-01"));
+        verify(mockPreparedStatement).setObject(3, Date.valueOf("2024-12-31"));
+        assertThrows(IllegalArgumentException.class,
+                () -> climateRecordDAO.openRecordsByCities(Collections.emptyList(), "2024-01-01", "2024-12-31"));
+    }
+
+    @Test
+    void testOpenRecordsByCitiesWithoutDateRange() throws SQLException, DatabaseException {
+        Array locations = mock(Array.class);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockConnection.createArrayOf("varchar", new String[] {"Duncan"})).thenReturn(locations);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(false);
+
+        // When
+        try (ClimateRecordCursor cursor = climateRecordDAO.openRecordsByCities(Arrays.asList("Duncan"), null, null)) {
+            assertTrue(!cursor.hasNext());
+        }
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue().endsWith("WHERE location = ANY(?) ORDER BY location, date, id"));
+        verify(mockPreparedStatement).setArray(1, locations);
+        assertThrows(IllegalArgumentException.class,
+                () -> climateRecordDAO.openRecordsByCities(Arrays.asList("Duncan"), "2024-01-01", null));
+    }
+
+    @Test
+    void testCheckConnectionsValidatesEveryShard() throws SQLException, DatabaseException {
+        when(mockConnection.isValid(5)).thenReturn(true, false);
+
+        // When
+        assertEquals(1, climateRecordDAO.checkConnections(5));
+
+        // Then
+        assertThrows(DatabaseException.class, () -> climateRecordDAO.checkConnections(5));
+    }
+
     @Test
     void testGetClimateRecordNotFound() throws SQLException, DatabaseException, InvalidArgumentsException {
         int recordId = 1;
@@ -237,4 +460,225 @@ class ClimateRecordDAOTest {
             assertEquals("Failed to retrieve climate record", e.getMessage());
         }
     }
+
+    @Test
+    void testArchiveRecordsBefore() throws SQLException, DatabaseException {
+        ClimateRecordListener mockListener = mock(ClimateRecordListener.class);
+        climateRecordDAO.addListener(mockListener);
+        // Mock the single-statement batch move
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getInt(1)).thenReturn(250);
+
+        // When
+        int moved = climateRecordDAO.archiveRecordsBefore(0, "2024-08-01", 1000);
+
+        // Then
+        assertEquals(250, moved);
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue().contains("FOR UPDATE SKIP LOCKED"));
+        assertTrue(sql.getValue().contains("INSERT INTO climate_data_archive"));
+        assertTrue(sql.getValue().contains("ON CONFLICT (location, date) DO UPDATE"));
+        verify(mockPreparedStatement).setDate(1, Date.valueOf("2024-08-01"));
+        verify(mockPreparedStatement).setInt(2, 1000);
+        verify(mockListener, never()).recordDeleted(anyInt());
+    }
+
+    @Test
+    void testArchiveRecordsBeforeSQLException() throws SQLException {
+        when(mockConnection.prepareStatement(any(String.class))).thenThrow(new SQLException("Database error"));
+
+        DatabaseException e = assertThrows(DatabaseException.class,
+                () -> climateRecordDAO.archiveRecordsBefore(0, "2024-08-01", 1000));
+
+        assertEquals("Failed to archive climate records", e.getMessage());
+    }
+
+    @Test
+    void testUpsertClimateRecordsCountsInsertedUpdatedAndUnchanged() throws SQLException, DatabaseException, InvalidArgumentsException {
+        ClimateRecordListener mockListener = mock(ClimateRecordListener.class);
+        climateRecordDAO.addListener(mockListener);
+        ClimateRecord fresh = new ClimateRecord("2024-11-03", "Victoria", 9.0f, 4.0f);
+        ClimateRecord corrected = new ClimateRecord("2024-11-02", "Victoria", 8.5f, 3.0f);
+        ClimateRecord replayed = new ClimateRecord("2024-11-01", "Victoria", 7.0f, 2.0f);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        // The replayed reading matches the stored one, so the statement returns no row for it
+        when(mockResultSet.next()).thenReturn(true, true, false);
+        when(mockResultSet.getString("location")).thenReturn("Victoria", "Victoria");
+        when(mockResultSet.getString("date")).thenReturn("2024-11-03", "2024-11-02");
+        when(mockResultSet.getInt("id")).thenReturn(30, 20);
+        when(mockResultSet.getBoolean("inserted")).thenReturn(true, false);
+
+        // When
+        UpsertResult result = climateRecordDAO.upsertClimateRecords(Arrays.asList(fresh, corrected, replayed));
+
+        // Then
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(1, result.getUnchanged());
+        assertEquals(30, fresh.getId());
+        assertEquals(20, corrected.getId());
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue().contains("ON CONFLICT (location, date) DO UPDATE"));
+        verify(mockConnection).commit();
+        verify(mockListener).recordInserted(fresh);
+        verify(mockListener).recordUpdated(corrected);
+        verify(mockListener, never()).recordUpdated(replayed);
+    }
+
+    @Test
+    void testUpsertClimateRecordsKeepsLastReadingOfSameDay() throws SQLException, DatabaseException, InvalidArgumentsException {
+        ClimateRecord first = new ClimateRecord("2024-11-01", "Duncan", 7.0f, 2.0f);
+        ClimateRecord resent = new ClimateRecord("2024-11-01", "Duncan", 7.5f, 2.0f);
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getString("location")).thenReturn("Duncan");
+        when(mockResultSet.getString("date")).thenReturn("2024-11-01");
+        when(mockResultSet.getInt("id")).thenReturn(5);
+        when(mockResultSet.getBoolean("inserted")).thenReturn(true);
+
+        // When
+        UpsertResult result = climateRecordDAO.upsertClimateRecords(Arrays.asList(first, resent));
+
+        // Then
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getUnchanged());
+        verify(mockConnection).createArrayOf("float4", new Object[] {7.5f});
+        assertEquals(5, resent.getId());
+    }
+
+    @Test
+    void testUpsertClimateRecordsRollsBackOnFailure() throws SQLException, InvalidArgumentsException {
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenThrow(new SQLException("Database error"));
+
+        // When / Then
+        assertThrows(DatabaseException.class, () -> climateRecordDAO.upsertClimateRecords(Collections.singletonList(
+                new ClimateRecord("2024-11-01", "Duncan", 7.0f, 2.0f))));
+        verify(mockConnection).rollback();
+        verify(mockConnection, never()).commit();
+    }
+
+    @Test
+    void testUpsertClimateRecordInsertsNewReading() throws SQLException, DatabaseException, InvalidArgumentsException {
+        ClimateRecord record = new ClimateRecord("2024-11-01", "Duncan", 7.0f, 2.0f);
+        when(mockConnection.prepareStatement(any(String.class), any(String[].class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeUpdate()).thenReturn(1);
+        when(mockPreparedStatement.getGeneratedKeys()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true, false);
+        when(mockResultSet.getInt(1)).thenReturn(12);
+
+        // When
+        UpsertResult result = climateRecordDAO.upsertClimateRecord(record);
+
+        // Then
+        assertEquals(1, result.getInserted());
+        assertEquals(12, record.getId());
+        verify(mockConnection, never()).prepareStatement(any(String.class));
+    }
+
+    @Test
+    void testUpsertClimateRecordOfStoredDayFallsBackToUpsert() throws SQLException, DatabaseException, InvalidArgumentsException {
+        ClimateRecord record = new ClimateRecord("2024-11-01", "Duncan", 7.0f, 2.0f);
+        PreparedStatement insert = mock(PreparedStatement.class);
+        when(mockConnection.prepareStatement(any(String.class), any(String[].class))).thenReturn(insert);
+        when(insert.executeUpdate()).thenThrow(new SQLException("duplicate key", "23505"));
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        // The stored reading has the same values, so the upsert returns no row
+        when(mockResultSet.next()).thenReturn(false);
+
+        // When
+        UpsertResult result = climateRecordDAO.upsertClimateRecord(record);
+
+        // Then
+        assertEquals(0, result.getInserted());
+        assertEquals(1, result.getUnchanged());
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(mockConnection).prepareStatement(sql.capture());
+        assertTrue(sql.getValue().contains("ON CONFLICT (location, date) DO UPDATE"));
+    }
+
+    @Test
+    void testSumRecordCountersReadsCounterTable() throws SQLException, DatabaseException {
+        when(mockConnection.prepareStatement("SELECT coalesce(sum(row_count), 0) FROM climate_data_counts"))
+                .thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getLong(1)).thenReturn(4321L);
+
+        assertEquals(4321L, climateRecordDAO.sumRecordCounters());
+    }
+
+    @Test
+    void testSumRecordCountersOfCityReadsItsCounters() throws SQLException, DatabaseException {
+        when(mockConnection.prepareStatement(
+                "SELECT coalesce(sum(row_count), 0) FROM climate_data_counts WHERE location like ?"))
+                .thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getLong(1)).thenReturn(321L);
+
+        assertEquals(321L, climateRecordDAO.sumRecordCounters("Victoria"));
+        verify(mockPreparedStatement).setString(1, "Victoria");
+    }
+
+    @Test
+    void testEstimateRecordCountOfCityReadsThePlannedRows() throws SQLException, DatabaseException {
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true);
+        when(mockResultSet.getString(1)).thenReturn("Append  (cost=0.00..1520.41 rows=4567 width=25)");
+
+        assertEquals(4567L, climateRecordDAO.estimateRecordCount("Victoria"));
+        verify(mockPreparedStatement).setString(1, "Victoria");
+    }
+
+    @Test
+    void testSumRecordCountersWithoutCounterTableReturnsNull() throws SQLException, DatabaseException {
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery())
+                .thenThrow(new SQLException("relation \"climate_data_counts\" does not exist", "42P01"));
+
+        assertNull(climateRecordDAO.sumRecordCounters());
+    }
+
+    @Test
+    void testEstimateRecordCountFailureIsDatabaseException() throws SQLException {
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenThrow(new SQLException("Database error"));
+
+        assertThrows(DatabaseException.class, () -> climateRecordDAO.estimateRecordCount());
+    }
+
+    @Test
+    void testListStationsReadsCoordinates() throws Exception {
+        when(mockConnection.prepareStatement("SELECT location, latitude, longitude FROM stations"))
+                .thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery()).thenReturn(mockResultSet);
+        when(mockResultSet.next()).thenReturn(true, true, false);
+        when(mockResultSet.getString("location")).thenReturn("Victoria", "Duncan");
+        when(mockResultSet.getDouble("latitude")).thenReturn(48.4284, 48.7787);
+        when(mockResultSet.getDouble("longitude")).thenReturn(-123.3656, -123.7079);
+
+        List<Station> stations = climateRecordDAO.listStations();
+
+        assertEquals(2, stations.size());
+        assertEquals("Duncan", stations.get(0).getLocation());
+        assertEquals(-123.3656, stations.get(1).getLongitude());
+    }
+
+    @Test
+    void testListStationsWithoutStationTableIsEmpty() throws Exception {
+        when(mockConnection.prepareStatement(any(String.class))).thenReturn(mockPreparedStatement);
+        when(mockPreparedStatement.executeQuery())
+                .thenThrow(new SQLException("relation \"stations\" does not exist", "42P01"));
+
+        assertTrue(climateRecordDAO.listStations().isEmpty());
+    }
 }
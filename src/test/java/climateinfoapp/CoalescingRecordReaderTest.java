@@ -0,0 +1,107 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class CoalescingRecordReaderTest {
+
+    private ClimateRecordDAO mockClimateRecordDAO;
+    private CoalescingRecordReader reader;
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @BeforeEach
+    void setUp() {
+        mockClimateRecordDAO = mock(ClimateRecordDAO.class);
+        reader = new CoalescingRecordReader(mockClimateRecordDAO);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentSearchesForSameCityRunOneQuery() throws Exception {
+        List<ClimateRecord> records = Arrays.asList(new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(mockClimateRecordDAO.getRecordsByCity("Victoria")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return records;
+        });
+
+        Future<List<ClimateRecord>> first = executor.submit(() -> reader.getRecordsByCity("Victoria"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<List<ClimateRecord>> second = executor.submit(() -> reader.getRecordsByCity("Victoria"));
+        while (reader.getRecordsByCityFlights().getCoalesced() == 0) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertSame(first.get(5, TimeUnit.SECONDS), second.get(5, TimeUnit.SECONDS));
+        assertEquals(records, first.get());
+        verify(mockClimateRecordDAO, times(1)).getRecordsByCity("Victoria");
+        assertThrows(UnsupportedOperationException.class, () -> first.get().clear());
+    }
+
+    @Test
+    void testCitiesDifferingInCaseAreNotCoalesced() throws Exception {
+        when(mockClimateRecordDAO.getRecordsByCity("Victoria")).thenReturn(Arrays.asList());
+        when(mockClimateRecordDAO.getRecordsByCity("victoria")).thenReturn(Arrays.asList());
+
+        reader.getRecordsByCity("Victoria");
+        reader.getRecordsByCity("victoria");
+
+        assertEquals(2, reader.getRecordsByCityFlights().getExecutions());
+    }
+
+    @Test
+    void testWriteDetachesInFlightQuery() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<ClimateRecord> stale = Arrays.asList();
+        List<ClimateRecord> fresh = Arrays.asList(new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f));
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return stale;
+        }).thenReturn(fresh);
+
+        Future<List<ClimateRecord>> beforeWrite = executor.submit(() -> reader.listAllClimateRecords());
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        reader.recordInserted(fresh.get(0));
+        List<ClimateRecord> afterWrite = reader.listAllClimateRecords();
+        release.countDown();
+
+        assertEquals(fresh, afterWrite);
+        assertEquals(stale, beforeWrite.get(5, TimeUnit.SECONDS));
+        assertEquals(0, reader.getAllRecordsFlights().getCoalesced());
+    }
+
+    @Test
+    void testDatabaseExceptionIsRethrown() throws Exception {
+        DatabaseException failure = new DatabaseException("Query failed", null);
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenThrow(failure);
+
+        assertSame(failure, assertThrows(DatabaseException.class, () -> reader.listAllClimateRecords()));
+    }
+}
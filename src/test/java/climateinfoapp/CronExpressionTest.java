@@ -0,0 +1,61 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import org.junit.jupiter.api.Test;
+
+class CronExpressionTest {
+
+    private static final ZonedDateTime MONDAY_NOON = ZonedDateTime.of(2024, 11, 25, 12, 0, 30, 0, ZoneOffset.UTC);
+
+    @Test
+    void testEveryMinuteNeverMatchesTheStartTime() {
+        assertEquals(MONDAY_NOON.withSecond(0).plusMinutes(1), CronExpression.parse("* * * * *").next(MONDAY_NOON));
+    }
+
+    @Test
+    void testStepsRangesAndLists() {
+        CronExpression quarterHours = CronExpression.parse("*/15 8-17 * * *");
+        CronExpression nightly = CronExpression.parse("30 2 * * *");
+        CronExpression weekdays = CronExpression.parse("0 6,18 * * 1-5");
+
+        assertEquals(ZonedDateTime.of(2024, 11, 25, 12, 15, 0, 0, ZoneOffset.UTC), quarterHours.next(MONDAY_NOON));
+        assertEquals(ZonedDateTime.of(2024, 11, 26, 8, 0, 0, 0, ZoneOffset.UTC),
+                quarterHours.next(MONDAY_NOON.withHour(17).withMinute(45)));
+        assertEquals(ZonedDateTime.of(2024, 11, 26, 2, 30, 0, 0, ZoneOffset.UTC), nightly.next(MONDAY_NOON));
+        assertEquals(ZonedDateTime.of(2024, 11, 25, 18, 0, 0, 0, ZoneOffset.UTC), weekdays.next(MONDAY_NOON));
+        // Friday evening skips the weekend
+        assertEquals(ZonedDateTime.of(2024, 12, 2, 6, 0, 0, 0, ZoneOffset.UTC),
+                weekdays.next(ZonedDateTime.of(2024, 11, 29, 19, 0, 0, 0, ZoneOffset.UTC)));
+    }
+
+    @Test
+    void testDayOfMonthOrDayOfWeekWhenBothAreRestricted() {
+        // The 1st of the month or any Sunday (7 and 0 both mean Sunday)
+        CronExpression expression = CronExpression.parse("0 0 1 * 7");
+
+        assertEquals(ZonedDateTime.of(2024, 12, 1, 0, 0, 0, 0, ZoneOffset.UTC), expression.next(MONDAY_NOON));
+        assertEquals(ZonedDateTime.of(2024, 12, 8, 0, 0, 0, 0, ZoneOffset.UTC),
+                expression.next(ZonedDateTime.of(2024, 12, 1, 0, 0, 0, 0, ZoneOffset.UTC)));
+    }
+
+    @Test
+    void testMonthAndLeapDay() {
+        assertEquals(ZonedDateTime.of(2028, 2, 29, 0, 0, 0, 0, ZoneOffset.UTC),
+                CronExpression.parse("0 0 29 2 *").next(MONDAY_NOON));
+        assertThrows(IllegalStateException.class, () -> CronExpression.parse("0 0 30 2 *").next(MONDAY_NOON));
+    }
+
+    @Test
+    void testInvalidExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("* * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("60 * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("* 5-2 * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("*/0 * * * *"));
+        assertThrows(IllegalArgumentException.class, () -> CronExpression.parse("* * * jan *"));
+    }
+}
@@ -1,6 +1,7 @@
 package climateinfoapp;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.mock;
@@ -13,6 +14,7 @@ import static org.mockito.Mockito.when;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Arrays;
 
 import javax.servlet.ServletContext;
 
@@ -113,6 +115,25 @@ public class DBUtilsTest {
         verify(mockConnection, never()).close();
     }
 
+    @Test
+    void testInit_ShouldDefaultToSingleShard() {
+        // Without jdbcShardURLs the jdbcURL is the only shard
+        assertEquals(1, DBUtils.getShardCount());
+        assertThrows(IllegalArgumentException.class, () -> DBUtils.getConnection(1));
+    }
+
+    @Test
+    void testInit_ShouldReadShardURLs() {
+        when(mockContext.getInitParameter("jdbcShardURLs"))
+                .thenReturn(" jdbc:postgresql://localhost:5433/postgres\n\t jdbc:postgresql://localhost:5434/postgres?options=a,b ");
+
+        DBUtils.init(mockContext);
+
+        assertEquals(2, DBUtils.getShardCount());
+        assertEquals(Arrays.asList("jdbc:postgresql://localhost:5433/postgres", "jdbc:postgresql://localhost:5434/postgres?options=a,b"),
+                DBUtils.shardURLs);
+    }
+
     @AfterEach
     void tearDown() {
         // Reset mocks or cleanup if necessary
@@ -0,0 +1,122 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class DerivedMetricsTest {
+
+    @Test
+    void testWindChill() {
+        assertEquals(-17.9f, DerivedMetrics.windChill(-10f, 20f), 0.05f);
+        assertEquals(-0.7f, DerivedMetrics.windChill(5f, 40f), 0.05f);
+        assertTrue(Float.isNaN(DerivedMetrics.windChill(12f, 20f)));
+        assertTrue(Float.isNaN(DerivedMetrics.windChill(-10f, 3f)));
+    }
+
+    @Test
+    void testApparentTemperatureFallsBackToAirTemperature() {
+        assertEquals(DerivedMetrics.windChill(-10f, 20f), DerivedMetrics.apparentTemperature(-10f, 20f));
+        assertEquals(25f, DerivedMetrics.apparentTemperature(25f, 20f));
+        assertEquals(-5f, DerivedMetrics.apparentTemperature(-5f, 0f));
+    }
+
+    @Test
+    void testComputeColumns() {
+        float[] temperatures = { -10f, 25f, 5f };
+        float[] winds = { 20f, 20f, 40f };
+        float[] result = new float[3];
+
+        DerivedMetrics.compute(DerivedMetrics.Metric.TEMPERATURE, temperatures, winds, result, 3);
+        assertEquals(Arrays.toString(temperatures), Arrays.toString(result));
+        DerivedMetrics.compute(DerivedMetrics.Metric.WIND_CHILL, temperatures, winds, result, 3);
+        assertEquals(-17.9f, result[0], 0.05f);
+        assertTrue(Float.isNaN(result[1]));
+        DerivedMetrics.compute(DerivedMetrics.Metric.APPARENT_TEMPERATURE, temperatures, winds, result, 3);
+        assertEquals(25f, result[1]);
+        assertEquals(-0.7f, result[2], 0.05f);
+    }
+
+    @Test
+    void testVectorKernelsMatchScalarKernels() {
+        DerivedMetrics.Kernels vector = DerivedMetrics.loadVectorKernels();
+        assumeTrue(vector != null, "jdk.incubator.vector is not available");
+        Random random = new Random(7);
+        // Odd lengths leave a tail after the last full vector
+        for (int length : new int[] { 0, 1, 7, 33, 1001 }) {
+            float[] temperatures = new float[length];
+            float[] winds = new float[length];
+            for (int i = 0; i < length; i++) {
+                temperatures[i] = -40f + random.nextFloat() * 80f;
+                winds[i] = random.nextFloat() * 80f;
+            }
+            assertKernelsMatch(vector, temperatures, winds, length);
+        }
+    }
+
+    @Test
+    void testDegreeDaysUseDailyMeans() throws Exception {
+        Map<ClimateGroupKey, DerivedMetrics.DegreeDays> degreeDays = DerivedMetrics.degreeDays(Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", 10f, 5f),
+                new ClimateRecord(2, "2024-11-01", "Victoria", 14f, 5f),
+                new ClimateRecord(3, "2024-11-02", "Victoria", 20f, 5f),
+                new ClimateRecord(4, "2024-12-01", "Victoria", 8f, 5f),
+                new ClimateRecord(5, "2024-11-01", "Duncan", 22f, 5f)).iterator());
+
+        assertEquals(3, degreeDays.size());
+        DerivedMetrics.DegreeDays duncan = degreeDays.get(new ClimateGroupKey("Duncan", "2024-11"));
+        assertEquals(1, duncan.getDays());
+        assertEquals(0, duncan.getHeating(), 1e-6);
+        assertEquals(4, duncan.getCooling(), 1e-6);
+        // Daily means of 12 and 20 degrees
+        DerivedMetrics.DegreeDays november = degreeDays.get(new ClimateGroupKey("Victoria", "2024-11"));
+        assertEquals(2, november.getDays());
+        assertEquals(6, november.getHeating(), 1e-6);
+        assertEquals(2, november.getCooling(), 1e-6);
+        assertEquals(10, degreeDays.get(new ClimateGroupKey("Victoria", "2024-12")).getHeating(), 1e-6);
+    }
+
+    @Test
+    void testMetricFromParameter() throws Exception {
+        assertEquals(DerivedMetrics.Metric.TEMPERATURE, DerivedMetrics.Metric.fromParameter(null));
+        assertEquals(DerivedMetrics.Metric.TEMPERATURE, DerivedMetrics.Metric.fromParameter(""));
+        assertEquals(DerivedMetrics.Metric.WIND_CHILL, DerivedMetrics.Metric.fromParameter("windChill"));
+        assertEquals(DerivedMetrics.Metric.APPARENT_TEMPERATURE, DerivedMetrics.Metric.fromParameter("apparent"));
+        assertThrows(InvalidArgumentsException.class, () -> DerivedMetrics.Metric.fromParameter("heatIndex"));
+    }
+
+    private static void assertKernelsMatch(DerivedMetrics.Kernels vector, float[] temperatures, float[] winds, int length) {
+        float[] expected = new float[length];
+        float[] actual = new float[length];
+        DerivedMetrics.SCALAR.windChill(temperatures, winds, expected, length);
+        vector.windChill(temperatures, winds, actual, length);
+        assertClose(expected, actual);
+        DerivedMetrics.SCALAR.apparentTemperature(temperatures, winds, expected, length);
+        vector.apparentTemperature(temperatures, winds, actual, length);
+        assertClose(expected, actual);
+
+        float[] expectedCooling = new float[length];
+        float[] actualCooling = new float[length];
+        DerivedMetrics.SCALAR.degrees(temperatures, DerivedMetrics.DEGREE_DAY_BASE, expected, expectedCooling, length);
+        vector.degrees(temperatures, DerivedMetrics.DEGREE_DAY_BASE, actual, actualCooling, length);
+        assertClose(expected, actual);
+        assertClose(expectedCooling, actualCooling);
+    }
+
+    private static void assertClose(float[] expected, float[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            if (Float.isNaN(expected[i])) {
+                assertTrue(Float.isNaN(actual[i]), "NaN expected at " + i);
+            } else {
+                assertEquals(expected[i], actual[i], 1e-3f, "at " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class GorillaCodecTest {
+
+    @Test
+    void testRoundTripPreservesEveryField() throws Exception {
+        List<ClimateRecord> records = Arrays.asList(
+                new ClimateRecord(7, "1969-12-30", "Tofino", -0.0f, 0.0f),
+                new ClimateRecord(8, "1969-12-31", "Tofino", -12.75f, 199.9f),
+                new ClimateRecord(9, "1970-01-01", "Tofino", -12.75f, 199.9f),
+                new ClimateRecord(2_000_000_000, "1970-01-01", "Tofino", 99.99f, 1.0E-7f),
+                new ClimateRecord(2_000_000_001, "2024-11-05", "Tofino", 15.5f, 12.3f),
+                new ClimateRecord(12, "2024-11-06", "Tofino", 15.6f, 12.3f));
+
+        List<ClimateRecord> decoded = roundTrip(records);
+
+        assertEquals(records.size(), decoded.size());
+        for (int i = 0; i < records.size(); i++) {
+            ClimateRecord expected = records.get(i);
+            ClimateRecord actual = decoded.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getDate(), actual.getDate());
+            assertEquals("Tofino", actual.getLocation());
+            assertEquals(Float.floatToRawIntBits(expected.getTemperature()), Float.floatToRawIntBits(actual.getTemperature()));
+            assertEquals(Float.floatToRawIntBits(expected.getWind()), Float.floatToRawIntBits(actual.getWind()));
+        }
+    }
+
+    @Test
+    void testRegularSeriesOfRepeatedValuesTakesFourBitsPerRecord() throws Exception {
+        GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+        for (int day = 0; day < 1000; day++) {
+            encoder.add(new ClimateRecord(100 + day * 5, LocalDate.ofEpochDay(19_000 + day).toString(),
+                    "Duncan", 10.5f, 4.0f));
+        }
+
+        // 128 bits for the first record, then one bit each for date, ID, temperature and wind
+        assertEquals((128 + 999 * 4 + 63) / 64, encoder.toWords().length);
+    }
+
+    @Test
+    void testBitFieldsCrossWordBoundaries() {
+        GorillaCodec.BitWriter writer = new GorillaCodec.BitWriter();
+        writer.write(0b101, 3);
+        writer.write(-1L, 64);
+        writer.write(0x1234_5678L, 61);
+        long[] words = writer.toWords();
+        ByteBuffer buffer = ByteBuffer.allocate(words.length * Long.BYTES);
+        buffer.asLongBuffer().put(words);
+
+        GorillaCodec.BitReader reader = new GorillaCodec.BitReader(buffer, 0);
+
+        assertEquals(0b101, reader.read(3));
+        assertEquals(-1L, reader.read(64));
+        assertEquals(0x1234_5678L, reader.read(61));
+    }
+
+    private static List<ClimateRecord> roundTrip(List<ClimateRecord> records) throws Exception {
+        GorillaCodec.Encoder encoder = new GorillaCodec.Encoder();
+        records.forEach(encoder::add);
+        long[] words = encoder.toWords();
+        ByteBuffer buffer = ByteBuffer.allocate(8 + words.length * Long.BYTES);
+        buffer.position(8);
+        buffer.asLongBuffer().put(words);
+
+        GorillaCodec.Decoder decoder = new GorillaCodec.Decoder(buffer, 8, encoder.getCount(), "Tofino");
+        List<ClimateRecord> decoded = new ArrayList<>();
+        while (decoder.hasNext()) {
+            decoded.add(decoder.next());
+        }
+        return decoded;
+    }
+}
@@ -0,0 +1,157 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class JobSchedulerTest {
+
+    private static final Duration NEVER = Duration.ofDays(1);
+
+    private JobScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void testFixedRateJobRunsRepeatedly() throws Exception {
+        scheduler = new JobScheduler(null, Clock.systemUTC());
+        CountDownLatch runs = new CountDownLatch(3);
+
+        JobStats stats = scheduler.schedule("tick", JobScheduler.Trigger.fixedRate(Duration.ofMillis(20)), 1, false,
+                runs::countDown);
+
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+        assertTrue(stats.getSucceeded() >= 2);
+        assertTrue(stats.getNextRun() != null);
+        assertEquals("every PT0.02S", stats.getTrigger());
+    }
+
+    @Test
+    void testRecordsOutcomesAndDurations() throws Exception {
+        scheduler = new JobScheduler(null, Clock.systemUTC());
+        AtomicInteger calls = new AtomicInteger();
+        JobStats stats = scheduler.schedule("flaky", JobScheduler.Trigger.fixedRate(NEVER), 1, false, () -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("disk full");
+            }
+        });
+
+        assertEquals(JobStats.Outcome.SUCCEEDED, scheduler.runNow("flaky").get(5, TimeUnit.SECONDS));
+        assertEquals(JobStats.Outcome.FAILED, scheduler.runNow("flaky").get(5, TimeUnit.SECONDS));
+
+        assertEquals(1, stats.getSucceeded());
+        assertEquals(1, stats.getFailed());
+        assertEquals(JobStats.Outcome.FAILED, stats.getLastOutcome());
+        assertEquals("disk full", stats.getLastError());
+        assertEquals(0, stats.getRunning());
+        assertTrue(stats.getLastStart() != null);
+    }
+
+    @Test
+    void testConcurrencyLimitSkipsOverlappingRuns() throws Exception {
+        scheduler = new JobScheduler(null, Clock.systemUTC());
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        JobStats stats = scheduler.schedule("slow", JobScheduler.Trigger.fixedRate(NEVER), 2, false, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        CompletableFuture<JobStats.Outcome> first = scheduler.runNow("slow");
+        CompletableFuture<JobStats.Outcome> second = scheduler.runNow("slow");
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertEquals(JobStats.Outcome.SKIPPED_OVERLAP, scheduler.runNow("slow").get(5, TimeUnit.SECONDS));
+        assertEquals(2, stats.getRunning());
+        release.countDown();
+
+        assertEquals(JobStats.Outcome.SUCCEEDED, first.get(5, TimeUnit.SECONDS));
+        assertEquals(JobStats.Outcome.SUCCEEDED, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, stats.getSkippedOverlap());
+        assertEquals(2, stats.getSucceeded());
+    }
+
+    @Test
+    void testExclusiveJobRunsOnlyWithTheClusterLock() throws Exception {
+        AtomicInteger released = new AtomicInteger();
+        AtomicInteger attempts = new AtomicInteger();
+        scheduler = new JobScheduler(job -> {
+            switch (attempts.incrementAndGet()) {
+                case 1:
+                    return released::incrementAndGet;
+                case 2:
+                    return null;
+                default:
+                    throw new SQLException("connection refused");
+            }
+        }, Clock.systemUTC());
+        AtomicInteger runs = new AtomicInteger();
+        JobStats exclusive = scheduler.schedule("retention", JobScheduler.Trigger.fixedRate(NEVER), 1, true,
+                runs::incrementAndGet);
+        scheduler.schedule("local", JobScheduler.Trigger.fixedRate(NEVER), 1, false, runs::incrementAndGet);
+
+        assertEquals(JobStats.Outcome.SUCCEEDED, scheduler.runNow("retention").get(5, TimeUnit.SECONDS));
+        assertEquals(JobStats.Outcome.SKIPPED_LOCKED, scheduler.runNow("retention").get(5, TimeUnit.SECONDS));
+        assertEquals(JobStats.Outcome.SKIPPED_LOCKED, scheduler.runNow("retention").get(5, TimeUnit.SECONDS));
+        assertEquals(JobStats.Outcome.SUCCEEDED, scheduler.runNow("local").get(5, TimeUnit.SECONDS));
+
+        assertEquals(2, runs.get());
+        assertEquals(1, released.get());
+        assertEquals(3, attempts.get());
+        assertEquals(2, exclusive.getSkippedLocked());
+    }
+
+    @Test
+    void testCronTriggerSchedulesTheNextMatchingMinute() {
+        Clock clock = Clock.fixed(Instant.parse("2024-11-25T12:00:30Z"), ZoneOffset.UTC);
+        scheduler = new JobScheduler(null, clock);
+
+        JobStats stats = scheduler.schedule("nightly", JobScheduler.Trigger.cron("30 2 * * *", ZoneOffset.UTC), 1, true,
+                () -> { });
+
+        assertEquals(Instant.parse("2024-11-26T02:30:00Z"), stats.getNextRun());
+        assertEquals("cron 30 2 * * *", stats.getTrigger());
+    }
+
+    @Test
+    void testRegistrationErrorsAndClose() {
+        scheduler = new JobScheduler(null, Clock.systemUTC());
+        JobStats stats = scheduler.schedule("once", JobScheduler.Trigger.fixedRate(NEVER), 1, false, () -> { });
+
+        assertThrows(IllegalArgumentException.class,
+                () -> scheduler.schedule("once", JobScheduler.Trigger.fixedRate(NEVER), 1, false, () -> { }));
+        assertThrows(IllegalArgumentException.class,
+                () -> scheduler.schedule("none", JobScheduler.Trigger.fixedRate(NEVER), 0, false, () -> { }));
+        assertThrows(IllegalArgumentException.class, () -> JobScheduler.Trigger.fixedRate(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.runNow("missing"));
+        assertEquals(1, scheduler.getJobs().size());
+
+        scheduler.close();
+
+        assertNull(stats.getNextRun());
+        assertThrows(IllegalStateException.class,
+                () -> scheduler.schedule("late", JobScheduler.Trigger.fixedRate(NEVER), 1, false, () -> { }));
+    }
+}
@@ -0,0 +1,79 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+public class MergedRecordCursorTest {
+
+    @Test
+    void testMergesOrderedInputs() throws Exception {
+        ListCursor first = new ListCursor(
+                new ClimateRecord(1, "2024-01-01", "Victoria", 1f, 1f),
+                new ClimateRecord(4, "2024-01-03", "Victoria", 1f, 1f));
+        ListCursor second = new ListCursor(
+                new ClimateRecord(2, "2024-01-01", "Tofino", 1f, 1f),
+                new ClimateRecord(5, "2024-01-02", "Tofino", 1f, 1f),
+                new ClimateRecord(8, "2024-01-04", "Tofino", 1f, 1f));
+        ListCursor empty = new ListCursor();
+
+        List<Integer> ids = new ArrayList<>();
+        try (MergedRecordCursor merged = new MergedRecordCursor(Arrays.asList(first, second, empty),
+                MergedRecordCursor.BY_DATE_AND_ID)) {
+            merged.forEachRemaining(record -> ids.add(record.getId()));
+            assertEquals(5, merged.getRowCount());
+            assertThrows(NoSuchElementException.class, merged::next);
+        }
+
+        assertEquals(Arrays.asList(1, 2, 5, 4, 8), ids);
+        assertTrue(first.closed && second.closed && empty.closed);
+    }
+
+    @Test
+    void testNoInputs() {
+        MergedRecordCursor merged = new MergedRecordCursor(Collections.emptyList(), MergedRecordCursor.BY_DATE_AND_ID);
+        assertFalse(merged.hasNext());
+        merged.close();
+    }
+
+    private static class ListCursor implements ClimateRecordCursor {
+        private final Iterator<ClimateRecord> records;
+        private int rowCount;
+        private boolean closed;
+
+        ListCursor(ClimateRecord... records) {
+            this.records = Arrays.asList(records).iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return records.hasNext();
+        }
+
+        @Override
+        public ClimateRecord next() {
+            rowCount++;
+            return records.next();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
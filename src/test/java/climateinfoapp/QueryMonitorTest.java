@@ -0,0 +1,209 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class QueryMonitorTest {
+
+    private QueryMonitor monitor;
+
+    @AfterEach
+    void tearDown() {
+        if (monitor != null) {
+            monitor.close();
+        }
+    }
+
+    @Test
+    void testParseTimeouts() {
+        Map<String, Integer> timeouts = QueryMonitor.parseTimeouts(" getClimateRecord=5, openRecordsByCity = 10 ,");
+
+        assertEquals(2, timeouts.size());
+        assertEquals(5, timeouts.get("getClimateRecord"));
+        assertEquals(10, timeouts.get("openRecordsByCity"));
+        assertTrue(QueryMonitor.parseTimeouts("").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> QueryMonitor.parseTimeouts("getClimateRecord"));
+        assertThrows(IllegalArgumentException.class, () -> QueryMonitor.parseTimeouts("getClimateRecord=soon"));
+    }
+
+    @Test
+    void testMethodTimeoutIsApplied() throws SQLException {
+        monitor = new QueryMonitor(30, Map.of("getClimateRecord", 5, "openAllClimateRecords", 0), 1000, 10);
+        Statement byId = mock(Statement.class);
+        Statement other = mock(Statement.class);
+        Statement unlimited = mock(Statement.class);
+
+        monitor.start(byId, "getClimateRecord", 0, "SELECT 1").close();
+        monitor.start(other, "insertClimateRecord", 0, "INSERT 1").close();
+        monitor.start(unlimited, "openAllClimateRecords", 0, "SELECT 2").close();
+
+        verify(byId).setQueryTimeout(5);
+        verify(other).setQueryTimeout(30);
+        verify(unlimited, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void testRequestDeadlineShortensTimeout() throws SQLException {
+        monitor = new QueryMonitor(30, Collections.emptyMap(), 1000, 10);
+        Statement inRequest = mock(Statement.class);
+        Statement afterRequest = mock(Statement.class);
+
+        try (QueryMonitor.Scope scope = QueryMonitor.openScope(2000)) {
+            monitor.start(inRequest, "getClimateRecord", 0, "SELECT 1").close();
+        }
+        monitor.start(afterRequest, "getClimateRecord", 0, "SELECT 1").close();
+
+        verify(inRequest).setQueryTimeout(2);
+        verify(afterRequest).setQueryTimeout(30);
+    }
+
+    @Test
+    void testRequestDeadlineIsInheritedByStartedThreads() throws Exception {
+        monitor = new QueryMonitor();
+        Statement statement = mock(Statement.class);
+
+        try (QueryMonitor.Scope scope = QueryMonitor.openScope(3000)) {
+            Thread thread = Thread.ofVirtual().start(() -> {
+                try {
+                    monitor.start(statement, "openAllClimateRecords", 1, "SELECT 1").close();
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            thread.join();
+        }
+
+        verify(statement).setQueryTimeout(3);
+    }
+
+    @Test
+    void testExpiredDeadlineFailsBeforeExecution() throws Exception {
+        monitor = new QueryMonitor();
+        Statement statement = mock(Statement.class);
+
+        try (QueryMonitor.Scope scope = QueryMonitor.openScope(1)) {
+            Thread.sleep(5);
+            assertThrows(SQLTimeoutException.class, () -> monitor.start(statement, "getClimateRecord", 0, "SELECT 1"));
+        }
+        verify(statement, never()).setQueryTimeout(anyInt());
+    }
+
+    @Test
+    void testSlowStatementIsRecorded() throws SQLException {
+        monitor = new QueryMonitor(0, Collections.emptyMap(), 0, 10);
+
+        try (QueryMonitor.Execution execution = monitor.start(mock(Statement.class), "openRecordsByCity", 2,
+                "SELECT * FROM climate_data WHERE location like ?", "Victoria")) {
+            execution.setRows(42);
+        }
+        monitor.start(mock(Statement.class), "deleteClimateRecord", 0, "DELETE FROM climate_data WHERE id = ?", 7).close();
+
+        List<SlowQuery> slowQueries = monitor.getSlowQueries();
+        assertEquals(2, slowQueries.size());
+        assertEquals(2, monitor.getSlowQueryCount());
+        SlowQuery failed = slowQueries.get(0);
+        assertEquals("deleteClimateRecord", failed.getMethod());
+        assertTrue(failed.isFailed());
+        SlowQuery search = slowQueries.get(1);
+        assertEquals("openRecordsByCity", search.getMethod());
+        assertEquals(2, search.getShard());
+        assertEquals("'Victoria'", search.getParameters());
+        assertEquals(42, search.getRows());
+        assertFalse(search.isFailed());
+        assertNull(search.getPlan());
+    }
+
+    @Test
+    void testFastStatementIsNotRecorded() throws SQLException {
+        monitor = new QueryMonitor(0, Collections.emptyMap(), 60_000, 10);
+
+        try (QueryMonitor.Execution execution = monitor.start(mock(Statement.class), "getClimateRecord", 0, "SELECT 1")) {
+            execution.setRows(1);
+        }
+
+        assertTrue(monitor.getSlowQueries().isEmpty());
+        assertEquals(0, monitor.getSlowQueryCount());
+    }
+
+    @Test
+    void testLogKeepsMostRecentEntries() throws SQLException {
+        monitor = new QueryMonitor(0, Collections.emptyMap(), 0, 2);
+
+        for (int i = 0; i < 3; i++) {
+            monitor.start(mock(Statement.class), "method" + i, 0, "SELECT " + i).close();
+        }
+
+        List<SlowQuery> slowQueries = monitor.getSlowQueries();
+        assertEquals(2, slowQueries.size());
+        assertEquals("method2", slowQueries.get(0).getMethod());
+        assertEquals("method1", slowQueries.get(1).getMethod());
+        assertEquals(3, monitor.getSlowQueryCount());
+    }
+
+    @Test
+    void testSummarizeParameters() {
+        String summary = QueryMonitor.summarize(new Object[] {"Victoria", null, Date.valueOf("2024-01-01"), 3.5f,
+                "x".repeat(40), new Float[5000], Arrays.asList(1, 2, 3)});
+
+        assertEquals("'Victoria', null, 2024-01-01, 3.5, '" + "x".repeat(32) + "...', Float[5000], list[3]", summary);
+    }
+
+    @Test
+    void testPlanCapturedOncePerShapeAndInterval() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement explain = mock(PreparedStatement.class);
+        ResultSet plan = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(explain);
+        when(explain.executeQuery()).thenReturn(plan);
+        when(plan.next()).thenReturn(true, true, false);
+        when(plan.getString(1)).thenReturn("Seq Scan on climate_data", "Execution Time: 1200 ms");
+        AtomicInteger captures = new AtomicInteger();
+        monitor = new QueryMonitor(0, Collections.emptyMap(), 0, 10);
+        monitor.enablePlanCapture(shard -> {
+            captures.incrementAndGet();
+            return connection;
+        }, 60_000);
+
+        String sql = "SELECT * FROM climate_data WHERE location like ?";
+        monitor.start(mock(Statement.class), "openRecordsByCity", 0, sql, "Victoria").close();
+        monitor.start(mock(Statement.class), "openRecordsByCity", 0, sql, "Tofino").close();
+        monitor.start(mock(Statement.class), "deleteClimateRecord", 0, "DELETE FROM climate_data WHERE id = ?", 7).close();
+
+        SlowQuery first = monitor.getSlowQueries().get(2);
+        for (int i = 0; i < 500 && first.getPlan() == null; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals("Seq Scan on climate_data\nExecution Time: 1200 ms\n", first.getPlan());
+        assertNull(monitor.getSlowQueries().get(1).getPlan());
+        assertEquals(1, captures.get());
+        verify(connection).prepareStatement("EXPLAIN (ANALYZE, BUFFERS) " + sql);
+        verify(explain).setObject(1, "Victoria");
+        verify(connection, times(1)).rollback();
+    }
+}
@@ -0,0 +1,93 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+public class RawReadingsCursorTest {
+
+    @Test
+    void testDailyMeansAreDroppedOnlyWhereRawReadingsExist() throws Exception {
+        ListCursor input = new ListCursor(
+                new ClimateRecord(-7, "2024-01-01", "Victoria", 5f, 9f),
+                new ClimateRecord(-6, "2024-01-01", "Duncan", 3f, 4f),
+                new ClimateRecord(1, "2024-01-01", "Victoria", 4f, 8f),
+                new ClimateRecord(3, "2024-01-01", "Victoria", 6f, 10f),
+                new ClimateRecord(-9, "2024-01-02", "Victoria", 2f, 2f));
+
+        List<Integer> ids = new ArrayList<>();
+        try (RawReadingsCursor cursor = new RawReadingsCursor(input)) {
+            cursor.forEachRemaining(record -> ids.add(record.getId()));
+            assertEquals(4, cursor.getRowCount());
+            assertThrows(NoSuchElementException.class, cursor::next);
+        }
+
+        assertEquals(Arrays.asList(-6, 1, 3, -9), ids);
+        assertTrue(input.closed);
+    }
+
+    @Test
+    void testReadingsInSeveralTiersAreReturnedOnce() throws Exception {
+        // The same ID on another shard is another reading
+        ListCursor input = new ListCursor(
+                new ClimateRecord(1, "2024-01-01", "Victoria", 4f, 8f),
+                new ClimateRecord(1, "2024-01-01", "Tofino", 7f, 3f),
+                new ClimateRecord(1, "2024-01-01", "Victoria", 4f, 8f),
+                new ClimateRecord(2, "2024-01-02", "Victoria", 5f, 8f),
+                new ClimateRecord(2, "2024-01-02", "Victoria", 5f, 8f));
+
+        List<String> readings = new ArrayList<>();
+        try (RawReadingsCursor cursor = new RawReadingsCursor(input)) {
+            cursor.forEachRemaining(record -> readings.add(record.getLocation() + record.getId()));
+        }
+
+        assertEquals(Arrays.asList("Victoria1", "Tofino1", "Victoria2"), readings);
+    }
+
+    @Test
+    void testNoRecords() {
+        RawReadingsCursor cursor = new RawReadingsCursor(new ListCursor());
+        assertFalse(cursor.hasNext());
+        cursor.close();
+    }
+
+    private static class ListCursor implements ClimateRecordCursor {
+        private final Iterator<ClimateRecord> records;
+        private int rowCount;
+        private boolean closed;
+
+        ListCursor(ClimateRecord... records) {
+            this.records = Arrays.asList(records).iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return records.hasNext();
+        }
+
+        @Override
+        public ClimateRecord next() {
+            rowCount++;
+            return records.next();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RecordCounterTest {
+
+    private ClimateRecordDAO mockClimateRecordDAO;
+    private RecordCounter counter;
+
+    @BeforeEach
+    void setUp() {
+        mockClimateRecordDAO = mock(ClimateRecordDAO.class);
+        counter = new RecordCounter(mockClimateRecordDAO);
+    }
+
+    @Test
+    void testCountsFromCounters() throws Exception {
+        when(mockClimateRecordDAO.sumRecordCounters()).thenReturn(1_234_567L);
+
+        RecordCount count = counter.countAll();
+
+        assertTrue(count.isExact());
+        assertEquals(1_234_567L, count.getValue());
+        assertEquals("1,234,567", count.toString());
+    }
+
+    @Test
+    void testFallsBackToEstimatesWithoutCounters() throws Exception {
+        when(mockClimateRecordDAO.sumRecordCounters()).thenReturn(null);
+        when(mockClimateRecordDAO.estimateRecordCount()).thenReturn(123_456L);
+
+        RecordCount first = counter.countAll();
+        RecordCount second = counter.countAll();
+
+        assertFalse(first.isExact());
+        assertEquals(120_000L, first.getValue());
+        assertEquals("about 120,000", second.toString());
+        // The missing counters are detected once
+        verify(mockClimateRecordDAO).sumRecordCounters();
+        verify(mockClimateRecordDAO, times(2)).estimateRecordCount();
+    }
+
+    @Test
+    void testUnavailableCountIsNull() throws Exception {
+        when(mockClimateRecordDAO.sumRecordCounters()).thenThrow(new DatabaseException("down", null));
+
+        assertNull(counter.countAll());
+    }
+
+    @Test
+    void testCityCountFromCountersIsApproximate() throws Exception {
+        when(mockClimateRecordDAO.sumRecordCounters("Vic%")).thenReturn(45_678L);
+
+        RecordCount count = counter.countCity("Vic%");
+
+        assertFalse(count.isExact());
+        assertEquals("about 46,000", count.toString());
+    }
+
+    @Test
+    void testCityCountFallsBackToThePlannerEstimate() throws Exception {
+        when(mockClimateRecordDAO.sumRecordCounters("Vic%")).thenReturn(null);
+        when(mockClimateRecordDAO.estimateRecordCount("Vic%")).thenReturn(987L);
+
+        assertEquals("about 990", counter.countCity("Vic%").toString());
+        assertEquals("about 990", counter.countCity("Vic%").toString());
+        verify(mockClimateRecordDAO).sumRecordCounters("Vic%");
+    }
+
+    @Test
+    void testUnavailableCityCountIsNull() throws Exception {
+        when(mockClimateRecordDAO.sumRecordCounters("Vic%")).thenThrow(new DatabaseException("down", null));
+
+        assertNull(counter.countCity("Vic%"));
+    }
+
+    @Test
+    void testEstimatesKeepTwoSignificantDigits() {
+        assertEquals(0, RecordCount.estimate(0).getValue());
+        assertEquals(87, RecordCount.estimate(87).getValue());
+        assertEquals(990, RecordCount.estimate(987).getValue());
+        assertEquals(1_000, RecordCount.estimate(995).getValue());
+        assertEquals(46_000, RecordCount.estimate(45_678).getValue());
+    }
+}
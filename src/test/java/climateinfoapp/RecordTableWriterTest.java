@@ -0,0 +1,83 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.owasp.encoder.Encode;
+
+public class RecordTableWriterTest {
+
+    @Test
+    void testWriteRowsEscapesAndCounts() throws Exception {
+        // Arrange
+        List<ClimateRecord> records = Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f),
+                new ClimateRecord(2, "2024-11-02", "Port Alberni", 13.0f, 4.5f));
+        StringWriter out = new StringWriter();
+
+        // Act
+        int rows = new RecordTableWriter().writeRows(records.iterator(), out);
+
+        // Assert
+        assertEquals(2, rows);
+        String html = out.toString();
+        assertTrue(html.contains("<tr id=\"record-2\">"));
+        assertTrue(html.contains("<td>Port Alberni</td>"));
+        assertTrue(html.contains("<td>12.5</td>"));
+        assertTrue(html.contains("href=\"edit?id=2\""));
+        assertTrue(html.contains("href=\"delete?id=1\""));
+    }
+
+    @Test
+    void testDailyMeanRowIsReadOnly() throws Exception {
+        StringWriter out = new StringWriter();
+
+        new RecordTableWriter().writeRow(new ClimateRecord(-7, "2023-01-05", "Tofino", 4.25f, 11.0f), out);
+
+        String html = out.toString();
+        assertTrue(html.startsWith("<tr id=\"daily-7\">"));
+        assertTrue(html.contains("<td>4.25</td>"));
+        assertTrue(html.contains("Daily mean (archived)"));
+        assertFalse(html.contains("edit?id"));
+        assertFalse(html.contains("delete?id"));
+    }
+
+    @Test
+    void testWriteRowsFlushesInChunks() throws Exception {
+        // Arrange
+        int[] flushes = new int[1];
+        StringWriter out = new StringWriter() {
+            @Override
+            public void flush() {
+                flushes[0]++;
+            }
+        };
+        List<ClimateRecord> records = Collections.nCopies(5, new ClimateRecord(1, "2024-11-01", "Victoria", 1.0f, 1.0f));
+
+        // Act
+        new RecordTableWriter(2).writeRows(records.iterator(), out);
+
+        // Assert
+        assertEquals(2, flushes[0]);
+    }
+
+    @Test
+    void testEscaperMatchesEncoder() {
+        String text = "<script>alert('x & \"y\"')</script> Tofino";
+        assertEquals(Encode.forHtml(text), HtmlEscaper.escape(text));
+        assertEquals("", HtmlEscaper.escape(null));
+    }
+
+    @Test
+    void testInvalidFlushInterval() {
+        assertThrows(IllegalArgumentException.class, () -> new RecordTableWriter(0));
+    }
+}
@@ -0,0 +1,41 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class ResultBudgetTest {
+
+    @Test
+    void testRecordSizeEstimate() throws Exception {
+        // 32 for the record, 4 for the list slot, 40 + 16 for the date and 40 + 8 for the location
+        assertEquals(140, ResultBudget.estimateBytes(new ClimateRecord(1, "2024-11-01", "Victoria", 12.5f, 5.0f)));
+    }
+
+    @Test
+    void testRowAndByteLimits() {
+        ResultBudget budget = new ResultBudget(100, 1024 * 1024);
+
+        assertDoesNotThrow(() -> budget.check("all_records", 100, 1024 * 1024));
+        ResultTooLargeException rows = assertThrows(ResultTooLargeException.class, () -> budget.check("all_records", 101, 0));
+        ResultTooLargeException bytes = assertThrows(ResultTooLargeException.class,
+                () -> budget.check("records_by_city", 1, 1024 * 1024 + 1));
+
+        assertTrue(rows.getMessage().contains("more than 100 rows"));
+        assertTrue(bytes.getMessage().contains("more than 1 MB"));
+        assertEquals(Map.of("all_records", 1L, "records_by_city", 1L), budget.getExceeded());
+    }
+
+    @Test
+    void testZeroDisablesTheLimits() {
+        ResultBudget budget = new ResultBudget(0, 0);
+
+        assertDoesNotThrow(() -> budget.check("all_records", Long.MAX_VALUE, Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> new ResultBudget(-1, 0));
+    }
+}
@@ -0,0 +1,111 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class RetentionJobTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-11-30T12:00:00Z"), ZoneOffset.UTC);
+
+    private ClimateRecordDAO mockClimateRecordDAO;
+
+    @BeforeEach
+    void setUp() {
+        mockClimateRecordDAO = mock(ClimateRecordDAO.class);
+    }
+
+    @Test
+    void testCutoffDateIsRetentionDaysBeforeToday() {
+        RetentionJob job = new RetentionJob(mockClimateRecordDAO, 30, 100, 0, CLOCK);
+
+        assertEquals("2024-10-31", job.getCutoffDate());
+    }
+
+    @Test
+    void testShardIsCompactedUntilBatchIsShort() throws Exception {
+        when(mockClimateRecordDAO.getShardCount()).thenReturn(1);
+        when(mockClimateRecordDAO.archiveRecordsBefore(0, "2024-10-31", 100)).thenReturn(100, 100, 42);
+        RetentionJob job = new RetentionJob(mockClimateRecordDAO, 30, 100, 0, CLOCK);
+
+        int moved = job.runOnce();
+
+        assertEquals(242, moved);
+        verify(mockClimateRecordDAO, times(3)).archiveRecordsBefore(0, "2024-10-31", 100);
+    }
+
+    @Test
+    void testFailureOnOneShardContinuesWithNext() throws Exception {
+        when(mockClimateRecordDAO.getShardCount()).thenReturn(2);
+        when(mockClimateRecordDAO.archiveRecordsBefore(0, "2024-10-31", 100))
+                .thenThrow(new DatabaseException("Failed to archive climate records", null));
+        when(mockClimateRecordDAO.archiveRecordsBefore(1, "2024-10-31", 100)).thenReturn(7);
+        RetentionJob job = new RetentionJob(mockClimateRecordDAO, 30, 100, 0, CLOCK);
+
+        int moved = job.runOnce();
+
+        assertEquals(7, moved);
+        verify(mockClimateRecordDAO).archiveRecordsBefore(1, "2024-10-31", 100);
+    }
+
+    @Test
+    void testArchivedReadingsAreMovedToSegmentsPerLocation(@TempDir Path directory) throws Exception {
+        when(mockClimateRecordDAO.getShardCount()).thenReturn(1);
+        when(mockClimateRecordDAO.archiveRecordsBefore(0, "2024-10-31", 100)).thenReturn(3);
+        when(mockClimateRecordDAO.listArchivedRecords(0, 1000)).thenReturn(Arrays.asList(
+                new ClimateRecord(4, "2024-01-02", "Duncan", 8.5f, 3.0f),
+                new ClimateRecord(1, "2024-01-01", "Victoria", 10.0f, 5.0f),
+                new ClimateRecord(2, "2024-01-02", "Victoria", 11.0f, 6.0f)));
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            RetentionJob job = new RetentionJob(mockClimateRecordDAO, 30, 100, 0, CLOCK, archive, 1000);
+
+            job.runOnce();
+
+            assertEquals(2, archive.getSegments().size());
+            assertEquals(3, archive.getRecordCount());
+            verify(mockClimateRecordDAO).deleteArchivedRecords(0, Arrays.asList(4, 1, 2));
+        }
+    }
+
+    @Test
+    void testArchivedReadingsStayInDatabaseWhenSegmentCannotBeWritten(@TempDir Path directory) throws Exception {
+        when(mockClimateRecordDAO.getShardCount()).thenReturn(1);
+        when(mockClimateRecordDAO.listArchivedRecords(0, 1000)).thenReturn(Arrays.asList(
+                new ClimateRecord(1, "2024-01-01", "Victoria", 10.0f, 5.0f)));
+        Path segments = directory.resolve("segments");
+        try (SegmentArchive archive = new SegmentArchive(segments, 1024)) {
+            // Replaces the segment directory with a file, so the segment cannot be created
+            Files.delete(segments);
+            Files.createFile(segments);
+            RetentionJob job = new RetentionJob(mockClimateRecordDAO, 30, 100, 0, CLOCK, archive, 1000);
+
+            job.runOnce();
+
+            assertEquals(0, archive.getSegments().size());
+            verify(mockClimateRecordDAO, never()).deleteArchivedRecords(anyInt(), anyList());
+        }
+    }
+
+    @Test
+    void testInvalidSettingsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RetentionJob(mockClimateRecordDAO, 0, 100, 0, CLOCK));
+        assertThrows(IllegalArgumentException.class, () -> new RetentionJob(mockClimateRecordDAO, 30, 0, 0, CLOCK));
+    }
+}
@@ -0,0 +1,106 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class RollingWindowTest {
+
+    @Test
+    void testStatisticsOfTheLastDays() {
+        RollingWindow window = new RollingWindow(3);
+
+        window.add(100, 5f);
+        window.add(101, 1f);
+        window.add(102, 9f);
+        assertEquals(5f, window.get(RollingWindow.Statistic.MEAN), 1e-6);
+        assertEquals(1f, window.get(RollingWindow.Statistic.MIN));
+        assertEquals(9f, window.get(RollingWindow.Statistic.MAX));
+
+        // Day 100 leaves the window
+        window.add(103, 2f);
+        assertEquals(3, window.size());
+        assertEquals(4f, window.get(RollingWindow.Statistic.MEAN), 1e-6);
+        assertEquals(1f, window.get(RollingWindow.Statistic.MIN));
+
+        // A gap empties the window down to the new day
+        window.add(110, -4f);
+        assertEquals(1, window.size());
+        assertEquals(-4f, window.get(RollingWindow.Statistic.MAX));
+    }
+
+    @Test
+    void testMatchesRecomputingEveryWindow() {
+        Random random = new Random(5);
+        int points = 5000;
+        long[] days = new long[points];
+        float[] values = new float[points];
+        long day = 0;
+        for (int i = 0; i < points; i++) {
+            // Gaps and several readings on one day
+            day += random.nextInt(3);
+            days[i] = day;
+            values[i] = -30f + random.nextFloat() * 60f;
+        }
+
+        for (int length : new int[] { 1, 7, 30, 365 }) {
+            RollingWindow window = new RollingWindow(length);
+            for (int i = 0; i < points; i++) {
+                window.add(days[i], values[i]);
+                double sum = 0;
+                int count = 0;
+                float min = Float.POSITIVE_INFINITY;
+                float max = Float.NEGATIVE_INFINITY;
+                for (int j = i; j >= 0 && days[j] > days[i] - length; j--) {
+                    sum += values[j];
+                    count++;
+                    min = Math.min(min, values[j]);
+                    max = Math.max(max, values[j]);
+                }
+                assertEquals(count, window.size());
+                assertEquals((float) (sum / count), window.get(RollingWindow.Statistic.MEAN), 1e-3);
+                assertEquals(min, window.get(RollingWindow.Statistic.MIN));
+                assertEquals(max, window.get(RollingWindow.Statistic.MAX));
+            }
+        }
+    }
+
+    @Test
+    void testUndefinedValuesOnlyMoveTheWindow() {
+        RollingWindow window = new RollingWindow(2);
+
+        window.add(1, Float.NaN);
+        assertTrue(Float.isNaN(window.get(RollingWindow.Statistic.MEAN)));
+        window.add(2, 3f);
+        window.add(3, Float.NaN);
+        assertEquals(3f, window.get(RollingWindow.Statistic.MIN));
+        window.add(4, Float.NaN);
+        assertTrue(Float.isNaN(window.get(RollingWindow.Statistic.MAX)));
+    }
+
+    @Test
+    void testDaysMustNotGoBackUntilReset() {
+        RollingWindow window = new RollingWindow(7);
+        window.add(10, 1f);
+
+        assertThrows(IllegalArgumentException.class, () -> window.add(9, 1f));
+        window.reset();
+        window.add(9, 2f);
+        assertEquals(2f, window.get(RollingWindow.Statistic.MEAN));
+    }
+
+    @Test
+    void testParameters() throws Exception {
+        assertEquals(30, RollingWindow.parseDays(" 30 "));
+        assertThrows(InvalidArgumentsException.class, () -> RollingWindow.parseDays("0"));
+        assertThrows(InvalidArgumentsException.class, () -> RollingWindow.parseDays("month"));
+        assertThrows(IllegalArgumentException.class, () -> new RollingWindow(RollingWindow.MAX_DAYS + 1));
+        assertEquals(RollingWindow.Statistic.MEAN, RollingWindow.Statistic.fromParameter(null));
+        assertEquals(RollingWindow.Statistic.MAX, RollingWindow.Statistic.fromParameter("max"));
+        assertThrows(InvalidArgumentsException.class, () -> RollingWindow.Statistic.fromParameter("median"));
+    }
+}
@@ -0,0 +1,233 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class SegmentArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testRangeScanReturnsOnlyRecordsInRange() throws Exception {
+        List<ClimateRecord> records = dailySeries("Victoria", "2023-01-01", 3000, 1, 1);
+        try (SegmentArchive archive = new SegmentArchive(directory, 100)) {
+            archive.write("Victoria", records);
+
+            List<ClimateRecord> range = drain(archive.openRange("2023-03-01", "2023-03-31"));
+
+            assertEquals(31, range.size());
+            assertEquals("2023-03-01", range.get(0).getDate());
+            assertEquals("2023-03-31", range.get(30).getDate());
+            assertEquals(records.get(59).getId(), range.get(0).getId());
+            assertEquals(records.get(59).getTemperature(), range.get(0).getTemperature());
+        }
+    }
+
+    @Test
+    void testSegmentsAreMergedByDateAndId() throws Exception {
+        try (SegmentArchive archive = new SegmentArchive(directory, 16)) {
+            archive.write("Victoria", dailySeries("Victoria", "2024-01-01", 50, 1, 2));
+            archive.write("Duncan", dailySeries("Duncan", "2024-01-01", 50, 2, 2));
+
+            List<ClimateRecord> all = drain(archive.openRange(null, null));
+
+            assertEquals(100, all.size());
+            for (int i = 0; i < all.size(); i++) {
+                assertEquals(i + 1, all.get(i).getId());
+            }
+            assertEquals(100, archive.getRecordCount());
+            List<ClimateRecord> byLocation = drain(archive.openByLocation());
+            assertEquals("Duncan", byLocation.get(0).getLocation());
+            assertEquals("Victoria", byLocation.get(50).getLocation());
+            assertEquals(2, byLocation.get(0).getId());
+        }
+    }
+
+    @Test
+    void testSegmentsAreReopenedAndPartialWritesDiscarded() throws Exception {
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            archive.write("Nanaimo", dailySeries("Nanaimo", "2024-06-01", 10, 1, 1));
+        }
+        Files.write(directory.resolve("interrupted.tmp"), new byte[] {1, 2, 3});
+        Files.setLastModifiedTime(directory.resolve("interrupted.tmp"),
+                FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        Files.write(directory.resolve("in-progress.tmp"), new byte[] {1, 2, 3});
+
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            assertEquals(1, archive.getSegments().size());
+            SegmentReader segment = archive.getSegments().get(0);
+            assertEquals("Nanaimo", segment.getLocation());
+            assertEquals("2024-06-01", segment.getFirstDate());
+            assertEquals("2024-06-10", segment.getLastDate());
+            assertFalse(segment.overlaps("2024-06-11", null));
+            assertTrue(segment.overlaps(null, "2024-06-01"));
+        }
+        assertFalse(Files.exists(directory.resolve("interrupted.tmp")));
+        assertTrue(Files.exists(directory.resolve("in-progress.tmp")));
+    }
+
+    @Test
+    void testSegmentsWrittenByAnotherNodeAreVisibleToReads() throws Exception {
+        try (SegmentArchive reader = new SegmentArchive(directory, 1024);
+             SegmentArchive writer = new SegmentArchive(directory, 1024)) {
+            assertEquals(0, drain(reader.openRange(null, null)).size());
+
+            writer.write("Duncan", dailySeries("Duncan", "2024-06-01", 10, 1, 1));
+
+            assertEquals(10, drain(reader.openRange(null, null)).size());
+            assertEquals(1, reader.getSegments().size());
+        }
+    }
+
+    @Test
+    void testWritingTheSameReadingsAgainKeepsOneSegment() throws Exception {
+        List<ClimateRecord> records = dailySeries("Tofino", "2024-06-01", 10, 1, 1);
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            SegmentReader first = archive.write("Tofino", records);
+            SegmentReader second = archive.write("Tofino", records);
+            // A later batch that overlaps the first one after a failed delete
+            archive.write("Tofino", records.subList(5, 10));
+
+            assertEquals(first.getFile(), second.getFile());
+            assertEquals(2, archive.getSegments().size());
+            assertEquals(10, drain(archive.openRange(null, null)).size());
+        }
+    }
+
+    @Test
+    void testRewriteDeletesReadingsOfTheRangeOnly() throws Exception {
+        try (SegmentArchive archive = new SegmentArchive(directory, 4);
+             SegmentArchive otherNode = new SegmentArchive(directory, 4)) {
+            archive.write("Duncan", dailySeries("Duncan", "2024-06-01", 10, 1, 2));
+            archive.write("Tofino", dailySeries("Tofino", "2024-06-01", 10, 2, 2));
+            archive.write("Duncan", dailySeries("Duncan", "2024-07-01", 3, 21, 2));
+            assertEquals(3, otherNode.getSegments().size());
+
+            int deleted = archive.rewrite("Duncan", "2024-06-05", "2024-07-31", reading -> null);
+
+            assertEquals(9, deleted);
+            List<ClimateRecord> duncan = drain(otherNode.openRange("Duncan", null, "2024-12-31"));
+            assertEquals(4, duncan.size());
+            assertEquals("2024-06-04", duncan.get(3).getDate());
+            assertEquals(10, drain(otherNode.openRange("Tofino", "2024-06-01", "2024-06-30")).size());
+            // The emptied segment is removed, the other Duncan segment replaced
+            assertEquals(2, otherNode.getSegments().size());
+            assertEquals(14, otherNode.getRecordCount());
+        }
+    }
+
+    @Test
+    void testRewriteCorrectsReadingsUnderANewName() throws Exception {
+        List<ClimateRecord> records = dailySeries("Nanaimo", "2024-06-01", 10, 1, 1);
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            Path original = archive.write("Nanaimo", records).getFile();
+
+            int corrected = archive.rewrite("Nanaimo", "2024-06-01", "2024-06-02", reading -> new ClimateRecord(
+                    reading.getId(), reading.getDate(), reading.getLocation(), reading.getTemperature() + 1, reading.getWind()));
+
+            assertEquals(2, corrected);
+            assertFalse(Files.exists(original));
+            List<ClimateRecord> all = drain(archive.openRange(null, null));
+            assertEquals(10, all.size());
+            assertEquals(records.get(0).getTemperature() + 1, all.get(0).getTemperature());
+            assertEquals(records.get(2).getTemperature(), all.get(2).getTemperature());
+        }
+    }
+
+    @Test
+    void testRejectedRewriteChangesNothing() throws Exception {
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            archive.write("Nanaimo", dailySeries("Nanaimo", "2024-06-01", 10, 1, 1));
+            archive.write("Nanaimo", dailySeries("Nanaimo", "2024-07-01", 10, 11, 1));
+            List<Path> files = new ArrayList<>();
+            archive.getSegments().forEach(segment -> files.add(segment.getFile()));
+
+            assertThrows(InvalidArgumentsException.class, () -> archive.rewrite("Nanaimo", "2024-06-01", "2024-07-31",
+                    reading -> {
+                        if (reading.getDate().equals("2024-07-05")) {
+                            throw new InvalidArgumentsException("out of range");
+                        }
+                        return null;
+                    }));
+
+            assertEquals(20, archive.getRecordCount());
+            for (Path file : files) {
+                assertTrue(Files.exists(file));
+            }
+        }
+    }
+
+    @Test
+    void testTruncatedSegmentIsRejected() throws Exception {
+        Path file;
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            file = archive.write("Tofino", dailySeries("Tofino", "2024-06-01", 10, 1, 1)).getFile();
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+        assertThrows(IOException.class, () -> new SegmentArchive(directory, 1024));
+    }
+
+    @Test
+    void testUnorderedRecordsAreRejected() throws Exception {
+        List<ClimateRecord> records = new ArrayList<>(dailySeries("Duncan", "2024-01-01", 3, 1, 1));
+        records.add(records.remove(0));
+        try (SegmentArchive archive = new SegmentArchive(directory, 1024)) {
+            assertThrows(IllegalArgumentException.class, () -> archive.write("Duncan", records));
+            assertTrue(archive.getSegments().isEmpty());
+        }
+    }
+
+    @Test
+    void testNoisyReadingsTakeUnderNineBytesEach() throws Exception {
+        // A raw row of climate_data takes about 56 bytes in the heap and 40 more in its two indexes
+        List<ClimateRecord> records = dailySeries("Victoria", "2015-01-01", 3650, 1, 20);
+        try (SegmentArchive archive = new SegmentArchive(directory, SegmentArchive.DEFAULT_BLOCK_SIZE)) {
+            SegmentReader segment = archive.write("Victoria", records);
+
+            assertTrue(segment.getSizeBytes() < 9 * records.size(), "Segment takes " + segment.getSizeBytes() + " bytes");
+            assertEquals(records.size(), drain(segment.openRange(null, null)).size());
+        }
+    }
+
+    private static List<ClimateRecord> dailySeries(String location, String firstDate, int days, int firstId, int idStep)
+            throws InvalidArgumentsException {
+        Random random = new Random(location.hashCode());
+        LocalDate date = LocalDate.parse(firstDate);
+        List<ClimateRecord> records = new ArrayList<>();
+        for (int day = 0; day < days; day++) {
+            double seasonal = 10 + 8 * Math.sin(2 * Math.PI * day / 365.0);
+            float temperature = (float) (seasonal + random.nextGaussian() * 2.5);
+            float wind = (float) Math.max(0, 12 + random.nextGaussian() * 6);
+            records.add(new ClimateRecord(firstId + day * idStep, date.plusDays(day).toString(), location, temperature, wind));
+        }
+        return records;
+    }
+
+    private static List<ClimateRecord> drain(ClimateRecordCursor cursor) {
+        List<ClimateRecord> records = new ArrayList<>();
+        try (ClimateRecordCursor open = cursor) {
+            open.forEachRemaining(records::add);
+        }
+        return records;
+    }
+}
@@ -0,0 +1,85 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+public class ShardRouterTest {
+
+    @Test
+    void testSingleShardRoutesEverythingToShardZero() {
+        ShardRouter router = new ShardRouter(1);
+        assertEquals(0, router.shardForLocation("Victoria"));
+        assertEquals(0, router.shardForId(12345));
+    }
+
+    @Test
+    void testLocationPlacementIsStable() {
+        ShardRouter first = new ShardRouter(4);
+        ShardRouter second = new ShardRouter(4);
+        for (int i = 0; i < 100; i++) {
+            String location = "Station " + i;
+            assertEquals(first.shardForLocation(location), second.shardForLocation(location));
+        }
+    }
+
+    @Test
+    void testLocationsSpreadAcrossShards() {
+        ShardRouter router = new ShardRouter(4);
+        int[] counts = new int[4];
+        for (int i = 0; i < 4000; i++) {
+            counts[router.shardForLocation("Station " + i)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 700 && count < 1300, "Unbalanced shard: " + count);
+        }
+    }
+
+    @Test
+    void testAddingShardMovesFewLocations() {
+        ShardRouter four = new ShardRouter(4);
+        ShardRouter five = new ShardRouter(5);
+        int moved = 0;
+        for (int i = 0; i < 4000; i++) {
+            String location = "Station " + i;
+            int before = four.shardForLocation(location);
+            int after = five.shardForLocation(location);
+            if (before != after) {
+                moved++;
+                assertEquals(4, after, "Locations may only move to the new shard");
+            }
+        }
+        // Ideally 1/5 of the locations move
+        assertTrue(moved > 500 && moved < 1100, "Moved: " + moved);
+    }
+
+    @Test
+    void testOverrideTakesPrecedence() {
+        ShardRouter router = new ShardRouter(3);
+        int hashed = router.shardForLocation("Tofino");
+        int pinned = (hashed + 1) % 3;
+        router.setOverrides(Collections.singletonMap("Tofino", pinned));
+        assertEquals(pinned, router.shardForLocation("Tofino"));
+    }
+
+    @Test
+    void testOverrideMustNameExistingShard() {
+        ShardRouter router = new ShardRouter(2);
+        assertThrows(IllegalArgumentException.class, () -> router.setOverrides(Collections.singletonMap("Tofino", 2)));
+    }
+
+    @Test
+    void testShardForIdFollowsSequenceStride() {
+        ShardRouter router = new ShardRouter(3);
+        // Shard k hands out k + 1, k + 1 + 3, k + 1 + 6, ...
+        assertEquals(0, router.shardForId(1));
+        assertEquals(1, router.shardForId(2));
+        assertEquals(2, router.shardForId(3));
+        assertEquals(0, router.shardForId(4));
+        assertEquals(2, router.shardForId(30));
+    }
+}
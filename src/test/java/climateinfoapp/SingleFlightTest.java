@@ -0,0 +1,128 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testConcurrentCallsShareOneExecution() throws Exception {
+        SingleFlight<String, Object> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Object result = new Object();
+
+        Future<Object> leader = executor.submit(() -> flights.execute("trends", () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            release.await();
+            return result;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<Future<Object>> followers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            followers.add(executor.submit(() -> flights.execute("trends", () -> {
+                loads.incrementAndGet();
+                return new Object();
+            })));
+        }
+        waitUntil(() -> flights.getCoalesced() == 5);
+        release.countDown();
+
+        assertSame(result, leader.get(5, TimeUnit.SECONDS));
+        for (Future<Object> follower : followers) {
+            assertSame(result, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1, flights.getExecutions());
+        assertEquals(0, flights.getInFlight());
+    }
+
+    @Test
+    void testFinishedFlightIsNotReused() throws Exception {
+        SingleFlight<String, Integer> flights = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals(1, flights.execute("city:Victoria", loads::incrementAndGet));
+        assertEquals(2, flights.execute("city:Victoria", loads::incrementAndGet));
+
+        assertEquals(2, flights.getExecutions());
+        assertEquals(0, flights.getCoalesced());
+    }
+
+    @Test
+    void testFailureIsSharedWithWaitingCalls() throws Exception {
+        SingleFlight<String, Object> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DatabaseException failure = new DatabaseException("Query failed", null);
+
+        Future<Object> leader = executor.submit(() -> flights.execute("trends", () -> {
+            started.countDown();
+            release.await();
+            throw failure;
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Object> follower = executor.submit(() -> flights.execute("trends", Object::new));
+        waitUntil(() -> flights.getCoalesced() == 1);
+        release.countDown();
+
+        assertSame(failure, assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertSame(failure, assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+        assertEquals(0, flights.getInFlight());
+    }
+
+    @Test
+    void testForgetAllStartsNewFlight() throws Exception {
+        SingleFlight<String, String> flights = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> before = executor.submit(() -> flights.execute("trends", () -> {
+            started.countDown();
+            release.await();
+            return "before write";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        flights.forgetAll();
+        String after = flights.execute("trends", () -> "after write");
+        release.countDown();
+
+        assertEquals("after write", after);
+        assertEquals("before write", before.get(5, TimeUnit.SECONDS));
+        assertEquals(2, flights.getExecutions());
+        assertEquals(0, flights.getCoalesced());
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "Timed out waiting for condition");
+            Thread.sleep(5);
+        }
+    }
+}
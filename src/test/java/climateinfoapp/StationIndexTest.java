@@ -0,0 +1,124 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class StationIndexTest {
+
+    @Test
+    void testRadiusQueryFindsStationsNearestFirst() throws Exception {
+        StationIndex index = new StationIndex(islandStations());
+
+        List<StationIndex.Neighbor> nearby = index.within(48.4284, -123.3656, 50);
+
+        assertEquals(Arrays.asList("Victoria", "Duncan"), locations(nearby));
+        assertEquals(0, nearby.get(0).getDistanceKm(), 1e-6);
+        // Victoria to Duncan is about 45 km as the crow flies
+        assertEquals(45, nearby.get(1).getDistanceKm(), 2);
+        assertEquals(5, index.within(48.4284, -123.3656, 250).size());
+        assertTrue(index.within(0, 0, 1000).isEmpty());
+    }
+
+    @Test
+    void testNearestStations() throws Exception {
+        StationIndex index = new StationIndex(islandStations());
+
+        assertEquals(Arrays.asList("Tofino"), locations(index.nearest(49.1, -126.0, 1)));
+        assertEquals(Arrays.asList("Nanaimo", "Duncan", "Port Alberni"), locations(index.nearest(49.0, -124.0, 3)));
+        assertEquals(5, index.nearest(49.0, -124.0, 10).size());
+        assertTrue(index.nearest(49.0, -124.0, 0).isEmpty());
+        assertTrue(StationIndex.empty().nearest(49.0, -124.0, 3).isEmpty());
+    }
+
+    @Test
+    void testDistancesAcrossTheAntimeridian() throws Exception {
+        StationIndex index = new StationIndex(Arrays.asList(new Station("Suva", -18.1416, 178.4419),
+                new Station("Apia", -13.8333, -171.7667)));
+
+        // Apia is about 1150 km from Suva, across the 180th meridian
+        List<StationIndex.Neighbor> nearby = index.within(-18.1416, 178.4419, 1200);
+        assertEquals(Arrays.asList("Suva", "Apia"), locations(nearby));
+        assertEquals(1150, nearby.get(1).getDistanceKm(), 25);
+    }
+
+    @Test
+    void testMatchesExhaustiveSearch() throws Exception {
+        Random random = new Random(11);
+        List<Station> stations = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            stations.add(new Station("S" + i, -90 + random.nextDouble() * 180, -180 + random.nextDouble() * 360));
+        }
+        StationIndex index = new StationIndex(stations);
+
+        for (int query = 0; query < 50; query++) {
+            double latitude = -90 + random.nextDouble() * 180;
+            double longitude = -180 + random.nextDouble() * 360;
+            List<StationIndex.Neighbor> all = exhaustive(stations, latitude, longitude);
+
+            List<String> expectedNearest = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                expectedNearest.add(all.get(i).getStation().getLocation());
+            }
+            assertEquals(expectedNearest, locations(index.nearest(latitude, longitude, 7)));
+
+            List<String> expectedWithin = new ArrayList<>();
+            for (StationIndex.Neighbor neighbor : all) {
+                if (neighbor.getDistanceKm() <= 800) {
+                    expectedWithin.add(neighbor.getStation().getLocation());
+                }
+            }
+            assertEquals(expectedWithin, locations(index.within(latitude, longitude, 800)));
+        }
+    }
+
+    @Test
+    void testStationCoordinatesAreValidated() {
+        assertThrows(InvalidArgumentsException.class, () -> new Station("Nowhere", 91, 0));
+        assertThrows(InvalidArgumentsException.class, () -> new Station("Nowhere", 0, -181));
+        assertThrows(InvalidArgumentsException.class, () -> new Station("", 0, 0));
+    }
+
+    private static List<Station> islandStations() throws InvalidArgumentsException {
+        return Arrays.asList(
+                new Station("Victoria", 48.4284, -123.3656),
+                new Station("Nanaimo", 49.1659, -123.9401),
+                new Station("Port Alberni", 49.2339, -124.8055),
+                new Station("Duncan", 48.7787, -123.7079),
+                new Station("Tofino", 49.1530, -125.9066));
+    }
+
+    private static List<StationIndex.Neighbor> exhaustive(List<Station> stations, double latitude, double longitude) {
+        List<StationIndex.Neighbor> all = new ArrayList<>();
+        for (Station station : stations) {
+            all.add(new StationIndex.Neighbor(station, haversine(latitude, longitude, station)));
+        }
+        all.sort(Comparator.comparingDouble(StationIndex.Neighbor::getDistanceKm));
+        return all;
+    }
+
+    private static double haversine(double latitude, double longitude, Station station) {
+        double phi1 = Math.toRadians(latitude);
+        double phi2 = Math.toRadians(station.getLatitude());
+        double dPhi = phi2 - phi1;
+        double dLambda = Math.toRadians(station.getLongitude() - longitude);
+        double h = Math.pow(Math.sin(dPhi / 2), 2) + Math.cos(phi1) * Math.cos(phi2) * Math.pow(Math.sin(dLambda / 2), 2);
+        return 2 * StationIndex.EARTH_RADIUS_KM * Math.asin(Math.sqrt(h));
+    }
+
+    private static List<String> locations(List<StationIndex.Neighbor> neighbors) {
+        List<String> locations = new ArrayList<>();
+        for (StationIndex.Neighbor neighbor : neighbors) {
+            locations.add(neighbor.getStation().getLocation());
+        }
+        return locations;
+    }
+}
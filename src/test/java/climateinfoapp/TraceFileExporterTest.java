@@ -0,0 +1,74 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TraceFileExporterTest {
+
+    @Test
+    void testTraceIsWrittenAsOtlpJson() {
+        List<List<Span>> traces = new ArrayList<>();
+        Tracer tracer = new Tracer(1, traces::add);
+        Span root = tracer.startTrace("GET /search", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        root.setAttribute("http.route", "/search").setAttribute("http.status_code", 200);
+        Tracer.startSpan("openRecordsByCity", Span.Kind.CLIENT)
+                .setAttribute("db.statement", "SELECT * FROM climate_data WHERE location = \"?\"")
+                .setError("timeout")
+                .close();
+        root.close();
+
+        String json = TraceFileExporter.toJson(traces.get(0));
+
+        assertTrue(json.startsWith("{\"resourceSpans\":[{\"resource\":{\"attributes\":[{\"key\":\"service.name\","
+                + "\"value\":{\"stringValue\":\"climateinfoapp\"}}]},\"scopeSpans\":[{\"scope\":{\"name\":\"climateinfoapp\"},\"spans\":[{"));
+        assertTrue(json.contains("\"traceId\":\"4bf92f3577b34da6a3ce929d0e0e4736\""));
+        assertTrue(json.contains("\"parentSpanId\":\"00f067aa0ba902b7\",\"name\":\"GET /search\",\"kind\":2,"));
+        assertTrue(json.contains("\"parentSpanId\":\"" + root.getSpanId() + "\",\"name\":\"openRecordsByCity\",\"kind\":3,"));
+        assertTrue(json.contains("\"startTimeUnixNano\":\"" + root.getStartEpochNanos() + "\""));
+        assertTrue(json.contains("{\"key\":\"http.status_code\",\"value\":{\"intValue\":\"200\"}}"));
+        assertTrue(json.contains("{\"key\":\"db.statement\",\"value\":{\"stringValue\":\"SELECT * FROM climate_data WHERE location = \\\"?\\\"\"}}"));
+        assertTrue(json.contains("\"status\":{\"code\":2,\"message\":\"timeout\"}"));
+        assertFalse(json.contains("\n"));
+    }
+
+    @Test
+    void testFilesAreRotated(@TempDir Path directory) throws Exception {
+        TraceFileExporter exporter = new TraceFileExporter(directory, 25, 2, 10);
+
+        for (int i = 1; i <= 5; i++) {
+            exporter.write("trace-" + i + "-0123456789");
+        }
+        exporter.closeWriter();
+
+        assertEquals(List.of("trace-5-0123456789"), Files.readAllLines(directory.resolve("traces.jsonl"), StandardCharsets.UTF_8));
+        assertEquals(List.of("trace-4-0123456789"), Files.readAllLines(directory.resolve("traces.1.jsonl"), StandardCharsets.UTF_8));
+        assertEquals(List.of("trace-3-0123456789"), Files.readAllLines(directory.resolve("traces.2.jsonl"), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(directory.resolve("traces.3.jsonl")));
+    }
+
+    @Test
+    void testQueuedTracesAreWrittenOnClose(@TempDir Path directory) throws Exception {
+        TraceFileExporter exporter = new TraceFileExporter(directory.resolve("traces"), 1 << 20, 1, 10);
+        Tracer tracer = new Tracer(1, exporter);
+        exporter.start();
+
+        tracer.startTrace("GET /", null).close();
+        tracer.startTrace("GET /search", null).close();
+        tracer.close();
+
+        List<String> lines = Files.readAllLines(directory.resolve("traces").resolve("traces.jsonl"), StandardCharsets.UTF_8);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(1).contains("\"name\":\"GET /search\""));
+        assertFalse(exporter.export(List.of()));
+    }
+}
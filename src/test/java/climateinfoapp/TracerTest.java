@@ -0,0 +1,120 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+class TracerTest {
+
+    private final List<List<Span>> traces = new ArrayList<>();
+
+    @Test
+    void testUnsampledRequestsRecordNothing() {
+        Tracer tracer = new Tracer(0, traces::add);
+
+        try (Span root = tracer.startTrace("GET /search", null)) {
+            assertSame(Span.NOOP, root);
+            assertSame(Span.NOOP, Tracer.currentSpan());
+            assertSame(Span.NOOP, Tracer.startSpan("openRecordsByCity", Span.Kind.CLIENT));
+            assertSame(Span.NOOP, Tracer.startScopedSpan("render SearchByCity.jsp"));
+        }
+
+        assertTrue(traces.isEmpty());
+        assertEquals(0, tracer.getStarted());
+    }
+
+    @Test
+    void testSpansFormATreeAndAreExportedWithTheRoot() {
+        Tracer tracer = new Tracer(1, traces::add);
+
+        Span root = tracer.startTrace("GET /search", null);
+        Span connect = Tracer.startSpan("db.connect", Span.Kind.CLIENT);
+        connect.close();
+        Span render = Tracer.startScopedSpan("render SearchByCity.jsp");
+        Span nested = Tracer.startSpan("map rows", Span.Kind.INTERNAL);
+        nested.close();
+        render.close();
+        assertSame(root, Tracer.currentSpan());
+        assertTrue(traces.isEmpty());
+        root.close();
+
+        assertSame(Span.NOOP, Tracer.currentSpan());
+        assertEquals(1, traces.size());
+        List<Span> spans = traces.get(0);
+        assertEquals(4, spans.size());
+        assertSame(root, spans.get(3));
+        assertNull(root.getParentSpanId());
+        assertEquals(32, root.getTraceId().length());
+        assertEquals(16, root.getSpanId().length());
+        assertEquals(root.getSpanId(), connect.getParentSpanId());
+        assertEquals(root.getSpanId(), render.getParentSpanId());
+        assertEquals(render.getSpanId(), nested.getParentSpanId());
+        assertTrue(spans.stream().allMatch(span -> span.getTraceId().equals(root.getTraceId())));
+        assertTrue(spans.stream().allMatch(span -> span.getDurationNanos() >= 0));
+        assertEquals(1, tracer.getExported());
+    }
+
+    @Test
+    void testSampledTraceparentIsContinued() {
+        Tracer tracer = new Tracer(0, traces::add);
+
+        Span root = tracer.startTrace("GET /", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01");
+        root.close();
+        Span unsampled = tracer.startTrace("GET /", "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-00");
+
+        assertEquals("4bf92f3577b34da6a3ce929d0e0e4736", root.getTraceId());
+        assertEquals("00f067aa0ba902b7", root.getParentSpanId());
+        assertSame(Span.NOOP, unsampled);
+        assertEquals(1, traces.size());
+    }
+
+    @Test
+    void testThreadsStartedByTheRequestJoinItsTrace() throws Exception {
+        Tracer tracer = new Tracer(1, traces::add);
+        AtomicReference<Span> shardQuery = new AtomicReference<>();
+        AtomicReference<Span> afterRequest = new AtomicReference<>();
+        CountDownLatch requestDone = new CountDownLatch(1);
+
+        Span root = tracer.startTrace("GET /search", null);
+        Thread shard = Thread.ofVirtual().start(() -> {
+            try (Span span = Tracer.startSpan("openRecordsByCity", Span.Kind.CLIENT)) {
+                shardQuery.set(span);
+            }
+        });
+        shard.join();
+        // A pooled thread created during the request outlives it
+        Thread pooled = Thread.ofVirtual().start(() -> {
+            try {
+                requestDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            afterRequest.set(Tracer.startSpan("retention", Span.Kind.INTERNAL));
+        });
+        root.close();
+        requestDone.countDown();
+        pooled.join();
+
+        assertEquals(root.getSpanId(), shardQuery.get().getParentSpanId());
+        assertEquals(2, traces.get(0).size());
+        assertSame(Span.NOOP, afterRequest.get());
+    }
+
+    @Test
+    void testExporterDropsAreCounted() {
+        Tracer tracer = new Tracer(1, spans -> false);
+
+        tracer.startTrace("GET /", null).close();
+
+        assertEquals(0, tracer.getExported());
+        assertEquals(1, tracer.getDropped());
+    }
+}
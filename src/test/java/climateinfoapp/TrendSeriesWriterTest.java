@@ -0,0 +1,170 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TrendSeriesWriterTest {
+
+    @Test
+    void testWritesSeriesGroupedByLocation() throws Exception {
+        TrendSeriesWriter writer = new TrendSeriesWriter(Arrays.asList(
+                new ClimateRecord(3, "2024-11-02", "Victoria", 12.5f, 5.0f),
+                new ClimateRecord(1, "2024-11-01", "Victoria", 10.0f, 4.0f),
+                new ClimateRecord(2, "2024-11-01", "Duncan", -1.5f, 3.0f)));
+
+        ByteBuffer buffer = write(writer);
+
+        assertEquals(Arrays.asList("Duncan", "Victoria"), writer.getLocations());
+        assertEquals(3, writer.getPointCount());
+        assertEquals(writer.getSize(), buffer.limit());
+        assertEquals(TrendSeriesWriter.MAGIC, buffer.getInt());
+        assertEquals('C', buffer.get(0));
+        assertEquals('1', buffer.get(3));
+        assertEquals(2, buffer.getInt());
+        assertEquals(3, buffer.getInt());
+        assertEquals(0, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        assertEquals("Duncan", readName(buffer));
+        assertEquals(1, buffer.getInt());
+        assertEquals(2, buffer.getInt());
+        assertEquals("Victoria", readName(buffer));
+
+        int columns = (buffer.position() + 3) & ~3;
+        assertEquals(columns + 3 * TrendSeriesWriter.POINT_BYTES, buffer.limit());
+        buffer.position(columns);
+        int epochDay = (int) LocalDate.parse("2024-11-01").toEpochDay();
+        assertEquals(Arrays.asList(2, 1, 3), readInts(buffer, 3));
+        assertEquals(Arrays.asList(epochDay, epochDay, epochDay + 1), readInts(buffer, 3));
+        assertEquals(-1.5f, buffer.getFloat());
+        assertEquals(10.0f, buffer.getFloat());
+        assertEquals(12.5f, buffer.getFloat());
+    }
+
+    @Test
+    void testDemultiplexSplitsContiguousLocations() throws Exception {
+        TrendSeriesWriter writer = TrendSeriesWriter.demultiplex(Arrays.asList(
+                new ClimateRecord(4, "2024-11-01", "Tofino", 8.0f, 5.0f),
+                new ClimateRecord(5, "2024-11-02", "Tofino", 9.0f, 5.0f),
+                new ClimateRecord(1, "2024-11-01", "Duncan", 7.0f, 4.0f)).iterator());
+
+        ByteBuffer buffer = write(writer);
+
+        assertEquals(Arrays.asList("Tofino", "Duncan"), writer.getLocations());
+        buffer.position(12);
+        assertEquals(0, buffer.getInt());
+        assertEquals(2, buffer.getInt());
+        assertEquals("Tofino", readName(buffer));
+        assertEquals(2, buffer.getInt());
+        assertEquals(1, buffer.getInt());
+        assertEquals("Duncan", readName(buffer));
+        assertThrows(IllegalArgumentException.class, () -> TrendSeriesWriter.demultiplex(Arrays.asList(
+                new ClimateRecord(4, "2024-11-01", "Tofino", 8.0f, 5.0f),
+                new ClimateRecord(1, "2024-11-01", "Duncan", 7.0f, 4.0f),
+                new ClimateRecord(5, "2024-11-02", "Tofino", 9.0f, 5.0f)).iterator()));
+    }
+
+    @Test
+    void testWritesEmptySeries() throws Exception {
+        TrendSeriesWriter writer = new TrendSeriesWriter(Collections.emptyList());
+
+        ByteBuffer buffer = write(writer);
+
+        assertEquals(12, buffer.limit());
+        assertEquals(TrendSeriesWriter.MAGIC, buffer.getInt());
+        assertEquals(0, buffer.getInt());
+        assertEquals(0, buffer.getInt());
+    }
+
+    @Test
+    void testColumnsLargerThanTheBufferAreWrittenInFull() throws Exception {
+        List<ClimateRecord> records = new ArrayList<>();
+        LocalDate firstDay = LocalDate.parse("2000-01-01");
+        for (int i = 0; i < 20_000; i++) {
+            records.add(new ClimateRecord(i + 1, firstDay.plusDays(i).toString(), "Tofino", i % 30, 1.0f));
+        }
+        TrendSeriesWriter writer = new TrendSeriesWriter(records);
+
+        ByteBuffer buffer = write(writer);
+
+        assertEquals(writer.getSize(), buffer.limit());
+        int columns = buffer.limit() - 20_000 * TrendSeriesWriter.POINT_BYTES;
+        assertEquals(20_000, buffer.getInt(columns + 4 * 19_999));
+        assertEquals((int) firstDay.plusDays(19_999).toEpochDay(), buffer.getInt(columns + 4 * 39_999));
+        assertEquals(19_999 % 30, buffer.getFloat(columns + 4 * 59_999));
+    }
+
+    @Test
+    void testValueColumnHoldsTheSelectedMetric() throws Exception {
+        TrendSeriesWriter writer = new TrendSeriesWriter(Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Victoria", -10.0f, 20.0f),
+                new ClimateRecord(2, "2024-11-02", "Victoria", 15.0f, 20.0f)));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(writer.getSize(), writer.writeTo(Channels.newChannel(out), DerivedMetrics.Metric.WIND_CHILL));
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+
+        int values = buffer.limit() - 2 * 4;
+        assertEquals(DerivedMetrics.windChill(-10.0f, 20.0f), buffer.getFloat(values));
+        assertTrue(Float.isNaN(buffer.getFloat(values + 4)));
+    }
+
+    @Test
+    void testRollingSeriesStartsAfterItsFirstWindowAndResetsPerLocation() throws Exception {
+        TrendSeriesWriter writer = TrendSeriesWriter.rolling(Arrays.asList(
+                new ClimateRecord(1, "2024-11-01", "Duncan", 10.0f, 5.0f),
+                new ClimateRecord(2, "2024-11-02", "Duncan", 20.0f, 5.0f),
+                new ClimateRecord(3, "2024-11-03", "Duncan", 30.0f, 5.0f),
+                new ClimateRecord(4, "2024-11-02", "Tofino", 4.0f, 5.0f),
+                new ClimateRecord(5, "2024-11-03", "Tofino", 8.0f, 5.0f)).iterator(),
+                DerivedMetrics.Metric.TEMPERATURE, new RollingWindow(2), RollingWindow.Statistic.MEAN,
+                LocalDate.parse("2024-11-02"));
+
+        ByteBuffer buffer = write(writer);
+
+        assertEquals(Arrays.asList("Duncan", "Tofino"), writer.getLocations());
+        assertEquals(4, writer.getPointCount());
+        int values = buffer.limit() - 4 * Float.BYTES;
+        assertEquals(Arrays.asList(2, 3, 4, 5), readInts(buffer.position(values - 8 * Integer.BYTES), 4));
+        // The window of 2024-11-02 covers the day before, which is not shown
+        assertEquals(15.0f, buffer.getFloat(values));
+        assertEquals(25.0f, buffer.getFloat(values + 4));
+        assertEquals(4.0f, buffer.getFloat(values + 8));
+        assertEquals(6.0f, buffer.getFloat(values + 12));
+        assertThrows(IllegalArgumentException.class,
+                () -> writer.writeTo(Channels.newChannel(new ByteArrayOutputStream()), DerivedMetrics.Metric.WIND_CHILL));
+    }
+
+    private static ByteBuffer write(TrendSeriesWriter writer) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(writer.getSize(), writer.writeTo(Channels.newChannel(out)));
+        return ByteBuffer.wrap(out.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String readName(ByteBuffer buffer) {
+        byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(name);
+        return new String(name, StandardCharsets.UTF_8);
+    }
+
+    private static List<Integer> readInts(ByteBuffer buffer, int count) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(buffer.getInt());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,126 @@
+package climateinfoapp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+class WarmupTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2024-11-30T12:00:00Z"), ZoneOffset.UTC);
+
+    private ClimateRecordDAO mockClimateRecordDAO;
+    private AnomalyDetector anomalyDetector;
+
+    @BeforeEach
+    void setUp() {
+        mockClimateRecordDAO = mock(ClimateRecordDAO.class);
+        anomalyDetector = new AnomalyDetector(mock(AnomalyDAO.class), 3.0, 5, 0.2);
+    }
+
+    @Test
+    void testRunPrimesBaselinesFromRecentReadings() throws Exception {
+        when(mockClimateRecordDAO.openRawClimateRecordsSince("2024-09-01")).thenReturn(cursorOf(
+                new ClimateRecord(1, "2024-11-01", "Victoria", 10.0f, 5.0f),
+                new ClimateRecord(2, "2024-11-02", "Victoria", 12.0f, 7.0f)));
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenReturn(Collections.emptyList());
+        Warmup warmup = new Warmup(mockClimateRecordDAO, anomalyDetector, new ClimateAggregator(), 90, 2, CLOCK);
+
+        assertFalse(warmup.isComplete());
+        warmup.run();
+
+        assertTrue(warmup.isComplete());
+        assertTrue(warmup.getDurationMillis() > 0);
+        verify(mockClimateRecordDAO).checkConnections(anyInt());
+        verify(mockClimateRecordDAO).listAllClimateRecords();
+        assertEquals(2, anomalyDetector.getStats("Victoria", AnomalyDetector.METRIC_TEMPERATURE).getCount());
+        assertEquals(11.0, anomalyDetector.getStats("Victoria", AnomalyDetector.METRIC_TEMPERATURE).getMean(), 1e-9);
+        assertEquals(2, anomalyDetector.getStats("Victoria", AnomalyDetector.METRIC_WIND).getCount());
+    }
+
+    @Test
+    void testFailingPhasesDoNotStopTheWarmup() throws Exception {
+        when(mockClimateRecordDAO.checkConnections(anyInt())).thenThrow(new DatabaseException("down", null));
+        when(mockClimateRecordDAO.openRawClimateRecordsSince("2024-09-01")).thenThrow(new DatabaseException("down", null));
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenThrow(new DatabaseException("down", null));
+        Warmup warmup = new Warmup(mockClimateRecordDAO, anomalyDetector, new ClimateAggregator(), 90, 1, CLOCK);
+
+        warmup.run();
+
+        assertTrue(warmup.isComplete());
+    }
+
+    @Test
+    void testExerciseHotPathsProcessesSyntheticRecords() throws Exception {
+        Warmup warmup = new Warmup(mockClimateRecordDAO, null, new ClimateAggregator(), 0, 3, CLOCK);
+
+        assertEquals(3 * ClimateInfoDashboard.LOCATIONS.size() * 64, warmup.exerciseHotPaths());
+    }
+
+    @Test
+    void testStoppedWarmupSkipsItsPhases() throws Exception {
+        Warmup warmup = new Warmup(mockClimateRecordDAO, anomalyDetector, new ClimateAggregator(), 90, 1, CLOCK);
+
+        warmup.stop();
+        warmup.run();
+
+        assertTrue(warmup.isComplete());
+        verify(mockClimateRecordDAO, never()).checkConnections(anyInt());
+        verify(mockClimateRecordDAO, never()).listAllClimateRecords();
+    }
+
+    @Test
+    @Timeout(10)
+    void testStopEndsTheWarmupThread() throws Exception {
+        when(mockClimateRecordDAO.listAllClimateRecords()).thenReturn(Collections.emptyList());
+        Warmup warmup = new Warmup(mockClimateRecordDAO, null, new ClimateAggregator(), 0, Integer.MAX_VALUE, CLOCK);
+
+        warmup.start();
+        warmup.stop();
+
+        // The hot paths would run for hours if the iterations were not cancelled
+        assertTrue(warmup.isComplete());
+    }
+
+    private static ClimateRecordCursor cursorOf(ClimateRecord... records) {
+        Iterator<ClimateRecord> iterator = Arrays.asList(records).iterator();
+        return new ClimateRecordCursor() {
+            private int rowCount;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public ClimateRecord next() {
+                rowCount++;
+                return iterator.next();
+            }
+
+            @Override
+            public int getRowCount() {
+                return rowCount;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}